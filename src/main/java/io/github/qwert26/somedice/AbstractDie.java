@@ -13,6 +13,11 @@ import java.util.function.IntPredicate;
  * @see RangeDie
  */
 public abstract sealed class AbstractDie implements IDie permits SingleDie, FudgeDie, UnfairDie, RangeDie {
+	/**
+	 * The stamp of the last modification.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+
 	/**
 	 * A new abstract die.
 	 */
@@ -20,6 +25,21 @@ public abstract sealed class AbstractDie implements IDie permits SingleDie, Fudg
 		super();
 	}
 
+	/**
+	 * Subclasses call this method in all of their setters.
+	 */
+	protected final void modified() {
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final long getModificationStamp() {
+		return modificationStamp;
+	}
+
 	/**
 	 * A support method used by some other classes.
 	 * 
@@ -27,6 +47,15 @@ public abstract sealed class AbstractDie implements IDie permits SingleDie, Fudg
 	 */
 	public abstract int getDistinctValues();
 
+	/**
+	 * Counts the values of the die, that match a condition, without evaluating the
+	 * die, so estimates can use it.
+	 * 
+	 * @param predicate The condition.
+	 * @return The amount of distinct values matching the condition.
+	 */
+	abstract int countValues(IntPredicate predicate);
+
 	/**
 	 * A support method usually used as an {@link IntPredicate}, when a dice is used
 	 * as a source for a {@code DiceExploder}.
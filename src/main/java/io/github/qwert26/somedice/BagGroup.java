@@ -0,0 +1,252 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * A bag group draws several tokens from a bag without replacement, like
+ * pulling chits from a cup or drawing cards from a small deck. It is the
+ * counterpart of the {@link HomogeneousDiceGroup}, which rolls with
+ * replacement. The bag is an {@link UnfairDie}, whose weights are the amounts
+ * of tokens showing each value.
+ * </p>
+ * <p>
+ * The multi-sets are enumerated with the same walk over non-decreasing indices
+ * as in the {@link HomogeneousDiceGroup}. A multi-set taking {@code k_i} of the
+ * {@code K_i} tokens of each value has the multivariate hypergeometric
+ * frequency, which is the product of the binomial coefficients
+ * {@code K_i C k_i}. Multi-sets taking more tokens of a value than the bag
+ * holds are left out. All frequencies sum up to {@code N C n}, where
+ * {@code N} is the amount of tokens in the bag and {@code n} the amount of
+ * drawn ones.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see HomogeneousDiceGroup
+ */
+public class BagGroup implements IDie {
+	/**
+	 * The bag, whose weights are the amounts of tokens of each value.
+	 * 
+	 * @apiNote Never <code>null</code>.
+	 */
+	private UnfairDie bag;
+	/**
+	 * Amount of tokens drawn from the bag. It is always positive.
+	 */
+	private int count;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new bag group.
+	 * 
+	 * @param bag   The amounts of tokens of each value.
+	 * @param count The amount of drawn tokens.
+	 * @throws NullPointerException     If the bag is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive.
+	 */
+	public BagGroup(UnfairDie bag, int count) {
+		super();
+		setBag(bag);
+		setCount(count);
+	}
+
+	/**
+	 * 
+	 * @return The current bag.
+	 */
+	public final UnfairDie getBag() {
+		return bag;
+	}
+
+	/**
+	 * 
+	 * @param bag The amounts of tokens of each value.
+	 * @throws NullPointerException If the new bag is <code>null</code>.
+	 */
+	public final void setBag(UnfairDie bag) {
+		this.bag = Objects.requireNonNull(bag, "A bag is required!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of drawn tokens.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param count The new amount of drawn tokens.
+	 * @throws IllegalArgumentException If count is not positive.
+	 */
+	public final void setCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("At least one token must be drawn!");
+		}
+		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, bag);
+	}
+
+	/**
+	 * The amount of entries is bounded by the amount of multi-sets of size
+	 * {@link #count}, taken from the distinct values of the {@link #bag}. It is
+	 * only exact, if the bag holds enough tokens of every value.
+	 * 
+	 * @see Utils#multichoose(int, int)
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = bag.estimate();
+		BigInteger entries = Utils.multichoose(bag.getDistinctValues(), count);
+		return new CostEstimate(entries, false, base.getMinValue(), base.getMaxValue(), count, count,
+				CostEstimate.costTerms(entries, entries.multiply(BigInteger.valueOf(count)), BigInteger.ZERO,
+						base));
+	}
+
+	/**
+	 * Produces a multivariate hypergeometric distribution of drawn tokens.
+	 * 
+	 * @throws IllegalStateException If the bag holds fewer tokens than are drawn.
+	 * @implNote Each valid map-key gets produced exactly once and is placed
+	 *           immediately with its final value in the returned map.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Produces a multivariate hypergeometric distribution of drawn tokens, while
+	 * checking the given budget for every produced entry.
+	 * 
+	 * @throws IllegalStateException If the bag holds fewer tokens than are drawn.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, compute(budget, bag.table()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Enumerates all multi-sets, which can be drawn from the bag.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param table  The tokens of the bag.
+	 * @return A new mapping of the multi-sets to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> compute(EvaluationBudget budget, FaceTable table) {
+		if (table.total().compareTo(BigInteger.valueOf(count)) < 0) {
+			throw new IllegalStateException(
+					"The bag holds only " + table.total() + " tokens, but " + count + " are drawn!");
+		}
+		// The ways to draw every possible amount of tokens of each value.
+		BigInteger[][] ways = new BigInteger[table.size()][];
+		for (int index = 0; index < table.size(); index++) {
+			BigInteger tokens = table.weight(index);
+			int most = tokens.compareTo(BigInteger.valueOf(count)) < 0 ? tokens.intValue() : count;
+			ways[index] = new BigInteger[most + 1];
+			ways[index][0] = BigInteger.ONE;
+			for (int drawn = 1; drawn <= most; drawn++) {
+				ways[index][drawn] = ways[index][drawn - 1].multiply(tokens.subtract(BigInteger.valueOf(drawn - 1)))
+						.divide(BigInteger.valueOf(drawn));
+			}
+			budget.countMultiplications(this, 2L * most);
+		}
+		int[] indices = new int[count];
+		int[] indexGroups = new int[table.size()];
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+				estimate().getInitialCapacity(budget), 1.0f);
+		multisets: do {
+			Arrays.fill(indexGroups, 0);
+			for (int subIndex : indices) {
+				if (++indexGroups[subIndex] >= ways[subIndex].length) {
+					continue multisets;
+				}
+			}
+			final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+			BigInteger nextValue = BigInteger.ONE;
+			for (int index = 0; index < indexGroups.length; index++) {
+				if (indexGroups[index] > 0) {
+					nextKey.put(table.face(index), indexGroups[index]);
+					nextValue = nextValue.multiply(ways[index][indexGroups[index]]);
+				}
+			}
+			// Actually, this is bad practice and dangerous, but we never modify the key
+			// afterwards, so this is OK.
+			ret.put(nextKey, nextValue);
+			budget.countMultiplications(this, nextKey.size());
+			budget.checkEntry(this, ret.size(), nextKey, nextValue);
+		} while (HomogeneousDiceGroup.nextMultiset(indices, table.size()));
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + bag.hashCode();
+		result = prime * result + count;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BagGroup)) {
+			return false;
+		}
+		BagGroup other = (BagGroup) obj;
+		return bag.equals(other.bag) && count == other.count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("BagGroup [bag=");
+		builder.append(bag);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.qwert26.somedice;
+
+/**
+ * Thrown when an evaluation runs over one of the limits of its
+ * {@link EvaluationBudget}. It carries the progress that was made up to the
+ * point of abortion, so callers can report how far the computation got.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see EvaluationBudget
+ */
+public class BudgetExceededException extends RuntimeException {
+	private static final long serialVersionUID = 4376920331950381822L;
+
+	/**
+	 * The different limits of an {@link EvaluationBudget}.
+	 */
+	public static enum Limit {
+		/**
+		 * The amount of entries in a single result.
+		 */
+		ENTRIES,
+		/**
+		 * The bit length of a single absolute frequency.
+		 */
+		BIT_LENGTH,
+		/**
+		 * The wall-clock time of the whole evaluation.
+		 */
+		TIME,
+		/**
+		 * The approximated heap usage of the whole evaluation.
+		 */
+		HEAP
+	}
+
+	/**
+	 * The limit, that has been exceeded.
+	 */
+	private final Limit limit;
+	/**
+	 * The node, that was being evaluated when the limit was exceeded.
+	 */
+	private final transient IDie node;
+	/**
+	 * The amount of entries produced over the whole evaluation so far.
+	 */
+	private final long producedEntries;
+	/**
+	 * The elapsed time since the start of the evaluation in milliseconds.
+	 */
+	private final long elapsedMillis;
+	/**
+	 * The approximated amount of bytes allocated for results so far.
+	 */
+	private final long approximateHeapBytes;
+
+	/**
+	 * Creates a new exception describing the exceeded limit and the progress made.
+	 * 
+	 * @param limit                The limit, that has been exceeded.
+	 * @param node                 The node being evaluated at that time.
+	 * @param producedEntries      The amount of entries produced so far.
+	 * @param elapsedMillis        The elapsed time in milliseconds.
+	 * @param approximateHeapBytes The approximated amount of bytes used so far.
+	 */
+	public BudgetExceededException(Limit limit, IDie node, long producedEntries, long elapsedMillis,
+			long approximateHeapBytes) {
+		super("Evaluation budget exceeded (" + limit + ") while evaluating "
+				+ (node == null ? "an unknown node" : node.getClass().getSimpleName()) + " after producing "
+				+ producedEntries + " entries in " + elapsedMillis + "ms using approximately " + approximateHeapBytes
+				+ " bytes.");
+		this.limit = limit;
+		this.node = node;
+		this.producedEntries = producedEntries;
+		this.elapsedMillis = elapsedMillis;
+		this.approximateHeapBytes = approximateHeapBytes;
+	}
+
+	/**
+	 * 
+	 * @return The limit, that has been exceeded.
+	 */
+	public final Limit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * 
+	 * @return The node, that was being evaluated when the limit was exceeded.
+	 */
+	public final IDie getNode() {
+		return node;
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries produced over the whole evaluation.
+	 */
+	public final long getProducedEntries() {
+		return producedEntries;
+	}
+
+	/**
+	 * 
+	 * @return The elapsed time since the start of the evaluation in milliseconds.
+	 */
+	public final long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * 
+	 * @return The approximated amount of bytes allocated for results.
+	 */
+	public final long getApproximateHeapBytes() {
+		return approximateHeapBytes;
+	}
+}
@@ -4,16 +4,55 @@ import java.math.BigInteger;
 import java.util.*;
 import java.util.function.*;
 
+import io.github.qwert26.somedice.util.*;
+
 /**
  * A compressor takes in a detailed description of rolled dice and converts them
  * into a single number: This is more memory efficient but loses details. It is
  * made {@code final}, as certain other classes rely on the fact, that its
  * {@link #getAbsoluteFrequencies()}-method produces keys in the form of
  * <code>{X=1}</code>.
+ * <p>
+ * Built-in compressions are recognized by their functions and evaluated with
+ * specialized kernels instead of calling the functions for every value-count
+ * pair: The sum, the count of a matching value, the maximum, the minimum and
+ * the count of distinct values.
+ * </p>
+ * <p>
+ * Large sources are compressed in parallel by default, which calls the
+ * functions from several threads at once: Custom functions have to be
+ * thread-safe, see {@link #setParallelThreshold(int)}.
+ * </p>
  * 
  * @author <b>Qwert26</b>, main author
  */
 public final class Compressor implements IDie, IRequiresSource {
+	/**
+	 * The value-count-function used for adding up all dice: It multiplies the value
+	 * with its count.
+	 */
+	public static final ExportableIntBinaryOperator PRODUCT = ExportableIntBinaryOperator.of(Math::multiplyExact,
+			"v*c");
+	/**
+	 * The value-count-function ignoring the count.
+	 */
+	public static final ExportableIntBinaryOperator VALUE = ExportableIntBinaryOperator.of((v, _) -> v, "v");
+	/**
+	 * The value-count-function for counting distinct values.
+	 */
+	public static final ExportableIntBinaryOperator ONE = ExportableIntBinaryOperator.of((_, _) -> 1, "1");
+	/**
+	 * The accumulator used for adding up all dice.
+	 */
+	public static final ExportableIntBinaryOperator SUM = ExportableIntBinaryOperator.of(Math::addExact, "+");
+	/**
+	 * The accumulator keeping the greatest value.
+	 */
+	public static final ExportableIntBinaryOperator MAXIMUM = ExportableIntBinaryOperator.of(Math::max, "max");
+	/**
+	 * The accumulator keeping the smallest value.
+	 */
+	public static final ExportableIntBinaryOperator MINIMUM = ExportableIntBinaryOperator.of(Math::min, "min");
 	/**
 	 * The source of dice rolls.
 	 */
@@ -25,6 +64,10 @@ public final class Compressor implements IDie, IRequiresSource {
 	 * @see Math#multiplyExact(int, int)
 	 */
 	private ToIntBiFunction<Integer, Integer> valueCountFunction;
+	/**
+	 * The primitive version of the {@link #valueCountFunction}.
+	 */
+	private IntBinaryOperator valueCountOperator;
 	/**
 	 * Function that describes how to combine a new compressed value-count-pair with
 	 * the previous result. Usually by adding them.
@@ -32,10 +75,31 @@ public final class Compressor implements IDie, IRequiresSource {
 	 * @see Math#addExact(int, int)
 	 */
 	private ToIntBiFunction<Integer, Integer> accumulator;
+	/**
+	 * The primitive version of the {@link #accumulator}.
+	 */
+	private IntBinaryOperator accumulatorOperator;
+	/**
+	 * The kernel recognized from both functions.
+	 */
+	private Kernel kernel = Kernel.GENERIC;
 	/**
 	 * Provides the start value for the accumulation.
 	 */
 	private IntSupplier startValue;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The amount of entries of the source, from which on they are mapped and
+	 * reduced in parallel.
+	 */
+	private int parallelThreshold = Utils.DEFAULT_PARALLEL_THRESHOLD;
 
 	/**
 	 * Creates a fully customized compressor.
@@ -104,8 +168,8 @@ public final class Compressor implements IDie, IRequiresSource {
 	public Compressor(IDie source, IntSupplier start) {
 		setSource(source);
 		setStartValue(start);
-		valueCountFunction = Math::multiplyExact;
-		accumulator = Math::addExact;
+		setValueCountFunction(PRODUCT);
+		setAccumulator(SUM);
 	}
 
 	/**
@@ -119,8 +183,8 @@ public final class Compressor implements IDie, IRequiresSource {
 	public Compressor(IDie source, int start) {
 		setSource(source);
 		setStartValue(start);
-		valueCountFunction = Math::multiplyExact;
-		accumulator = Math::addExact;
+		setValueCountFunction(PRODUCT);
+		setAccumulator(SUM);
 	}
 
 	/**
@@ -132,11 +196,144 @@ public final class Compressor implements IDie, IRequiresSource {
 	 */
 	public Compressor(IDie source) {
 		setSource(source);
-		valueCountFunction = Math::multiplyExact;
-		accumulator = Math::addExact;
+		setValueCountFunction(PRODUCT);
+		setAccumulator(SUM);
 		startValue = () -> 0;
 	}
 
+	/**
+	 * Creates a fully customized compressor from primitive functions, which avoid
+	 * boxing every value-count pair.
+	 * 
+	 * @param source     The source of the dice rolls.
+	 * @param valueCount The function which turns a value and its occurrences into
+	 *                   a single value, to be accumulated.
+	 * @param accumulate The function which takes the previously accumulated result
+	 *                   and combines it with the next entry.
+	 * @param start      The discrete starting value.
+	 * @return The new compressor.
+	 * @throws NullPointerException if any of the first three parameters are null.
+	 */
+	public static Compressor of(IDie source, IntBinaryOperator valueCount, IntBinaryOperator accumulate, int start) {
+		Compressor ret = new Compressor(source, start);
+		ret.setValueCountOperator(valueCount);
+		ret.setAccumulatorOperator(accumulate);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param source The source of the dice rolls.
+	 * @return A new compressor adding up all dice.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 */
+	public static Compressor sum(IDie source) {
+		return new Compressor(source, PRODUCT, SUM, 0);
+	}
+
+	/**
+	 * 
+	 * @param source The source of the dice rolls.
+	 * @param face   The value to count.
+	 * @return A new compressor counting the dice showing the given value.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 */
+	public static Compressor countMatching(IDie source, int face) {
+		return new Compressor(source, matching(face), SUM, 0);
+	}
+
+	/**
+	 * 
+	 * @param source The source of the dice rolls.
+	 * @return A new compressor keeping the greatest value. Without any dice, the
+	 *         result is {@link Integer#MIN_VALUE}.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 */
+	public static Compressor maximum(IDie source) {
+		return new Compressor(source, VALUE, MAXIMUM, Integer.MIN_VALUE);
+	}
+
+	/**
+	 * 
+	 * @param source The source of the dice rolls.
+	 * @return A new compressor keeping the smallest value. Without any dice, the
+	 *         result is {@link Integer#MAX_VALUE}.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 */
+	public static Compressor minimum(IDie source) {
+		return new Compressor(source, VALUE, MINIMUM, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 
+	 * @param source The source of the dice rolls.
+	 * @return A new compressor counting the distinct values.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 */
+	public static Compressor countDistinct(IDie source) {
+		return new Compressor(source, ONE, SUM, 0);
+	}
+
+	/**
+	 * 
+	 * @param face The value to count.
+	 * @return The value-count-function returning the count of the given value and
+	 *         zero for all others.
+	 */
+	public static ExportableIntBinaryOperator matching(int face) {
+		return new Matching(face);
+	}
+
+	/**
+	 * The value-count-function for counting a single value.
+	 * 
+	 * @param face The value to count.
+	 * @author <b>Qwert26</b>, main author
+	 */
+	private record Matching(int face) implements ExportableIntBinaryOperator {
+		@Override
+		public int applyAsInt(int value, int count) {
+			return value == face ? count : 0;
+		}
+
+		@Override
+		public String export() {
+			return "c[v=" + face + "]";
+		}
+	}
+
+	/**
+	 * The specialized kernels for the built-in compressions.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	private enum Kernel {
+		/**
+		 * Calls the functions for every value-count pair.
+		 */
+		GENERIC,
+		/**
+		 * Adds up the products of the values and their counts.
+		 */
+		SUM,
+		/**
+		 * Looks up the count of a single value.
+		 */
+		COUNT_MATCHING,
+		/**
+		 * Takes the last value of a sorted key.
+		 */
+		MAXIMUM,
+		/**
+		 * Takes the first value of a sorted key.
+		 */
+		MINIMUM,
+		/**
+		 * Takes the size of the key.
+		 */
+		COUNT_DISTINCT;
+	}
+
 	/**
 	 * 
 	 * @return The current source.
@@ -161,6 +358,7 @@ public final class Compressor implements IDie, IRequiresSource {
 			}
 		}
 		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -175,12 +373,46 @@ public final class Compressor implements IDie, IRequiresSource {
 	/**
 	 * 
 	 * @param valueCountFunction The function compressing pairs of values and counts
-	 *                           into a single value, which will be accumulated.
+	 *                           into a single value, which will be accumulated. It
+	 *                           may be called in parallel.
 	 * @throws NullPointerException if the parameter is <code>null</code>.
 	 */
 	public final void setValueCountFunction(ToIntBiFunction<Integer, Integer> valueCountFunction) {
 		this.valueCountFunction = Objects.requireNonNull(valueCountFunction,
 				"A function for compressing key-value pairs must be given!");
+		if (valueCountFunction instanceof IntBinaryOperator operator) {
+			valueCountOperator = operator;
+		} else {
+			valueCountOperator = valueCountFunction::applyAsInt;
+		}
+		kernel = recognizeKernel();
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current function for compressing entries as a primitive
+	 *         function.
+	 */
+	public final IntBinaryOperator getValueCountOperator() {
+		return valueCountOperator;
+	}
+
+	/**
+	 * 
+	 * @param valueCountOperator The primitive function compressing pairs of values
+	 *                           and counts into a single value, which will be
+	 *                           accumulated. It may be called in parallel.
+	 * @throws NullPointerException if the parameter is <code>null</code>.
+	 */
+	public final void setValueCountOperator(IntBinaryOperator valueCountOperator) {
+		Objects.requireNonNull(valueCountOperator, "A function for compressing key-value pairs must be given!");
+		if (valueCountOperator instanceof ExportableIntBinaryOperator exportable) {
+			setValueCountFunction(exportable);
+		} else {
+			setValueCountFunction((Integer value, Integer count) -> valueCountOperator.applyAsInt(value, count));
+			this.valueCountOperator = valueCountOperator;
+		}
 	}
 
 	/**
@@ -194,12 +426,69 @@ public final class Compressor implements IDie, IRequiresSource {
 	/**
 	 * 
 	 * @param accumulator The function for accumulating the results of the
-	 *                    {@link #valueCountFunction}.
+	 *                    {@link #valueCountFunction}. It may be called in
+	 *                    parallel.
 	 * @throws NullPointerException if the parameter is <code>null</code>.
 	 */
 	public final void setAccumulator(ToIntBiFunction<Integer, Integer> accumulator) {
 		this.accumulator = Objects.requireNonNull(accumulator,
 				"A function for accumulating the results must be given!");
+		if (accumulator instanceof IntBinaryOperator operator) {
+			accumulatorOperator = operator;
+		} else {
+			accumulatorOperator = accumulator::applyAsInt;
+		}
+		kernel = recognizeKernel();
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current function for accumulating as a primitive function.
+	 */
+	public final IntBinaryOperator getAccumulatorOperator() {
+		return accumulatorOperator;
+	}
+
+	/**
+	 * 
+	 * @param accumulatorOperator The primitive function for accumulating the
+	 *                            results of the value-count-function. It may be
+	 *                            called in parallel.
+	 * @throws NullPointerException if the parameter is <code>null</code>.
+	 */
+	public final void setAccumulatorOperator(IntBinaryOperator accumulatorOperator) {
+		Objects.requireNonNull(accumulatorOperator, "A function for accumulating the results must be given!");
+		if (accumulatorOperator instanceof ExportableIntBinaryOperator exportable) {
+			setAccumulator(exportable);
+		} else {
+			setAccumulator((Integer previous, Integer next) -> accumulatorOperator.applyAsInt(previous, next));
+			this.accumulatorOperator = accumulatorOperator;
+		}
+	}
+
+	/**
+	 * 
+	 * @return The kernel for the current functions, {@link Kernel#GENERIC} if they
+	 *         are not a built-in compression.
+	 */
+	private Kernel recognizeKernel() {
+		if (accumulator == SUM) {
+			if (valueCountFunction == PRODUCT) {
+				return Kernel.SUM;
+			} else if (valueCountFunction instanceof Matching) {
+				return Kernel.COUNT_MATCHING;
+			} else if (valueCountFunction == ONE) {
+				return Kernel.COUNT_DISTINCT;
+			}
+		} else if (valueCountFunction == VALUE) {
+			if (accumulator == MAXIMUM) {
+				return Kernel.MAXIMUM;
+			} else if (accumulator == MINIMUM) {
+				return Kernel.MINIMUM;
+			}
+		}
+		return Kernel.GENERIC;
 	}
 
 	/**
@@ -213,11 +502,13 @@ public final class Compressor implements IDie, IRequiresSource {
 	/**
 	 * 
 	 * @param startValue A supplier for giving out the start value for accumulating.
-	 *                   It should return a constant value each time.
+	 *                   It should return a constant value each time, even when
+	 *                   called in parallel.
 	 * @throws NullPointerException if the parameter is <code>null</code>.
 	 */
 	public final void setStartValue(IntSupplier startValue) {
 		this.startValue = Objects.requireNonNull(startValue, "A start value must be given!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -227,6 +518,61 @@ public final class Compressor implements IDie, IRequiresSource {
 	 */
 	public final void setStartValue(final int startValue) {
 		this.startValue = () -> startValue;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries of the source, from which on they are mapped
+	 *         and reduced in parallel.
+	 */
+	public final int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Results are identical for every threshold, so the cached one stays valid.
+	 * Evaluations under a {@link EvaluationBudget#isLimited() limited} budget
+	 * ignore the threshold and stay sequential.
+	 * <p>
+	 * In parallel, the value-count-function, the accumulator and the start value
+	 * are called from several threads at once. The built-in functions are
+	 * stateless, but custom ones have to be thread-safe, unless the threshold is
+	 * set to {@link Integer#MAX_VALUE}.
+	 * </p>
+	 * 
+	 * @param parallelThreshold The amount of entries of the source, from which on
+	 *                          they are mapped and reduced in parallel.
+	 *                          {@link Integer#MAX_VALUE} effectively disables it.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see Utils#mapKeys(IDie, EvaluationBudget, Map, java.util.function.UnaryOperator, int)
+	 */
+	public final void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("The parallel threshold must be positive!");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * The source is only collected into a single map for the parallel path, if its
+	 * estimate reaches the threshold, it can not spill and the budget has no
+	 * limits to check on the way. Otherwise it is
+	 * streamed, so a spilled source can still be merged back one partition at a
+	 * time: Its large estimate would otherwise select the path, which has to load
+	 * it completely.
+	 * 
+	 * @param budget The budget of the current evaluation, it must not be limited.
+	 * @return {@code true}, if the source should be mapped and reduced in parallel.
+	 * @see IDie#maySpill()
+	 * @see EvaluationBudget#isLimited()
+	 */
+	private boolean reachesParallelThreshold(EvaluationBudget budget) {
+		if (source.maySpill() || budget.isLimited()) {
+			return false;
+		}
+		CostEstimate base = source.estimate();
+		return base.isKnown() && base.getEntries().compareTo(BigInteger.valueOf(parallelThreshold)) >= 0;
 	}
 
 	/**
@@ -304,6 +650,44 @@ public final class Compressor implements IDie, IRequiresSource {
 		return builder.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * The amount of entries is bounded by the amount of entries of the source. If
+	 * this compressor adds up all dice, it is also bounded by the range of possible
+	 * sums.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if the source is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		BigInteger entries = base.getEntries();
+		int minValue = Integer.MIN_VALUE, maxValue = Integer.MAX_VALUE;
+		if (kernel == Kernel.SUM) {
+			final long start = startValue.getAsInt();
+			long low = Math.min((long) base.getMinValue() * base.getMinDice(),
+					(long) base.getMinValue() * base.getMaxDice());
+			long high = Math.max((long) base.getMaxValue() * base.getMinDice(),
+					(long) base.getMaxValue() * base.getMaxDice());
+			minValue = Math.clamp(start + low, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			maxValue = Math.clamp(start + high, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			entries = entries.min(BigInteger.valueOf((long) maxValue - minValue + 1));
+		}
+		return new CostEstimate(entries, base.isExact() && base.getEntries().compareTo(BigInteger.ONE) <= 0, minValue,
+				maxValue, 1, 1, CostEstimate.costTerms(base.getEntries(), BigInteger.ZERO, base.getEntries(), base));
+	}
+
 	/**
 	 * Compresses the source down into a single value. All entries in the returned
 	 * map will look like this: <code>{{X=1}=Y}</code>. <code>X</code> is the
@@ -313,19 +697,76 @@ public final class Compressor implements IDie, IRequiresSource {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		Map<Map<Integer, Integer>, BigInteger> result = source.getAbsoluteFrequencies();
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(result.size(),
-				1.0f);
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> resultEntry : result.entrySet()) {
-			int accumulated = startValue.getAsInt();
-			for (Map.Entry<Integer, Integer> valueCount : resultEntry.getKey().entrySet()) {
-				int temp = valueCountFunction.applyAsInt(valueCount.getKey(), valueCount.getValue());
-				accumulated = accumulator.applyAsInt(accumulated, temp);
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Compresses the source down into a single value, while checking the given
+	 * budget for every compressed entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			if (reachesParallelThreshold(budget)) {
+				return cache.put(stamp,
+						Utils.mapKeys(this, budget, source.getAbsoluteFrequencies(budget), this::compressKey, parallelThreshold));
 			}
-			ret.compute(Collections.singletonMap(accumulated, 1),
-					(_, v) -> resultEntry.getValue().add(v == null ? BigInteger.ZERO : v));
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+					estimate().getInitialCapacity(budget), 1.0f);
+			// Streaming allows a spilled source to be merged back one partition at a time.
+			source.forEachAbsoluteFrequency(budget, (key, frequency) -> {
+				Map<Integer, Integer> nextKey = Collections.singletonMap(compress(key), 1);
+				BigInteger merged = ret.merge(nextKey, frequency, BigInteger::add);
+				budget.checkEntry(this, ret.size(), nextKey, merged);
+			});
+			return cache.put(stamp, ret);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and keeps its scale. A source,
+	 * which might spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return ScaledFrequencies.of(getAbsoluteFrequencies(budget));
+		}
+		budget.enter(this);
+		try {
+			ScaledFrequencies scaled = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(scaled.getScale(),
+					Utils.mapKeys(this, budget, scaled.getReduced(), this::compressKey, parallelThreshold));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the approximated probabilities of the source. A source, which might
+	 * spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return Probabilities.of(getScaledFrequencies(budget), logSpace);
+		}
+		budget.enter(this);
+		try {
+			return Utils.mapKeys(this, budget, source.getProbabilities(logSpace, budget), this::compressKey);
+		} finally {
+			budget.exit(this);
 		}
-		return ret;
 	}
 
 	/**
@@ -336,17 +777,83 @@ public final class Compressor implements IDie, IRequiresSource {
 	 *         compressed source.
 	 */
 	public UnfairDie toUnfairDie() {
-		Map<Map<Integer, Integer>, BigInteger> result = source.getAbsoluteFrequencies();
-		UnfairDie ret = new UnfairDie();
-		Map<Integer, BigInteger> data = ret.getData();
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> resultEntry : result.entrySet()) {
-			int accumulated = startValue.getAsInt();
-			for (Map.Entry<Integer, Integer> valueCount : resultEntry.getKey().entrySet()) {
-				int temp = valueCountFunction.applyAsInt(valueCount.getKey(), valueCount.getValue());
-				accumulated = accumulator.applyAsInt(accumulated, temp);
+		return toUnfairDie(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Compresses the source into an unfair die, while evaluating the source under
+	 * the given budget.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A new unfair with the exact same distribution of values as the
+	 *         compressed source.
+	 * @implNote The returned die is backed by sorted arrays, its map gets only
+	 *           created, once it is requested.
+	 * @see #toUnfairDie()
+	 */
+	public UnfairDie toUnfairDie(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			Map<Integer, BigInteger> data = new HashMap<Integer, BigInteger>();
+			source.forEachAbsoluteFrequency(budget,
+					(key, frequency) -> data.merge(compress(key), frequency, BigInteger::add));
+			return new UnfairDie(FaceTable.of(data));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Compresses a single key of the source into a key of the result.
+	 * 
+	 * @param key A key of the source.
+	 * @return An unmodifiable mapping of the compressed value to one.
+	 */
+	private Map<Integer, Integer> compressKey(Map<Integer, Integer> key) {
+		return Collections.singletonMap(compress(key), 1);
+	}
+
+	/**
+	 * Compresses a single key of the source.
+	 * 
+	 * @param key A key of the source.
+	 * @return The compressed value.
+	 */
+	private int compress(Map<Integer, Integer> key) {
+		int accumulated = startValue.getAsInt();
+		switch (kernel) {
+		case SUM -> {
+			for (Map.Entry<Integer, Integer> valueCount : key.entrySet()) {
+				accumulated = Math.addExact(accumulated, Math.multiplyExact(valueCount.getKey(), valueCount.getValue()));
 			}
-			data.compute(accumulated, (_, v) -> resultEntry.getValue().add(v == null ? BigInteger.ZERO : v));
+			return accumulated;
 		}
-		return ret;
+		case COUNT_MATCHING -> {
+			Integer count = key.get(((Matching) valueCountFunction).face());
+			return count == null ? accumulated : Math.addExact(accumulated, count);
+		}
+		case COUNT_DISTINCT -> {
+			return Math.addExact(accumulated, key.size());
+		}
+		case MAXIMUM -> {
+			// Only keys in their natural order know their greatest value.
+			if (key instanceof SortedMap<Integer, Integer> sorted && sorted.comparator() == null) {
+				return sorted.isEmpty() ? accumulated : Math.max(accumulated, sorted.lastKey());
+			}
+		}
+		case MINIMUM -> {
+			if (key instanceof SortedMap<Integer, Integer> sorted && sorted.comparator() == null) {
+				return sorted.isEmpty() ? accumulated : Math.min(accumulated, sorted.firstKey());
+			}
+		}
+		case GENERIC -> {
+		}
+		}
+		for (Map.Entry<Integer, Integer> valueCount : key.entrySet()) {
+			int temp = valueCountOperator.applyAsInt(valueCount.getKey(), valueCount.getValue());
+			accumulated = accumulatorOperator.applyAsInt(accumulated, temp);
+		}
+		return accumulated;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * An analytic estimate of the result of an {@link IDie}, made without
+ * evaluating it: The amount of entries in its result, the range of values
+ * appearing in its keys, the range of dice per key and the dominant cost terms
+ * of the complete evaluation, including the sources.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see IDie#estimate()
+ */
+public final class CostEstimate {
+	/**
+	 * The name of the cost term counting all keys generated during the
+	 * evaluation, including the ones that get merged.
+	 */
+	public static final String GENERATED_KEYS = "generatedKeys";
+	/**
+	 * The name of the cost term counting the multiplications of absolute
+	 * frequencies.
+	 */
+	public static final String MULTIPLICATIONS = "multiplications";
+	/**
+	 * The name of the cost term counting the additions of absolute frequencies.
+	 */
+	public static final String ADDITIONS = "additions";
+	/**
+	 * The estimate for nodes, that do not provide one: Nothing is known about
+	 * them.
+	 */
+	public static final CostEstimate UNKNOWN = new CostEstimate(null, false, Integer.MIN_VALUE, Integer.MAX_VALUE, 0,
+			Integer.MAX_VALUE, Collections.emptyMap());
+	/**
+	 * The greatest initial capacity handed out: A {@link HashMap} allocates its
+	 * whole table with the first entry, before any budget could stop it.
+	 */
+	private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+	/**
+	 * The estimated amount of entries, <code>null</code> if unknown.
+	 */
+	private final BigInteger entries;
+	/**
+	 * If <code>true</code>, {@link #entries} is exact. Otherwise it is an upper
+	 * bound.
+	 */
+	private final boolean exact;
+	/**
+	 * The smallest value, that can appear in a key.
+	 */
+	private final int minValue;
+	/**
+	 * The greatest value, that can appear in a key.
+	 */
+	private final int maxValue;
+	/**
+	 * The smallest amount of dice in a key.
+	 */
+	private final int minDice;
+	/**
+	 * The greatest amount of dice in a key.
+	 */
+	private final int maxDice;
+	/**
+	 * The cost terms of the complete evaluation.
+	 */
+	private final Map<String, BigInteger> costTerms;
+
+	/**
+	 * Creates a new estimate.
+	 * 
+	 * @param entries   The estimated amount of entries, <code>null</code> if
+	 *                  unknown.
+	 * @param exact     If the amount of entries is exact or an upper bound.
+	 * @param minValue  The smallest value, that can appear in a key.
+	 * @param maxValue  The greatest value, that can appear in a key.
+	 * @param minDice   The smallest amount of dice in a key.
+	 * @param maxDice   The greatest amount of dice in a key.
+	 * @param costTerms The cost terms of the complete evaluation, gets copied.
+	 * @throws NullPointerException If the cost terms are <code>null</code>.
+	 */
+	public CostEstimate(BigInteger entries, boolean exact, int minValue, int maxValue, int minDice, int maxDice,
+			Map<String, BigInteger> costTerms) {
+		super();
+		this.entries = entries;
+		this.exact = exact && entries != null;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.minDice = minDice;
+		this.maxDice = maxDice;
+		this.costTerms = Collections.unmodifiableMap(new LinkedHashMap<String, BigInteger>(
+				Objects.requireNonNull(costTerms, "Cost terms must be given!")));
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code>, if the amount of entries is known.
+	 */
+	public final boolean isKnown() {
+		return entries != null;
+	}
+
+	/**
+	 * 
+	 * @return The estimated amount of entries, <code>null</code> if unknown.
+	 */
+	public final BigInteger getEntries() {
+		return entries;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code>, if the amount of entries is exact.
+	 *         <code>false</code>, if it is only an upper bound.
+	 */
+	public final boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * 
+	 * @return The smallest value, that can appear in a key.
+	 */
+	public final int getMinValue() {
+		return minValue;
+	}
+
+	/**
+	 * 
+	 * @return The greatest value, that can appear in a key.
+	 */
+	public final int getMaxValue() {
+		return maxValue;
+	}
+
+	/**
+	 * 
+	 * @return The smallest amount of dice in a key.
+	 */
+	public final int getMinDice() {
+		return minDice;
+	}
+
+	/**
+	 * 
+	 * @return The greatest amount of dice in a key.
+	 */
+	public final int getMaxDice() {
+		return maxDice;
+	}
+
+	/**
+	 * 
+	 * @return An unmodifiable view of the cost terms of the complete evaluation.
+	 */
+	public final Map<String, BigInteger> getCostTerms() {
+		return costTerms;
+	}
+
+	/**
+	 * Computes an initial capacity for a {@link HashMap} with a load factor of
+	 * {@code 1.0f}, that will hold the result.
+	 * 
+	 * @return The exact amount of entries, if it is known, exact and fits into a
+	 *         map, but at most {@code 2^20}. Otherwise the default capacity of
+	 *         {@code 16}.
+	 * @see #getInitialCapacity(EvaluationBudget)
+	 */
+	public final int getInitialCapacity() {
+		return getInitialCapacity(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Computes an initial capacity for a {@link HashMap} with a load factor of
+	 * {@code 1.0f}, that will hold the result of an evaluation under the given
+	 * budget. The capacity never exceeds the entry limit of the budget, so a
+	 * result, which is too large, still fails with a
+	 * {@link BudgetExceededException} instead of running out of memory.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @return The exact amount of entries, if it is known, exact and fits into a
+	 *         map, but at most the entry limit of the budget plus one and at most
+	 *         {@code 2^20}. Otherwise the default capacity of {@code 16}.
+	 */
+	public final int getInitialCapacity(EvaluationBudget budget) {
+		if (exact && entries.bitLength() < 31) {
+			int limit = (int) Math.min(MAX_INITIAL_CAPACITY, budget.getMaxEntries() + 1L);
+			return Math.max(1, Math.min(entries.intValue(), limit));
+		}
+		return 16;
+	}
+
+	/**
+	 * Sums up the cost terms of the given sources with the given own terms.
+	 * 
+	 * @param generatedKeys   The keys generated by the node itself.
+	 * @param multiplications The multiplications done by the node itself.
+	 * @param additions       The additions done by the node itself.
+	 * @param sources         The estimates of the sources of the node.
+	 * @return The combined cost terms.
+	 */
+	public static Map<String, BigInteger> costTerms(BigInteger generatedKeys, BigInteger multiplications,
+			BigInteger additions, CostEstimate... sources) {
+		Map<String, BigInteger> ret = new LinkedHashMap<String, BigInteger>(4, 1.0f);
+		ret.put(GENERATED_KEYS, generatedKeys);
+		ret.put(MULTIPLICATIONS, multiplications);
+		ret.put(ADDITIONS, additions);
+		for (CostEstimate source : sources) {
+			source.costTerms.forEach((term, cost) -> ret.merge(term, cost, BigInteger::add));
+		}
+		return ret;
+	}
+
+	/**
+	 * Creates the estimate of a single die.
+	 * 
+	 * @param distinctValues The amount of distinct values of the die.
+	 * @param minValue       The smallest value of the die.
+	 * @param maxValue       The greatest value of the die.
+	 * @return The exact estimate of a single die.
+	 */
+	static CostEstimate ofDie(int distinctValues, int minValue, int maxValue) {
+		BigInteger entries = BigInteger.valueOf(distinctValues);
+		return new CostEstimate(entries, true, minValue, maxValue, 1, 1,
+				costTerms(entries, BigInteger.ZERO, BigInteger.ZERO));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + costTerms.hashCode();
+		result = prime * result + ((entries == null) ? 0 : entries.hashCode());
+		result = prime * result + (exact ? 1231 : 1237);
+		result = prime * result + maxDice;
+		result = prime * result + maxValue;
+		result = prime * result + minDice;
+		result = prime * result + minValue;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CostEstimate)) {
+			return false;
+		}
+		CostEstimate other = (CostEstimate) obj;
+		if (!Objects.equals(entries, other.entries)) {
+			return false;
+		}
+		if (exact != other.exact || minValue != other.minValue || maxValue != other.maxValue) {
+			return false;
+		}
+		if (minDice != other.minDice || maxDice != other.maxDice) {
+			return false;
+		}
+		return costTerms.equals(other.costTerms);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CostEstimate [entries=");
+		builder.append(entries);
+		builder.append(", exact=");
+		builder.append(exact);
+		builder.append(", minValue=");
+		builder.append(minValue);
+		builder.append(", maxValue=");
+		builder.append(maxValue);
+		builder.append(", minDice=");
+		builder.append(minDice);
+		builder.append(", maxDice=");
+		builder.append(maxDice);
+		builder.append(", costTerms=");
+		builder.append(costTerms);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,506 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * A battle in the style of Risk: Both sides roll their
+ * {@link HomogeneousDiceGroup}, sort their dice from the highest to the lowest
+ * and compare them pairwise, as many pairs as the smaller group has dice. The
+ * higher die of a pair wins and ties go to the defender, unless configured
+ * otherwise. The result is the amount of pairs lost by the attacker, the
+ * defender loses the remaining pairs.
+ * </p>
+ * <p>
+ * The multi-sets of both groups are never enumerated. Instead, the values are
+ * swept from the highest to the lowest one, while tracking how many of the top
+ * dice of each side have been placed so far. Once a side has placed all of its
+ * compared dice, its remaining dice are settled at once with a binomial sum. A
+ * pair is decided as soon as both of its dice are placed, so the losses can be
+ * counted along the way. With {@code k} compared pairs, placing the dice takes
+ * about {@code k^4} multiplications per distinct value. Settling the remaining
+ * dice of a side with {@code n} dice takes about {@code n*k} more, as the
+ * binomial sum has up to {@code n} terms.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see OrderStatistic
+ * @see OpposedRoll
+ */
+public class DiceBattle implements IDie, IRequiresSources {
+	/**
+	 * The attacking group.
+	 */
+	private final HomogeneousDiceGroup attacker;
+	/**
+	 * The defending group.
+	 */
+	private final HomogeneousDiceGroup defender;
+	/**
+	 * If {@code true}, the defender wins a tied pair. Otherwise, the attacker.
+	 */
+	private boolean tiesToDefender;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new battle, in which the defender wins ties.
+	 * 
+	 * @param attacker
+	 * @param defender
+	 * @throws NullPointerException If either side is <code>null</code>.
+	 */
+	public DiceBattle(HomogeneousDiceGroup attacker, HomogeneousDiceGroup defender) {
+		this(attacker, defender, true);
+	}
+
+	/**
+	 * Creates a new battle.
+	 * 
+	 * @param attacker
+	 * @param defender
+	 * @param tiesToDefender If {@code true}, the defender wins a tied pair.
+	 *                       Otherwise, the attacker.
+	 * @throws NullPointerException If either side is <code>null</code>.
+	 */
+	public DiceBattle(HomogeneousDiceGroup attacker, HomogeneousDiceGroup defender, boolean tiesToDefender) {
+		super();
+		this.attacker = Objects.requireNonNull(attacker, "An attacker must be given!");
+		this.defender = Objects.requireNonNull(defender, "A defender must be given!");
+		this.tiesToDefender = tiesToDefender;
+	}
+
+	/**
+	 * 
+	 * @return The attacking group.
+	 */
+	public final HomogeneousDiceGroup getAttacker() {
+		return attacker;
+	}
+
+	/**
+	 * 
+	 * @return The defending group.
+	 */
+	public final HomogeneousDiceGroup getDefender() {
+		return defender;
+	}
+
+	/**
+	 * 
+	 * @return A new array of the attacker and the defender.
+	 */
+	@Override
+	public final IDie[] getSources() {
+		return new IDie[] { attacker, defender };
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the defender wins a tied pair.
+	 */
+	public final boolean isTiesToDefender() {
+		return tiesToDefender;
+	}
+
+	/**
+	 * 
+	 * @param tiesToDefender If {@code true}, the defender wins a tied pair.
+	 *                       Otherwise, the attacker.
+	 */
+	public final void setTiesToDefender(boolean tiesToDefender) {
+		this.tiesToDefender = tiesToDefender;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of compared pairs, which is the amount of dice of
+	 *         the smaller group.
+	 */
+	public final int getPairs() {
+		return Math.min(attacker.getCount(), defender.getCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, attacker, defender);
+	}
+
+	/**
+	 * The attacker loses between none and all pairs. Only the base dice get
+	 * evaluated.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		AbstractDie left = attacker.getBaseDie(), right = defender.getBaseDie();
+		int pairs = getPairs();
+		BigInteger entries = BigInteger.valueOf(pairs + 1L);
+		BigInteger steps = BigInteger.valueOf(left.getDistinctValues())
+				.multiply(entries.pow(4).add(BigInteger.valueOf(Side.multiplications(attacker.getCount(), pairs))))
+				.add(BigInteger.valueOf(right.getDistinctValues()).multiply(
+						entries.pow(4).add(BigInteger.valueOf(Side.multiplications(defender.getCount(), pairs)))));
+		return new CostEstimate(entries, false, 0, pairs, 1, 1,
+				CostEstimate.costTerms(steps, steps, steps, left.estimate(), right.estimate()));
+	}
+
+	/**
+	 * Counts the lost pairs of the attacker.
+	 * 
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Counts the lost pairs of the attacker, while checking the time limit after
+	 * every value and the other limits for every produced entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, battle(budget, attacker.getBaseDie().getAbsoluteFrequencies(budget),
+					defender.getBaseDie().getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of both base dice and raises their scales to
+	 * the amount of dice of their group.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies left = attacker.getBaseDie().getScaledFrequencies(budget);
+			ScaledFrequencies right = defender.getBaseDie().getScaledFrequencies(budget);
+			BigInteger scale = left.getScale().pow(attacker.getCount())
+					.multiply(right.getScale().pow(defender.getCount()));
+			return new ScaledFrequencies(scale, battle(budget, left.getReduced(), right.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Sweeps over the values of both sides from the highest to the lowest one.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param left   The frequencies of the base die of the attacker.
+	 * @param right  The frequencies of the base die of the defender.
+	 * @return A new mapping of the lost pairs of the attacker to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> battle(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> left, Map<Map<Integer, Integer>, BigInteger> right) {
+		FaceTable attacking = FaceTable.ofFrequencies(left), defending = FaceTable.ofFrequencies(right);
+		int pairs = getPairs();
+		Side attackingSide = new Side(attacking, attacker.getCount(), pairs);
+		Side defendingSide = new Side(defending, defender.getCount(), pairs);
+		// Indexed by the placed dice of the attacker, of the defender and the losses.
+		BigInteger[][][] states = new BigInteger[pairs + 1][pairs + 1][pairs + 1];
+		states[0][0][0] = BigInteger.ONE;
+		int a = attacking.size() - 1, d = defending.size() - 1;
+		while (a >= 0 || d >= 0) {
+			int value = Math.max(a >= 0 ? attacking.face(a) : Integer.MIN_VALUE,
+					d >= 0 ? defending.face(d) : Integer.MIN_VALUE);
+			BigInteger[][] attackingSteps = null, defendingSteps = null;
+			long multiplications = 0;
+			if (a >= 0 && attacking.face(a) == value) {
+				attackingSteps = attackingSide.steps(a--);
+				multiplications += placements(pairs) + Side.multiplications(attacker.getCount(), pairs);
+			}
+			if (d >= 0 && defending.face(d) == value) {
+				defendingSteps = defendingSide.steps(d--);
+				multiplications += placements(pairs) + Side.multiplications(defender.getCount(), pairs);
+			}
+			if (tiesToDefender) {
+				states = placeDefender(states, defendingSteps);
+				states = placeAttacker(states, attackingSteps, true);
+			} else {
+				states = placeAttacker(states, attackingSteps, false);
+				states = placeDefender(states, defendingSteps);
+			}
+			budget.countMultiplications(this, multiplications);
+			budget.checkTime(this);
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(pairs + 1, 1.0f);
+		for (int losses = 0; losses <= pairs; losses++) {
+			BigInteger value = states[pairs][pairs][losses];
+			if (value != null && value.signum() != 0) {
+				Map<Integer, Integer> key = Collections.singletonMap(losses, 1);
+				ret.put(key, value);
+				budget.checkEntry(this, ret.size(), key, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param pairs The amount of compared pairs.
+	 * @return The amount of multiplications of placing the dice of one side at a
+	 *         single value, at most.
+	 */
+	private static long placements(int pairs) {
+		return (long) (pairs + 1) * (pairs + 1) * (pairs + 1) * (pairs + 2) / 2;
+	}
+
+	/**
+	 * Places the dice of the defender at the current value. No pair gets decided
+	 * here.
+	 * 
+	 * @param states The current states.
+	 * @param steps  The steps of the defender, <code>null</code> if the current
+	 *               value can not be rolled by it.
+	 * @return The new states.
+	 */
+	private static BigInteger[][][] placeDefender(BigInteger[][][] states, BigInteger[][] steps) {
+		if (steps == null) {
+			return states;
+		}
+		int pairs = states.length - 1;
+		BigInteger[][][] ret = new BigInteger[pairs + 1][pairs + 1][pairs + 1];
+		for (int i = 0; i <= pairs; i++) {
+			for (int j = 0; j <= pairs; j++) {
+				for (int next = j; next <= pairs; next++) {
+					if (steps[j][next] == null) {
+						continue;
+					}
+					for (int losses = 0; losses <= pairs; losses++) {
+						if (states[i][j][losses] != null) {
+							add(ret[i][next], losses, states[i][j][losses].multiply(steps[j][next]));
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Places the dice of the attacker at the current value. Every newly placed die
+	 * of the attacker loses its pair, if the die of the defender was placed
+	 * before. If the defender wins ties, the defender must have placed its dice at
+	 * the current value already.
+	 * 
+	 * @param states The current states.
+	 * @param steps  The steps of the attacker, <code>null</code> if the current
+	 *               value can not be rolled by it.
+	 * @param ties   If {@code true}, the attacker also loses the pairs tied at the
+	 *               current value.
+	 * @return The new states.
+	 */
+	private static BigInteger[][][] placeAttacker(BigInteger[][][] states, BigInteger[][] steps, boolean ties) {
+		if (steps == null) {
+			return states;
+		}
+		int pairs = states.length - 1;
+		BigInteger[][][] ret = new BigInteger[pairs + 1][pairs + 1][pairs + 1];
+		for (int i = 0; i <= pairs; i++) {
+			for (int next = i; next <= pairs; next++) {
+				if (steps[i][next] == null) {
+					continue;
+				}
+				for (int j = 0; j <= pairs; j++) {
+					// The pairs i+1 to next are decided now, those up to j are lost.
+					int lost = Math.max(0, Math.min(next, j) - i);
+					for (int losses = 0; losses + lost <= pairs; losses++) {
+						if (states[i][j][losses] != null) {
+							add(ret[next][j], losses + lost, states[i][j][losses].multiply(steps[i][next]));
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds a value to a possibly empty cell.
+	 * 
+	 * @param cells
+	 * @param index
+	 * @param value
+	 */
+	private static void add(BigInteger[] cells, int index, BigInteger value) {
+		cells[index] = cells[index] == null ? value : cells[index].add(value);
+	}
+
+	/**
+	 * The placement of the dice of a single side.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	private static final class Side {
+		/**
+		 * The base die of the side.
+		 */
+		private final FaceTable table;
+		/**
+		 * The amount of dice of the side.
+		 */
+		private final int count;
+		/**
+		 * The amount of compared pairs.
+		 */
+		private final int pairs;
+		/**
+		 * The binomial coefficients of the unplaced dice, indexed by the placed
+		 * dice.
+		 */
+		private final BigInteger[][] binomials;
+		/**
+		 * The summed weights of all values, that have not been swept yet.
+		 */
+		private BigInteger unswept;
+
+		/**
+		 * 
+		 * @param table
+		 * @param count
+		 * @param pairs
+		 */
+		private Side(FaceTable table, int count, int pairs) {
+			super();
+			this.table = table;
+			this.count = count;
+			this.pairs = pairs;
+			binomials = new BigInteger[pairs][];
+			for (int placed = 0; placed < pairs; placed++) {
+				binomials[placed] = Utils.binomials(count - placed);
+			}
+			unswept = BigInteger.ZERO;
+			for (int index = 0; index < table.size(); index++) {
+				unswept = unswept.add(table.weight(index));
+			}
+		}
+
+		/**
+		 * 
+		 * @param count The amount of dice of a side.
+		 * @param pairs The amount of compared pairs.
+		 * @return The amount of multiplications of {@link #steps(int)}: The powers of
+		 *         both weights, the tracked steps and the binomial sums of the
+		 *         settled dice.
+		 */
+		private static long multiplications(int count, int pairs) {
+			return 2L * count + (long) pairs * (pairs + 1) / 2 + 2L * pairs * (count - pairs + 1);
+		}
+
+		/**
+		 * Computes the weights of placing some of the unplaced dice at a value. While
+		 * fewer dice than the amount of pairs are placed, the amount of placed dice
+		 * is tracked exactly. Reaching the amount of pairs settles all other dice
+		 * below the value at once. The values must be swept from the highest to the
+		 * lowest one, as the weights below are kept as a running sum.
+		 * 
+		 * @param index The index of the value in the table.
+		 * @return The weights indexed by the placed dice before and after the value,
+		 *         <code>null</code> for impossible steps.
+		 */
+		private BigInteger[][] steps(int index) {
+			BigInteger weight = table.weight(index);
+			unswept = unswept.subtract(weight);
+			BigInteger lower = unswept;
+			BigInteger[] weightPowers = powers(weight, count), lowerPowers = powers(lower, count);
+			BigInteger[][] ret = new BigInteger[pairs + 1][pairs + 1];
+			for (int placed = 0; placed < pairs; placed++) {
+				int unplaced = count - placed;
+				for (int next = placed; next < pairs; next++) {
+					ret[placed][next] = binomials[placed][next - placed].multiply(weightPowers[next - placed]);
+				}
+				BigInteger settled = BigInteger.ZERO;
+				for (int here = pairs - placed; here <= unplaced; here++) {
+					settled = settled.add(binomials[placed][here].multiply(weightPowers[here])
+							.multiply(lowerPowers[unplaced - here]));
+				}
+				ret[placed][pairs] = settled;
+			}
+			ret[pairs][pairs] = BigInteger.ONE;
+			return ret;
+		}
+
+		/**
+		 * 
+		 * @param base
+		 * @param exponent
+		 * @return All powers of the base up to the exponent.
+		 */
+		private static BigInteger[] powers(BigInteger base, int exponent) {
+			BigInteger[] ret = new BigInteger[exponent + 1];
+			ret[0] = BigInteger.ONE;
+			for (int i = 1; i <= exponent; i++) {
+				ret[i] = ret[i - 1].multiply(base);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + attacker.hashCode();
+		result = prime * result + defender.hashCode();
+		result = prime * result + (tiesToDefender ? 1231 : 1237);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DiceBattle)) {
+			return false;
+		}
+		DiceBattle other = (DiceBattle) obj;
+		return attacker.equals(other.attacker) && defender.equals(other.defender)
+				&& tiesToDefender == other.tiesToDefender;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("DiceBattle [attacker=");
+		builder.append(attacker);
+		builder.append(", defender=");
+		builder.append(defender);
+		builder.append(", tiesToDefender=");
+		builder.append(tiesToDefender);
+		builder.append("]");
+		return builder.toString();
+	}
+}
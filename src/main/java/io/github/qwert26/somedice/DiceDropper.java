@@ -24,6 +24,19 @@ public class DiceDropper implements IDie, IRequiresSource {
 	 * Amount of highest values to drop.
 	 */
 	private int dropHighest;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The amount of entries of the source, from which on they are mapped and
+	 * reduced in parallel.
+	 */
+	private int parallelThreshold = Utils.DEFAULT_PARALLEL_THRESHOLD;
 
 	/**
 	 * Creates a new <code>DiceDropper</code>, which does not drop any dice at all.
@@ -87,6 +100,7 @@ public class DiceDropper implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Can not drop a negative amount of low numbers!");
 		}
 		this.dropLowest = dropLowest;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -107,6 +121,7 @@ public class DiceDropper implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Can not drop a negative amount of high numbers!");
 		}
 		this.dropHighest = dropHighest;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -132,6 +147,41 @@ public class DiceDropper implements IDie, IRequiresSource {
 			}
 		}
 		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * The amount of entries is bounded by the amount of entries of the source. If
+	 * the source has a fixed amount of dice, it is also bounded by the amount of
+	 * multi-sets of remaining dice, taken from the range of values of the source.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if the source is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		final int dropped = Utils.saturatedAdd(dropHighest, dropLowest);
+		final int minDice = Math.max(0, base.getMinDice() - dropped);
+		final int maxDice = Math.max(0, base.getMaxDice() - dropped);
+		long width = (long) base.getMaxValue() - base.getMinValue() + 1;
+		BigInteger entries = base.getEntries();
+		if (minDice == maxDice && width <= Integer.MAX_VALUE) {
+			entries = entries.min(Utils.multichoose((int) width, minDice));
+		}
+		return new CostEstimate(entries, false, base.getMinValue(), base.getMaxValue(), minDice, maxDice,
+				CostEstimate.costTerms(base.getEntries(), BigInteger.ZERO, base.getEntries(), base));
 	}
 
 	/**
@@ -141,30 +191,125 @@ public class DiceDropper implements IDie, IRequiresSource {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		Map<Map<Integer, Integer>, BigInteger> base = source.getAbsoluteFrequencies();
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(base.size(), 1.0f);
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : base.entrySet()) {
-			// It is important that we clone the mapping here!
-			TreeMap<Integer, Integer> nextKey = new TreeMap<Integer, Integer>(entry.getKey());
-			int drop;
-			for (drop = dropLowest; drop > 0; drop--) {
-				if (nextKey.size() == 0) {
-					throw new IllegalStateException("Overfiltered while dropping lowest rolls!");
-				}
-				nextKey.compute(nextKey.firstKey(), (_, v) -> v == 1 ? null : (v - 1));
-			}
-			for (drop = dropHighest; drop > 0; drop--) {
-				if (nextKey.size() == 0) {
-					throw new IllegalStateException("Overfiltered while dropping highest rolls!");
-				}
-				nextKey.compute(nextKey.lastKey(), (_, v) -> v == 1 ? null : (v - 1));
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Drops dice from the source, while checking the given budget for every
+	 * remaining entry.
+	 * 
+	 * @throws IllegalStateException if the source did not "rolled enough dice" and
+	 *                               dropping values resulted in an empty key.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
 			}
-			if (nextKey.size() == 0) {
-				throw new IllegalStateException("Overfiltered after dropping lowest and highest rolls!");
+			if (reachesParallelThreshold(budget)) {
+				return cache.put(stamp,
+						Utils.mapKeys(this, budget, source.getAbsoluteFrequencies(budget), this::drop, parallelThreshold));
 			}
-			ret.compute(nextKey, (_, v) -> entry.getValue().add(v == null ? BigInteger.ZERO : v));
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+					estimate().getInitialCapacity(budget), 1.0f);
+			source.forEachAbsoluteFrequency(budget, (key, frequency) -> {
+				Map<Integer, Integer> nextKey = drop(key);
+				BigInteger merged = ret.merge(nextKey, frequency, BigInteger::add);
+				budget.checkEntry(this, ret.size(), nextKey, merged);
+			});
+			return cache.put(stamp, ret);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and keeps its scale. A source,
+	 * which might spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return ScaledFrequencies.of(getAbsoluteFrequencies(budget));
+		}
+		budget.enter(this);
+		try {
+			ScaledFrequencies scaled = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(scaled.getScale(),
+					Utils.mapKeys(this, budget, scaled.getReduced(), this::drop, parallelThreshold));
+		} finally {
+			budget.exit(this);
 		}
-		return ret;
+	}
+
+	/**
+	 * Works on the approximated probabilities of the source. A source, which might
+	 * spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return Probabilities.of(getScaledFrequencies(budget), logSpace);
+		}
+		budget.enter(this);
+		try {
+			return Utils.mapKeys(this, budget, source.getProbabilities(logSpace, budget), this::drop);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries of the source, from which on they are mapped
+	 *         and reduced in parallel.
+	 */
+	public final int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Results are identical for every threshold, so the cached one stays valid.
+	 * Evaluations under a {@link EvaluationBudget#isLimited() limited} budget
+	 * ignore the threshold and stay sequential.
+	 * 
+	 * @param parallelThreshold The amount of entries of the source, from which on
+	 *                          they are mapped and reduced in parallel.
+	 *                          {@link Integer#MAX_VALUE} effectively disables it.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see Utils#mapKeys(IDie, EvaluationBudget, Map, java.util.function.UnaryOperator, int)
+	 */
+	public final void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("The parallel threshold must be positive!");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * The source is only collected into a single map for the parallel path, if its
+	 * estimate reaches the threshold, it can not spill and the budget has no
+	 * limits to check on the way. Otherwise it is
+	 * streamed, so a spilled source can still be merged back one partition at a
+	 * time: Its large estimate would otherwise select the path, which has to load
+	 * it completely.
+	 * 
+	 * @param budget The budget of the current evaluation, it must not be limited.
+	 * @return {@code true}, if the source should be mapped and reduced in parallel.
+	 * @see IDie#maySpill()
+	 * @see EvaluationBudget#isLimited()
+	 */
+	private boolean reachesParallelThreshold(EvaluationBudget budget) {
+		if (source.maySpill() || budget.isLimited()) {
+			return false;
+		}
+		CostEstimate base = source.estimate();
+		return base.isKnown() && base.getEntries().compareTo(BigInteger.valueOf(parallelThreshold)) >= 0;
 	}
 
 	/**
@@ -223,4 +368,33 @@ public class DiceDropper implements IDie, IRequiresSource {
 		builder.append("]");
 		return builder.toString();
 	}
+
+	/**
+	 * Drops the configured amount of the lowest and highest values.
+	 * 
+	 * @param key The rolled values and their counts.
+	 * @return A new mapping of the remaining values to their counts.
+	 * @throws IllegalStateException If all values would be dropped.
+	 */
+	private Map<Integer, Integer> drop(Map<Integer, Integer> key) {
+		// It is important that we clone the mapping here!
+		TreeMap<Integer, Integer> nextKey = new TreeMap<Integer, Integer>(key);
+		int drop;
+		for (drop = dropLowest; drop > 0; drop--) {
+			if (nextKey.size() == 0) {
+				throw new IllegalStateException("Overfiltered while dropping lowest rolls!");
+			}
+			nextKey.compute(nextKey.firstKey(), (_, v) -> v == 1 ? null : (v - 1));
+		}
+		for (drop = dropHighest; drop > 0; drop--) {
+			if (nextKey.size() == 0) {
+				throw new IllegalStateException("Overfiltered while dropping highest rolls!");
+			}
+			nextKey.compute(nextKey.lastKey(), (_, v) -> v == 1 ? null : (v - 1));
+		}
+		if (nextKey.size() == 0) {
+			throw new IllegalStateException("Overfiltered after dropping lowest and highest rolls!");
+		}
+		return nextKey;
+	}
 }
\ No newline at end of file
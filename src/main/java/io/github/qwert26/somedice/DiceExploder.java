@@ -11,11 +11,41 @@ import java.util.function.IntPredicate;
  * to the {@link HomogeneousDiceGroup} for faster computation. In reality a dice
  * can explode infinite times, but programs can not deal with infinity when it
  * comes to probabilities and frequencies. So there is an artificial cut-off
- * which is controlled via {@link #explosionDepth}.
+ * which is controlled via {@link #explosionDepth}. The {@link Mode} decides,
+ * whether the exploded values are kept separately or summed up into a single
+ * value.
+ * <p>
+ * The explosion depth counts all rolls of the die, including the first one.
+ * {@link ExplodingPool} and {@link ExplodingSuccessPool} limit the rolls after
+ * the first one instead: Their reroll limit is one less than the matching
+ * explosion depth.
+ * </p>
  * 
  * @author <b>Qwert26</b>, main author
  */
 public class DiceExploder implements IDie, IRequiresSource {
+	/**
+	 * How the rolls of an exploding die are reported.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	public static enum Mode {
+		/**
+		 * Every roll is kept as its own value in the multi-set.
+		 */
+		SEPARATE,
+		/**
+		 * All rolls are summed up into a single value.
+		 */
+		COMPOUNDING,
+		/**
+		 * All rolls are summed up into a single value, but every roll after the
+		 * first one gets reduced by one, as in Hackmaster. The explosion condition
+		 * still applies to the unreduced roll.
+		 */
+		PENETRATING;
+	}
+
 	/**
 	 * The die to explode.
 	 */
@@ -25,9 +55,21 @@ public class DiceExploder implements IDie, IRequiresSource {
 	 */
 	private IntPredicate explodeOn;
 	/**
-	 * How often to explode a die.
+	 * How often a die can be rolled at most, including the first roll.
 	 */
 	private byte explosionDepth = 0;
+	/**
+	 * How the rolls are reported, never <code>null</code>.
+	 */
+	private Mode mode = Mode.SEPARATE;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
 
 	/**
 	 * Creates a new DiceExploder with the given source and condition, but with an
@@ -182,6 +224,7 @@ public class DiceExploder implements IDie, IRequiresSource {
 	 */
 	public final void setExplodeOn(IntPredicate explodeOn) {
 		this.explodeOn = Objects.requireNonNull(explodeOn, "Given integer-predicate was null.");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -202,6 +245,25 @@ public class DiceExploder implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Explosion-Depth must be non-negative.");
 		}
 		this.explosionDepth = explosionDepth;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return How the rolls are reported, never <code>null</code>.
+	 */
+	public final Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * 
+	 * @param mode How the rolls are reported.
+	 * @throws NullPointerException If the mode is <code>null</code>.
+	 */
+	public final void setMode(Mode mode) {
+		this.mode = Objects.requireNonNull(mode, "A mode must be given!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -228,6 +290,7 @@ public class DiceExploder implements IDie, IRequiresSource {
 	 */
 	public final void setSource(AbstractDie source) {
 		this.source = Objects.requireNonNull(source, "Source as AbstractDie must not be null.");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -239,6 +302,59 @@ public class DiceExploder implements IDie, IRequiresSource {
 		return source;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * Every key consists of a multi-set of exploding values, which is completed by
+	 * a single non-exploding value. Only at the maximum depth, the last value may
+	 * also be exploding. Counting these multi-sets gives the exact amount of
+	 * entries. Summing up the rolls collapses every multi-set into a single
+	 * value, so their amount is only an upper bound for the other modes.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate separate = separateEstimate();
+		if (mode == Mode.SEPARATE) {
+			return separate;
+		}
+		BigInteger entries = separate.getEntries();
+		BigInteger multiplications = entries.multiply(BigInteger.valueOf(source.getDistinctValues())).shiftLeft(1);
+		return new CostEstimate(entries, false, Integer.MIN_VALUE, Integer.MAX_VALUE, explosionDepth == 0 ? 0 : 1,
+				explosionDepth == 0 ? 0 : 1,
+				CostEstimate.costTerms(entries, multiplications, entries, source.estimate()));
+	}
+
+	/**
+	 * 
+	 * @return The estimate for keeping every roll separately.
+	 */
+	private CostEstimate separateEstimate() {
+		CostEstimate base = source.estimate();
+		if (explosionDepth == 0) {
+			return new CostEstimate(BigInteger.ZERO, true, base.getMinValue(), base.getMaxValue(), 0, 0,
+					CostEstimate.costTerms(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, base));
+		}
+		int exploding = source.countValues(explodeOn);
+		final int nonExploding = source.getDistinctValues() - exploding;
+		if (nonExploding == 0) {
+			return new HomogeneousDiceGroup(source, explosionDepth).estimate();
+		}
+		final BigInteger stopping = BigInteger.valueOf(nonExploding);
+		BigInteger entries = Utils.multichoose(exploding, explosionDepth);
+		for (int depth = 0; depth < explosionDepth; depth++) {
+			entries = entries.add(Utils.multichoose(exploding, depth).multiply(stopping));
+		}
+		BigInteger multiplications = entries.multiply(BigInteger.valueOf(explosionDepth));
+		return new CostEstimate(entries, true, base.getMinValue(), base.getMaxValue(), 1, explosionDepth,
+				CostEstimate.costTerms(entries, multiplications, BigInteger.ZERO, base));
+	}
+
 	/**
 	 * @return An empty map, if {@link #explosionDepth} is set to zero. Otherwise,
 	 *         an asymmetrical filled map AND if {@link #explodeOn} did NOT return
@@ -253,17 +369,189 @@ public class DiceExploder implements IDie, IRequiresSource {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Explodes the source, while checking the given budget for every exploded
+	 * entry and after every depth.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			Map<Map<Integer, Integer>, BigInteger> baseMapping = source.getAbsoluteFrequencies(budget);
+			if (mode != Mode.SEPARATE) {
+				return cache.put(stamp, toFrequencies(budget, compound(budget, baseMapping)));
+			}
+			if (stoppingValues(baseMapping) == 0) {
+				// In that case we were to told to always explode.
+				return cache.put(stamp, new HomogeneousDiceGroup(source, explosionDepth).getAbsoluteFrequencies(budget));
+			}
+			return cache.put(stamp, explode(budget, baseMapping));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Explodes the reduced frequencies of the source and keeps its scale, as every
+	 * exploded frequency is a multiple of exactly one frequency of the source.
+	 * Summed up rolls are filled up to {@link #explosionDepth} rolls, so the scale
+	 * gets raised to that.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			if (mode != Mode.SEPARATE) {
+				return new ScaledFrequencies(base.getScale().pow(explosionDepth),
+						toFrequencies(budget, compound(budget, base.getReduced())));
+			}
+			if (stoppingValues(base.getReduced()) == 0) {
+				// In that case we were to told to always explode.
+				return new HomogeneousDiceGroup(source, explosionDepth).getScaledFrequencies(budget);
+			}
+			return new ScaledFrequencies(base.getScale(), explode(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Sums up the rolls of the exploding source into an unfair die.
+	 * 
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         exploded source.
+	 * @throws IllegalStateException If the rolls are kept separately.
+	 * @see #toUnfairDie(EvaluationBudget)
+	 */
+	public UnfairDie toUnfairDie() {
+		return toUnfairDie(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Sums up the rolls of the exploding source into an unfair die, while
+	 * evaluating the source under the given budget. The result can be the base of
+	 * a {@link HomogeneousDiceGroup}, so pools of compounding or penetrating dice
+	 * are enumerated without exploding each die.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @throws IllegalStateException   If the rolls are kept separately.
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         exploded source.
+	 * @implNote The returned die is backed by sorted arrays, its map gets only
+	 *           created, once it is requested.
+	 */
+	public UnfairDie toUnfairDie(EvaluationBudget budget) {
+		if (mode == Mode.SEPARATE) {
+			throw new IllegalStateException("Separately kept rolls do not form a single value!");
+		}
+		budget.enter(this);
+		try {
+			return new UnfairDie(compound(budget, source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Sums up the rolls level by level: Only the sums of the rolls, that all
+	 * exploded so far, are carried to the next level, every other roll ends its
+	 * sequence. With a single exploding value, there is only one such sum per
+	 * level, so this takes {@code explosionDepth * faces} steps. Every sequence
+	 * ending after {@code k} rolls is filled up with {@code T^(explosionDepth-k)},
+	 * where {@code T} is the total weight of the source.
+	 * 
+	 * @param budget      The budget of the current evaluation.
+	 * @param baseMapping The frequencies of the source.
+	 * @return The table of the summed up values and their absolute frequencies.
+	 */
+	private FaceTable compound(EvaluationBudget budget, Map<Map<Integer, Integer>, BigInteger> baseMapping) {
+		FaceTable table = FaceTable.ofFrequencies(baseMapping);
+		BigInteger[] fillers = new BigInteger[explosionDepth];
+		for (int level = explosionDepth - 1; level >= 0; level--) {
+			fillers[level] = level == explosionDepth - 1 ? BigInteger.ONE : fillers[level + 1].multiply(table.total());
+		}
+		budget.countMultiplications(this, explosionDepth);
+		Map<Integer, BigInteger> ret = new HashMap<Integer, BigInteger>();
+		// The sums of all sequences, which exploded on every roll so far.
+		Map<Integer, BigInteger> exploded = Collections.singletonMap(0, BigInteger.ONE);
+		for (int level = 0; level < explosionDepth; level++) {
+			int penalty = mode == Mode.PENETRATING && level > 0 ? 1 : 0;
+			boolean last = level == explosionDepth - 1;
+			Map<Integer, BigInteger> next = new HashMap<Integer, BigInteger>();
+			for (Map.Entry<Integer, BigInteger> sequence : exploded.entrySet()) {
+				for (int i = 0; i < table.size(); i++) {
+					int value = Math.addExact(sequence.getKey(), Math.subtractExact(table.face(i), penalty));
+					BigInteger weight = sequence.getValue().multiply(table.weight(i));
+					if (!last && explodeOn.test(table.face(i))) {
+						next.merge(value, weight, BigInteger::add);
+					} else {
+						ret.merge(value, weight.multiply(fillers[level]), BigInteger::add);
+					}
+				}
+			}
+			budget.countMultiplications(this, 2L * exploded.size() * table.size());
+			budget.checkSize(this, ret.size() + next.size());
+			budget.checkTime(this);
+			exploded = next;
+		}
+		return FaceTable.of(ret);
+	}
+
+	/**
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param table  The summed up values.
+	 * @return A new mapping of the summed up values to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> toFrequencies(EvaluationBudget budget, FaceTable table) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(table.size(),
+				1.0f);
+		for (int i = 0; i < table.size(); i++) {
+			Map<Integer, Integer> key = Collections.singletonMap(table.face(i), 1);
+			ret.put(key, table.weight(i));
+			budget.checkEntry(this, ret.size(), key, table.weight(i));
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param baseMapping The frequencies of the source.
+	 * @return The amount of values of the source, that do not explode.
+	 */
+	private int stoppingValues(Map<Map<Integer, Integer>, BigInteger> baseMapping) {
 		int previousMuliplier = source.getDistinctValues();
-		Map<Map<Integer, Integer>, BigInteger> baseMapping = source.getAbsoluteFrequencies();
 		previousMuliplier -= baseMapping.entrySet().stream()
 				.map(entry -> entry.getKey().keySet().stream().mapToInt(Integer::intValue).allMatch(explodeOn))
 				.mapToInt(e -> e ? 1 : 0).sum();
-		if (previousMuliplier == 0) {
-			// In that case we were to told to always explode.
-			return new HomogeneousDiceGroup(source, explosionDepth).getAbsoluteFrequencies();
-		}
+		return previousMuliplier;
+	}
+
+	/**
+	 * Explodes the given frequencies of the source, of which at least one value
+	 * does not explode.
+	 * 
+	 * @param budget      The budget of the current evaluation.
+	 * @param baseMapping The frequencies of the source.
+	 * @return A new mapping of the exploded multi-sets to their frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> explode(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> baseMapping) {
 		// At least one number of the die does not result in an explosion.
-		final BigInteger mul = BigInteger.valueOf(previousMuliplier);
+		final BigInteger mul = BigInteger.valueOf(stoppingValues(baseMapping));
 		final Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
 		for (byte currentDepth = 0; currentDepth < explosionDepth; currentDepth++) {
 			if (ret.isEmpty()) {
@@ -279,6 +567,7 @@ public class DiceExploder implements IDie, IRequiresSource {
 				// ret is free of sets, which should explode in this round.
 				// shouldExplode now contains set to explode.
 				ret.keySet().stream().forEach(key -> ret.compute(key, (_, value) -> value.multiply(mul)));
+				budget.countMultiplications(this, ret.size());
 				// ret now contains updated absolute frequencies for previous sets.
 				for (Map<Integer, Integer> keyPart : shouldExplode.keySet()) {
 					for (var baseEntry : baseMapping.entrySet()) {
@@ -287,9 +576,11 @@ public class DiceExploder implements IDie, IRequiresSource {
 							newKey.merge(subEntry.getKey(), subEntry.getValue(), Integer::sum);
 						}
 						ret.put(newKey, baseEntry.getValue());
+						budget.checkEntry(this, ret.size(), newKey, baseEntry.getValue());
 					}
 				}
 			}
+			budget.checkTime(this);
 		}
 		// A depth of 0 will skip to here.
 		return ret;
@@ -304,6 +595,7 @@ public class DiceExploder implements IDie, IRequiresSource {
 		int result = 1;
 		result = prime * result + ((explodeOn == null) ? 0 : explodeOn.hashCode());
 		result = prime * result + explosionDepth;
+		result = prime * result + mode.hashCode();
 		result = prime * result + ((source == null) ? 0 : source.hashCode());
 		return result;
 	}
@@ -327,7 +619,7 @@ public class DiceExploder implements IDie, IRequiresSource {
 		} else if (!explodeOn.equals(other.explodeOn)) {
 			return false;
 		}
-		if (explosionDepth != other.explosionDepth) {
+		if (explosionDepth != other.explosionDepth || mode != other.mode) {
 			return false;
 		}
 		if (source == null) {
@@ -352,6 +644,8 @@ public class DiceExploder implements IDie, IRequiresSource {
 		builder.append(explodeOn);
 		builder.append(", explosionDepth=");
 		builder.append(explosionDepth);
+		builder.append(", mode=");
+		builder.append(mode);
 		builder.append("]");
 		return builder.toString();
 	}
@@ -24,6 +24,19 @@ public class DiceKeeper implements IDie, IRequiresSource {
 	 * Amount of low dice to keep.
 	 */
 	private int keepLowest = 0;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The amount of entries of the source, from which on they are mapped and
+	 * reduced in parallel.
+	 */
+	private int parallelThreshold = Utils.DEFAULT_PARALLEL_THRESHOLD;
 
 	/**
 	 * Creates a new <code>DiceKeeper</code>, which must be configured by calling
@@ -88,6 +101,7 @@ public class DiceKeeper implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Can not keep a negative amount of high rolls!");
 		}
 		this.keepHighest = keepHighest;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -108,6 +122,7 @@ public class DiceKeeper implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Can not keep a negative amount of high rolls!");
 		}
 		this.keepLowest = keepLowest;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -134,6 +149,55 @@ public class DiceKeeper implements IDie, IRequiresSource {
 			}
 		}
 		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries of the source, from which on they are mapped
+	 *         and reduced in parallel.
+	 */
+	public final int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Results are identical for every threshold, so the cached one stays valid.
+	 * Evaluations under a {@link EvaluationBudget#isLimited() limited} budget
+	 * ignore the threshold and stay sequential.
+	 * 
+	 * @param parallelThreshold The amount of entries of the source, from which on
+	 *                          they are mapped and reduced in parallel.
+	 *                          {@link Integer#MAX_VALUE} effectively disables it.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see Utils#mapKeys(IDie, EvaluationBudget, Map, java.util.function.UnaryOperator, int)
+	 */
+	public final void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("The parallel threshold must be positive!");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * The source is only collected into a single map for the parallel path, if its
+	 * estimate reaches the threshold, it can not spill and the budget has no
+	 * limits to check on the way. Otherwise it is
+	 * streamed, so a spilled source can still be merged back one partition at a
+	 * time: Its large estimate would otherwise select the path, which has to load
+	 * it completely.
+	 * 
+	 * @param budget The budget of the current evaluation, it must not be limited.
+	 * @return {@code true}, if the source should be mapped and reduced in parallel.
+	 * @see IDie#maySpill()
+	 * @see EvaluationBudget#isLimited()
+	 */
+	private boolean reachesParallelThreshold(EvaluationBudget budget) {
+		if (source.maySpill() || budget.isLimited()) {
+			return false;
+		}
+		CostEstimate base = source.estimate();
+		return base.isKnown() && base.getEntries().compareTo(BigInteger.valueOf(parallelThreshold)) >= 0;
 	}
 
 	/**
@@ -193,47 +257,159 @@ public class DiceKeeper implements IDie, IRequiresSource {
 		return builder.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * The amount of entries is bounded by the amount of entries of the source and
+	 * by the amount of multi-sets of kept dice, taken from the range of values of
+	 * the source.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if the source is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		final int kept = Utils.saturatedAdd(keepHighest, keepLowest);
+		long width = (long) base.getMaxValue() - base.getMinValue() + 1;
+		BigInteger entries = base.getEntries();
+		if (width <= Integer.MAX_VALUE) {
+			entries = entries.min(Utils.multichoose((int) width, kept));
+		}
+		return new CostEstimate(entries, false, base.getMinValue(), base.getMaxValue(), kept, kept,
+				CostEstimate.costTerms(base.getEntries(), BigInteger.ZERO, base.getEntries(), base));
+	}
+
 	/**
 	 * @throws IllegalStateException If too little dice can be kept.
 	 * @implNote Uses {@link TreeMap}s for its keys.
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		if (keepHighest == 0 && keepLowest == 0) {
-			throw new IllegalStateException("Both ends of keeping dice rolls are zero!");
-		}
-		Map<Map<Integer, Integer>, BigInteger> result = source.getAbsoluteFrequencies();
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<>(result.size(), 1.0f);
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> resultEntry : result.entrySet()) {
-			// It is important, that we clone the mapping here!
-			TreeMap<Integer, Integer> keySource = new TreeMap<>(resultEntry.getKey());
-			TreeMap<Integer, Integer> nextKey = new TreeMap<>();
-			int keep = 0;
-			for (keep = keepHighest; keep > 0;) {
-				final int toBeRemoved = keep;
-				Map.Entry<Integer, Integer> lastEntry = keySource.lastEntry();
-				if (lastEntry == null) {
-					throw new IllegalStateException("Overkept while keeping highest rolls!");
-				}
-				nextKey.put(lastEntry.getKey(), Math.min(keep, lastEntry.getValue()));
-				keySource.compute(lastEntry.getKey(), (_, v) -> toBeRemoved >= v ? null : (v - toBeRemoved));
-				// The entry is needed, so this can not be put in the for-header.
-				keep -= Math.min(lastEntry.getValue(), keep);
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Keeps dice from the source, while checking the given budget for every kept
+	 * entry.
+	 * 
+	 * @throws IllegalStateException If too little dice can be kept.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
 			}
-			for (keep = keepLowest; keep > 0;) {
-				final int toBeRemoved = keep;
-				Map.Entry<Integer, Integer> firstEntry = keySource.firstEntry();
-				if (firstEntry == null) {
-					throw new IllegalStateException("Overkept while keeping lowest rolls!");
-				}
-				nextKey.compute(firstEntry.getKey(),
-						(_, v) -> Math.min(toBeRemoved, firstEntry.getValue()) + (v == null ? 0 : v));
-				keySource.compute(firstEntry.getKey(), (_, v) -> toBeRemoved >= v ? null : (v - toBeRemoved));
-				// The entry is needed, so this can not be put in the for-header.
-				keep -= Math.min(firstEntry.getValue(), keep);
+			if (keepHighest == 0 && keepLowest == 0) {
+				throw new IllegalStateException("Both ends of keeping dice rolls are zero!");
+			}
+			if (reachesParallelThreshold(budget)) {
+				return cache.put(stamp,
+						Utils.mapKeys(this, budget, source.getAbsoluteFrequencies(budget), this::keep, parallelThreshold));
+			}
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<>(estimate().getInitialCapacity(budget), 1.0f);
+			source.forEachAbsoluteFrequency(budget, (key, frequency) -> {
+				Map<Integer, Integer> nextKey = keep(key);
+				BigInteger merged = ret.merge(nextKey, frequency, BigInteger::add);
+				budget.checkEntry(this, ret.size(), nextKey, merged);
+			});
+			return cache.put(stamp, ret);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and keeps its scale. A source,
+	 * which might spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return ScaledFrequencies.of(getAbsoluteFrequencies(budget));
+		}
+		budget.enter(this);
+		try {
+			if (keepHighest == 0 && keepLowest == 0) {
+				throw new IllegalStateException("Both ends of keeping dice rolls are zero!");
+			}
+			ScaledFrequencies scaled = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(scaled.getScale(),
+					Utils.mapKeys(this, budget, scaled.getReduced(), this::keep, parallelThreshold));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the approximated probabilities of the source. A source, which might
+	 * spill, is streamed into the exact frequencies instead.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		if (source.maySpill()) {
+			return Probabilities.of(getScaledFrequencies(budget), logSpace);
+		}
+		budget.enter(this);
+		try {
+			if (keepHighest == 0 && keepLowest == 0) {
+				throw new IllegalStateException("Both ends of keeping dice rolls are zero!");
+			}
+			return Utils.mapKeys(this, budget, source.getProbabilities(logSpace, budget), this::keep);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Keeps the configured amount of the lowest and highest values.
+	 * 
+	 * @param key The rolled values and their counts.
+	 * @return A new mapping of the kept values to their counts.
+	 * @throws IllegalStateException If more values should be kept than rolled.
+	 */
+	private Map<Integer, Integer> keep(Map<Integer, Integer> key) {
+		// It is important, that we clone the mapping here!
+		TreeMap<Integer, Integer> keySource = new TreeMap<>(key);
+		TreeMap<Integer, Integer> nextKey = new TreeMap<>();
+		int keep = 0;
+		for (keep = keepHighest; keep > 0;) {
+			final int toBeRemoved = keep;
+			Map.Entry<Integer, Integer> lastEntry = keySource.lastEntry();
+			if (lastEntry == null) {
+				throw new IllegalStateException("Overkept while keeping highest rolls!");
+			}
+			nextKey.put(lastEntry.getKey(), Math.min(keep, lastEntry.getValue()));
+			keySource.compute(lastEntry.getKey(), (_, v) -> toBeRemoved >= v ? null : (v - toBeRemoved));
+			// The entry is needed, so this can not be put in the for-header.
+			keep -= Math.min(lastEntry.getValue(), keep);
+		}
+		for (keep = keepLowest; keep > 0;) {
+			final int toBeRemoved = keep;
+			Map.Entry<Integer, Integer> firstEntry = keySource.firstEntry();
+			if (firstEntry == null) {
+				throw new IllegalStateException("Overkept while keeping lowest rolls!");
 			}
-			ret.compute(nextKey, (_, v) -> resultEntry.getValue().add(v == null ? BigInteger.ZERO : v));
+			nextKey.compute(firstEntry.getKey(),
+					(_, v) -> Math.min(toBeRemoved, firstEntry.getValue()) + (v == null ? 0 : v));
+			keySource.compute(firstEntry.getKey(), (_, v) -> toBeRemoved >= v ? null : (v - toBeRemoved));
+			// The entry is needed, so this can not be put in the for-header.
+			keep -= Math.min(firstEntry.getValue(), keep);
 		}
-		return ret;
+		return nextKey;
 	}
 }
\ No newline at end of file
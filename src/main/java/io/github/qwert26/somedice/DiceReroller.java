@@ -0,0 +1,464 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * <p>
+ * Rerolls a die, whenever it shows a value matching {@link #rerollOn}, at most
+ * {@link #rerollLimit} times, as in "reroll 1s and 2s once" or "reroll until
+ * not 1". The {@link Policy} decides, which of the rolls is kept.
+ * </p>
+ * <p>
+ * All rerolls are filled up to the common denominator {@code T^(limit + 1)},
+ * where {@code T} is the total weight of the source, just like
+ * {@code limit + 1} independent rolls. The result is a single value per roll,
+ * so it can be turned into an {@link UnfairDie} via {@link #toUnfairDie()},
+ * which can be the base of a {@link HomogeneousDiceGroup}.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see DiceExploder
+ */
+public class DiceReroller implements IDie, IRequiresSource {
+	/**
+	 * Decides, which roll is kept after a reroll.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	public static enum Policy {
+		/**
+		 * The new roll is always kept, even if it is worse. It can be rerolled again.
+		 */
+		KEEP_NEW,
+		/**
+		 * The higher one of the old and the new roll is kept. It can be rerolled
+		 * again, if it still matches.
+		 */
+		KEEP_BETTER;
+	}
+
+	/**
+	 * The die to reroll.
+	 */
+	private AbstractDie source;
+	/**
+	 * Function to check, on which number(s) to reroll.
+	 */
+	private IntPredicate rerollOn;
+	/**
+	 * How often a die can be rerolled at most. It is never negative.
+	 */
+	private int rerollLimit;
+	/**
+	 * Which roll is kept, never <code>null</code>.
+	 */
+	private Policy policy;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new DiceReroller, which keeps the new roll.
+	 * 
+	 * @param source
+	 * @param rerollOn
+	 * @param rerollLimit
+	 * @throws NullPointerException     If either the source or the condition is
+	 *                                  <code>null</code>.
+	 * @throws IllegalArgumentException If the limit is negative.
+	 */
+	public DiceReroller(AbstractDie source, IntPredicate rerollOn, int rerollLimit) {
+		this(source, rerollOn, rerollLimit, Policy.KEEP_NEW);
+	}
+
+	/**
+	 * Creates a new DiceReroller.
+	 * 
+	 * @param source
+	 * @param rerollOn
+	 * @param rerollLimit
+	 * @param policy
+	 * @throws NullPointerException     If either the source, the condition or the
+	 *                                  policy is <code>null</code>.
+	 * @throws IllegalArgumentException If the limit is negative.
+	 */
+	public DiceReroller(AbstractDie source, IntPredicate rerollOn, int rerollLimit, Policy policy) {
+		super();
+		setSource(source);
+		setRerollOn(rerollOn);
+		setRerollLimit(rerollLimit);
+		setPolicy(policy);
+	}
+
+	/**
+	 * 
+	 * @return The current reroll condition, never <code>null</code>.
+	 */
+	public final IntPredicate getRerollOn() {
+		return rerollOn;
+	}
+
+	/**
+	 * 
+	 * @param rerollOn
+	 * @throws NullPointerException
+	 */
+	public final void setRerollOn(IntPredicate rerollOn) {
+		this.rerollOn = Objects.requireNonNull(rerollOn, "Given integer-predicate was null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current reroll limit, never negative.
+	 */
+	public final int getRerollLimit() {
+		return rerollLimit;
+	}
+
+	/**
+	 * 
+	 * @param rerollLimit
+	 * @throws IllegalArgumentException If the limit is negative.
+	 */
+	public final void setRerollLimit(int rerollLimit) {
+		if (rerollLimit < 0) {
+			throw new IllegalArgumentException("Reroll-Limit must be non-negative.");
+		}
+		this.rerollLimit = rerollLimit;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current policy, never <code>null</code>.
+	 */
+	public final Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * 
+	 * @param policy
+	 * @throws NullPointerException If the policy is <code>null</code>.
+	 */
+	public final void setPolicy(Policy policy) {
+		this.policy = Objects.requireNonNull(policy, "A policy must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * @param source
+	 * @throws NullPointerException     If the given source was <code>null</code>.
+	 * @throws IllegalArgumentException If the given source was not an
+	 *                                  {@link AbstractDie}.
+	 */
+	@Override
+	public final void setSource(IDie source) {
+		if (source == null) {
+			throw new NullPointerException("Source as IDie must not be null.");
+		} else if (source instanceof AbstractDie absDie) {
+			setSource(absDie);
+		} else {
+			throw new IllegalArgumentException("Given source was not an AbstractDie.");
+		}
+	}
+
+	/**
+	 * 
+	 * @param source
+	 * @throws NullPointerException If the given source was <code>null</code>.
+	 */
+	public final void setSource(AbstractDie source) {
+		this.source = Objects.requireNonNull(source, "Source as AbstractDie must not be null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * @return The current source, always an {@link AbstractDie} and never
+	 *         <code>null</code>.
+	 */
+	@Override
+	public final IDie getSource() {
+		return source;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * Every value of the source stays possible, so the amount of entries is the
+	 * amount of its distinct values.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		BigInteger entries = BigInteger.valueOf(source.getDistinctValues());
+		BigInteger steps = policy == Policy.KEEP_NEW ? BigInteger.valueOf(Integer.SIZE)
+				: BigInteger.valueOf(rerollLimit);
+		return new CostEstimate(entries, true, base.getMinValue(), base.getMaxValue(), 1, 1,
+				CostEstimate.costTerms(entries, entries.multiply(steps).shiftLeft(1), entries.multiply(steps), base));
+	}
+
+	/**
+	 * Rerolls the source.
+	 * 
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Rerolls the source, while checking the given budget for every produced
+	 * entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			FaceTable table = reroll(budget, source.getAbsoluteFrequencies(budget));
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+					table.size(), 1.0f);
+			for (int i = 0; i < table.size(); i++) {
+				Map<Integer, Integer> key = Collections.singletonMap(table.face(i), 1);
+				ret.put(key, table.weight(i));
+				budget.checkEntry(this, ret.size(), key, table.weight(i));
+			}
+			return cache.put(stamp, ret);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source. As every die rolls
+	 * {@code rerollLimit + 1} times in the common denominator, the scale gets
+	 * raised to that.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			FaceTable table = reroll(budget, base.getReduced());
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+					table.size(), 1.0f);
+			for (int i = 0; i < table.size(); i++) {
+				ret.put(Collections.singletonMap(table.face(i), 1), table.weight(i));
+			}
+			return new ScaledFrequencies(base.getScale().pow(Math.addExact(rerollLimit, 1)),
+					budget.checkResult(this, ret));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Rerolls the source into an unfair die.
+	 * 
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         rerolled source.
+	 * @see #toUnfairDie(EvaluationBudget)
+	 */
+	public UnfairDie toUnfairDie() {
+		return toUnfairDie(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Rerolls the source into an unfair die, while evaluating the source under
+	 * the given budget. The result can be the base of a
+	 * {@link HomogeneousDiceGroup}, so pools of rerolled dice are enumerated
+	 * without rerolling each die.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         rerolled source.
+	 * @implNote The returned die is backed by sorted arrays, its map gets only
+	 *           created, once it is requested.
+	 */
+	public UnfairDie toUnfairDie(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			return new UnfairDie(reroll(budget, source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Rerolls the given frequencies of the source according to the policy.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the source.
+	 * @return The table of the rerolled values and their absolute frequencies.
+	 */
+	private FaceTable reroll(EvaluationBudget budget, Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable table = FaceTable.ofFrequencies(base);
+		int[] faces = table.faces();
+		BigInteger[] weights = table.weights();
+		boolean[] rerolled = new boolean[faces.length];
+		BigInteger rerolledWeight = BigInteger.ZERO;
+		for (int i = 0; i < faces.length; i++) {
+			rerolled[i] = rerollOn.test(faces[i]);
+			if (rerolled[i]) {
+				rerolledWeight = rerolledWeight.add(weights[i]);
+			}
+		}
+		if (rerollLimit == 0 || rerolledWeight.signum() == 0) {
+			// Nothing gets rerolled, but the common denominator must still be reached.
+			BigInteger factor = table.total().pow(rerollLimit);
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = weights[i].multiply(factor);
+			}
+			return FaceTable.of(faces, weights);
+		}
+		return FaceTable.of(faces, switch (policy) {
+		case KEEP_NEW -> keepNew(budget, weights, rerolled, table.total(), rerolledWeight);
+		case KEEP_BETTER -> keepBetter(budget, weights, rerolled, table.total());
+		});
+	}
+
+	/**
+	 * Keeps the new roll in closed form: A value, that is not rerolled, is kept
+	 * after {@code i} rerolls with the weight {@code w * r^i * T^(L - i)}, where
+	 * {@code r} is the total weight of all rerolled values. Summing up the
+	 * geometric series gives {@code w * (T^(L+1) - r^(L+1)) / (T - r)}. A rerolled
+	 * value is only kept after the last reroll with the weight {@code w * r^L}.
+	 * 
+	 * @param budget         The budget of the current evaluation.
+	 * @param weights        The weights of the faces.
+	 * @param rerolled       Which faces are rerolled.
+	 * @param total          The total weight {@code T}.
+	 * @param rerolledWeight The total weight {@code r} of the rerolled faces.
+	 * @return The new weights of the faces.
+	 */
+	private BigInteger[] keepNew(EvaluationBudget budget, BigInteger[] weights, boolean[] rerolled,
+			BigInteger total, BigInteger rerolledWeight) {
+		BigInteger lastReroll = rerolledWeight.pow(rerollLimit);
+		BigInteger series;
+		if (total.equals(rerolledWeight)) {
+			// Every value is rerolled, so no value can be kept early.
+			series = BigInteger.ZERO;
+		} else {
+			series = total.pow(rerollLimit + 1).subtract(lastReroll.multiply(rerolledWeight))
+					.divide(total.subtract(rerolledWeight));
+		}
+		BigInteger[] ret = new BigInteger[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			ret[i] = weights[i].multiply(rerolled[i] ? lastReroll : series);
+		}
+		budget.countMultiplications(this,
+				weights.length + 2L * (Integer.SIZE - Integer.numberOfLeadingZeros(rerollLimit)));
+		return ret;
+	}
+
+	/**
+	 * Keeps the better roll, one reroll at a time: A value, that is not rerolled,
+	 * stays and gets multiplied by {@code T}. A rerolled value {@code v} turns into
+	 * the new roll {@code y}, if it is higher, and stays otherwise. Collecting the
+	 * rerolled values below each face in a running sum, this costs one pass over
+	 * the faces per reroll.
+	 * 
+	 * @param budget   The budget of the current evaluation.
+	 * @param weights  The weights of the faces, sorted ascending by the faces.
+	 * @param rerolled Which faces are rerolled.
+	 * @param total    The total weight {@code T}.
+	 * @return The new weights of the faces.
+	 */
+	private BigInteger[] keepBetter(EvaluationBudget budget, BigInteger[] weights, boolean[] rerolled,
+			BigInteger total) {
+		BigInteger[] current = weights.clone();
+		for (int step = 0; step < rerollLimit; step++) {
+			BigInteger[] next = new BigInteger[current.length];
+			// The weight of all rerolled values below the current face.
+			BigInteger below = BigInteger.ZERO;
+			// The total weight of all faces up to the current one.
+			BigInteger atMost = BigInteger.ZERO;
+			for (int i = 0; i < current.length; i++) {
+				atMost = atMost.add(weights[i]);
+				BigInteger value = below.multiply(weights[i]);
+				if (rerolled[i]) {
+					value = value.add(current[i].multiply(atMost));
+					below = below.add(current[i]);
+				} else {
+					value = value.add(current[i].multiply(total));
+				}
+				next[i] = value;
+			}
+			budget.countMultiplications(this, 2L * current.length);
+			budget.checkTime(this);
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + policy.hashCode();
+		result = prime * result + rerollLimit;
+		result = prime * result + rerollOn.hashCode();
+		result = prime * result + source.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DiceReroller)) {
+			return false;
+		}
+		DiceReroller other = (DiceReroller) obj;
+		return policy == other.policy && rerollLimit == other.rerollLimit && rerollOn.equals(other.rerollOn)
+				&& source.equals(other.source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("DiceReroller [source=");
+		builder.append(source);
+		builder.append(", rerollOn=");
+		builder.append(rerollOn);
+		builder.append(", rerollLimit=");
+		builder.append(rerollLimit);
+		builder.append(", policy=");
+		builder.append(policy);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,527 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import io.github.qwert26.somedice.BudgetExceededException.Limit;
+
+/**
+ * <p>
+ * An evaluation budget puts hard limits onto a single computation of absolute
+ * frequencies: The maximum amount of entries in any result, the maximum bit
+ * length of any absolute frequency, a wall-clock limit and an approximated
+ * limit on the heap usage. The budget is handed down from node to node, so
+ * every operator checks it in its own enumeration loop.
+ * </p>
+ * <p>
+ * A budget keeps track of the progress made, so it is meant to be used for a
+ * single evaluation only. Its clock starts at creation.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see IDie#getAbsoluteFrequencies(EvaluationBudget)
+ * @see BudgetExceededException
+ */
+public final class EvaluationBudget {
+	/**
+	 * A budget without any limits, used by the parameterless
+	 * {@link IDie#getAbsoluteFrequencies()}. It does not track any progress.
+	 */
+	public static final EvaluationBudget UNLIMITED = new EvaluationBudget();
+	/**
+	 * Approximated size of a single entry in a {@link HashMap}, including its
+	 * share of the table.
+	 */
+	private static final long ENTRY_BYTES = 40;
+	/**
+	 * Approximated size of a map used as a key, without its mappings.
+	 */
+	private static final long KEY_BYTES = 48;
+	/**
+	 * Approximated size of a single mapping inside a key, including the boxed
+	 * integers.
+	 */
+	private static final long MAPPING_BYTES = 56;
+	/**
+	 * Approximated size of a {@link BigInteger} without its magnitude.
+	 */
+	private static final long NUMBER_BYTES = 56;
+	/**
+	 * Approximated size of an accumulated probability, including its compensation.
+	 */
+	private static final long PROBABILITY_BYTES = 40;
+	/**
+	 * Approximated size of an array without its elements.
+	 */
+	private static final long ARRAY_BYTES = 16;
+	/**
+	 * The maximum amount of entries in a single result.
+	 */
+	private final int maxEntries;
+	/**
+	 * The maximum bit length of a single absolute frequency.
+	 */
+	private final int maxBitLength;
+	/**
+	 * The maximum wall-clock time in milliseconds.
+	 */
+	private final long maxMillis;
+	/**
+	 * The maximum amount of approximated heap bytes.
+	 */
+	private final long maxHeapBytes;
+	/**
+	 * If {@code true}, no checks or tracking will be done at all.
+	 */
+	private final boolean unlimited;
+	/**
+	 * The point in time, when this budget was created.
+	 */
+	private final long startNanos;
+	/**
+	 * The amount of entries produced so far.
+	 */
+	private long producedEntries = 0;
+	/**
+	 * The approximated amount of bytes allocated for results so far.
+	 */
+	private long approximateHeapBytes = 0;
+	/**
+	 * Records the profile of the evaluation, <code>null</code> if not profiling.
+	 */
+	private final EvaluationProfiler profiler;
+
+	/**
+	 * Creates the unlimited budget.
+	 */
+	private EvaluationBudget() {
+		super();
+		maxEntries = Integer.MAX_VALUE;
+		maxBitLength = Integer.MAX_VALUE;
+		maxMillis = Long.MAX_VALUE;
+		maxHeapBytes = Long.MAX_VALUE;
+		unlimited = true;
+		startNanos = System.nanoTime();
+		profiler = null;
+	}
+
+	/**
+	 * Creates a new budget with the given limits. Use {@link Integer#MAX_VALUE} or
+	 * {@link Long#MAX_VALUE} to leave a limit open.
+	 * 
+	 * @param maxEntries   The maximum amount of entries in a single result.
+	 * @param maxBitLength The maximum bit length of a single absolute frequency.
+	 * @param maxMillis    The maximum wall-clock time in milliseconds.
+	 * @param maxHeapBytes The maximum amount of approximated heap bytes.
+	 * @throws IllegalArgumentException If any of the limits is not positive.
+	 */
+	public EvaluationBudget(int maxEntries, int maxBitLength, long maxMillis, long maxHeapBytes) {
+		this(maxEntries, maxBitLength, maxMillis, maxHeapBytes, false);
+	}
+
+	/**
+	 * Creates a new budget with the given limits, which optionally records an
+	 * {@link EvaluationProfile} of every evaluated node.
+	 * 
+	 * @param maxEntries   The maximum amount of entries in a single result.
+	 * @param maxBitLength The maximum bit length of a single absolute frequency.
+	 * @param maxMillis    The maximum wall-clock time in milliseconds.
+	 * @param maxHeapBytes The maximum amount of approximated heap bytes.
+	 * @param profiling    If {@code true}, every node gets profiled.
+	 * @throws IllegalArgumentException If any of the limits is not positive.
+	 * @see #getProfile()
+	 */
+	public EvaluationBudget(int maxEntries, int maxBitLength, long maxMillis, long maxHeapBytes, boolean profiling) {
+		super();
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("The maximum amount of entries must be positive!");
+		}
+		if (maxBitLength < 1) {
+			throw new IllegalArgumentException("The maximum bit length must be positive!");
+		}
+		if (maxMillis < 1) {
+			throw new IllegalArgumentException("The maximum time must be positive!");
+		}
+		if (maxHeapBytes < 1) {
+			throw new IllegalArgumentException("The maximum heap usage must be positive!");
+		}
+		this.maxEntries = maxEntries;
+		this.maxBitLength = maxBitLength;
+		this.maxMillis = maxMillis;
+		this.maxHeapBytes = maxHeapBytes;
+		unlimited = false;
+		startNanos = System.nanoTime();
+		profiler = profiling ? new EvaluationProfiler() : null;
+	}
+
+	/**
+	 * Creates a new budget without any limits, that profiles every evaluated node.
+	 * 
+	 * @return A new profiling budget.
+	 * @see #getProfile()
+	 */
+	public static EvaluationBudget profiling() {
+		return new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, true);
+	}
+
+	/**
+	 * 
+	 * @return The maximum amount of entries in a single result.
+	 */
+	public final int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * 
+	 * @return The maximum bit length of a single absolute frequency.
+	 */
+	public final int getMaxBitLength() {
+		return maxBitLength;
+	}
+
+	/**
+	 * 
+	 * @return The maximum wall-clock time in milliseconds.
+	 */
+	public final long getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * 
+	 * @return The maximum amount of approximated heap bytes.
+	 */
+	public final long getMaxHeapBytes() {
+		return maxHeapBytes;
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if this budget does not impose any limits.
+	 */
+	public final boolean isUnlimited() {
+		return unlimited;
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries produced so far.
+	 */
+	public final long getProducedEntries() {
+		return producedEntries;
+	}
+
+	/**
+	 * 
+	 * @return The approximated amount of bytes allocated for results so far.
+	 */
+	public final long getApproximateHeapBytes() {
+		return approximateHeapBytes;
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if this budget profiles every evaluated node.
+	 */
+	public final boolean isProfiling() {
+		return profiler != null;
+	}
+
+	/**
+	 * 
+	 * @return The profile of the evaluated tree, <code>null</code> if this budget
+	 *         is not profiling or nothing has been evaluated yet.
+	 */
+	public final EvaluationProfile getProfile() {
+		if (profiler == null) {
+			return null;
+		}
+		List<EvaluationProfile> trees = profiler.getRoot().getChildren();
+		return trees.isEmpty() ? null : trees.get(0);
+	}
+
+	/**
+	 * 
+	 * @return The elapsed time since the creation of this budget in milliseconds.
+	 */
+	public final long getElapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1_000_000L;
+	}
+
+	/**
+	 * Records a newly produced entry and checks all limits. Operators call this
+	 * method inside their enumeration loops, right after they stored the entry.
+	 * 
+	 * @param node       The node producing the entry.
+	 * @param resultSize The current size of the result of the node.
+	 * @param key        The key of the produced entry.
+	 * @param value      The absolute frequency of the produced entry.
+	 * @throws BudgetExceededException If any of the limits has been exceeded.
+	 */
+	public final void checkEntry(IDie node, int resultSize, Map<Integer, Integer> key, BigInteger value) {
+		if (unlimited) {
+			return;
+		}
+		producedEntries++;
+		if (profiler != null) {
+			profiler.produced(node);
+		}
+		approximateHeapBytes += approximateEntryBytes(key, value);
+		if (resultSize > maxEntries) {
+			throw exceeded(Limit.ENTRIES, node);
+		}
+		if (value.bitLength() > maxBitLength) {
+			throw exceeded(Limit.BIT_LENGTH, node);
+		}
+		if (approximateHeapBytes > maxHeapBytes) {
+			throw exceeded(Limit.HEAP, node);
+		}
+		checkTime(node);
+	}
+
+	/**
+	 * Records a newly produced entry of approximated probabilities and checks all
+	 * limits, except the bit length.
+	 * 
+	 * @param node       The node producing the entry.
+	 * @param resultSize The current size of the result of the node.
+	 * @param key        The key of the produced entry.
+	 * @throws BudgetExceededException If any of the limits has been exceeded.
+	 * @see Probabilities
+	 */
+	public final void checkEntry(IDie node, int resultSize, Map<Integer, Integer> key) {
+		if (unlimited) {
+			return;
+		}
+		producedEntries++;
+		if (profiler != null) {
+			profiler.produced(node);
+		}
+		approximateHeapBytes += ENTRY_BYTES + KEY_BYTES + MAPPING_BYTES * key.size() + PROBABILITY_BYTES;
+		if (resultSize > maxEntries) {
+			throw exceeded(Limit.ENTRIES, node);
+		}
+		if (approximateHeapBytes > maxHeapBytes) {
+			throw exceeded(Limit.HEAP, node);
+		}
+		checkTime(node);
+	}
+
+	/**
+	 * Checks an entry, that has been recorded while it was produced, once its
+	 * absolute frequency is final. Results merged back from the disk are only known
+	 * at that point, so their size and bit length get checked here, together with
+	 * the wall-clock limit.
+	 * 
+	 * @param node       The node, that produced the entry.
+	 * @param resultSize The amount of final entries so far.
+	 * @param value      The final absolute frequency of the entry.
+	 * @throws BudgetExceededException If the result is too large, the value is too
+	 *                                 long or the time limit has been exceeded.
+	 * @see SpillingAggregator#forEach(EvaluationBudget, IDie, java.util.function.BiConsumer)
+	 */
+	public final void checkMerged(IDie node, int resultSize, BigInteger value) {
+		if (unlimited) {
+			return;
+		}
+		if (resultSize > maxEntries) {
+			throw exceeded(Limit.ENTRIES, node);
+		}
+		if (value.bitLength() > maxBitLength) {
+			throw exceeded(Limit.BIT_LENGTH, node);
+		}
+		checkTime(node);
+	}
+
+	/**
+	 * Checks the size of a result before its entries are produced, together with
+	 * the wall-clock limit. Nothing is recorded, the entries still have to be
+	 * checked once they are produced.
+	 * 
+	 * @param node       The node, that is going to produce the entries.
+	 * @param resultSize The size of the result of the node.
+	 * @throws BudgetExceededException If the result is too large or the time limit
+	 *                                 has been exceeded.
+	 */
+	public final void checkSize(IDie node, int resultSize) {
+		if (unlimited) {
+			return;
+		}
+		if (resultSize > maxEntries) {
+			throw exceeded(Limit.ENTRIES, node);
+		}
+		checkTime(node);
+	}
+
+	/**
+	 * Parallel paths check their result only after it has been merged, so they
+	 * are only taken, if there is nothing to stop on the way: The unlimited and the
+	 * purely profiling budgets have no limits.
+	 * 
+	 * @return {@code true}, if any of the limits is not open.
+	 */
+	public final boolean isLimited() {
+		return maxEntries < Integer.MAX_VALUE || maxBitLength < Integer.MAX_VALUE || maxMillis < Long.MAX_VALUE
+				|| maxHeapBytes < Long.MAX_VALUE;
+	}
+
+	/**
+	 * Records a working array before it is allocated and checks the heap limit
+	 * together with the wall-clock limit. Operators call this method for arrays,
+	 * whose length grows with the amount of generated keys, so that they are
+	 * stopped before the allocation itself runs out of memory.
+	 * 
+	 * @param node         The node, that is going to allocate the array.
+	 * @param length       The length of the array.
+	 * @param elementBytes The size of a single element.
+	 * @throws BudgetExceededException If the array would exceed the heap limit or
+	 *                                 the time limit has been exceeded.
+	 */
+	public final void checkArray(IDie node, long length, int elementBytes) {
+		if (unlimited) {
+			return;
+		}
+		approximateHeapBytes += ARRAY_BYTES + length * elementBytes;
+		if (approximateHeapBytes > maxHeapBytes) {
+			throw exceeded(Limit.HEAP, node);
+		}
+		checkTime(node);
+	}
+
+	/**
+	 * Checks only the wall-clock limit. Operators call this method in loops, that
+	 * do not produce entries themselves.
+	 * 
+	 * @param node The node being evaluated.
+	 * @throws BudgetExceededException If the time limit has been exceeded.
+	 */
+	public final void checkTime(IDie node) {
+		if (unlimited) {
+			return;
+		}
+		if (getElapsedMillis() > maxMillis) {
+			throw exceeded(Limit.TIME, node);
+		}
+	}
+
+	/**
+	 * Marks the start of the evaluation of a node. Operators call this method at
+	 * the beginning of their evaluation and {@link #exit(IDie)} in a
+	 * <code>finally</code>-block.
+	 * 
+	 * @param node The node being evaluated.
+	 */
+	public final void enter(IDie node) {
+		if (profiler != null) {
+			profiler.enter(node);
+		}
+	}
+
+	/**
+	 * Marks the end of the evaluation of a node.
+	 * 
+	 * @param node The node, that has been evaluated.
+	 * @throws IllegalStateException If profiling and the node has not been entered
+	 *                               last.
+	 * @see #enter(IDie)
+	 */
+	public final void exit(IDie node) {
+		if (profiler != null) {
+			profiler.exit(node);
+		}
+	}
+
+	/**
+	 * Records multiplications of absolute frequencies done by a node.
+	 * 
+	 * @param node   The node, that multiplied.
+	 * @param amount The amount of multiplications.
+	 */
+	public final void countMultiplications(IDie node, long amount) {
+		if (profiler != null) {
+			profiler.multiplied(node, amount);
+		}
+	}
+
+	/**
+	 * Starts a parallel path of a node. Every task of the path joins the returned
+	 * workers, and the node finishes them after the path, so a profile contains the
+	 * CPU time and allocated bytes of the worker threads as well.
+	 * 
+	 * @param node The node, that runs the parallel path.
+	 * @return The workers of the path, which do nothing if not profiling.
+	 */
+	final EvaluationProfiler.Workers workers(IDie node) {
+		return profiler == null ? EvaluationProfiler.Workers.NONE : profiler.workers(node);
+	}
+
+	/**
+	 * Checks an already complete result against all limits. This is used for nodes,
+	 * that do not know about budgets themselves.
+	 * 
+	 * @param node   The node, that produced the result.
+	 * @param result The complete result.
+	 * @return The unchanged result.
+	 * @throws BudgetExceededException If any of the limits has been exceeded.
+	 */
+	public final Map<Map<Integer, Integer>, BigInteger> checkResult(IDie node,
+			Map<Map<Integer, Integer>, BigInteger> result) {
+		if (unlimited) {
+			return result;
+		}
+		int seen = 0;
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : result.entrySet()) {
+			checkEntry(node, ++seen, entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the exception for an exceeded limit, filled with the current
+	 * progress.
+	 * 
+	 * @param limit The limit, that has been exceeded.
+	 * @param node  The node being evaluated.
+	 * @return The new exception, ready to be thrown.
+	 */
+	private BudgetExceededException exceeded(Limit limit, IDie node) {
+		return new BudgetExceededException(limit, node, producedEntries, getElapsedMillis(), approximateHeapBytes);
+	}
+
+	/**
+	 * Approximates the amount of bytes used by a single entry of a result.
+	 * 
+	 * @param key   The key of the entry.
+	 * @param value The absolute frequency of the entry.
+	 * @return The approximated amount of bytes.
+	 */
+	static long approximateEntryBytes(Map<Integer, Integer> key, BigInteger value) {
+		return ENTRY_BYTES + KEY_BYTES + MAPPING_BYTES * key.size() + NUMBER_BYTES
+				+ 4L * (value.bitLength() / 32 + 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("EvaluationBudget [maxEntries=");
+		builder.append(maxEntries);
+		builder.append(", maxBitLength=");
+		builder.append(maxBitLength);
+		builder.append(", maxMillis=");
+		builder.append(maxMillis);
+		builder.append(", maxHeapBytes=");
+		builder.append(maxHeapBytes);
+		builder.append(", producedEntries=");
+		builder.append(producedEntries);
+		builder.append(", approximateHeapBytes=");
+		builder.append(approximateHeapBytes);
+		builder.append(", profiling=");
+		builder.append(profiler != null);
+		builder.append("]");
+		return builder.toString();
+	}
+}
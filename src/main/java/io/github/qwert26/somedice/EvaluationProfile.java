@@ -0,0 +1,207 @@
+package io.github.qwert26.somedice;
+
+import java.util.*;
+
+/**
+ * <p>
+ * The measurements of a single node of an evaluated tree, recorded by a
+ * profiling {@link EvaluationBudget}. Each profile has the profiles of the
+ * nodes it evaluated as its children. Evaluating the same node multiple times
+ * from the same parent accumulates into the same profile.
+ * </p>
+ * <p>
+ * All times and the allocated bytes are inclusive, meaning they contain the
+ * measurements of the children as well. While a node streams its result into a
+ * consumer, the work of the consumer is measured as part of the streaming node.
+ * Parallel paths add the CPU time and allocated bytes of their worker threads
+ * from the first task on, so the CPU time can exceed the wall-clock time.
+ * Measurements, that are not supported by the current JVM, are always
+ * {@code -1}.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see EvaluationBudget#profiling()
+ * @see io.github.qwert26.somedice.exporter.ProfileExporter
+ */
+public final class EvaluationProfile {
+	/**
+	 * The profiled node, <code>null</code> for the hidden root of a profiler.
+	 */
+	private final IDie node;
+	/**
+	 * The profiles of the nodes evaluated by this node.
+	 */
+	private final List<EvaluationProfile> children = new ArrayList<EvaluationProfile>();
+	/**
+	 * How often the node has been evaluated.
+	 */
+	long invocations = 0;
+	/**
+	 * The elapsed wall-clock time in nanoseconds.
+	 */
+	long wallNanos = 0;
+	/**
+	 * The used CPU time in nanoseconds.
+	 */
+	long cpuNanos = 0;
+	/**
+	 * The allocated bytes of the evaluating thread and the worker threads.
+	 */
+	long allocatedBytes = 0;
+	/**
+	 * The amount of entries stored or merged by the node itself.
+	 */
+	long producedEntries = 0;
+	/**
+	 * The amount of multiplications of absolute frequencies done by the node
+	 * itself.
+	 */
+	long multiplications = 0;
+
+	/**
+	 * Creates a new, empty profile.
+	 * 
+	 * @param node The profiled node.
+	 */
+	EvaluationProfile(IDie node) {
+		super();
+		this.node = node;
+	}
+
+	/**
+	 * Finds the profile of a child node or creates it.
+	 * 
+	 * @param child The evaluated child node.
+	 * @return The profile of the child node.
+	 */
+	EvaluationProfile childFor(IDie child) {
+		for (EvaluationProfile profile : children) {
+			// Different nodes might be equal, so the identity has to be used.
+			if (profile.node == child) {
+				return profile;
+			}
+		}
+		EvaluationProfile ret = new EvaluationProfile(child);
+		children.add(ret);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return The profiled node.
+	 */
+	public final IDie getNode() {
+		return node;
+	}
+
+	/**
+	 * 
+	 * @return An unmodifiable view of the profiles of the nodes evaluated by this
+	 *         node, in the order of their first evaluation.
+	 */
+	public final List<EvaluationProfile> getChildren() {
+		return Collections.unmodifiableList(children);
+	}
+
+	/**
+	 * 
+	 * @return How often the node has been evaluated.
+	 */
+	public final long getInvocations() {
+		return invocations;
+	}
+
+	/**
+	 * 
+	 * @return The elapsed wall-clock time in nanoseconds, including the children.
+	 */
+	public final long getWallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * 
+	 * @return The elapsed wall-clock time in nanoseconds, excluding the children.
+	 */
+	public final long getSelfWallNanos() {
+		long ret = wallNanos;
+		for (EvaluationProfile child : children) {
+			ret -= child.wallNanos;
+		}
+		return Math.max(0, ret);
+	}
+
+	/**
+	 * 
+	 * @return The used CPU time in nanoseconds, including the children, or
+	 *         {@code -1} if not supported.
+	 */
+	public final long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	/**
+	 * 
+	 * @return The allocated bytes, including the children, or {@code -1} if not
+	 *         supported.
+	 */
+	public final long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries stored or merged by the node itself.
+	 */
+	public final long getProducedEntries() {
+		return producedEntries;
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries produced by the children, which were consumed
+	 *         by this node.
+	 */
+	public final long getConsumedEntries() {
+		long ret = 0;
+		for (EvaluationProfile child : children) {
+			ret += child.producedEntries;
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return The amount of multiplications of absolute frequencies done by the
+	 *         node itself.
+	 */
+	public final long getMultiplications() {
+		return multiplications;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("EvaluationProfile [node=");
+		builder.append(node == null ? null : node.getClass().getSimpleName());
+		builder.append(", invocations=");
+		builder.append(invocations);
+		builder.append(", wallNanos=");
+		builder.append(wallNanos);
+		builder.append(", cpuNanos=");
+		builder.append(cpuNanos);
+		builder.append(", allocatedBytes=");
+		builder.append(allocatedBytes);
+		builder.append(", producedEntries=");
+		builder.append(producedEntries);
+		builder.append(", multiplications=");
+		builder.append(multiplications);
+		builder.append(", children=");
+		builder.append(children.size());
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,268 @@
+package io.github.qwert26.somedice;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the {@link EvaluationProfile}s of a single evaluation. Nodes are
+ * entered and exited by the operators through their {@link EvaluationBudget},
+ * so the profiler keeps a stack of the currently evaluated nodes. Everything
+ * produced or multiplied is attributed to the topmost frame of the reporting
+ * node, as a streaming source calls back into its consumer while still being on
+ * top of the stack. Parallel paths measure their worker threads through
+ * {@link Workers}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+final class EvaluationProfiler {
+	/**
+	 * The source of CPU times and allocated bytes.
+	 */
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * A node, that is currently being evaluated.
+	 */
+	private static final class Frame {
+		/**
+		 * The profile of the node.
+		 */
+		private final EvaluationProfile profile;
+		/**
+		 * The wall-clock time at entering.
+		 */
+		private final long wallNanos;
+		/**
+		 * The CPU time at entering.
+		 */
+		private final long cpuNanos;
+		/**
+		 * The allocated bytes at entering.
+		 */
+		private final long allocatedBytes;
+		/**
+		 * How often the node has entered itself again, for example through a
+		 * default method.
+		 */
+		private int reentries = 0;
+
+		private Frame(EvaluationProfile profile) {
+			super();
+			this.profile = profile;
+			wallNanos = System.nanoTime();
+			cpuNanos = cpuNanos();
+			allocatedBytes = allocatedBytes();
+		}
+	}
+
+	/**
+	 * <p>
+	 * The worker threads of a single parallel path. Every task joins them, which
+	 * records the CPU time and allocated bytes of its thread the first time. After
+	 * the path has finished, the evaluating thread adds what each worker has used
+	 * since then to the node and all nodes above it, as their measurements are
+	 * inclusive.
+	 * </p>
+	 * <p>
+	 * The evaluating thread may run tasks as well, but it is measured by the
+	 * frames already.
+	 * </p>
+	 */
+	static final class Workers {
+		/**
+		 * Joining and finishing does nothing, for budgets that are not profiling.
+		 */
+		static final Workers NONE = new Workers(null, null);
+		/**
+		 * The profiles of the node and all nodes above it, <code>null</code> for
+		 * {@link #NONE}.
+		 */
+		private final List<EvaluationProfile> profiles;
+		/**
+		 * The evaluating thread.
+		 */
+		private final Thread owner;
+		/**
+		 * The CPU time and allocated bytes of each worker thread at its first task.
+		 */
+		private final Map<Long, long[]> started = new ConcurrentHashMap<Long, long[]>();
+
+		private Workers(List<EvaluationProfile> profiles, Thread owner) {
+			super();
+			this.profiles = profiles;
+			this.owner = owner;
+		}
+
+		/**
+		 * Called by every task of the parallel path, on whatever thread it runs.
+		 */
+		void join() {
+			Thread current = Thread.currentThread();
+			if (profiles != null && current != owner) {
+				started.computeIfAbsent(current.threadId(), id -> new long[] { cpuNanos(), allocatedBytes() });
+			}
+		}
+
+		/**
+		 * Called by the evaluating thread, after the parallel path has finished.
+		 */
+		void finish() {
+			if (profiles == null) {
+				return;
+			}
+			started.forEach((id, start) -> {
+				long cpu = start[0] < 0 ? -1 : THREADS.getThreadCpuTime(id);
+				long allocated = start[1] < 0 ? -1
+						: ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(id);
+				for (EvaluationProfile profile : profiles) {
+					// A thread, which has died since, can no longer be measured.
+					if (cpu >= 0 && profile.cpuNanos >= 0) {
+						profile.cpuNanos += cpu - start[0];
+					}
+					if (allocated >= 0 && profile.allocatedBytes >= 0) {
+						profile.allocatedBytes += allocated - start[1];
+					}
+				}
+			});
+			started.clear();
+		}
+	}
+
+	/**
+	 * The hidden root, its children are the evaluated trees.
+	 */
+	private final EvaluationProfile root = new EvaluationProfile(null);
+	/**
+	 * The currently evaluated nodes.
+	 */
+	private final Deque<Frame> stack = new ArrayDeque<Frame>();
+
+	/**
+	 * 
+	 * @return The hidden root profile.
+	 */
+	EvaluationProfile getRoot() {
+		return root;
+	}
+
+	/**
+	 * Starts the measurements of a node.
+	 * 
+	 * @param node The node to be evaluated.
+	 */
+	void enter(IDie node) {
+		Frame top = stack.peek();
+		if (top != null && top.profile.getNode() == node) {
+			top.reentries++;
+			return;
+		}
+		EvaluationProfile profile = (top == null ? root : top.profile).childFor(node);
+		profile.invocations++;
+		stack.push(new Frame(profile));
+	}
+
+	/**
+	 * Finishes the measurements of a node.
+	 * 
+	 * @param node The node, that has been evaluated.
+	 * @throws IllegalStateException If the node is not the one evaluated last.
+	 */
+	void exit(IDie node) {
+		Frame top = stack.peek();
+		if (top == null || top.profile.getNode() != node) {
+			throw new IllegalStateException("Exited a node, that has not been entered last!");
+		}
+		if (top.reentries > 0) {
+			top.reentries--;
+			return;
+		}
+		stack.pop();
+		EvaluationProfile profile = top.profile;
+		profile.wallNanos += System.nanoTime() - top.wallNanos;
+		profile.cpuNanos = top.cpuNanos < 0 ? -1 : profile.cpuNanos + cpuNanos() - top.cpuNanos;
+		profile.allocatedBytes = top.allocatedBytes < 0 ? -1
+				: profile.allocatedBytes + allocatedBytes() - top.allocatedBytes;
+	}
+
+	/**
+	 * Records a produced entry.
+	 * 
+	 * @param node The node, that produced the entry.
+	 */
+	void produced(IDie node) {
+		profileOf(node).producedEntries++;
+	}
+
+	/**
+	 * Records multiplications of absolute frequencies.
+	 * 
+	 * @param node   The node, that multiplied.
+	 * @param amount The amount of multiplications.
+	 */
+	void multiplied(IDie node, long amount) {
+		profileOf(node).multiplications += amount;
+	}
+
+	/**
+	 * Starts measuring the worker threads of a parallel path.
+	 * 
+	 * @param node The node, that runs the parallel path.
+	 * @return The workers of the path.
+	 */
+	Workers workers(IDie node) {
+		List<EvaluationProfile> profiles = new ArrayList<EvaluationProfile>();
+		for (Frame frame : stack) {
+			if (profiles.isEmpty() && frame.profile.getNode() != node) {
+				continue;
+			}
+			profiles.add(frame.profile);
+		}
+		if (profiles.isEmpty()) {
+			// Never entered, so it is attributed like everything else.
+			profiles.add(profileOf(node));
+		}
+		return new Workers(profiles, Thread.currentThread());
+	}
+
+	/**
+	 * 
+	 * @param node A node.
+	 * @return The profile of the topmost frame of the given node. If the node has
+	 *         not been entered, the profile of the current node or the hidden root.
+	 */
+	private EvaluationProfile profileOf(IDie node) {
+		for (Frame frame : stack) {
+			if (frame.profile.getNode() == node) {
+				return frame.profile;
+			}
+		}
+		Frame top = stack.peek();
+		return top == null ? root : top.profile;
+	}
+
+	/**
+	 * 
+	 * @return The CPU time of the current thread in nanoseconds, or {@code -1} if
+	 *         not supported.
+	 */
+	private static long cpuNanos() {
+		if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+			return THREADS.getCurrentThreadCpuTime();
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @return The allocated bytes of the current thread, or {@code -1} if not
+	 *         supported.
+	 */
+	private static long allocatedBytes() {
+		if (THREADS instanceof com.sun.management.ThreadMXBean extended && extended.isThreadAllocatedMemorySupported()
+				&& extended.isThreadAllocatedMemoryEnabled()) {
+			return extended.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,452 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * <p>
+ * A dice pool, in which every die explodes on its own, such as "6d6, where
+ * every 6 is rolled again". Each die is rolled again at most
+ * {@link #rerollLimit} times. The {@link Output} decides, whether all rolls of
+ * the pool are reported as a multi-set or only their sum.
+ * </p>
+ * <p>
+ * The limit counts the rolls after the first one, unlike the explosion depth of
+ * a {@link DiceExploder}, which counts all rolls of a die: A limit of {@code k}
+ * matches an explosion depth of {@code k + 1}.
+ * </p>
+ * <p>
+ * The distribution of a single exploding die is computed once, level by level,
+ * and every sequence of rolls ending early is filled up to
+ * {@code T^(rerollLimit + 1)}, where {@code T} is the total weight of the
+ * base die. The multi-sets of the pool are then combined from the ones of a
+ * single die by exponentiation by squaring, which takes only a logarithmic
+ * amount of combinations in the amount of dice. The sums are raised to the
+ * amount of dice as a polynomial.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see DiceExploder
+ * @see ExplodingSuccessPool
+ */
+public class ExplodingPool implements IDie {
+	/**
+	 * What the pool reports for every roll.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	public static enum Output {
+		/**
+		 * The multi-set of all rolls of all dice.
+		 */
+		MULTISET,
+		/**
+		 * The sum of all rolls of all dice.
+		 */
+		SUM;
+	}
+
+	/**
+	 * The die, which is rolled {@link #count} times.
+	 * 
+	 * @apiNote Never <code>null</code>.
+	 */
+	private AbstractDie baseDie;
+	/**
+	 * Amount of dice in the pool. It is always positive.
+	 */
+	private int count;
+	/**
+	 * Decides, on which values a die is rolled again, never <code>null</code>.
+	 */
+	private IntPredicate explodeOn;
+	/**
+	 * How often a single die can be rolled again. It is never negative.
+	 */
+	private int rerollLimit;
+	/**
+	 * What the pool reports, never <code>null</code>.
+	 */
+	private Output output = Output.MULTISET;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new pool, which reports the multi-set of all rolls.
+	 * 
+	 * @param baseDie
+	 * @param count
+	 * @param explodeOn
+	 * @param rerollLimit
+	 * @throws NullPointerException     If the base die or the condition is
+	 *                                  <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or the limit
+	 *                                  is negative.
+	 */
+	public ExplodingPool(AbstractDie baseDie, int count, IntPredicate explodeOn, int rerollLimit) {
+		super();
+		setBaseDie(baseDie);
+		setCount(count);
+		setExplodeOn(explodeOn);
+		setRerollLimit(rerollLimit);
+	}
+
+	/**
+	 * 
+	 * @return The current base die.
+	 */
+	public final AbstractDie getBaseDie() {
+		return baseDie;
+	}
+
+	/**
+	 * 
+	 * @param baseDie
+	 * @throws NullPointerException If the new base die is <code>null</code>.
+	 */
+	public final void setBaseDie(AbstractDie baseDie) {
+		this.baseDie = Objects.requireNonNull(baseDie, "A base die is required!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of dice.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param count The new amount of dice.
+	 * @throws IllegalArgumentException If count is not positive.
+	 */
+	public final void setCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("A dice pool has at least one die in it!");
+		}
+		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current explosion condition, never <code>null</code>.
+	 */
+	public final IntPredicate getExplodeOn() {
+		return explodeOn;
+	}
+
+	/**
+	 * 
+	 * @param explodeOn
+	 * @throws NullPointerException If the condition is <code>null</code>.
+	 */
+	public final void setExplodeOn(IntPredicate explodeOn) {
+		this.explodeOn = Objects.requireNonNull(explodeOn, "Given integer-predicate was null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return How often a single die can be rolled again, never negative.
+	 */
+	public final int getRerollLimit() {
+		return rerollLimit;
+	}
+
+	/**
+	 * 
+	 * @param rerollLimit
+	 * @throws IllegalArgumentException If the limit is negative.
+	 */
+	public final void setRerollLimit(int rerollLimit) {
+		if (rerollLimit < 0) {
+			throw new IllegalArgumentException("Reroll-Limit must be non-negative.");
+		}
+		this.rerollLimit = rerollLimit;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return What the pool reports, never <code>null</code>.
+	 */
+	public final Output getOutput() {
+		return output;
+	}
+
+	/**
+	 * 
+	 * @param output What the pool reports.
+	 * @throws NullPointerException If the output is <code>null</code>.
+	 */
+	public final void setOutput(Output output) {
+		this.output = Objects.requireNonNull(output, "An output must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, baseDie);
+	}
+
+	/**
+	 * Every die rolls between one and {@code rerollLimit + 1} times. The
+	 * multi-sets are bounded by the ones of at most that many rolls, the sums by
+	 * the range of their values.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = baseDie.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		BigInteger dice = BigInteger.valueOf(count);
+		BigInteger rolls = dice.multiply(BigInteger.valueOf(rerollLimit + 1L));
+		int maxRolls = (int) Math.min(rolls.longValue(), Integer.MAX_VALUE);
+		if (output == Output.MULTISET) {
+			// One more value stands for the rolls, that did not happen.
+			BigInteger entries = Utils.multichoose(baseDie.getDistinctValues() + 1, maxRolls);
+			return new CostEstimate(entries, false, base.getMinValue(), base.getMaxValue(), count, maxRolls,
+					CostEstimate.costTerms(entries, entries.multiply(entries), entries, base));
+		}
+		BigInteger low = BigInteger.valueOf(base.getMinValue()), high = BigInteger.valueOf(base.getMaxValue());
+		low = low.multiply(low.signum() < 0 ? rolls : dice);
+		high = high.multiply(high.signum() > 0 ? rolls : dice);
+		BigInteger entries = high.subtract(low).add(BigInteger.ONE);
+		BigInteger single = entries.divide(dice).add(BigInteger.ONE);
+		return new CostEstimate(entries, false, low.max(BigInteger.valueOf(Integer.MIN_VALUE)).intValue(),
+				high.min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue(), 1, 1,
+				CostEstimate.costTerms(entries, entries.multiply(single), entries.multiply(single), base));
+	}
+
+	/**
+	 * Explodes every die of the pool.
+	 * 
+	 * @implNote Uses {@link TreeMap}s as its keys for multi-sets and
+	 *           singleton-maps for sums.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Explodes every die of the pool, while checking the time limit after every
+	 * combined row and the other limits for every produced entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, pool(budget, baseDie.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the base die. As every die rolls
+	 * {@code rerollLimit + 1} times in the common denominator, the scale gets
+	 * raised to that times the amount of dice.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = baseDie.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(Math.multiplyExact(count, rerollLimit + 1)),
+					pool(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the outcomes of the pool to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> pool(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		Map<Map<Integer, Integer>, BigInteger> single = single(budget, base);
+		if (output == Output.SUM) {
+			int offset = single.keySet().stream().mapToInt(key -> key.keySet().iterator().next()).min().orElse(0);
+			int highest = single.keySet().stream().mapToInt(key -> key.keySet().iterator().next()).max().orElse(0);
+			BigInteger[] coefficients = new BigInteger[Math.addExact(Math.subtractExact(highest, offset), 1)];
+			Arrays.fill(coefficients, BigInteger.ZERO);
+			single.forEach((key, frequency) -> coefficients[key.keySet().iterator().next() - offset] = frequency);
+			return Polynomials.toFrequencies(this, budget, Polynomials.power(this, budget, coefficients, count),
+					Math.multiplyExact(offset, count));
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = null, square = single;
+		for (int remaining = count;; square = combine(budget, square, square)) {
+			if ((remaining & 1) != 0) {
+				ret = ret == null ? square : combine(budget, ret, square);
+			}
+			remaining >>>= 1;
+			if (remaining == 0) {
+				return budget.checkResult(this, ret);
+			}
+		}
+	}
+
+	/**
+	 * Explodes a single die level by level: Only the rolls, that exploded every
+	 * time so far, are carried to the next level, every other roll ends its
+	 * sequence.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the rolls of a single die to their absolute
+	 *         frequencies, which sum up to {@code T^(rerollLimit + 1)}.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> single(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable table = FaceTable.ofFrequencies(base);
+		BigInteger[] fillers = new BigInteger[rerollLimit + 1];
+		fillers[rerollLimit] = BigInteger.ONE;
+		for (int level = rerollLimit - 1; level >= 0; level--) {
+			fillers[level] = fillers[level + 1].multiply(table.total());
+		}
+		budget.countMultiplications(this, rerollLimit);
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		// The rolls of all sequences, which exploded every time so far.
+		Map<Map<Integer, Integer>, BigInteger> exploded = Collections.singletonMap(Collections.emptyMap(),
+				BigInteger.ONE);
+		for (int level = 0; level <= rerollLimit && !exploded.isEmpty(); level++) {
+			Map<Map<Integer, Integer>, BigInteger> next = new HashMap<Map<Integer, Integer>, BigInteger>();
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> sequence : exploded.entrySet()) {
+				for (int i = 0; i < table.size(); i++) {
+					Map<Integer, Integer> key = extend(sequence.getKey(), table.face(i));
+					BigInteger weight = sequence.getValue().multiply(table.weight(i));
+					if (level < rerollLimit && explodeOn.test(table.face(i))) {
+						next.merge(key, weight, BigInteger::add);
+					} else {
+						ret.merge(key, weight.multiply(fillers[level]), BigInteger::add);
+					}
+				}
+			}
+			budget.countMultiplications(this, 2L * exploded.size() * table.size());
+			budget.checkSize(this, ret.size() + next.size());
+			budget.checkTime(this);
+			exploded = next;
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param rolls The rolls of a die so far.
+	 * @param face  The next roll.
+	 * @return A new key with the next roll added to the multi-set or the sum.
+	 */
+	private Map<Integer, Integer> extend(Map<Integer, Integer> rolls, int face) {
+		if (output == Output.SUM) {
+			int sum = rolls.isEmpty() ? 0 : rolls.keySet().iterator().next();
+			return Collections.singletonMap(Math.addExact(sum, face), 1);
+		}
+		Map<Integer, Integer> ret = new TreeMap<Integer, Integer>(rolls);
+		ret.merge(face, 1, Integer::sum);
+		return ret;
+	}
+
+	/**
+	 * Combines the multi-sets of two independent parts of the pool.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param left
+	 * @param right
+	 * @return A new mapping of the united multi-sets to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> combine(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> left, Map<Map<Integer, Integer>, BigInteger> right) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> leftEntry : left.entrySet()) {
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> rightEntry : right.entrySet()) {
+				Map<Integer, Integer> key = new TreeMap<Integer, Integer>(leftEntry.getKey());
+				rightEntry.getKey().forEach((value, amount) -> key.merge(value, amount, Integer::sum));
+				// Actually, this is bad practice and dangerous, but we never modify the key
+				// afterwards, so this is OK.
+				ret.merge(key, leftEntry.getValue().multiply(rightEntry.getValue()), BigInteger::add);
+			}
+			budget.countMultiplications(this, right.size());
+			budget.checkSize(this, ret.size());
+			budget.checkTime(this);
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + baseDie.hashCode();
+		result = prime * result + count;
+		result = prime * result + explodeOn.hashCode();
+		result = prime * result + rerollLimit;
+		result = prime * result + output.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ExplodingPool)) {
+			return false;
+		}
+		ExplodingPool other = (ExplodingPool) obj;
+		return baseDie.equals(other.baseDie) && count == other.count && explodeOn.equals(other.explodeOn)
+				&& rerollLimit == other.rerollLimit && output == other.output;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ExplodingPool [baseDie=");
+		builder.append(baseDie);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append(", explodeOn=");
+		builder.append(explodeOn);
+		builder.append(", rerollLimit=");
+		builder.append(rerollLimit);
+		builder.append(", output=");
+		builder.append(output);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,348 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * A dice pool, that counts its successes, in which every die showing at least
+ * the {@link #againThreshold} is rolled again, as in "10-again" of the World of
+ * Darkness. Every roll showing at least the {@link #successThreshold} is a
+ * success, including the ones rolled again. Each die is rolled again at most
+ * {@link #rerollLimit} times, so it is rolled at most {@code rerollLimit + 1}
+ * times: This is the explosion depth of an equivalent {@link DiceExploder}.
+ * </p>
+ * <p>
+ * The successes of a single die are computed as a polynomial, whose
+ * coefficients are the absolute frequencies of each amount of successes. A die,
+ * that can still be rolled again {@code k} times, has the polynomial
+ * {@code P(k) = N * T^k + A * P(k - 1)}, where {@code N} and {@code A} are the
+ * polynomials of the faces, that are not rolled again and those that are, and
+ * {@code T} is the total weight of the base die. Every polynomial therefore
+ * sums up to {@code T^(k + 1)}, just like {@code k + 1} independent rolls. The
+ * pool is the polynomial of a single die raised to the amount of dice.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see SuccessPool
+ * @see DiceExploder
+ */
+public class ExplodingSuccessPool implements IDie {
+	/**
+	 * The die, which is rolled {@link #count} times.
+	 * 
+	 * @apiNote Never <code>null</code>.
+	 */
+	private AbstractDie baseDie;
+	/**
+	 * Amount of dice in the pool. It is always positive.
+	 */
+	private int count;
+	/**
+	 * Rolls showing at least this value are successes.
+	 */
+	private int successThreshold;
+	/**
+	 * Rolls showing at least this value are rolled again.
+	 */
+	private int againThreshold;
+	/**
+	 * How often a single die can be rolled again. It is never negative.
+	 */
+	private int rerollLimit;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new pool.
+	 * 
+	 * @param baseDie
+	 * @param count
+	 * @param successThreshold
+	 * @param againThreshold
+	 * @param rerollLimit
+	 * @throws NullPointerException     If the base die is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or the limit
+	 *                                  is negative.
+	 */
+	public ExplodingSuccessPool(AbstractDie baseDie, int count, int successThreshold, int againThreshold,
+			int rerollLimit) {
+		super();
+		setBaseDie(baseDie);
+		setCount(count);
+		setSuccessThreshold(successThreshold);
+		setAgainThreshold(againThreshold);
+		setRerollLimit(rerollLimit);
+	}
+
+	/**
+	 * 
+	 * @return The current base die.
+	 */
+	public final AbstractDie getBaseDie() {
+		return baseDie;
+	}
+
+	/**
+	 * 
+	 * @param baseDie
+	 * @throws NullPointerException If the new base die is <code>null</code>.
+	 */
+	public final void setBaseDie(AbstractDie baseDie) {
+		this.baseDie = Objects.requireNonNull(baseDie, "A base die is required!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of dice.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param count The new amount of dice.
+	 * @throws IllegalArgumentException If count is not positive.
+	 */
+	public final void setCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("A dice pool has at least one die in it!");
+		}
+		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The smallest value counting as a success.
+	 */
+	public final int getSuccessThreshold() {
+		return successThreshold;
+	}
+
+	/**
+	 * 
+	 * @param successThreshold
+	 */
+	public final void setSuccessThreshold(int successThreshold) {
+		this.successThreshold = successThreshold;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The smallest value, that is rolled again.
+	 */
+	public final int getAgainThreshold() {
+		return againThreshold;
+	}
+
+	/**
+	 * 
+	 * @param againThreshold
+	 */
+	public final void setAgainThreshold(int againThreshold) {
+		this.againThreshold = againThreshold;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return How often a single die can be rolled again, never negative.
+	 */
+	public final int getRerollLimit() {
+		return rerollLimit;
+	}
+
+	/**
+	 * 
+	 * @param rerollLimit
+	 * @throws IllegalArgumentException If the limit is negative.
+	 */
+	public final void setRerollLimit(int rerollLimit) {
+		if (rerollLimit < 0) {
+			throw new IllegalArgumentException("Reroll-Limit must be non-negative.");
+		}
+		this.rerollLimit = rerollLimit;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, baseDie);
+	}
+
+	/**
+	 * Every die scores at most one success per roll. The amount of entries is an
+	 * upper bound, the multiplications are bounded by the ones of the final
+	 * squaring.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = baseDie.estimate();
+		long maxSuccesses = Math.min((long) count * (rerollLimit + 1L), Integer.MAX_VALUE - 1);
+		BigInteger entries = BigInteger.valueOf(maxSuccesses + 1);
+		return new CostEstimate(entries, false, 0, (int) maxSuccesses, 1, 1,
+				CostEstimate.costTerms(entries, entries.multiply(entries), entries.multiply(entries), base));
+	}
+
+	/**
+	 * Counts the successes of every roll of the pool.
+	 * 
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Counts the successes, while checking the time limit after every
+	 * multiplied row and the other limits for every produced entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, count(budget, baseDie.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the base die. As every die rolls
+	 * {@code rerollLimit + 1} times in the common denominator, the scale gets
+	 * raised to that times the amount of dice.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = baseDie.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(Math.multiplyExact(count, rerollLimit + 1)),
+					count(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the polynomial of a single die.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return The absolute frequencies of the successes of a single die, indexed
+	 *         by the amount of successes.
+	 */
+	private BigInteger[] single(EvaluationBudget budget, Map<Map<Integer, Integer>, BigInteger> base) {
+		// Index 0: No success, index 1: A success.
+		BigInteger[] stopping = { BigInteger.ZERO, BigInteger.ZERO };
+		BigInteger[] again = { BigInteger.ZERO, BigInteger.ZERO };
+		BigInteger total = BigInteger.ZERO;
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : base.entrySet()) {
+			int face = baseEntry.getKey().keySet().iterator().next();
+			int success = face >= successThreshold ? 1 : 0;
+			BigInteger[] target = face >= againThreshold ? again : stopping;
+			target[success] = target[success].add(baseEntry.getValue());
+			total = total.add(baseEntry.getValue());
+		}
+		// At the reroll limit, no die is rolled again.
+		BigInteger[] ret = { stopping[0].add(again[0]), stopping[1].add(again[1]) };
+		BigInteger totalPower = BigInteger.ONE;
+		for (int depth = 1; depth <= rerollLimit; depth++) {
+			totalPower = totalPower.multiply(total);
+			BigInteger[] next = Polynomials.multiply(this, budget, again, ret);
+			next[0] = next[0].add(stopping[0].multiply(totalPower));
+			next[1] = next[1].add(stopping[1].multiply(totalPower));
+			budget.countMultiplications(this, 3);
+			ret = next;
+		}
+		return ret;
+	}
+
+	/**
+	 * Raises the polynomial of a single die to the amount of dice.
+	 * 
+	 * @see Polynomials#power(IDie, EvaluationBudget, BigInteger[], int)
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the amounts of successes to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> count(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		return Polynomials.toFrequencies(this, budget, Polynomials.power(this, budget, single(budget, base), count),
+				0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + againThreshold;
+		result = prime * result + baseDie.hashCode();
+		result = prime * result + count;
+		result = prime * result + rerollLimit;
+		result = prime * result + successThreshold;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ExplodingSuccessPool)) {
+			return false;
+		}
+		ExplodingSuccessPool other = (ExplodingSuccessPool) obj;
+		return baseDie.equals(other.baseDie) && count == other.count && successThreshold == other.successThreshold
+				&& againThreshold == other.againThreshold && rerollLimit == other.rerollLimit;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ExplodingSuccessPool [baseDie=");
+		builder.append(baseDie);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append(", successThreshold=");
+		builder.append(successThreshold);
+		builder.append(", againThreshold=");
+		builder.append(againThreshold);
+		builder.append(", rerollLimit=");
+		builder.append(rerollLimit);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,306 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * The highest or lowest value of several independent rolls of a single-valued
+ * distribution, such as "roll 3d20 and take the best" or advantage. The result
+ * has the same distribution as keeping the highest or lowest die of a
+ * {@link HomogeneousDiceGroup}, but the multi-sets are never enumerated.
+ * </p>
+ * <p>
+ * Instead, all {@link #count} rolls are at most a value with the cumulated
+ * frequency of that value raised to the amount of rolls. The frequency of the
+ * highest roll being exactly a value is the difference of two consecutive
+ * powers. The lowest roll works the same way with the cumulated frequencies
+ * from above. This takes one power per distinct value of the source.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see DiceKeeper
+ * @see OrderStatistic
+ */
+public class ExtremeOf implements IDie, IRequiresSource {
+	/**
+	 * The single-valued distribution, that gets rolled, can never be
+	 * <code>null</code>.
+	 */
+	private IDie source;
+	/**
+	 * Amount of rolls of the source. It is always positive.
+	 */
+	private int count;
+	/**
+	 * If {@code true}, the highest roll is taken. Otherwise, the lowest.
+	 */
+	private boolean highest;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new operator.
+	 * 
+	 * @param source  A single-valued distribution.
+	 * @param count   The amount of rolls.
+	 * @param highest If {@code true}, the highest roll is taken. Otherwise, the
+	 *                lowest.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive.
+	 */
+	public ExtremeOf(IDie source, int count, boolean highest) {
+		super();
+		setSource(source);
+		setCount(count);
+		setHighest(highest);
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The amount of rolls.
+	 * @return A new operator taking the highest roll.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive.
+	 */
+	public static ExtremeOf highest(IDie source, int count) {
+		return new ExtremeOf(source, count, true);
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The amount of rolls.
+	 * @return A new operator taking the lowest roll.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive.
+	 */
+	public static ExtremeOf lowest(IDie source, int count) {
+		return new ExtremeOf(source, count, false);
+	}
+
+	/**
+	 * 
+	 * @return The source, that is being rolled.
+	 */
+	@Override
+	public final IDie getSource() {
+		return source;
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 * @see Utils#checkForCycle(IRequiresSource)
+	 */
+	@Override
+	public final void setSource(IDie source) {
+		if (source instanceof IRequiresSource future) {
+			IDie oldSource = this.source;
+			this.source = source;
+			if (Utils.checkForCycle(future)) {
+				this.source = oldSource;
+			}
+		}
+		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of rolls.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param count The new amount of rolls.
+	 * @throws IllegalArgumentException If count is not positive.
+	 */
+	public final void setCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("At least one roll is required!");
+		}
+		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the highest roll is taken. {@code false}, if the
+	 *         lowest.
+	 */
+	public final boolean isHighest() {
+		return highest;
+	}
+
+	/**
+	 * 
+	 * @param highest If {@code true}, the highest roll is taken. Otherwise, the
+	 *                lowest.
+	 */
+	public final void setHighest(boolean highest) {
+		this.highest = highest;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * Every value of the source can be the highest or the lowest roll, so the
+	 * amount of entries is the one of the source. Each entry needs a power of
+	 * logarithmic cost.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		BigInteger entries = base.getEntries();
+		BigInteger multiplications = entries
+				.multiply(BigInteger.valueOf(Integer.SIZE - Integer.numberOfLeadingZeros(count)));
+		return new CostEstimate(entries, base.isExact(), base.getMinValue(), base.getMaxValue(), 1, 1,
+				CostEstimate.costTerms(entries, multiplications, entries.shiftLeft(1), base));
+	}
+
+	/**
+	 * Takes the highest or lowest of all rolls.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Takes the highest or lowest of all rolls, while checking the given budget for
+	 * every produced entry.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, extreme(budget, source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and raises its scale to the
+	 * amount of rolls.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(count), extreme(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the differences of consecutive powers of the cumulated frequencies.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the source.
+	 * @return A new mapping of the highest or lowest rolls to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> extreme(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable table = FaceTable.ofFrequencies(base);
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(table.size(),
+				1.0f);
+		BigInteger cumulated = BigInteger.ZERO, previous = BigInteger.ZERO;
+		for (int step = 0; step < table.size(); step++) {
+			int index = highest ? step : table.size() - 1 - step;
+			cumulated = cumulated.add(table.weight(index));
+			BigInteger power = cumulated.pow(count);
+			BigInteger value = power.subtract(previous);
+			previous = power;
+			budget.countMultiplications(this, Integer.SIZE - Integer.numberOfLeadingZeros(count));
+			if (value.signum() != 0) {
+				Map<Integer, Integer> key = Collections.singletonMap(table.face(index), 1);
+				ret.put(key, value);
+				budget.checkEntry(this, ret.size(), key, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + count;
+		result = prime * result + (highest ? 1231 : 1237);
+		result = prime * result + source.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ExtremeOf)) {
+			return false;
+		}
+		ExtremeOf other = (ExtremeOf) obj;
+		return count == other.count && highest == other.highest && source.equals(other.source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ExtremeOf [source=");
+		builder.append(source);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append(", highest=");
+		builder.append(highest);
+		builder.append("]");
+		return builder.toString();
+	}
+}
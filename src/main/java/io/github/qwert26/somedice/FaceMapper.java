@@ -0,0 +1,316 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * <p>
+ * Maps every face of a die through a function, such as "treat any roll below 10
+ * as 10", halving or renumbering the faces. Faces mapped to the same value get
+ * their frequencies merged.
+ * </p>
+ * <p>
+ * Mapping the faces of a single die via {@link #toUnfairDie()} before it
+ * becomes the base of a {@link HomogeneousDiceGroup} or part of a
+ * {@link MixedDiceGroup} is much cheaper than mapping the dice of every
+ * multi-set afterwards: Every merged face reduces the amount of distinct values
+ * and therefore the amount of multi-sets, which grows exponentially with the
+ * amount of dice.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see Compressor
+ */
+public class FaceMapper implements IDie, IRequiresSource {
+	/**
+	 * The die, whose faces are mapped.
+	 */
+	private AbstractDie source;
+	/**
+	 * The function applied to every face.
+	 */
+	private IntUnaryOperator mapping;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new FaceMapper.
+	 * 
+	 * @param source
+	 * @param mapping
+	 * @throws NullPointerException If either the source or the mapping is
+	 *                              <code>null</code>.
+	 */
+	public FaceMapper(AbstractDie source, IntUnaryOperator mapping) {
+		super();
+		setSource(source);
+		setMapping(mapping);
+	}
+
+	/**
+	 * 
+	 * @param source
+	 * @param minimum The smallest allowed value.
+	 * @return A new FaceMapper, which raises all smaller faces to the minimum.
+	 * @throws NullPointerException If the source is <code>null</code>.
+	 */
+	public static FaceMapper atLeast(AbstractDie source, int minimum) {
+		return new FaceMapper(source, face -> Math.max(face, minimum));
+	}
+
+	/**
+	 * 
+	 * @param source
+	 * @param maximum The greatest allowed value.
+	 * @return A new FaceMapper, which lowers all greater faces to the maximum.
+	 * @throws NullPointerException If the source is <code>null</code>.
+	 */
+	public static FaceMapper atMost(AbstractDie source, int maximum) {
+		return new FaceMapper(source, face -> Math.min(face, maximum));
+	}
+
+	/**
+	 * 
+	 * @param source
+	 * @param divisor The positive divisor.
+	 * @return A new FaceMapper, which divides every face and rounds down.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the divisor is not positive.
+	 */
+	public static FaceMapper divided(AbstractDie source, int divisor) {
+		if (divisor < 1) {
+			throw new IllegalArgumentException("The divisor must be positive!");
+		}
+		return new FaceMapper(source, face -> Math.floorDiv(face, divisor));
+	}
+
+	/**
+	 * 
+	 * @return The current mapping, never <code>null</code>.
+	 */
+	public final IntUnaryOperator getMapping() {
+		return mapping;
+	}
+
+	/**
+	 * 
+	 * @param mapping
+	 * @throws NullPointerException If the mapping is <code>null</code>.
+	 */
+	public final void setMapping(IntUnaryOperator mapping) {
+		this.mapping = Objects.requireNonNull(mapping, "Given integer-operator was null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * @param source
+	 * @throws NullPointerException     If the given source was <code>null</code>.
+	 * @throws IllegalArgumentException If the given source was not an
+	 *                                  {@link AbstractDie}.
+	 */
+	@Override
+	public final void setSource(IDie source) {
+		if (source == null) {
+			throw new NullPointerException("Source as IDie must not be null.");
+		} else if (source instanceof AbstractDie absDie) {
+			setSource(absDie);
+		} else {
+			throw new IllegalArgumentException("Given source was not an AbstractDie.");
+		}
+	}
+
+	/**
+	 * 
+	 * @param source
+	 * @throws NullPointerException If the given source was <code>null</code>.
+	 */
+	public final void setSource(AbstractDie source) {
+		this.source = Objects.requireNonNull(source, "Source as AbstractDie must not be null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * @return The current source, always an {@link AbstractDie} and never
+	 *         <code>null</code>.
+	 */
+	@Override
+	public final IDie getSource() {
+		return source;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * The amount of entries is bounded by the amount of distinct values of the
+	 * source. Nothing is known about the mapped values.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		BigInteger entries = BigInteger.valueOf(source.getDistinctValues());
+		return new CostEstimate(entries, false, Integer.MIN_VALUE, Integer.MAX_VALUE, 1, 1,
+				CostEstimate.costTerms(entries, BigInteger.ZERO, entries, source.estimate()));
+	}
+
+	/**
+	 * Maps the faces of the source.
+	 * 
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Maps the faces of the source, while checking the given budget for every
+	 * produced entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, toFrequencies(budget, map(source.getAbsoluteFrequencies(budget))));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source, the scale stays the same.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale(), toFrequencies(budget, map(base.getReduced())));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Maps the faces of the source into an unfair die.
+	 * 
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         mapped source.
+	 * @see #toUnfairDie(EvaluationBudget)
+	 */
+	public UnfairDie toUnfairDie() {
+		return toUnfairDie(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Maps the faces of the source into an unfair die, while evaluating the
+	 * source under the given budget. The result can be the base of a
+	 * {@link HomogeneousDiceGroup}.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A new unfair die with the exact same distribution of values as the
+	 *         mapped source.
+	 * @implNote The returned die is backed by sorted arrays, its map gets only
+	 *           created, once it is requested.
+	 */
+	public UnfairDie toUnfairDie(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			return new UnfairDie(map(source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Applies the mapping to every face and merges the collisions.
+	 * 
+	 * @param base The frequencies of the source.
+	 * @return The table of the mapped values and their absolute frequencies.
+	 */
+	private FaceTable map(Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable table = FaceTable.ofFrequencies(base);
+		int[] faces = table.faces();
+		for (int i = 0; i < faces.length; i++) {
+			faces[i] = mapping.applyAsInt(faces[i]);
+		}
+		return FaceTable.of(faces, table.weights());
+	}
+
+	/**
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param table  The mapped values.
+	 * @return A new mapping of the mapped values to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> toFrequencies(EvaluationBudget budget, FaceTable table) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(table.size(),
+				1.0f);
+		for (int i = 0; i < table.size(); i++) {
+			Map<Integer, Integer> key = Collections.singletonMap(table.face(i), 1);
+			ret.put(key, table.weight(i));
+			budget.checkEntry(this, ret.size(), key, table.weight(i));
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + mapping.hashCode();
+		result = prime * result + source.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FaceMapper)) {
+			return false;
+		}
+		FaceMapper other = (FaceMapper) obj;
+		return mapping.equals(other.mapping) && source.equals(other.source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("FaceMapper [source=");
+		builder.append(source);
+		builder.append(", mapping=");
+		builder.append(mapping);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,371 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * An immutable table of faces and their weights, sorted ascending by the faces.
+ * Besides the weights as {@link BigInteger}s, it also keeps them as
+ * {@code long}s, as long as all of them fit. The smallest and greatest face,
+ * the total weight and the greatest common divisor of all weights are computed
+ * once at construction.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see UnfairDie
+ */
+final class FaceTable {
+	/**
+	 * The table without any faces.
+	 */
+	static final FaceTable EMPTY = new FaceTable(new int[0], new BigInteger[0]);
+	/**
+	 * The distinct faces, sorted ascending.
+	 */
+	private final int[] faces;
+	/**
+	 * The weights of the faces.
+	 */
+	private final BigInteger[] weights;
+	/**
+	 * The weights of the faces as {@code long}s, <code>null</code> if at least one
+	 * of them does not fit.
+	 */
+	private final long[] longWeights;
+	/**
+	 * The sum of all weights.
+	 */
+	private final BigInteger total;
+	/**
+	 * The greatest common divisor of all weights, zero for an empty table.
+	 */
+	private final BigInteger gcd;
+
+	/**
+	 * Creates a new table from arrays, that are already sorted by their faces and
+	 * free of duplicates. The arrays are taken over without copying.
+	 * 
+	 * @param faces
+	 * @param weights
+	 */
+	private FaceTable(int[] faces, BigInteger[] weights) {
+		super();
+		this.faces = faces;
+		this.weights = weights;
+		longWeights = toLongs(weights);
+		BigInteger sum = null;
+		long smallGcd = 0;
+		if (longWeights != null) {
+			long smallTotal = 0;
+			for (long weight : longWeights) {
+				smallGcd = gcd(smallGcd, weight);
+				if (sum == null) {
+					try {
+						smallTotal = Math.addExact(smallTotal, weight);
+					} catch (ArithmeticException e) {
+						sum = BigInteger.valueOf(smallTotal).add(BigInteger.valueOf(weight));
+					}
+				} else {
+					sum = sum.add(BigInteger.valueOf(weight));
+				}
+			}
+			total = sum == null ? BigInteger.valueOf(smallTotal) : sum;
+			gcd = BigInteger.valueOf(smallGcd);
+		} else {
+			sum = BigInteger.ZERO;
+			BigInteger bigGcd = BigInteger.ZERO;
+			for (BigInteger weight : weights) {
+				sum = sum.add(weight);
+				bigGcd = bigGcd.gcd(weight);
+			}
+			total = sum;
+			gcd = bigGcd;
+		}
+	}
+
+	/**
+	 * 
+	 * @param weights
+	 * @return The weights as {@code long}s, or <code>null</code> if at least one
+	 *         of them does not fit.
+	 */
+	private static long[] toLongs(BigInteger[] weights) {
+		long[] ret = new long[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i].bitLength() >= Long.SIZE) {
+				return null;
+			}
+			ret[i] = weights[i].longValue();
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @param b
+	 * @return The greatest common divisor of the absolute values.
+	 */
+	private static long gcd(long a, long b) {
+		a = Math.abs(a);
+		b = Math.abs(b);
+		while (b != 0) {
+			long temp = a % b;
+			a = b;
+			b = temp;
+		}
+		return a;
+	}
+
+	/**
+	 * Creates a table from a mapping of faces to weights. Maps, that are already
+	 * sorted by the natural order of their keys, are not sorted again.
+	 * 
+	 * @param data
+	 * @return The table of the given data.
+	 * @throws NullPointerException If a face or a weight is <code>null</code>.
+	 */
+	static FaceTable of(Map<Integer, BigInteger> data) {
+		int size = data.size();
+		if (size == 0) {
+			return EMPTY;
+		}
+		int[] faces = new int[size];
+		BigInteger[] weights = new BigInteger[size];
+		int index = 0;
+		boolean sorted = true;
+		for (Map.Entry<Integer, BigInteger> entry : data.entrySet()) {
+			faces[index] = entry.getKey();
+			weights[index] = Objects.requireNonNull(entry.getValue(), "Weights can not be null!");
+			if (index > 0 && faces[index - 1] >= faces[index]) {
+				sorted = false;
+			}
+			index++;
+		}
+		if (!sorted) {
+			Arrays.sort(faces);
+			for (int i = 0; i < size; i++) {
+				weights[i] = data.get(faces[i]);
+			}
+		}
+		return new FaceTable(faces, weights);
+	}
+
+	/**
+	 * Creates a table from the absolute frequencies of a single-valued
+	 * distribution, such as the ones of a die or a {@link Compressor}.
+	 * 
+	 * @param frequencies
+	 * @return The table of the given frequencies.
+	 * @throws IllegalArgumentException If a key does not consist of exactly one
+	 *                                  value, that appears once.
+	 */
+	static FaceTable ofFrequencies(Map<Map<Integer, Integer>, BigInteger> frequencies) {
+		Map<Integer, BigInteger> data = new HashMap<Integer, BigInteger>(frequencies.size(), 1.0f);
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : frequencies.entrySet()) {
+			Map<Integer, Integer> key = entry.getKey();
+			if (key.size() != 1 || key.values().iterator().next() != 1) {
+				throw new IllegalArgumentException("The distribution is not single-valued: " + key);
+			}
+			data.merge(key.keySet().iterator().next(), entry.getValue(), BigInteger::add);
+		}
+		return of(data);
+	}
+
+	/**
+	 * Creates a table from unsorted arrays. Weights of duplicated faces are added
+	 * together. The given arrays are not modified.
+	 * 
+	 * @param faces
+	 * @param weights
+	 * @return The table of the given arrays.
+	 * @throws IllegalArgumentException If the arrays differ in length.
+	 * @throws NullPointerException     If an array or a weight is
+	 *                                  <code>null</code>.
+	 */
+	static FaceTable of(int[] faces, BigInteger[] weights) {
+		if (faces.length != weights.length) {
+			throw new IllegalArgumentException("Faces and weights must have the same length!");
+		}
+		if (faces.length == 0) {
+			return EMPTY;
+		}
+		// Sorts the indices by their faces, so the weights can follow.
+		Integer[] order = new Integer[faces.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			Objects.requireNonNull(weights[i], "Weights can not be null!");
+		}
+		Arrays.sort(order, Comparator.comparingInt(i -> faces[i]));
+		int[] sortedFaces = new int[faces.length];
+		BigInteger[] sortedWeights = new BigInteger[faces.length];
+		int size = 0;
+		for (int i : order) {
+			if (size > 0 && sortedFaces[size - 1] == faces[i]) {
+				sortedWeights[size - 1] = sortedWeights[size - 1].add(weights[i]);
+			} else {
+				sortedFaces[size] = faces[i];
+				sortedWeights[size] = weights[i];
+				size++;
+			}
+		}
+		return new FaceTable(Arrays.copyOf(sortedFaces, size), Arrays.copyOf(sortedWeights, size));
+	}
+
+	/**
+	 * Creates a table from unsorted arrays. Weights of duplicated faces are added
+	 * together. The given arrays are not modified.
+	 * 
+	 * @param faces
+	 * @param weights
+	 * @return The table of the given arrays.
+	 * @throws IllegalArgumentException If the arrays differ in length.
+	 * @throws NullPointerException     If an array is <code>null</code>.
+	 */
+	static FaceTable of(int[] faces, long[] weights) {
+		BigInteger[] converted = new BigInteger[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			converted[i] = BigInteger.valueOf(weights[i]);
+		}
+		return of(faces, converted);
+	}
+
+	/**
+	 * 
+	 * @return The amount of distinct faces.
+	 */
+	int size() {
+		return faces.length;
+	}
+
+	/**
+	 * 
+	 * @param index
+	 * @return The face at the given index.
+	 */
+	int face(int index) {
+		return faces[index];
+	}
+
+	/**
+	 * 
+	 * @param index
+	 * @return The weight at the given index.
+	 */
+	BigInteger weight(int index) {
+		return weights[index];
+	}
+
+	/**
+	 * 
+	 * @return A copy of the sorted faces.
+	 */
+	int[] faces() {
+		return faces.clone();
+	}
+
+	/**
+	 * 
+	 * @return A copy of the weights.
+	 */
+	BigInteger[] weights() {
+		return weights.clone();
+	}
+
+	/**
+	 * 
+	 * @return A copy of the weights as {@code long}s, or <code>null</code> if at
+	 *         least one of them does not fit.
+	 */
+	long[] longWeights() {
+		return longWeights == null ? null : longWeights.clone();
+	}
+
+	/**
+	 * 
+	 * @param face
+	 * @return The index of the face, or a negative value if it is absent.
+	 * @see Arrays#binarySearch(int[], int)
+	 */
+	int indexOf(int face) {
+		return Arrays.binarySearch(faces, face);
+	}
+
+	/**
+	 * 
+	 * @return The smallest face.
+	 * @throws NoSuchElementException If the table is empty.
+	 */
+	int min() {
+		if (faces.length == 0) {
+			throw new NoSuchElementException("An empty table has no smallest face.");
+		}
+		return faces[0];
+	}
+
+	/**
+	 * 
+	 * @return The greatest face.
+	 * @throws NoSuchElementException If the table is empty.
+	 */
+	int max() {
+		if (faces.length == 0) {
+			throw new NoSuchElementException("An empty table has no greatest face.");
+		}
+		return faces[faces.length - 1];
+	}
+
+	/**
+	 * 
+	 * @return The sum of all weights.
+	 */
+	BigInteger total() {
+		return total;
+	}
+
+	/**
+	 * 
+	 * @return The greatest common divisor of all weights, zero for an empty table.
+	 */
+	BigInteger gcd() {
+		return gcd;
+	}
+
+	/**
+	 * 
+	 * @return A new, modifiable {@link TreeMap} with the content of this table.
+	 */
+	TreeMap<Integer, BigInteger> toMap() {
+		TreeMap<Integer, BigInteger> ret = new TreeMap<Integer, BigInteger>();
+		for (int i = 0; i < faces.length; i++) {
+			ret.put(faces[i], weights[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(faces);
+		result = prime * result + Arrays.hashCode(weights);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FaceTable)) {
+			return false;
+		}
+		FaceTable other = (FaceTable) obj;
+		return Arrays.equals(faces, other.faces) && Arrays.equals(weights, other.weights);
+	}
+}
@@ -2,6 +2,7 @@ package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 /**
  * A fudge-die is a special die with only three values, usually printed on a
@@ -60,4 +61,26 @@ public final class FudgeDie extends AbstractDie {
 	public int getDistinctValues() {
 		return 3;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	int countValues(IntPredicate predicate) {
+		int ret = 0;
+		for (int v = -1; v <= 1; v++) {
+			if (predicate.test(v)) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return An exact estimate with the values from {@code -1} to {@code 1}.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		return CostEstimate.ofDie(3, -1, 1);
+	}
 }
\ No newline at end of file
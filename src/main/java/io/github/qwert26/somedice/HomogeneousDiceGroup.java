@@ -25,6 +25,19 @@ public class HomogeneousDiceGroup implements IDie {
 	 * Amount of identical dice in this group. It is always positive.
 	 */
 	private int count;
+	/**
+	 * If {@code true}, the exact frequencies are counted on residues modulo
+	 * several primes in parallel.
+	 */
+	private boolean multiModular = false;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
 
 	/**
 	 * Creates a new homogeneous dice group consisting of a single base die.
@@ -79,6 +92,7 @@ public class HomogeneousDiceGroup implements IDie {
 	 */
 	public final void setBaseDie(AbstractDie baseDie) {
 		this.baseDie = Objects.requireNonNull(baseDie, "A base die is required!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -99,6 +113,27 @@ public class HomogeneousDiceGroup implements IDie {
 			throw new IllegalArgumentException("A dice group has at least one die in it!");
 		}
 		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the exact frequencies are counted on residues.
+	 */
+	public final boolean isMultiModular() {
+		return multiModular;
+	}
+
+	/**
+	 * Switches between counting on {@link BigInteger}s and counting on residues
+	 * modulo several 62-bit primes, one per core, which are reconstructed with the
+	 * Chinese Remainder Theorem. Both produce the same result, so the cached one
+	 * stays valid.
+	 * 
+	 * @param multiModular
+	 */
+	public final void setMultiModular(boolean multiModular) {
+		this.multiModular = multiModular;
 	}
 
 	/**
@@ -148,6 +183,31 @@ public class HomogeneousDiceGroup implements IDie {
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, baseDie);
+	}
+
+	/**
+	 * The amount of entries is exactly the amount of multi-sets of size
+	 * {@link #count}, taken from the distinct values of the {@link #baseDie}. Each
+	 * entry needs a multi-nomial coefficient and a product of {@link #count}
+	 * frequencies.
+	 * 
+	 * @see Utils#multichoose(int, int)
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = baseDie.estimate();
+		BigInteger entries = Utils.multichoose(baseDie.getDistinctValues(), count);
+		BigInteger perEntry = BigInteger.valueOf(count).shiftLeft(1);
+		return new CostEstimate(entries, true, base.getMinValue(), base.getMaxValue(), count, count,
+				CostEstimate.costTerms(entries, entries.multiply(perEntry), BigInteger.ZERO, base));
+	}
+
 	/**
 	 * Produces a "multi-nomial" distribution of rolled dice.
 	 * 
@@ -157,21 +217,71 @@ public class HomogeneousDiceGroup implements IDie {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		int[] primitiveKeys = new int[baseDie.getDistinctValues()];
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Produces a "multi-nomial" distribution of rolled dice, while checking the
+	 * given budget for every produced entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, compute(budget, baseDie.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the base die and raises its scale to the
+	 * amount of dice.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = baseDie.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(count), compute(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Enumerates all multi-sets of the given frequencies of the base die.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the multi-sets to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> compute(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		if (multiModular) {
+			return computeModular(budget, base);
+		}
+		int[] primitiveKeys = new int[base.size()];
 		BigInteger[] primitiveCounts = new BigInteger[primitiveKeys.length];
 		int[] indexGroups = new int[primitiveCounts.length];
 		int masterIndex = 0;
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : baseDie.getAbsoluteFrequencies().entrySet()) {
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : base.entrySet()) {
 			primitiveKeys[masterIndex] = baseEntry.getKey().entrySet().iterator().next().getKey();
 			primitiveCounts[masterIndex++] = baseEntry.getValue();
 		}
 		int[] indices = new int[count];
 		Arrays.fill(indices, 0);
 		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
-				primitiveKeys.length, count);
+				estimate().getInitialCapacity(budget), 1.0f);
 		BigInteger nextValue;
-		infinity: while (true) {
-			masterIndex = 0;
+		do {
 			final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
 			nextValue = BigInteger.ONE;
 			Arrays.fill(indexGroups, 0);
@@ -193,19 +303,216 @@ public class HomogeneousDiceGroup implements IDie {
 			// Actually, this is bad practice and dangerous, but we never modify the key
 			// afterwards, so this is OK.
 			ret.put(nextKey, nextValue);
+			budget.countMultiplications(this, count + 1);
+			budget.checkEntry(this, ret.size(), nextKey, nextValue);
+		} while (nextMultiset(indices, primitiveKeys.length));
+		return ret;
+	}
+
+	/**
+	 * Enumerates all multi-sets of the given frequencies of the base die on
+	 * residues. No frequency can exceed the total weight of the base die raised to
+	 * the amount of dice.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the multi-sets to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> computeModular(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		final int[] faces = new int[base.size()];
+		final BigInteger[] weights = new BigInteger[faces.length];
+		BigInteger total = BigInteger.ZERO;
+		int masterIndex = 0;
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : base.entrySet()) {
+			faces[masterIndex] = baseEntry.getKey().entrySet().iterator().next().getKey();
+			weights[masterIndex++] = baseEntry.getValue();
+			total = total.add(baseEntry.getValue());
+		}
+		List<Map<Integer, Integer>> keys = new ArrayList<Map<Integer, Integer>>();
+		final int[] slots = indexMultisets(this, budget, faces, count,
+				new HashMap<Map<Integer, Integer>, Integer>(), keys);
+		budget.countMultiplications(this, (long) slots.length * (count + 1));
+		return MultiModular.evaluate(this, budget, (long) count * total.bitLength(), keys,
+				(modulus, residues) -> accumulateResidues(modulus, weights, count, modulus.reduce(1), slots,
+						residues));
+	}
+
+	/**
+	 * Enumerates the keys of all multi-sets of the given faces in the order of
+	 * {@link #accumulateResidues(MultiModular.Modulus, BigInteger[], int, long, int[], long[])}.
+	 * 
+	 * @param node    The node being evaluated.
+	 * @param budget  The budget of the current evaluation.
+	 * @param faces   The distinct faces of the base die.
+	 * @param count   The amount of dice.
+	 * @param indices The slots of the keys known so far, new keys get appended.
+	 * @param keys    The keys known so far, in the order of their slots.
+	 * @return The slot of each multi-set.
+	 * @throws IllegalStateException   If there are too many multi-sets for an
+	 *                                 array.
+	 * @throws BudgetExceededException If the multi-sets would exceed the budget,
+	 *                                 which is checked before anything is
+	 *                                 allocated.
+	 */
+	static int[] indexMultisets(IDie node, EvaluationBudget budget, int[] faces, int count,
+			Map<Map<Integer, Integer>, Integer> indices, List<Map<Integer, Integer>> keys) {
+		BigInteger amount = Utils.multichoose(faces.length, count);
+		if (amount.bitLength() > 31) {
+			throw new IllegalStateException("Too many multi-sets for a multi-modular evaluation!");
+		}
+		// Every multi-set of this amount of dice is a new key.
+		budget.checkSize(node, (int) Math.min(Integer.MAX_VALUE, keys.size() + amount.longValue()));
+		budget.checkArray(node, amount.longValue(), Integer.BYTES);
+		int[] slots = new int[amount.intValue()];
+		int[] multiset = new int[count];
+		int ordinal = 0;
+		do {
+			final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+			for (int subIndex : multiset) {
+				nextKey.merge(faces[subIndex], 1, Integer::sum);
+			}
+			Integer slot = indices.putIfAbsent(nextKey, keys.size());
+			if (slot == null) {
+				slots[ordinal++] = keys.size();
+				keys.add(nextKey);
+				budget.checkSize(node, keys.size());
+			} else {
+				slots[ordinal++] = slot;
+			}
+		} while (nextMultiset(multiset, faces.length));
+		return slots;
+	}
+
+	/**
+	 * Counts all multi-sets of the given weights modulo a single prime. Nothing is
+	 * allocated per multi-set.
+	 * 
+	 * @param modulus  The prime.
+	 * @param weights  The weights of the distinct faces of the base die.
+	 * @param count    The amount of dice.
+	 * @param factor   The factor for all counts, in Montgomery form.
+	 * @param slots    The slot of each multi-set.
+	 * @param residues The residues to add the counts to, in Montgomery form.
+	 */
+	static void accumulateResidues(MultiModular.Modulus modulus, BigInteger[] weights, int count, long factor,
+			int[] slots, long[] residues) {
+		long[] factorials = new long[count + 1];
+		factorials[0] = modulus.reduce(1);
+		for (int n = 1; n <= count; n++) {
+			factorials[n] = modulus.multiply(factorials[n - 1], modulus.reduce(n));
+		}
+		long[] inverseFactorials = new long[count + 1];
+		inverseFactorials[count] = modulus.invert(factorials[count]);
+		for (int n = count; n > 0; n--) {
+			inverseFactorials[n - 1] = modulus.multiply(inverseFactorials[n], modulus.reduce(n));
+		}
+		// The weight of each face raised to every possible amount, divided by the
+		// factorial of that amount.
+		long[][] terms = new long[weights.length][count + 1];
+		for (int index = 0; index < weights.length; index++) {
+			long weight = modulus.reduce(weights[index]);
+			long power = modulus.reduce(1);
+			for (int n = 0; n <= count; n++) {
+				terms[index][n] = modulus.multiply(power, inverseFactorials[n]);
+				power = modulus.multiply(power, weight);
+			}
+		}
+		final long leading = modulus.multiply(factor, factorials[count]);
+		int[] multiset = new int[count];
+		int[] indexGroups = new int[weights.length];
+		int ordinal = 0;
+		do {
+			Arrays.fill(indexGroups, 0);
+			for (int subIndex : multiset) {
+				indexGroups[subIndex]++;
+			}
+			long nextValue = leading;
+			for (int index = 0; index < indexGroups.length; index++) {
+				if (indexGroups[index] > 0) {
+					nextValue = modulus.multiply(nextValue, terms[index][indexGroups[index]]);
+				}
+			}
+			int slot = slots[ordinal++];
+			residues[slot] = modulus.add(residues[slot], nextValue);
+		} while (nextMultiset(multiset, weights.length));
+	}
+
+	/**
+	 * Works on the logarithms of the probabilities of the base die. The
+	 * multinomial coefficients are computed from logarithms of factorials, so
+	 * nothing overflows for large amounts of dice.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			Probabilities base = baseDie.getProbabilities(true, budget);
+			int[] primitiveKeys = new int[base.getValues().size()];
+			double[] logProbabilities = new double[primitiveKeys.length];
+			int masterIndex = 0;
+			for (Map.Entry<Map<Integer, Integer>, Double> baseEntry : base.getValues().entrySet()) {
+				primitiveKeys[masterIndex] = baseEntry.getKey().entrySet().iterator().next().getKey();
+				logProbabilities[masterIndex++] = baseEntry.getValue();
+			}
+			double[] logFactorials = new double[count + 1];
+			for (int n = 2; n <= count; n++) {
+				logFactorials[n] = logFactorials[n - 1] + Math.log(n);
+			}
+			int[] indices = new int[count];
+			int[] indexGroups = new int[primitiveKeys.length];
+			Map<Map<Integer, Integer>, Double> ret = new HashMap<Map<Integer, Integer>, Double>(
+					estimate().getInitialCapacity(budget), 1.0f);
+			double error = 0;
 			do {
-				indices[masterIndex]++;
-				if (indices[masterIndex] == primitiveKeys.length) {
-					masterIndex++;
-				} else {
-					for (int beforeMaster = 0; beforeMaster < masterIndex; beforeMaster++) {
-						indices[beforeMaster] = indices[masterIndex];
+				final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+				Arrays.fill(indexGroups, 0);
+				for (int subIndex : indices) {
+					nextKey.merge(primitiveKeys[subIndex], 1, Integer::sum);
+					indexGroups[subIndex]++;
+				}
+				double nextValue = logFactorials[count];
+				// The sum of the absolute values of all terms bounds the rounding errors.
+				double magnitude = 1 + logFactorials[count];
+				for (int index = 0; index < indexGroups.length; index++) {
+					if (indexGroups[index] > 0) {
+						nextValue += indexGroups[index] * logProbabilities[index] - logFactorials[indexGroups[index]];
+						if (Double.isFinite(logProbabilities[index])) {
+							magnitude += indexGroups[index] * Math.abs(logProbabilities[index])
+									+ logFactorials[indexGroups[index]];
+						}
 					}
-					continue infinity;
 				}
-			} while (masterIndex < indices.length);
-			break;
+				ret.put(nextKey, logSpace ? nextValue : Math.exp(nextValue));
+				error = Math.max(error, count * base.getRelativeErrorBound()
+						+ (2 * count + 3) * Probabilities.UNIT_ROUNDOFF * magnitude);
+				budget.countMultiplications(this, count + 1);
+				budget.checkEntry(this, ret.size(), nextKey);
+			} while (nextMultiset(indices, primitiveKeys.length));
+			return new Probabilities(ret, logSpace, error);
+		} finally {
+			budget.exit(this);
 		}
-		return ret;
+	}
+
+	/**
+	 * Advances the indices to the next multi-set. The indices are kept in
+	 * descending order, so every multi-set is visited exactly once.
+	 * 
+	 * @param indices  The indices into the distinct values of the base die.
+	 * @param distinct The amount of distinct values of the base die.
+	 * @return <code>false</code>, if all multi-sets have been visited.
+	 */
+	static boolean nextMultiset(int[] indices, int distinct) {
+		for (int masterIndex = 0; masterIndex < indices.length; masterIndex++) {
+			indices[masterIndex]++;
+			if (indices[masterIndex] < distinct) {
+				for (int beforeMaster = 0; beforeMaster < masterIndex; beforeMaster++) {
+					indices[beforeMaster] = indices[masterIndex];
+				}
+				return true;
+			}
+		}
+		return false;
 	}
 }
\ No newline at end of file
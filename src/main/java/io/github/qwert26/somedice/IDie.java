@@ -1,6 +1,7 @@
 package io.github.qwert26.somedice;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.math.BigInteger;
 
 /**
@@ -16,6 +17,9 @@ public interface IDie {
 	 * 
 	 * @implSpec After adding a map as a key, further modifications to it are
 	 *           prohibited, because this might result in <b>inaccessible</b> data!
+	 *           Implementations caching their result may return an unmodifiable
+	 *           view of it, callers that need to modify the result must use
+	 *           {@link #copyAbsoluteFrequencies()}.
 	 * @see Collections#singletonMap(Object, Object)
 	 * @see Collections#unmodifiableMap(Map)
 	 * @see Collections#unmodifiableNavigableMap(NavigableMap)
@@ -23,4 +27,173 @@ public interface IDie {
 	 *         frequencies.
 	 */
 	Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies();
+
+	/**
+	 * Requests a modifiable copy of the absolute frequencies. Only the mapping
+	 * itself gets copied, its keys must still not be modified.
+	 * 
+	 * @return A new mapping from individual or summed up dice values to their
+	 *         absolute frequencies.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	default Map<Map<Integer, Integer>, BigInteger> copyAbsoluteFrequencies() {
+		return new HashMap<Map<Integer, Integer>, BigInteger>(getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Requests the absolute frequencies under the limits of the given budget. The
+	 * operators of the framework check the budget inside their enumeration loops
+	 * and hand it down to their sources.
+	 * 
+	 * @implSpec The default implementation computes the complete result via
+	 *           {@link #getAbsoluteFrequencies()} and checks it afterwards.
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A mapping from individual or summed up dice values to their absolute
+	 *         frequencies.
+	 * @see EvaluationBudget
+	 */
+	default Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			return budget.checkResult(this, getAbsoluteFrequencies());
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Requests the absolute frequencies in a normalized form, consisting of a
+	 * common scale factor and a reduced table.
+	 * 
+	 * @return The normalized absolute frequencies.
+	 * @see #getScaledFrequencies(EvaluationBudget)
+	 */
+	default ScaledFrequencies getScaledFrequencies() {
+		return getScaledFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Requests the absolute frequencies in a normalized form under the limits of
+	 * the given budget. Operators override this method to work on the reduced
+	 * tables of their sources, so the budget sees the reduced frequencies only.
+	 * Normalized results are not cached.
+	 * 
+	 * @implSpec The default implementation normalizes the result of
+	 *           {@link #getAbsoluteFrequencies(EvaluationBudget)}.
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return The normalized absolute frequencies.
+	 * @see ScaledFrequencies
+	 */
+	default ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		return ScaledFrequencies.of(getAbsoluteFrequencies(budget));
+	}
+
+	/**
+	 * Requests approximated, linear probabilities.
+	 * 
+	 * @return The probabilities with the same keys as the absolute frequencies.
+	 * @see #getProbabilities(boolean, EvaluationBudget)
+	 */
+	default Probabilities getProbabilities() {
+		return getProbabilities(false, EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Requests approximated probabilities under the limits of the given budget.
+	 * Operators override this method to work on the approximated probabilities of
+	 * their sources, which avoids the growing {@link BigInteger}s of the exact
+	 * evaluation. Approximated results are not cached.
+	 * 
+	 * <p>
+	 * Only groups, keepers, droppers, compressors and
+	 * {@link io.github.qwert26.somedice.ttrpg.dnd.RecievedDamage} compute with
+	 * doubles throughout. Dice, {@link UnfairDie}s and all other
+	 * operators, namely {@link BagGroup}, {@link DiceBattle},
+	 * {@link DiceExploder}, {@link DiceReroller}, {@link ExplodingPool},
+	 * {@link ExplodingSuccessPool}, {@link ExtremeOf}, {@link FaceMapper},
+	 * {@link Mixture}, {@link OpposedRoll}, {@link OrderStatistic},
+	 * {@link RollUntil} and {@link SuccessPool}, fall back to the default
+	 * implementation and convert their exact result at the end.
+	 * </p>
+	 * <p>
+	 * There is no parallel variant: Compensated sums still depend on the order of
+	 * their additions, so splitting them between threads would make the result
+	 * and its error bound vary from run to run. Sums of {@link BigInteger}s are
+	 * exact, which is why only the exact evaluation maps and reduces in parallel.
+	 * </p>
+	 * 
+	 * @implSpec The default implementation divides the reduced frequencies of
+	 *           {@link #getScaledFrequencies(EvaluationBudget)} by their total.
+	 * @param logSpace If {@code true}, the natural logarithms of the probabilities
+	 *                 are computed, which keeps extremely unlikely outcomes from
+	 *                 underflowing to zero.
+	 * @param budget   The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return The probabilities with the same keys as the absolute frequencies.
+	 * @see Probabilities
+	 */
+	default Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		return Probabilities.of(getScaledFrequencies(budget), logSpace);
+	}
+
+	/**
+	 * Hands each entry of the absolute frequencies to the given consumer. Nodes,
+	 * whose results might not fit into the heap, override this method to stream
+	 * their result without collecting it into a single map first.
+	 * 
+	 * @implSpec The default implementation iterates over the result of
+	 *           {@link #getAbsoluteFrequencies(EvaluationBudget)}.
+	 * @param budget   The budget of the current evaluation.
+	 * @param consumer The consumer of each entry.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @see SpillingAggregator
+	 */
+	default void forEachAbsoluteFrequency(EvaluationBudget budget,
+			BiConsumer<Map<Integer, Integer>, BigInteger> consumer) {
+		getAbsoluteFrequencies(budget).forEach(consumer);
+	}
+
+	/**
+	 * Tells operators, whether the result of this node might be spilled to the
+	 * disk. Such a result can only be streamed via
+	 * {@link #forEachAbsoluteFrequency(EvaluationBudget, BiConsumer)}, requesting
+	 * it as a single map fails once it has been spilled.
+	 * 
+	 * @implSpec The default implementation never spills.
+	 * @return {@code true}, if the result might be spilled to the disk.
+	 * @see SpillingAggregator
+	 */
+	default boolean maySpill() {
+		return false;
+	}
+
+	/**
+	 * A modification stamp changes whenever the node or any of its transitive
+	 * sources has been modified. Nodes use it to check, if their cached result is
+	 * still valid.
+	 * 
+	 * @implSpec The default implementation can not track any modifications, so it
+	 *           returns a new stamp on every call. This disables the caching of
+	 *           every node using this one as a source.
+	 * @return The current modification stamp.
+	 * @see Utils#modificationStamp(long, IDie...)
+	 * @see ResultCache
+	 */
+	default long getModificationStamp() {
+		return Utils.nextModificationStamp();
+	}
+
+	/**
+	 * Estimates the size of the result and the cost of its computation, without
+	 * evaluating anything.
+	 * 
+	 * @implSpec The default implementation knows nothing about the result.
+	 * @return An analytic estimate of the result.
+	 * @see CostEstimate
+	 */
+	default CostEstimate estimate() {
+		return CostEstimate.UNKNOWN;
+	}
 }
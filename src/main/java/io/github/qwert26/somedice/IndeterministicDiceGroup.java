@@ -1,7 +1,9 @@
 package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * <p>
@@ -31,6 +33,29 @@ public class IndeterministicDiceGroup implements IDie {
 	 * accumulated with the remaining frequencies.
 	 */
 	private UnfairDie countDistribution;
+	/**
+	 * Approximated heap usage in bytes, at which the accumulation gets spilled to
+	 * the disk. By default, it never gets spilled.
+	 */
+	private long spillThreshold = Long.MAX_VALUE;
+	/**
+	 * The directory for spilled accumulations, <code>null</code> for the default
+	 * temporary directory.
+	 */
+	private Path spillDirectory = null;
+	/**
+	 * If {@code true}, the exact frequencies are counted on residues modulo
+	 * several primes in parallel.
+	 */
+	private boolean multiModular = false;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation, unless it had to be spilled.
+	 */
+	private final transient ResultCache cache = new ResultCache();
 
 	/**
 	 * Creates a new {@code IndeterministicDiceGroup}.
@@ -132,6 +157,7 @@ public class IndeterministicDiceGroup implements IDie {
 	 */
 	public final void setBaseDie(AbstractDie baseDie) {
 		this.baseDie = Objects.requireNonNull(baseDie, "A base die must be given!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -149,6 +175,7 @@ public class IndeterministicDiceGroup implements IDie {
 	public final void setCountDistribution(UnfairDie countDistribution) {
 		this.countDistribution = Objects.requireNonNull(countDistribution,
 				"An unfair die for the count distribution must be given!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -158,6 +185,49 @@ public class IndeterministicDiceGroup implements IDie {
 	public final void setCountDistribution(Compressor countDistribution) {
 		this.countDistribution = Objects.requireNonNull(countDistribution, "A compressor must be given for conversion!")
 				.toUnfairDie();
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, baseDie, countDistribution);
+	}
+
+	/**
+	 * Each distinct absolute amount of dice contributes the entries of its
+	 * {@link HomogeneousDiceGroup}, an amount of zero contributes a single entry.
+	 * Only that single entry might collide with the entries of a single die.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = baseDie.estimate();
+		TreeSet<Integer> amounts = new TreeSet<Integer>();
+		boolean zero = false;
+		for (int value : countDistribution.getFaces()) {
+			if (value == 0) {
+				zero = true;
+			} else {
+				amounts.add(Math.absExact(value));
+			}
+		}
+		BigInteger entries = zero ? BigInteger.ONE : BigInteger.ZERO;
+		BigInteger multiplications = BigInteger.ZERO;
+		for (int amount : amounts) {
+			BigInteger groupEntries = Utils.multichoose(baseDie.getDistinctValues(), amount);
+			entries = entries.add(groupEntries);
+			multiplications = multiplications.add(groupEntries.multiply(BigInteger.valueOf(2L * amount + 1)));
+		}
+		boolean exact = !zero || amounts.isEmpty() || amounts.first() != 1 || base.getMinValue() > 0
+				|| base.getMaxValue() < 0;
+		int minValue = zero ? Math.min(0, base.getMinValue()) : base.getMinValue();
+		int maxValue = zero ? Math.max(0, base.getMaxValue()) : base.getMaxValue();
+		int minDice = zero || amounts.isEmpty() ? 1 : amounts.first();
+		int maxDice = amounts.isEmpty() ? 1 : amounts.last();
+		return new CostEstimate(entries, exact, minValue, maxValue, minDice, maxDice,
+				CostEstimate.costTerms(entries, multiplications, entries, base, countDistribution.estimate()));
 	}
 
 	/**
@@ -166,27 +236,369 @@ public class IndeterministicDiceGroup implements IDie {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
-		for (Map.Entry<Integer, BigInteger> valueCount : countDistribution.getData().entrySet()) {
-			final int value = valueCount.getKey();
-			final BigInteger factor = valueCount.getValue();
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Accumulates the homogeneous dice groups of each possible amount, while
+	 * checking the given budget for every accumulated entry. The budget is also
+	 * handed down to the created groups.
+	 * 
+	 * @throws IllegalStateException if the accumulation had to be spilled to the
+	 *                               disk.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> ret = cache.get(stamp);
+			if (ret != null) {
+				return ret;
+			}
+			if (multiModular) {
+				return cache.put(stamp, computeModular(budget));
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				aggregate(budget, aggregator);
+				if (aggregator.hasSpilled()) {
+					throw spilled();
+				}
+				return cache.put(stamp, aggregator.toMap());
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Accumulates the homogeneous dice groups of each possible amount and hands the
+	 * result to the given consumer. If the accumulation had to be spilled to the
+	 * disk, it is merged back one partition at a time and not cached.
+	 * 
+	 * @see #setSpillThreshold(long)
+	 */
+	@Override
+	public void forEachAbsoluteFrequency(EvaluationBudget budget,
+			BiConsumer<Map<Integer, Integer>, BigInteger> consumer) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				cached.forEach(consumer);
+				return;
+			}
+			if (multiModular) {
+				cache.put(stamp, computeModular(budget)).forEach(consumer);
+				return;
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				aggregate(budget, aggregator);
+				if (aggregator.hasSpilled()) {
+					aggregator.forEach(budget, this, consumer);
+				} else {
+					cache.put(stamp, aggregator.toMap()).forEach(consumer);
+				}
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the homogeneous dice groups of each
+	 * possible amount. Their weights are only multiplied by their share of the
+	 * common scale, which is computed from the scale of the base die beforehand.
+	 * 
+	 * @throws IllegalStateException if the accumulation had to be spilled to the
+	 *                               disk.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			FaceTable counts = countDistribution.table();
+			BigInteger baseScale = baseDie.getScaledFrequencies(budget).getScale();
+			BigInteger scale = BigInteger.ZERO;
+			for (int index = 0; index < counts.size(); index++) {
+				scale = scale.gcd(counts.weight(index).multiply(baseScale.pow(Math.absExact(counts.face(index)))));
+			}
+			if (scale.signum() == 0) {
+				scale = BigInteger.ONE;
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				for (int index = 0; index < counts.size(); index++) {
+					final int value = counts.face(index);
+					if (value != 0) {
+						ScaledFrequencies group = new HomogeneousDiceGroup(baseDie, Math.absExact(value))
+								.getScaledFrequencies(budget);
+						final BigInteger factor = counts.weight(index).multiply(group.getScale()).divide(scale);
+						group.getReduced().forEach((composition, count) -> {
+							BigInteger accumulated = aggregator.merge(composition, count.multiply(factor));
+							budget.countMultiplications(this, 1);
+							budget.checkEntry(this, aggregator.size(), composition, accumulated);
+						});
+					} else {
+						Map<Integer, Integer> zero = Collections.singletonMap(0, 1);
+						BigInteger accumulated = aggregator.merge(zero, counts.weight(index).divide(scale));
+						budget.checkEntry(this, aggregator.size(), zero, accumulated);
+					}
+				}
+				if (aggregator.hasSpilled()) {
+					throw spilled();
+				}
+				return new ScaledFrequencies(scale, aggregator.toMap());
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Weights the approximated probabilities of the homogeneous dice groups of
+	 * each possible amount like the exact evaluation does: By the weight of the
+	 * amount times the amount of outcomes of its group. These weights are computed
+	 * in the logarithmic space, so they do not overflow.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			BigInteger baseTotal = BigInteger.ZERO;
+			for (BigInteger frequency : baseDie.getAbsoluteFrequencies(budget).values()) {
+				baseTotal = baseTotal.add(frequency);
+			}
+			final double logBaseTotal = Utils.log(baseTotal);
+			FaceTable counts = countDistribution.table();
+			double[] logWeights = new double[counts.size()];
+			double logNorm = Double.NEGATIVE_INFINITY;
+			for (int index = 0; index < counts.size(); index++) {
+				BigInteger weight = counts.weight(index);
+				logWeights[index] = weight.signum() > 0
+						? Utils.log(weight) + Math.absExact(counts.face(index)) * logBaseTotal
+						: Double.NEGATIVE_INFINITY;
+				double max = Math.max(logNorm, logWeights[index]);
+				if (max != Double.NEGATIVE_INFINITY) {
+					logNorm = max + Math.log1p(Math.exp(Math.min(logNorm, logWeights[index]) - max));
+				}
+			}
+			ProbabilityAccumulator accumulator = new ProbabilityAccumulator(logSpace);
+			for (int index = 0; index < counts.size(); index++) {
+				final int value = counts.face(index);
+				final double logFactor = logWeights[index] - logNorm;
+				final double factor = logSpace ? logFactor : Math.exp(logFactor);
+				final double factorError = Probabilities.UNIT_ROUNDOFF
+						* (4 + 3 * counts.size() + Math.abs(logWeights[index]) + Math.abs(logNorm));
+				if (value != 0) {
+					Probabilities group = new HomogeneousDiceGroup(baseDie, Math.absExact(value))
+							.getProbabilities(logSpace, budget);
+					final double sourceError = factorError + group.getRelativeErrorBound();
+					for (Map.Entry<Map<Integer, Integer>, Double> entry : group.getValues().entrySet()) {
+						double nextValue = logSpace ? entry.getValue() + factor : entry.getValue() * factor;
+						double rounding = Probabilities.UNIT_ROUNDOFF;
+						if (logSpace && Double.isFinite(nextValue)) {
+							rounding *= 1 + Math.abs(nextValue);
+						}
+						accumulator.add(entry.getKey(), nextValue, sourceError + rounding);
+						budget.countMultiplications(this, 1);
+						budget.checkEntry(this, accumulator.size(), entry.getKey());
+					}
+				} else {
+					Map<Integer, Integer> zero = Collections.singletonMap(0, 1);
+					accumulator.add(zero, factor, factorError);
+					budget.checkEntry(this, accumulator.size(), zero);
+				}
+			}
+			return accumulator.toProbabilities();
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Accumulates the homogeneous dice groups of each possible amount into the
+	 * given aggregator.
+	 * 
+	 * @param budget     The budget of the current evaluation.
+	 * @param aggregator The aggregator to use.
+	 */
+	private void aggregate(EvaluationBudget budget, SpillingAggregator aggregator) {
+		FaceTable counts = countDistribution.table();
+		for (int index = 0; index < counts.size(); index++) {
+			final int value = counts.face(index);
+			final BigInteger factor = counts.weight(index);
 			if (value != 0) {
 				HomogeneousDiceGroup temp = new HomogeneousDiceGroup(baseDie, Math.absExact(value));
 				// The next line is problematic, as there might be different kind of maps but
 				// having the same content!
-				temp.getAbsoluteFrequencies().forEach((composition, count) -> {
-					ret.compute(composition, (_, v) -> {
-						return count.multiply(factor).add(v == null ? BigInteger.ZERO : v);
-					});
+				temp.forEachAbsoluteFrequency(budget, (composition, count) -> {
+					BigInteger accumulated = aggregator.merge(composition, count.multiply(factor));
+					budget.countMultiplications(this, 1);
+					// Once spilled, size and value are only lower bounds: The merged entries get
+					// checked again, when they are drained.
+					budget.checkEntry(this, aggregator.size(), composition, accumulated);
 				});
 			} else {
 				Map<Integer, Integer> zero = Collections.singletonMap(0, 1);
-				ret.compute(zero, (_, v) -> {
-					return factor.add(v == null ? BigInteger.ZERO : v);
-				});
+				BigInteger accumulated = aggregator.merge(zero, factor);
+				budget.checkEntry(this, aggregator.size(), zero, accumulated);
 			}
 		}
-		return ret;
+	}
+
+	/**
+	 * Accumulates the homogeneous dice groups of each possible amount on residues.
+	 * Opposite amounts share their group and their weights are added beforehand.
+	 * No frequency can exceed the sum of the weights of all amounts, each
+	 * multiplied by the total weight of the base die raised to that amount.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @return A new mapping of the keys to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> computeModular(EvaluationBudget budget) {
+		Map<Map<Integer, Integer>, BigInteger> base = baseDie.getAbsoluteFrequencies(budget);
+		final int[] faces = new int[base.size()];
+		final BigInteger[] weights = new BigInteger[faces.length];
+		BigInteger total = BigInteger.ZERO;
+		int masterIndex = 0;
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : base.entrySet()) {
+			faces[masterIndex] = baseEntry.getKey().entrySet().iterator().next().getKey();
+			weights[masterIndex++] = baseEntry.getValue();
+			total = total.add(baseEntry.getValue());
+		}
+		FaceTable counts = countDistribution.table();
+		TreeMap<Integer, BigInteger> amounts = new TreeMap<Integer, BigInteger>();
+		for (int index = 0; index < counts.size(); index++) {
+			amounts.merge(Math.absExact(counts.face(index)), counts.weight(index), BigInteger::add);
+		}
+		BigInteger bound = BigInteger.ZERO;
+		Map<Map<Integer, Integer>, Integer> indices = new HashMap<Map<Integer, Integer>, Integer>();
+		List<Map<Integer, Integer>> keys = new ArrayList<Map<Integer, Integer>>();
+		final int[] groupAmounts = new int[amounts.size()];
+		final BigInteger[] groupWeights = new BigInteger[groupAmounts.length];
+		final int[][] slots = new int[groupAmounts.length][];
+		long multiplications = 0;
+		int group = 0;
+		for (Map.Entry<Integer, BigInteger> amount : amounts.entrySet()) {
+			groupAmounts[group] = amount.getKey();
+			groupWeights[group] = amount.getValue();
+			bound = bound.add(amount.getValue().multiply(total.pow(amount.getKey())));
+			if (amount.getKey() != 0) {
+				slots[group] = HomogeneousDiceGroup.indexMultisets(this, budget, faces, amount.getKey(), indices,
+						keys);
+				multiplications += (long) slots[group].length * (amount.getKey() + 1);
+			} else {
+				Map<Integer, Integer> zero = Collections.singletonMap(0, 1);
+				Integer slot = indices.putIfAbsent(zero, keys.size());
+				if (slot == null) {
+					slot = keys.size();
+					keys.add(zero);
+				}
+				slots[group] = new int[] { slot };
+			}
+			group++;
+		}
+		budget.countMultiplications(this, multiplications);
+		return MultiModular.evaluate(this, budget, bound.bitLength(), keys, (modulus, residues) -> {
+			for (int index = 0; index < groupAmounts.length; index++) {
+				long factor = modulus.reduce(groupWeights[index]);
+				if (groupAmounts[index] != 0) {
+					HomogeneousDiceGroup.accumulateResidues(modulus, weights, groupAmounts[index], factor,
+							slots[index], residues);
+				} else {
+					int slot = slots[index][0];
+					residues[slot] = modulus.add(residues[slot], factor);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the exact frequencies are counted on residues.
+	 */
+	public final boolean isMultiModular() {
+		return multiModular;
+	}
+
+	/**
+	 * Switches between counting on {@link BigInteger}s and counting on residues
+	 * modulo several 62-bit primes, one per core, which are reconstructed with the
+	 * Chinese Remainder Theorem. Counting on residues never spills to the disk, as
+	 * it keeps a {@code long} per key and prime instead.
+	 * 
+	 * @param multiModular
+	 */
+	public final void setMultiModular(boolean multiModular) {
+		this.multiModular = multiModular;
+	}
+
+	/**
+	 * 
+	 * @return The approximated heap usage in bytes, at which the accumulation gets
+	 *         spilled to the disk.
+	 */
+	public final long getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	/**
+	 * 
+	 * @param spillThreshold The approximated heap usage in bytes, at which the
+	 *                       accumulation gets spilled to the disk.
+	 *                       {@link Long#MAX_VALUE} disables spilling.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see SpillingAggregator
+	 */
+	public final void setSpillThreshold(long spillThreshold) {
+		if (spillThreshold < 1) {
+			throw new IllegalArgumentException("The spill threshold must be positive!");
+		}
+		this.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * 
+	 * @return The directory for spilled accumulations, <code>null</code> for the
+	 *         default temporary directory.
+	 */
+	public final Path getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * 
+	 * @param spillDirectory The directory for spilled accumulations,
+	 *                       <code>null</code> for the default temporary directory.
+	 */
+	public final void setSpillDirectory(Path spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Only the exact frequencies are counted on residues, so the scaled ones can
+	 * still spill.
+	 * 
+	 * @return {@code true}, if a spill threshold has been set.
+	 */
+	@Override
+	public boolean maySpill() {
+		return spillThreshold < Long.MAX_VALUE;
+	}
+
+	/**
+	 * 
+	 * @return The exception for a spilled accumulation, that was requested as a
+	 *         single map.
+	 */
+	private static IllegalStateException spilled() {
+		return new IllegalStateException(
+				"The accumulation has been spilled to the disk, use forEachAbsoluteFrequency to stream it!");
 	}
 
 	/**
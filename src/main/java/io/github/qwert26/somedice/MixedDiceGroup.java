@@ -1,7 +1,9 @@
 package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * <p>
@@ -26,9 +28,26 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 	private final IDie[] sources;
 	/**
 	 * {@code MixedDiceGroup}s can be quite expensive to calculate their result: So
-	 * the result gets cached and reused.
+	 * the result gets cached and reused, until one of the sources gets modified.
+	 * It is an unmodifiable view, which is handed out directly, so a cache hit
+	 * does not copy anything.
 	 */
-	private volatile transient Map<Map<Integer, Integer>, BigInteger> cachedResult = null;
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * Approximated heap usage in bytes, at which the aggregated result gets
+	 * spilled to the disk. By default, it never gets spilled.
+	 */
+	private long spillThreshold = Long.MAX_VALUE;
+	/**
+	 * The directory for spilled results, <code>null</code> for the default
+	 * temporary directory.
+	 */
+	private Path spillDirectory = null;
+	/**
+	 * If {@code true}, the exact frequencies are counted on residues modulo
+	 * several primes in parallel.
+	 */
+	private boolean multiModular = false;
 
 	/**
 	 * Creates a new mixed dice group with the given sources.
@@ -53,7 +72,6 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 		}
 		this.sources = new IDie[sources.length];
 		System.arraycopy(sources, 0, this.sources, 0, sources.length);
-		cachedResult = null;
 	}
 
 	/**
@@ -65,6 +83,89 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 		return Arrays.copyOf(sources, sources.length);
 	}
 
+	/**
+	 * 
+	 * @return The approximated heap usage in bytes, at which the result gets
+	 *         spilled to the disk.
+	 */
+	public final long getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	/**
+	 * 
+	 * @param spillThreshold The approximated heap usage in bytes, at which the
+	 *                       result gets spilled to the disk.
+	 *                       {@link Long#MAX_VALUE} disables spilling.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see SpillingAggregator
+	 */
+	public final void setSpillThreshold(long spillThreshold) {
+		if (spillThreshold < 1) {
+			throw new IllegalArgumentException("The spill threshold must be positive!");
+		}
+		this.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * 
+	 * @return The directory for spilled results, <code>null</code> for the default
+	 *         temporary directory.
+	 */
+	public final Path getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * 
+	 * @param spillDirectory The directory for spilled results, <code>null</code>
+	 *                       for the default temporary directory.
+	 */
+	public final void setSpillDirectory(Path spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Counting on residues never spills.
+	 * 
+	 * @return {@code true}, if a spill threshold has been set and the result is
+	 *         not counted on residues.
+	 */
+	@Override
+	public boolean maySpill() {
+		return spillThreshold < Long.MAX_VALUE && !multiModular;
+	}
+
+	/**
+	 * 
+	 * @return The exception for a spilled result, that was requested as a single
+	 *         map.
+	 */
+	private static IllegalStateException spilled() {
+		return new IllegalStateException(
+				"The result has been spilled to the disk, use forEachAbsoluteFrequency to stream it!");
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the exact frequencies are counted on residues.
+	 */
+	public final boolean isMultiModular() {
+		return multiModular;
+	}
+
+	/**
+	 * Switches between counting on {@link BigInteger}s and counting on residues
+	 * modulo several 62-bit primes, one per core, which are reconstructed with the
+	 * Chinese Remainder Theorem. Counting on residues never spills to the disk, as
+	 * it keeps a {@code long} per key and prime instead.
+	 * 
+	 * @param multiModular
+	 */
+	public final void setMultiModular(boolean multiModular) {
+		this.multiModular = multiModular;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -106,6 +207,43 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 		return builder.toString();
 	}
 
+	/**
+	 * The sources can not be replaced, so only their modification stamps matter.
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(Long.MIN_VALUE, sources);
+	}
+
+	/**
+	 * The amount of entries is bounded by the product of the amount of entries of
+	 * the sources, as that is the size of the Cartesian product. It is only exact
+	 * for a single source.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if any source is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate[] estimates = new CostEstimate[sources.length];
+		BigInteger product = BigInteger.ONE;
+		int minValue = Integer.MAX_VALUE, maxValue = Integer.MIN_VALUE, minDice = 0, maxDice = 0;
+		for (int i = 0; i < sources.length; i++) {
+			estimates[i] = sources[i].estimate();
+			if (!estimates[i].isKnown()) {
+				return CostEstimate.UNKNOWN;
+			}
+			product = product.multiply(estimates[i].getEntries());
+			minValue = Math.min(minValue, estimates[i].getMinValue());
+			maxValue = Math.max(maxValue, estimates[i].getMaxValue());
+			minDice = Utils.saturatedAdd(minDice, estimates[i].getMinDice());
+			maxDice = Utils.saturatedAdd(maxDice, estimates[i].getMaxDice());
+		}
+		return new CostEstimate(product, sources.length == 1, minValue, maxValue, minDice, maxDice,
+				CostEstimate.costTerms(product, product.multiply(BigInteger.valueOf(sources.length)), product,
+						estimates));
+	}
+
 	/**
 	 * Computes the effective Cartesian product of its input sources. That is the
 	 * reason why for a single type of die, the {@link HomogeneousDiceGroup} is
@@ -114,20 +252,324 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 	 * @implNote The same key can get generated multiple times, but it is never
 	 *           modified after it is put in the returned map. Additionally, as the
 	 *           result can take a while to compute, it is cached after computation
-	 *           and reused on following calls.
+	 *           and reused on following calls. The returned map is therefore an
+	 *           unmodifiable view, shared between all callers: Use
+	 *           {@link #copyAbsoluteFrequencies()} to get a modifiable copy.
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		if (cachedResult != null) {
-			return new HashMap<>(cachedResult);
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Computes the effective Cartesian product of its input sources, while checking
+	 * the given budget for every produced entry. An aborted computation is not
+	 * cached.
+	 * 
+	 * @throws IllegalStateException if the result had to be spilled to the disk.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> ret = cache.get(stamp);
+			if (ret != null) {
+				return ret;
+			}
+			if (multiModular) {
+				return cache.put(stamp, computeModular(budget, inputs(budget)));
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				aggregate(budget, aggregator);
+				if (aggregator.hasSpilled()) {
+					throw spilled();
+				}
+				return cache.put(stamp, aggregator.toMap());
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the effective Cartesian product of its input sources and hands it
+	 * to the given consumer. If the result had to be spilled to the disk, it is
+	 * merged back one partition at a time and not cached.
+	 * 
+	 * @see #setSpillThreshold(long)
+	 */
+	@Override
+	public void forEachAbsoluteFrequency(EvaluationBudget budget,
+			BiConsumer<Map<Integer, Integer>, BigInteger> consumer) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				cached.forEach(consumer);
+				return;
+			}
+			if (multiModular) {
+				cache.put(stamp, computeModular(budget, inputs(budget))).forEach(consumer);
+				return;
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				aggregate(budget, aggregator);
+				if (aggregator.hasSpilled()) {
+					aggregator.forEach(budget, this, consumer);
+				} else {
+					cache.put(stamp, aggregator.toMap()).forEach(consumer);
+				}
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Multiplies the scales of its sources and computes the effective Cartesian
+	 * product of their reduced frequencies.
+	 * 
+	 * @throws IllegalStateException if the result had to be spilled to the disk.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			BigInteger scale = BigInteger.ONE;
+			@SuppressWarnings("unchecked")
+			Map<Map<Integer, Integer>, BigInteger>[] inputs = new Map[sources.length];
+			for (int i = 0; i < sources.length; i++) {
+				ScaledFrequencies scaled = sources[i].getScaledFrequencies(budget);
+				scale = scale.multiply(scaled.getScale());
+				inputs[i] = scaled.getReduced();
+			}
+			if (multiModular) {
+				return new ScaledFrequencies(scale, computeModular(budget, inputs));
+			}
+			try (SpillingAggregator aggregator = new SpillingAggregator(spillThreshold,
+					SpillingAggregator.DEFAULT_PARTITIONS, spillDirectory)) {
+				aggregate(budget, inputs, aggregator);
+				if (aggregator.hasSpilled()) {
+					throw spilled();
+				}
+				return new ScaledFrequencies(scale, aggregator.toMap());
+			}
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the effective Cartesian product of the approximated probabilities of
+	 * its sources.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			double sourceError = 0;
+			@SuppressWarnings("unchecked")
+			List<Map.Entry<Map<Integer, Integer>, Double>>[] indexedResultEntries = new List[sources.length];
+			for (int i = 0; i < sources.length; i++) {
+				Probabilities probabilities = sources[i].getProbabilities(logSpace, budget);
+				sourceError += probabilities.getRelativeErrorBound();
+				indexedResultEntries[i] = new ArrayList<Map.Entry<Map<Integer, Integer>, Double>>(
+						probabilities.getValues().entrySet());
+			}
+			ProbabilityAccumulator accumulator = new ProbabilityAccumulator(logSpace);
+			int[] indices = new int[sources.length];
+			int masterIndex;
+			infinity: while (true) {
+				masterIndex = 0;
+				final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+				double nextValue = logSpace ? 0 : 1;
+				for (int i = 0; i < sources.length; i++) {
+					Map.Entry<Map<Integer, Integer>, Double> currentEntry = indexedResultEntries[i].get(indices[i]);
+					for (Map.Entry<Integer, Integer> valueCount : currentEntry.getKey().entrySet()) {
+						nextKey.merge(valueCount.getKey(), valueCount.getValue(), (oldV, newV) -> newV + oldV);
+					}
+					nextValue = logSpace ? nextValue + currentEntry.getValue() : nextValue * currentEntry.getValue();
+				}
+				double rounding = sources.length * Probabilities.UNIT_ROUNDOFF;
+				if (logSpace && Double.isFinite(nextValue)) {
+					rounding *= 1 + Math.abs(nextValue);
+				}
+				accumulator.add(nextKey, nextValue, sourceError + rounding);
+				budget.countMultiplications(this, sources.length);
+				budget.checkEntry(this, accumulator.size(), nextKey);
+				do {
+					indices[masterIndex]++;
+					if (indices[masterIndex] == indexedResultEntries[masterIndex].size()) {
+						indices[masterIndex] = 0;
+						masterIndex++;
+					} else {
+						continue infinity;
+					}
+				} while (masterIndex < indices.length);
+				break;
+			}
+			return accumulator.toProbabilities();
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the effective Cartesian product of its input sources into the given
+	 * aggregator.
+	 * 
+	 * @param budget     The budget of the current evaluation.
+	 * @param aggregator The aggregator to use.
+	 */
+	private void aggregate(EvaluationBudget budget, SpillingAggregator aggregator) {
+		aggregate(budget, inputs(budget), aggregator);
+	}
+
+	/**
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @return The frequencies of each source.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger>[] inputs(EvaluationBudget budget) {
+		@SuppressWarnings("unchecked")
+		Map<Map<Integer, Integer>, BigInteger>[] inputs = new Map[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			inputs[i] = sources[i].getAbsoluteFrequencies(budget);
+		}
+		return inputs;
+	}
+
+	/**
+	 * Computes the effective Cartesian product of the given frequencies of its
+	 * sources on residues. The keys are merged only once, each kernel then walks
+	 * the combinations in the same order and adds their products to the slots of
+	 * their keys. No frequency can exceed the product of the total weights of the
+	 * sources.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param inputs The frequencies of each source.
+	 * @return A new mapping of the keys to their absolute frequencies.
+	 * @throws IllegalStateException   If there are too many combinations for an
+	 *                                 array.
+	 * @throws BudgetExceededException If the slots of the combinations would exceed
+	 *                                 the heap limit, which is checked before they
+	 *                                 are allocated.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> computeModular(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger>[] inputs) {
+		@SuppressWarnings("unchecked")
+		List<Map<Integer, Integer>>[] indexedKeys = new List[sources.length];
+		final BigInteger[][] weights = new BigInteger[sources.length][];
+		final int[] sizes = new int[sources.length];
+		BigInteger combinations = BigInteger.ONE;
+		long bits = 0;
+		for (int i = 0; i < sources.length; i++) {
+			indexedKeys[i] = new ArrayList<Map<Integer, Integer>>(inputs[i].size());
+			weights[i] = new BigInteger[inputs[i].size()];
+			BigInteger total = BigInteger.ZERO;
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : inputs[i].entrySet()) {
+				weights[i][indexedKeys[i].size()] = entry.getValue();
+				indexedKeys[i].add(entry.getKey());
+				total = total.add(entry.getValue());
+			}
+			sizes[i] = weights[i].length;
+			combinations = combinations.multiply(BigInteger.valueOf(sizes[i]));
+			bits += total.bitLength();
+		}
+		if (combinations.bitLength() > 31) {
+			throw new IllegalStateException("Too many combinations for a multi-modular evaluation!");
+		}
+		// Combinations can share their keys, so only the slots themselves are known
+		// up front.
+		budget.checkArray(this, combinations.longValue(), Integer.BYTES);
+		final int[] slots = new int[combinations.intValue()];
+		List<Map<Integer, Integer>> keys = new ArrayList<Map<Integer, Integer>>();
+		if (slots.length > 0) {
+			Map<Map<Integer, Integer>, Integer> slotIndices = new HashMap<Map<Integer, Integer>, Integer>();
+			int[] indices = new int[sources.length];
+			int ordinal = 0;
+			do {
+				final Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+				for (int i = 0; i < sources.length; i++) {
+					for (Map.Entry<Integer, Integer> valueCount : indexedKeys[i].get(indices[i]).entrySet()) {
+						nextKey.merge(valueCount.getKey(), valueCount.getValue(), Integer::sum);
+					}
+				}
+				Integer slot = slotIndices.putIfAbsent(nextKey, keys.size());
+				if (slot == null) {
+					slots[ordinal++] = keys.size();
+					keys.add(nextKey);
+					budget.checkSize(this, keys.size());
+				} else {
+					slots[ordinal++] = slot;
+				}
+			} while (nextCombination(indices, sizes));
 		}
+		budget.countMultiplications(this, (long) slots.length * sources.length);
+		return MultiModular.evaluate(this, budget, bits, keys, (modulus, residues) -> {
+			long[][] reduced = new long[weights.length][];
+			for (int i = 0; i < weights.length; i++) {
+				reduced[i] = new long[weights[i].length];
+				for (int j = 0; j < weights[i].length; j++) {
+					reduced[i][j] = modulus.reduce(weights[i][j]);
+				}
+			}
+			if (slots.length == 0) {
+				return;
+			}
+			int[] indices = new int[sizes.length];
+			int ordinal = 0;
+			do {
+				long nextValue = reduced[0][indices[0]];
+				for (int i = 1; i < reduced.length; i++) {
+					nextValue = modulus.multiply(nextValue, reduced[i][indices[i]]);
+				}
+				int slot = slots[ordinal++];
+				residues[slot] = modulus.add(residues[slot], nextValue);
+			} while (nextCombination(indices, sizes));
+		});
+	}
+
+	/**
+	 * Advances the indices to the next combination of entries, the first index
+	 * changing the fastest.
+	 * 
+	 * @param indices The index into the entries of each source.
+	 * @param sizes   The amount of entries of each source.
+	 * @return <code>false</code>, if all combinations have been visited.
+	 */
+	private static boolean nextCombination(int[] indices, int[] sizes) {
+		for (int masterIndex = 0; masterIndex < indices.length; masterIndex++) {
+			indices[masterIndex]++;
+			if (indices[masterIndex] < sizes[masterIndex]) {
+				return true;
+			}
+			indices[masterIndex] = 0;
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the effective Cartesian product of the given frequencies of its
+	 * sources into the given aggregator.
+	 * 
+	 * @param budget     The budget of the current evaluation.
+	 * @param inputs     The frequencies of each source.
+	 * @param aggregator The aggregator to use.
+	 */
+	private void aggregate(EvaluationBudget budget, Map<Map<Integer, Integer>, BigInteger>[] inputs,
+			SpillingAggregator aggregator) {
 		@SuppressWarnings("unchecked")
 		List<Map.Entry<Map<Integer, Integer>, BigInteger>>[] indexedResultEntries = new List[sources.length];
 		for (int i = 0; i < sources.length; i++) {
 			indexedResultEntries[i] = new ArrayList<Map.Entry<Map<Integer, Integer>, BigInteger>>(
-					sources[i].getAbsoluteFrequencies().entrySet());
+					inputs[i].entrySet());
 		}
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
 		int[] indices = new int[sources.length];
 		Arrays.fill(indices, 0);
 		int masterIndex;
@@ -144,7 +586,11 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 			}
 			// The next line is problematic, but after merging, we do not modify it further
 			// and instead create a new key.
-			ret.merge(nextKey, nextValue, (oldV, newV) -> oldV.add(newV));
+			BigInteger merged = aggregator.merge(nextKey, nextValue);
+			budget.countMultiplications(this, sources.length);
+			// Once spilled, size and value are only lower bounds: The merged entries get
+			// checked again, when they are drained.
+			budget.checkEntry(this, aggregator.size(), nextKey, merged);
 			do {
 				indices[masterIndex]++;
 				if (indices[masterIndex] == indexedResultEntries[masterIndex].size()) {
@@ -156,7 +602,5 @@ public class MixedDiceGroup implements IDie, IRequiresSources {
 			} while (masterIndex < indices.length);
 			break;
 		}
-		cachedResult = new HashMap<>(ret);
-		return ret;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * <p>
+ * A weighted mixture of several branches, of which exactly one is rolled, such
+ * as "on a critical hit roll 4d6, on a hit roll 2d6, otherwise nothing" or
+ * "roll a d6: on 1-2 use table A, else table B". Each branch is taken with the
+ * probability of its weight divided by the sum of all weights.
+ * </p>
+ * <p>
+ * The branches generally have different total frequencies. Instead of
+ * multiplying all of them, every branch is rescaled to the least common
+ * multiple of the totals of their reduced frequencies, so a nested mixture only
+ * contributes its own reduced total. The result sums up to this least common
+ * multiple times the sum of all weights.
+ * </p>
+ * <p>
+ * Being unable to change the used branches after instance creation is a design
+ * choice: It prevents the accidental creation of an endless loop.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see UnfairDie
+ */
+public class Mixture implements IDie, IRequiresSources {
+	/**
+	 * The branches, of which one is rolled.
+	 */
+	private final IDie[] branches;
+	/**
+	 * The positive weight of each branch, without a common divisor.
+	 */
+	private final BigInteger[] weights;
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The amount of entries of all branches, from which on they are merged in
+	 * parallel.
+	 */
+	private int parallelThreshold = Utils.DEFAULT_PARALLEL_THRESHOLD;
+
+	/**
+	 * Creates a new mixture.
+	 * 
+	 * @param branches The branches. The array gets copied, so changes made to it
+	 *                 will not reflect into this class.
+	 * @param weights  The weight of each branch.
+	 * @throws IllegalArgumentException If either array is <code>null</code> or
+	 *                                  empty, their lengths differ, a branch or
+	 *                                  weight is <code>null</code> or a weight is
+	 *                                  not positive.
+	 */
+	public Mixture(IDie[] branches, BigInteger[] weights) {
+		super();
+		if (branches == null || weights == null) {
+			throw new IllegalArgumentException("Branches and weights must be given!");
+		}
+		if (branches.length == 0) {
+			throw new IllegalArgumentException("Branches were empty");
+		}
+		if (branches.length != weights.length) {
+			throw new IllegalArgumentException("Every branch needs exactly one weight!");
+		}
+		BigInteger divisor = BigInteger.ZERO;
+		for (int index = 0; index < branches.length; index++) {
+			if (branches[index] == null) {
+				throw new IllegalArgumentException("A single branch was null");
+			}
+			if (weights[index] == null || weights[index].signum() <= 0) {
+				throw new IllegalArgumentException("Weights must be positive!");
+			}
+			divisor = divisor.gcd(weights[index]);
+		}
+		this.branches = Arrays.copyOf(branches, branches.length);
+		this.weights = new BigInteger[weights.length];
+		for (int index = 0; index < weights.length; index++) {
+			this.weights[index] = weights[index].divide(divisor);
+		}
+	}
+
+	/**
+	 * Creates a new mixture.
+	 * 
+	 * @param branches The branches. The array gets copied, so changes made to it
+	 *                 will not reflect into this class.
+	 * @param weights  The weight of each branch.
+	 * @throws IllegalArgumentException If either array is <code>null</code> or
+	 *                                  empty, their lengths differ, a branch is
+	 *                                  <code>null</code> or a weight is not
+	 *                                  positive.
+	 */
+	public Mixture(IDie[] branches, long[] weights) {
+		this(branches, weights == null ? null
+				: LongStream.of(weights).mapToObj(BigInteger::valueOf).toArray(BigInteger[]::new));
+	}
+
+	/**
+	 * 
+	 * @return A copy of the internal branches, changes made to the array do not
+	 *         reflect in the instance.
+	 */
+	@Override
+	public final IDie[] getSources() {
+		return Arrays.copyOf(branches, branches.length);
+	}
+
+	/**
+	 * 
+	 * @return A copy of the weights, divided by their greatest common divisor.
+	 */
+	public final BigInteger[] getWeights() {
+		return Arrays.copyOf(weights, weights.length);
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries of all branches, from which on they are
+	 *         merged in parallel.
+	 */
+	public final int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Results are identical for every threshold, so the cached one stays valid.
+	 * Evaluations under a {@link EvaluationBudget#isLimited() limited} budget
+	 * ignore the threshold and stay sequential.
+	 * 
+	 * @param parallelThreshold The amount of entries of all branches, from which on
+	 *                          they are merged in parallel.
+	 *                          {@link Integer#MAX_VALUE} effectively disables it.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 */
+	public final void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("The parallel threshold must be positive!");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(Long.MIN_VALUE, branches);
+	}
+
+	/**
+	 * The amount of entries is bounded by the sum of the entries of all branches.
+	 * It is only exact for a single branch.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if any branch is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate[] estimates = new CostEstimate[branches.length];
+		BigInteger sum = BigInteger.ZERO;
+		int minValue = Integer.MAX_VALUE, maxValue = Integer.MIN_VALUE, minDice = Integer.MAX_VALUE, maxDice = 0;
+		for (int i = 0; i < branches.length; i++) {
+			estimates[i] = branches[i].estimate();
+			if (!estimates[i].isKnown()) {
+				return CostEstimate.UNKNOWN;
+			}
+			sum = sum.add(estimates[i].getEntries());
+			minValue = Math.min(minValue, estimates[i].getMinValue());
+			maxValue = Math.max(maxValue, estimates[i].getMaxValue());
+			minDice = Math.min(minDice, estimates[i].getMinDice());
+			maxDice = Math.max(maxDice, estimates[i].getMaxDice());
+		}
+		return new CostEstimate(sum, branches.length == 1, minValue, maxValue, minDice, maxDice,
+				CostEstimate.costTerms(sum, sum, sum, estimates));
+	}
+
+	/**
+	 * A mixture merges its branches in memory, but a branch, which might spill,
+	 * hints at a result too large for it: Operators above should stream it.
+	 * 
+	 * @return {@code true}, if any branch might spill.
+	 */
+	@Override
+	public boolean maySpill() {
+		for (IDie branch : branches) {
+			if (branch.maySpill()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Mixes the branches.
+	 * 
+	 * @throws IllegalStateException If a branch has no results.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Mixes the branches, while checking the given budget for every produced
+	 * entry.
+	 * 
+	 * @throws IllegalStateException If a branch has no results.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, mix(budget));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * A branch, which might spill, can only be streamed, as requesting its result
+	 * as a single map fails after a spill. Its entries are collected and reduced
+	 * here instead.
+	 * 
+	 * @param branch The branch to reduce.
+	 * @param budget The budget of the current evaluation.
+	 * @return The reduced frequencies of the branch.
+	 * @see IDie#maySpill()
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> reduce(IDie branch, EvaluationBudget budget) {
+		if (!branch.maySpill()) {
+			return branch.getScaledFrequencies(budget).getReduced();
+		}
+		Map<Map<Integer, Integer>, BigInteger> collected = new HashMap<Map<Integer, Integer>, BigInteger>();
+		branch.forEachAbsoluteFrequency(budget, collected::put);
+		return ScaledFrequencies.of(collected).getReduced();
+	}
+
+	/**
+	 * Rescales the reduced frequencies of every branch to their least common
+	 * multiple and merges them.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @return A new mapping of the keys of all branches to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> mix(EvaluationBudget budget) {
+		@SuppressWarnings("unchecked")
+		Map<Map<Integer, Integer>, BigInteger>[] reduced = new Map[branches.length];
+		BigInteger[] totals = new BigInteger[branches.length];
+		BigInteger multiple = BigInteger.ONE;
+		long entries = 0;
+		for (int index = 0; index < branches.length; index++) {
+			reduced[index] = reduce(branches[index], budget);
+			totals[index] = reduced[index].values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+			if (totals[index].signum() == 0) {
+				throw new IllegalStateException("Branch " + index + " has no results!");
+			}
+			multiple = multiple.divide(multiple.gcd(totals[index])).multiply(totals[index]);
+			entries += reduced[index].size();
+		}
+		// Each branch gets multiplied with its weight and the rest of the multiple.
+		BigInteger[] factors = new BigInteger[branches.length];
+		for (int index = 0; index < branches.length; index++) {
+			factors[index] = multiple.divide(totals[index]).multiply(weights[index]);
+		}
+		budget.countMultiplications(this, entries + 3L * branches.length);
+		// Limits could only be checked after the merge.
+		if (entries >= parallelThreshold && !budget.isLimited()) {
+			EvaluationProfiler.Workers workers = budget.workers(this);
+			Map<Map<Integer, Integer>, BigInteger> ret = IntStream.range(0, branches.length).parallel()
+					.boxed()
+					.flatMap(index -> reduced[index].entrySet().parallelStream().map(entry -> {
+						workers.join();
+						return Map.entry(entry.getKey(), entry.getValue().multiply(factors[index]));
+					})).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, BigInteger::add,
+							HashMap::new));
+			workers.finish();
+			return budget.checkResult(this, ret);
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+				(int) Math.min(entries, Integer.MAX_VALUE), 1.0f);
+		for (int index = 0; index < branches.length; index++) {
+			BigInteger factor = factors[index];
+			reduced[index].forEach((key, frequency) -> {
+				BigInteger merged = ret.merge(key, frequency.multiply(factor), BigInteger::add);
+				budget.checkEntry(this, ret.size(), key, merged);
+			});
+			budget.checkTime(this);
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(branches);
+		result = prime * result + Arrays.hashCode(weights);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Mixture)) {
+			return false;
+		}
+		Mixture other = (Mixture) obj;
+		return Arrays.equals(branches, other.branches) && Arrays.equals(weights, other.weights);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Mixture [branches=");
+		builder.append(Arrays.toString(branches));
+		builder.append(", weights=");
+		builder.append(Arrays.toString(weights));
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,244 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * Exact counting on residues: A counting kernel is run once per 62-bit prime,
+ * each run on its own core, using only {@code long}s in Montgomery form. The
+ * true absolute frequencies are then reconstructed with the Chinese Remainder
+ * Theorem. The amount of primes follows from an upper bound of the bit length
+ * of every frequency, which is derived from the inputs beforehand.
+ * </p>
+ * <p>
+ * The kernels must not touch the budget of the evaluation, as they run in
+ * parallel. Only the reconstructed entries are checked against it.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see HomogeneousDiceGroup#setMultiModular(boolean)
+ * @see MixedDiceGroup#setMultiModular(boolean)
+ * @see IndeterministicDiceGroup#setMultiModular(boolean)
+ */
+final class MultiModular {
+	/**
+	 * Every prime is greater than two to the power of this, so each of them adds
+	 * at least this amount of bits to the reconstructable range.
+	 */
+	private static final int BITS_PER_PRIME = 61;
+	/**
+	 * The primes found so far, descending from two to the power of 62.
+	 */
+	private static final List<Modulus> PRIMES = new ArrayList<Modulus>();
+
+	/**
+	 * No instances.
+	 */
+	private MultiModular() {
+		super();
+	}
+
+	/**
+	 * A prime below two to the power of 62 together with the constants for the
+	 * Montgomery multiplication with the radix two to the power of 64.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	static final class Modulus {
+		/**
+		 * The odd prime.
+		 */
+		private final long prime;
+		/**
+		 * The negated inverse of the prime modulo two to the power of 64.
+		 */
+		private final long negatedInverse;
+		/**
+		 * The square of the radix modulo the prime, for converting into the Montgomery
+		 * form.
+		 */
+		private final long radixSquared;
+
+		/**
+		 * Creates the constants for the given prime.
+		 * 
+		 * @param prime An odd prime below two to the power of 62.
+		 */
+		Modulus(long prime) {
+			super();
+			this.prime = prime;
+			long inverse = prime;
+			// Newton's iteration doubles the correct low bits, starting with three.
+			for (int i = 0; i < 5; i++) {
+				inverse *= 2 - prime * inverse;
+			}
+			negatedInverse = -inverse;
+			radixSquared = BigInteger.ONE.shiftLeft(128).mod(BigInteger.valueOf(prime)).longValue();
+		}
+
+		/**
+		 * 
+		 * @return The prime.
+		 */
+		long prime() {
+			return prime;
+		}
+
+		/**
+		 * Multiplies two residues in Montgomery form. If only one of them is in
+		 * Montgomery form, the product is a plain residue.
+		 * 
+		 * @param a A residue smaller than the prime.
+		 * @param b A residue smaller than the prime.
+		 * @return The Montgomery reduction of the product.
+		 */
+		long multiply(long a, long b) {
+			long low = a * b;
+			long high = Math.multiplyHigh(a, b);
+			long quotient = low * negatedInverse;
+			long ret = high + Math.unsignedMultiplyHigh(quotient, prime) + (low != 0 ? 1 : 0);
+			return ret >= prime ? ret - prime : ret;
+		}
+
+		/**
+		 * 
+		 * @param a A residue smaller than the prime.
+		 * @param b A residue smaller than the prime.
+		 * @return The sum modulo the prime.
+		 */
+		long add(long a, long b) {
+			long ret = a + b;
+			return ret >= prime ? ret - prime : ret;
+		}
+
+		/**
+		 * 
+		 * @param value A non-negative number.
+		 * @return The residue of the number in Montgomery form.
+		 */
+		long reduce(long value) {
+			return multiply(value % prime, radixSquared);
+		}
+
+		/**
+		 * 
+		 * @param value A non-negative number.
+		 * @return The residue of the number in Montgomery form.
+		 */
+		long reduce(BigInteger value) {
+			return multiply(value.mod(BigInteger.valueOf(prime)).longValue(), radixSquared);
+		}
+
+		/**
+		 * 
+		 * @param value A residue in Montgomery form.
+		 * @return The plain residue.
+		 */
+		long restore(long value) {
+			return multiply(value, 1);
+		}
+
+		/**
+		 * 
+		 * @param value A residue in Montgomery form, which is not zero.
+		 * @return The multiplicative inverse in Montgomery form.
+		 */
+		long invert(long value) {
+			long ret = reduce(1);
+			long base = value;
+			for (long exponent = prime - 2; exponent > 0; exponent >>>= 1) {
+				if ((exponent & 1) != 0) {
+					ret = multiply(ret, base);
+				}
+				base = multiply(base, base);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Provides enough primes to reconstruct numbers of the given bit length.
+	 * 
+	 * @param bits An upper bound of the bit length of every number.
+	 * @return The primes, whose product exceeds two to the power of the bit length.
+	 */
+	static Modulus[] moduli(long bits) {
+		int amount = Math.toIntExact(bits / BITS_PER_PRIME + 1);
+		synchronized (PRIMES) {
+			long candidate = PRIMES.isEmpty() ? (1L << 62) - 1 : PRIMES.getLast().prime() - 2;
+			while (PRIMES.size() < amount) {
+				if (BigInteger.valueOf(candidate).isProbablePrime(100)) {
+					PRIMES.add(new Modulus(candidate));
+				}
+				candidate -= 2;
+			}
+			return PRIMES.subList(0, amount).toArray(new Modulus[amount]);
+		}
+	}
+
+	/**
+	 * Runs the kernel once per prime in parallel and reconstructs the results.
+	 * 
+	 * @param node   The node being evaluated.
+	 * @param budget The budget of the current evaluation, which gets checked for
+	 *               every reconstructed entry.
+	 * @param bits   An upper bound of the bit length of every frequency.
+	 * @param keys   The keys of the result, every kernel indexes its residues the
+	 *               same way.
+	 * @param kernel Accumulates the residues of all keys in Montgomery form modulo
+	 *               the given prime into the given array, which is initially all
+	 *               zero.
+	 * @return A new mapping of the keys to their absolute frequencies.
+	 */
+	static Map<Map<Integer, Integer>, BigInteger> evaluate(IDie node, EvaluationBudget budget, long bits,
+			List<Map<Integer, Integer>> keys, BiConsumer<Modulus, long[]> kernel) {
+		final Modulus[] moduli = moduli(bits);
+		final long[][] residues = new long[moduli.length][];
+		EvaluationProfiler.Workers workers = budget.workers(node);
+		IntStream.range(0, moduli.length).parallel().forEach(index -> {
+			workers.join();
+			long[] own = new long[keys.size()];
+			kernel.accept(moduli[index], own);
+			for (int key = 0; key < own.length; key++) {
+				own[key] = moduli[index].restore(own[key]);
+			}
+			residues[index] = own;
+		});
+		workers.finish();
+		budget.checkTime(node);
+		// Garner's algorithm: The inverses of the preceding primes modulo each prime.
+		long[][] inverses = new long[moduli.length][];
+		for (int i = 0; i < moduli.length; i++) {
+			inverses[i] = new long[i];
+			for (int j = 0; j < i; j++) {
+				inverses[i][j] = moduli[i].invert(moduli[i].reduce(moduli[j].prime()));
+			}
+		}
+		long[] digits = new long[moduli.length];
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(keys.size(),
+				1.0f);
+		for (int key = 0; key < keys.size(); key++) {
+			for (int i = 0; i < moduli.length; i++) {
+				long digit = residues[i][key];
+				for (int j = 0; j < i; j++) {
+					long difference = digit - digits[j] % moduli[i].prime();
+					if (difference < 0) {
+						difference += moduli[i].prime();
+					}
+					digit = moduli[i].multiply(difference, inverses[i][j]);
+				}
+				digits[i] = digit;
+			}
+			BigInteger value = BigInteger.valueOf(digits[moduli.length - 1]);
+			for (int i = moduli.length - 2; i >= 0; i--) {
+				value = value.multiply(BigInteger.valueOf(moduli[i].prime())).add(BigInteger.valueOf(digits[i]));
+			}
+			ret.put(keys.get(key), value);
+			budget.checkEntry(node, ret.size(), keys.get(key), value);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,325 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * Compares two independent single-valued distributions, such as an attack
+ * against a defence or two opposed skill checks. Its result is the margin of
+ * success, which is the value of the {@link #attacker} minus the value of the
+ * {@link #defender}. The plain outcomes of winning, tying and losing are
+ * available through {@link #getOutcomes()}, without computing the margin.
+ * </p>
+ * <p>
+ * The outcomes are counted with a single sorted merge over both distributions:
+ * For every value of the attacker, the cumulated weight of the smaller values
+ * of the defender is carried along, so this takes {@code O(n + m)} steps and
+ * one multiplication per value of the attacker. Only the margin needs
+ * {@code O(n * m)} multiplications, as every pair of values can lead to a
+ * different difference.
+ * </p>
+ * <p>
+ * Being unable to change the used sources after instance creation is a design
+ * choice: It prevents the accidental creation of an endless loop.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see MixedDiceGroup
+ * @see Compressor
+ */
+public class OpposedRoll implements IDie, IRequiresSources {
+	/**
+	 * The key of the attacker rolling higher than the defender.
+	 */
+	public static final Map<Integer, Integer> WIN = Collections.singletonMap(1, 1);
+	/**
+	 * The key of both sides rolling the same value.
+	 */
+	public static final Map<Integer, Integer> TIE = Collections.singletonMap(0, 1);
+	/**
+	 * The key of the attacker rolling lower than the defender.
+	 */
+	public static final Map<Integer, Integer> LOSS = Collections.singletonMap(-1, 1);
+	/**
+	 * The single-valued distribution of the attacking side.
+	 */
+	private final IDie attacker;
+	/**
+	 * The single-valued distribution of the defending side.
+	 */
+	private final IDie defender;
+	/**
+	 * The margin of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The outcomes of the last evaluation.
+	 */
+	private final transient ResultCache outcomeCache = new ResultCache();
+
+	/**
+	 * Creates a new comparison.
+	 * 
+	 * @param attacker A single-valued distribution.
+	 * @param defender A single-valued distribution.
+	 * @throws NullPointerException If either side is <code>null</code>.
+	 */
+	public OpposedRoll(IDie attacker, IDie defender) {
+		super();
+		this.attacker = Objects.requireNonNull(attacker, "An attacker must be given!");
+		this.defender = Objects.requireNonNull(defender, "A defender must be given!");
+	}
+
+	/**
+	 * 
+	 * @return The attacking side.
+	 */
+	public final IDie getAttacker() {
+		return attacker;
+	}
+
+	/**
+	 * 
+	 * @return The defending side.
+	 */
+	public final IDie getDefender() {
+		return defender;
+	}
+
+	/**
+	 * 
+	 * @return A new array of the attacker and the defender.
+	 */
+	@Override
+	public final IDie[] getSources() {
+		return new IDie[] { attacker, defender };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(Long.MIN_VALUE, attacker, defender);
+	}
+
+	/**
+	 * The margin can have at most one entry per pair of values and at most one
+	 * per difference between the extreme values.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate left = attacker.estimate(), right = defender.estimate();
+		if (!left.isKnown() || !right.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		long minValue = (long) left.getMinValue() - right.getMaxValue();
+		long maxValue = (long) left.getMaxValue() - right.getMinValue();
+		BigInteger pairs = left.getEntries().multiply(right.getEntries());
+		BigInteger entries = pairs.min(BigInteger.valueOf(maxValue - minValue + 1));
+		return new CostEstimate(entries, false, (int) Math.max(minValue, Integer.MIN_VALUE),
+				(int) Math.min(maxValue, Integer.MAX_VALUE), 1, 1,
+				CostEstimate.costTerms(pairs, pairs, pairs, left, right));
+	}
+
+	/**
+	 * Computes the margin of success.
+	 * 
+	 * @throws IllegalArgumentException If a side is not single-valued.
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Computes the margin of success, while checking the given budget for every
+	 * produced entry.
+	 * 
+	 * @throws IllegalArgumentException If a side is not single-valued.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp,
+					margin(budget, attacker.getAbsoluteFrequencies(budget), defender.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of both sides and multiplies their scales.
+	 * 
+	 * @throws IllegalArgumentException If a side is not single-valued.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies left = attacker.getScaledFrequencies(budget);
+			ScaledFrequencies right = defender.getScaledFrequencies(budget);
+			return new ScaledFrequencies(left.getScale().multiply(right.getScale()),
+					margin(budget, left.getReduced(), right.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Counts the outcomes without computing the margin.
+	 * 
+	 * @return An unmodifiable mapping from {@link #WIN}, {@link #TIE} and
+	 *         {@link #LOSS} to their absolute frequencies. Impossible outcomes are
+	 *         left out.
+	 * @throws IllegalArgumentException If a side is not single-valued.
+	 */
+	public Map<Map<Integer, Integer>, BigInteger> getOutcomes() {
+		return getOutcomes(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Counts the outcomes without computing the margin, while checking the given
+	 * budget.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @return An unmodifiable mapping from {@link #WIN}, {@link #TIE} and
+	 *         {@link #LOSS} to their absolute frequencies. Impossible outcomes are
+	 *         left out.
+	 * @throws IllegalArgumentException If a side is not single-valued.
+	 * @see #getOutcomes()
+	 */
+	public Map<Map<Integer, Integer>, BigInteger> getOutcomes(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = outcomeCache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return outcomeCache.put(stamp, outcomes(budget, attacker.getAbsoluteFrequencies(budget),
+					defender.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Merges both sorted distributions.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param left   The frequencies of the attacker.
+	 * @param right  The frequencies of the defender.
+	 * @return A new mapping of the outcomes to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> outcomes(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> left, Map<Map<Integer, Integer>, BigInteger> right) {
+		FaceTable attacking = FaceTable.ofFrequencies(left), defending = FaceTable.ofFrequencies(right);
+		BigInteger wins = BigInteger.ZERO, ties = BigInteger.ZERO;
+		// The cumulated weight of the defending values below the current one.
+		BigInteger below = BigInteger.ZERO;
+		int index = 0;
+		for (int i = 0; i < attacking.size(); i++) {
+			int face = attacking.face(i);
+			while (index < defending.size() && defending.face(index) < face) {
+				below = below.add(defending.weight(index++));
+			}
+			wins = wins.add(attacking.weight(i).multiply(below));
+			if (index < defending.size() && defending.face(index) == face) {
+				ties = ties.add(attacking.weight(i).multiply(defending.weight(index)));
+			}
+		}
+		budget.countMultiplications(this, 2L * attacking.size() + 1);
+		BigInteger losses = attacking.total().multiply(defending.total()).subtract(wins).subtract(ties);
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(3, 1.0f);
+		if (wins.signum() != 0) {
+			ret.put(WIN, wins);
+		}
+		if (ties.signum() != 0) {
+			ret.put(TIE, ties);
+		}
+		if (losses.signum() != 0) {
+			ret.put(LOSS, losses);
+		}
+		budget.checkSize(this, ret.size());
+		return ret;
+	}
+
+	/**
+	 * Subtracts every value of the defender from every value of the attacker.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param left   The frequencies of the attacker.
+	 * @param right  The frequencies of the defender.
+	 * @return A new mapping of the margins to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> margin(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> left, Map<Map<Integer, Integer>, BigInteger> right) {
+		FaceTable attacking = FaceTable.ofFrequencies(left), defending = FaceTable.ofFrequencies(right);
+		long range = (long) attacking.max() - defending.min() - ((long) attacking.min() - defending.max()) + 1;
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+				(int) Math.min(range, (long) attacking.size() * defending.size()), 1.0f);
+		for (int i = 0; i < attacking.size(); i++) {
+			for (int j = 0; j < defending.size(); j++) {
+				Map<Integer, Integer> key = Collections
+						.singletonMap(Math.subtractExact(attacking.face(i), defending.face(j)), 1);
+				BigInteger value = ret.merge(key, attacking.weight(i).multiply(defending.weight(j)),
+						BigInteger::add);
+				budget.checkEntry(this, ret.size(), key, value);
+			}
+			budget.countMultiplications(this, defending.size());
+			budget.checkTime(this);
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + attacker.hashCode();
+		result = prime * result + defender.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof OpposedRoll)) {
+			return false;
+		}
+		OpposedRoll other = (OpposedRoll) obj;
+		return attacker.equals(other.attacker) && defender.equals(other.defender);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("OpposedRoll [attacker=");
+		builder.append(attacker);
+		builder.append(", defender=");
+		builder.append(defender);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,340 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * The value of the die at a given rank among several independent rolls of a
+ * single-valued distribution, such as "the second highest die of 6d10" or "the
+ * median die of 5d20". The ranks are counted from the lowest roll, starting at
+ * one. The result has the same distribution as dropping all other dice of a
+ * {@link HomogeneousDiceGroup}, but the multi-sets are never enumerated.
+ * </p>
+ * <p>
+ * Instead, the die at rank {@code r} is at most a value, if at least {@code r}
+ * of the {@link #count} rolls are at most that value. With the cumulated
+ * frequency {@code C} of the value and the total weight {@code T}, this is the
+ * binomial sum of {@code nCj * C^j * (T - C)^(n - j)} over all {@code j} from
+ * {@code r} to {@code n}. The frequency of the die being exactly a value is the
+ * difference of two consecutive sums. This costs about {@code count}
+ * multiplications per distinct value of the source.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see ExtremeOf
+ */
+public class OrderStatistic implements IDie, IRequiresSource {
+	/**
+	 * The single-valued distribution, that gets rolled, can never be
+	 * <code>null</code>.
+	 */
+	private IDie source;
+	/**
+	 * Amount of rolls of the source. It is always positive.
+	 */
+	private int count;
+	/**
+	 * The rank of the taken roll, counted from the lowest one and starting at
+	 * one. It is never greater than the {@link #count}.
+	 */
+	private int rank;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new operator.
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The amount of rolls.
+	 * @param rank   The rank of the taken roll, counted from the lowest one and
+	 *               starting at one.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or the rank
+	 *                                  is outside of it.
+	 */
+	public OrderStatistic(IDie source, int count, int rank) {
+		super();
+		setSource(source);
+		setCountAndRank(count, rank);
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The amount of rolls.
+	 * @param k      One for the highest roll, two for the second highest and so
+	 *               on.
+	 * @return A new operator taking the k-th highest roll.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or k is
+	 *                                  outside of it.
+	 */
+	public static OrderStatistic kthHighest(IDie source, int count, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Ranks start at one!");
+		}
+		return new OrderStatistic(source, count, count - k + 1);
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The amount of rolls.
+	 * @param k      One for the lowest roll, two for the second lowest and so on.
+	 * @return A new operator taking the k-th lowest roll.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or k is
+	 *                                  outside of it.
+	 */
+	public static OrderStatistic kthLowest(IDie source, int count, int k) {
+		return new OrderStatistic(source, count, k);
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @param count  The odd amount of rolls.
+	 * @return A new operator taking the median roll.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive and odd.
+	 */
+	public static OrderStatistic median(IDie source, int count) {
+		if (count % 2 == 0) {
+			throw new IllegalArgumentException("Only an odd amount of rolls has a median roll!");
+		}
+		return new OrderStatistic(source, count, count / 2 + 1);
+	}
+
+	/**
+	 * 
+	 * @return The source, that is being rolled.
+	 */
+	@Override
+	public final IDie getSource() {
+		return source;
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 * @see Utils#checkForCycle(IRequiresSource)
+	 */
+	@Override
+	public final void setSource(IDie source) {
+		if (source instanceof IRequiresSource future) {
+			IDie oldSource = this.source;
+			this.source = source;
+			if (Utils.checkForCycle(future)) {
+				this.source = oldSource;
+			}
+		}
+		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of rolls.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @return The rank of the taken roll, counted from the lowest one and
+	 *         starting at one.
+	 */
+	public final int getRank() {
+		return rank;
+	}
+
+	/**
+	 * Sets both the amount of rolls and the rank at once, which avoids an invalid
+	 * state in between.
+	 * 
+	 * @param count The new amount of rolls.
+	 * @param rank  The rank of the taken roll, counted from the lowest one and
+	 *              starting at one.
+	 * @throws IllegalArgumentException If the amount is not positive or the rank
+	 *                                  is outside of it.
+	 */
+	public final void setCountAndRank(int count, int rank) {
+		if (count < 1) {
+			throw new IllegalArgumentException("At least one roll is required!");
+		}
+		if (rank < 1 || rank > count) {
+			throw new IllegalArgumentException("The rank must be between one and the amount of rolls!");
+		}
+		this.count = count;
+		this.rank = rank;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * Every value of the source can be at every rank, so the amount of entries is
+	 * the one of the source. Each entry needs two powers and a binomial sum.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		BigInteger entries = base.getEntries();
+		BigInteger perEntry = BigInteger.valueOf(count);
+		return new CostEstimate(entries, base.isExact(), base.getMinValue(), base.getMaxValue(), 1, 1,
+				CostEstimate.costTerms(entries, entries.multiply(perEntry.shiftLeft(2)), entries.multiply(perEntry),
+						base));
+	}
+
+	/**
+	 * Takes the roll at the rank.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Takes the roll at the rank, while checking the given budget for every
+	 * produced entry.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, rank(budget, source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and raises its scale to the
+	 * amount of rolls.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(count), rank(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Computes the differences of consecutive binomial sums.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the source.
+	 * @return A new mapping of the rolls at the rank to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> rank(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable table = FaceTable.ofFrequencies(base);
+		BigInteger[] binomials = Utils.binomials(count);
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(table.size(),
+				1.0f);
+		BigInteger cumulated = BigInteger.ZERO, previous = BigInteger.ZERO;
+		BigInteger[] below = new BigInteger[count + 1], above = new BigInteger[count + 1];
+		below[0] = above[0] = BigInteger.ONE;
+		for (int index = 0; index < table.size(); index++) {
+			cumulated = cumulated.add(table.weight(index));
+			BigInteger remaining = table.total().subtract(cumulated);
+			for (int power = 1; power <= count; power++) {
+				below[power] = below[power - 1].multiply(cumulated);
+				above[power] = above[power - 1].multiply(remaining);
+			}
+			BigInteger sum = BigInteger.ZERO;
+			for (int atMost = rank; atMost <= count; atMost++) {
+				sum = sum.add(binomials[atMost].multiply(below[atMost]).multiply(above[count - atMost]));
+			}
+			budget.countMultiplications(this, 4L * count);
+			BigInteger value = sum.subtract(previous);
+			previous = sum;
+			if (value.signum() != 0) {
+				Map<Integer, Integer> key = Collections.singletonMap(table.face(index), 1);
+				ret.put(key, value);
+				budget.checkEntry(this, ret.size(), key, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + count;
+		result = prime * result + rank;
+		result = prime * result + source.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof OrderStatistic)) {
+			return false;
+		}
+		OrderStatistic other = (OrderStatistic) obj;
+		return count == other.count && rank == other.rank && source.equals(other.source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("OrderStatistic [source=");
+		builder.append(source);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append(", rank=");
+		builder.append(rank);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,132 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Distributions of single integers as polynomials: The coefficient at an index
+ * is the absolute frequency of the value at that index plus an offset, which
+ * the caller keeps track of. Adding independent values multiplies their
+ * polynomials.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+final class Polynomials {
+	/**
+	 * No instances.
+	 */
+	private Polynomials() {
+		super();
+	}
+
+	/**
+	 * Multiplies two polynomials, skipping zero coefficients.
+	 * 
+	 * @param node   The node being evaluated.
+	 * @param budget The budget of the current evaluation, which counts the
+	 *               multiplications and checks the time after every row.
+	 * @param left
+	 * @param right
+	 * @return A new polynomial, whose length is one less than the sum of both
+	 *         lengths.
+	 * @throws BudgetExceededException If the time limit has been exceeded.
+	 */
+	static BigInteger[] multiply(IDie node, EvaluationBudget budget, BigInteger[] left, BigInteger[] right) {
+		BigInteger[] ret = new BigInteger[left.length + right.length - 1];
+		Arrays.fill(ret, BigInteger.ZERO);
+		long multiplications = 0;
+		for (int i = 0; i < left.length; i++) {
+			if (left[i].signum() == 0) {
+				continue;
+			}
+			for (int j = 0; j < right.length; j++) {
+				if (right[j].signum() != 0) {
+					ret[i + j] = ret[i + j].add(left[i].multiply(right[j]));
+					multiplications++;
+				}
+			}
+			budget.checkTime(node);
+		}
+		budget.countMultiplications(node, multiplications);
+		return ret;
+	}
+
+	/**
+	 * Raises a polynomial to a power. Instead of squaring repeatedly, which
+	 * multiplies ever longer polynomials of ever larger coefficients, every
+	 * coefficient of the power follows from the preceding ones with the
+	 * recurrence of J. C. P. Miller: {@code k * a0 * q(k)} equals the sum of
+	 * {@code ((exponent + 1) * j - k) * a(j) * q(k - j)} over the degree of the
+	 * base. Each coefficient therefore takes one product per coefficient of the
+	 * base and a single exact division.
+	 * 
+	 * @param node     The node being evaluated.
+	 * @param budget   The budget of the current evaluation, which counts the
+	 *                 multiplications and checks the time after every coefficient.
+	 * @param base
+	 * @param exponent A non-negative exponent.
+	 * @return A new polynomial, whose length is the exponent times the length of
+	 *         the base minus one, plus one.
+	 * @throws BudgetExceededException If the time limit has been exceeded.
+	 * @throws ArithmeticException     If the length of the power does not fit into
+	 *                                 an array.
+	 */
+	static BigInteger[] power(IDie node, EvaluationBudget budget, BigInteger[] base, int exponent) {
+		BigInteger[] ret = new BigInteger[Math.addExact(Math.multiplyExact(base.length - 1, exponent), 1)];
+		Arrays.fill(ret, BigInteger.ZERO);
+		int low = 0, high = base.length - 1;
+		while (low <= high && base[low].signum() == 0) {
+			low++;
+		}
+		if (low > high) {
+			return ret;
+		}
+		while (base[high].signum() == 0) {
+			high--;
+		}
+		// The power of the base without its lowest and highest zero coefficients.
+		final int degree = high - low, offset = low * exponent;
+		final BigInteger first = base[low];
+		ret[offset] = first.pow(exponent);
+		long multiplications = 0;
+		for (int k = 1; k <= degree * exponent; k++) {
+			BigInteger sum = BigInteger.ZERO;
+			for (int j = Math.min(k, degree); j > 0; j--) {
+				if (base[low + j].signum() != 0 && ret[offset + k - j].signum() != 0) {
+					long factor = (exponent + 1L) * j - k;
+					sum = sum.add(base[low + j].multiply(BigInteger.valueOf(factor)).multiply(ret[offset + k - j]));
+					multiplications++;
+				}
+			}
+			ret[offset + k] = sum.divide(first.multiply(BigInteger.valueOf(k)));
+			budget.checkTime(node);
+		}
+		budget.countMultiplications(node, multiplications);
+		return ret;
+	}
+
+	/**
+	 * Turns a polynomial into absolute frequencies, skipping zero coefficients.
+	 * 
+	 * @param node         The node being evaluated.
+	 * @param budget       The budget of the current evaluation, which gets checked
+	 *                     for every entry.
+	 * @param coefficients
+	 * @param offset       The value of the coefficient at index zero.
+	 * @return A new mapping from singleton-maps of the values to their absolute
+	 *         frequencies.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 */
+	static Map<Map<Integer, Integer>, BigInteger> toFrequencies(IDie node, EvaluationBudget budget,
+			BigInteger[] coefficients, int offset) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		for (int i = 0; i < coefficients.length; i++) {
+			if (coefficients[i].signum() != 0) {
+				Map<Integer, Integer> key = Collections.singletonMap(offset + i, 1);
+				ret.put(key, coefficients[i]);
+				budget.checkEntry(node, ret.size(), key, coefficients[i]);
+			}
+		}
+		return ret;
+	}
+}
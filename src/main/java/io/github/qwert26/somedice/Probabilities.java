@@ -0,0 +1,236 @@
+package io.github.qwert26.somedice;
+
+import java.math.*;
+import java.util.*;
+
+/**
+ * <p>
+ * Approximated probabilities as {@code double}s, either linear or as their
+ * natural logarithms. The keys are the same as the ones of the exact absolute
+ * frequencies.
+ * </p>
+ * <p>
+ * Every result carries a bound on the relative error of each of its
+ * probabilities, which is derived from the unit roundoff of every operation
+ * and therefore an estimate to the first order. In the logarithmic space, the
+ * relative error of a probability equals the absolute error of its logarithm.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see IDie#getProbabilities(boolean, EvaluationBudget)
+ */
+public final class Probabilities {
+	/**
+	 * The maximum relative error of rounding a single operation.
+	 */
+	static final double UNIT_ROUNDOFF = Math.ulp(1.0) / 2;
+	/**
+	 * The precision used for dividing exact frequencies.
+	 */
+	private static final MathContext DIVISION = new MathContext(17);
+	/**
+	 * The probabilities or their natural logarithms.
+	 */
+	private final Map<Map<Integer, Integer>, Double> values;
+	/**
+	 * If {@code true}, the values are natural logarithms.
+	 */
+	private final boolean logSpace;
+	/**
+	 * The bound on the relative error of each probability.
+	 */
+	private final double relativeErrorBound;
+
+	/**
+	 * Creates new approximated probabilities.
+	 * 
+	 * @param values             The probabilities or their natural logarithms,
+	 *                           taken over without copying.
+	 * @param logSpace           If {@code true}, the values are natural
+	 *                           logarithms.
+	 * @param relativeErrorBound The bound on the relative error of each
+	 *                           probability.
+	 */
+	Probabilities(Map<Map<Integer, Integer>, Double> values, boolean logSpace, double relativeErrorBound) {
+		super();
+		this.values = Collections.unmodifiableMap(values);
+		this.logSpace = logSpace;
+		this.relativeErrorBound = relativeErrorBound;
+	}
+
+	/**
+	 * Converts exact absolute frequencies.
+	 * 
+	 * @param frequencies
+	 * @param logSpace    If {@code true}, the natural logarithms of the
+	 *                    probabilities are computed.
+	 * @return The approximated probabilities of the given frequencies.
+	 * @throws IllegalArgumentException If the frequencies are <code>null</code>.
+	 */
+	public static final Probabilities of(Map<Map<Integer, Integer>, BigInteger> frequencies, boolean logSpace) {
+		return of(ScaledFrequencies.of(frequencies), logSpace);
+	}
+
+	/**
+	 * Converts normalized absolute frequencies. Only the reduced frequencies are
+	 * needed, as the scale cancels itself out.
+	 * 
+	 * @param frequencies
+	 * @param logSpace    If {@code true}, the natural logarithms of the
+	 *                    probabilities are computed.
+	 * @return The approximated probabilities of the given frequencies.
+	 * @throws IllegalArgumentException If the frequencies are <code>null</code>.
+	 */
+	public static final Probabilities of(ScaledFrequencies frequencies, boolean logSpace) {
+		if (frequencies == null) {
+			throw new IllegalArgumentException("The frequencies can not be null!");
+		}
+		Map<Map<Integer, Integer>, BigInteger> reduced = frequencies.getReduced();
+		BigInteger total = BigInteger.ZERO;
+		for (BigInteger frequency : reduced.values()) {
+			total = total.add(frequency);
+		}
+		Map<Map<Integer, Integer>, Double> ret = new HashMap<Map<Integer, Integer>, Double>(reduced.size(), 1.0f);
+		double error = 0;
+		if (logSpace) {
+			double logTotal = total.signum() > 0 ? Utils.log(total) : 0;
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : reduced.entrySet()) {
+				double value = entry.getValue().signum() > 0 ? Utils.log(entry.getValue()) - logTotal
+						: Double.NEGATIVE_INFINITY;
+				ret.put(entry.getKey(), value);
+				if (Double.isFinite(value)) {
+					// Both logarithms and their difference get rounded.
+					error = Math.max(error, UNIT_ROUNDOFF * (3 + Math.abs(logTotal) + Math.abs(value)));
+				}
+			}
+		} else {
+			boolean small = total.bitLength() <= Double.PRECISION;
+			BigDecimal bigTotal = new BigDecimal(total);
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : reduced.entrySet()) {
+				if (small) {
+					ret.put(entry.getKey(), entry.getValue().doubleValue() / total.doubleValue());
+				} else {
+					ret.put(entry.getKey(),
+							new BigDecimal(entry.getValue()).divide(bigTotal, DIVISION).doubleValue());
+				}
+			}
+			error = reduced.isEmpty() ? 0 : small ? UNIT_ROUNDOFF : 2 * UNIT_ROUNDOFF;
+		}
+		return new Probabilities(ret, logSpace, error);
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the values are natural logarithms.
+	 */
+	public final boolean isLogSpace() {
+		return logSpace;
+	}
+
+	/**
+	 * 
+	 * @return An unmodifiable view of the probabilities, or of their natural
+	 *         logarithms if this result is in the logarithmic space.
+	 */
+	public final Map<Map<Integer, Integer>, Double> getValues() {
+		return values;
+	}
+
+	/**
+	 * 
+	 * @return The linear probabilities, either as an unmodifiable view or as a new
+	 *         mapping, if this result is in the logarithmic space.
+	 */
+	public final Map<Map<Integer, Integer>, Double> getProbabilities() {
+		if (!logSpace) {
+			return values;
+		}
+		Map<Map<Integer, Integer>, Double> ret = new HashMap<Map<Integer, Integer>, Double>(values.size(), 1.0f);
+		for (Map.Entry<Map<Integer, Integer>, Double> entry : values.entrySet()) {
+			ret.put(entry.getKey(), Math.exp(entry.getValue()));
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return The probability of the given key, zero if it is absent.
+	 */
+	public final double getProbability(Map<Integer, Integer> key) {
+		Double value = values.get(key);
+		if (value == null) {
+			return 0;
+		}
+		return logSpace ? Math.exp(value) : value;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return The natural logarithm of the probability of the given key, negative
+	 *         infinity if it is absent.
+	 */
+	public final double getLogProbability(Map<Integer, Integer> key) {
+		Double value = values.get(key);
+		if (value == null) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		return logSpace ? value : Math.log(value);
+	}
+
+	/**
+	 * 
+	 * @return The bound on the relative error of each probability, which is the
+	 *         bound on the absolute error of each logarithm as well.
+	 */
+	public final double getRelativeErrorBound() {
+		return relativeErrorBound;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (logSpace ? 1231 : 1237);
+		result = prime * result + Double.hashCode(relativeErrorBound);
+		result = prime * result + values.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Probabilities)) {
+			return false;
+		}
+		Probabilities other = (Probabilities) obj;
+		return logSpace == other.logSpace
+				&& Double.doubleToLongBits(relativeErrorBound) == Double.doubleToLongBits(other.relativeErrorBound)
+				&& values.equals(other.values);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Probabilities [logSpace=");
+		builder.append(logSpace);
+		builder.append(", relativeErrorBound=");
+		builder.append(relativeErrorBound);
+		builder.append(", values=");
+		builder.append(values);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,108 @@
+package io.github.qwert26.somedice;
+
+import java.util.*;
+
+/**
+ * Sums up approximated probabilities per key. Linear probabilities are added
+ * with a compensated summation, so the error of a sum does not grow with the
+ * amount of its terms. Logarithms are added via the log-sum-exp trick, so tiny
+ * probabilities do not underflow.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see Probabilities
+ */
+final class ProbabilityAccumulator {
+	/**
+	 * If {@code true}, the added values are natural logarithms.
+	 */
+	private final boolean logSpace;
+	/**
+	 * Per key: The sum, its compensation or the amount of terms, and the greatest
+	 * relative error of its terms.
+	 */
+	private final Map<Map<Integer, Integer>, double[]> sums = new HashMap<Map<Integer, Integer>, double[]>();
+
+	/**
+	 * Creates a new, empty accumulator.
+	 * 
+	 * @param logSpace If {@code true}, the added values are natural logarithms.
+	 */
+	ProbabilityAccumulator(boolean logSpace) {
+		super();
+		this.logSpace = logSpace;
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if the added values are natural logarithms.
+	 */
+	boolean isLogSpace() {
+		return logSpace;
+	}
+
+	/**
+	 * Adds a probability to the sum of its key.
+	 * 
+	 * @param key   The key, which must not be modified afterwards.
+	 * @param value The probability or its natural logarithm.
+	 * @param error The bound on the relative error of the probability.
+	 */
+	void add(Map<Integer, Integer> key, double value, double error) {
+		double[] sum = sums.get(key);
+		if (sum == null) {
+			sums.put(key, new double[] { value, logSpace ? 1 : 0, error });
+			return;
+		}
+		if (logSpace) {
+			double max = Math.max(sum[0], value);
+			double min = Math.min(sum[0], value);
+			if (min != Double.NEGATIVE_INFINITY) {
+				sum[0] = max + Math.log1p(Math.exp(min - max));
+			} else {
+				sum[0] = max;
+			}
+			sum[1]++;
+		} else {
+			// Neumaier's variant of the Kahan summation.
+			double next = sum[0] + value;
+			if (Math.abs(sum[0]) >= Math.abs(value)) {
+				sum[1] += (sum[0] - next) + value;
+			} else {
+				sum[1] += (value - next) + sum[0];
+			}
+			sum[0] = next;
+		}
+		sum[2] = Math.max(sum[2], error);
+	}
+
+	/**
+	 * 
+	 * @return The amount of distinct keys.
+	 */
+	int size() {
+		return sums.size();
+	}
+
+	/**
+	 * Finishes the sums.
+	 * 
+	 * @return The summed up probabilities with the greatest error bound of all
+	 *         sums.
+	 */
+	Probabilities toProbabilities() {
+		Map<Map<Integer, Integer>, Double> ret = new HashMap<Map<Integer, Integer>, Double>(sums.size(), 1.0f);
+		double error = 0;
+		for (Map.Entry<Map<Integer, Integer>, double[]> entry : sums.entrySet()) {
+			double[] sum = entry.getValue();
+			if (logSpace) {
+				ret.put(entry.getKey(), sum[0]);
+				// Every log-sum-exp step rounds up to three times.
+				error = Math.max(error, sum[2] + 3 * Probabilities.UNIT_ROUNDOFF * (sum[1] - 1));
+			} else {
+				ret.put(entry.getKey(), sum[0] + sum[1]);
+				error = Math.max(error, sum[2] + 2 * Probabilities.UNIT_ROUNDOFF);
+			}
+		}
+		return new Probabilities(ret, logSpace, error);
+	}
+}
@@ -2,6 +2,7 @@ package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 /**
  * A die which produces numbers from an interval, usually with a step size of
@@ -70,6 +71,7 @@ public final class RangeDie extends AbstractDie {
 			throw new IllegalArgumentException("start can not be greater than end.");
 		}
 		this.start = start;
+		modified();
 	}
 
 	/**
@@ -91,6 +93,7 @@ public final class RangeDie extends AbstractDie {
 			throw new IllegalArgumentException("start can not be greater than end.");
 		}
 		this.end = end;
+		modified();
 	}
 
 	/**
@@ -106,6 +109,7 @@ public final class RangeDie extends AbstractDie {
 		}
 		this.start = start;
 		this.end = end;
+		modified();
 	}
 
 	/**
@@ -118,6 +122,7 @@ public final class RangeDie extends AbstractDie {
 		if (start < end) {
 			this.start = start;
 			this.end = end;
+			modified();
 		} else {
 			throw new IllegalArgumentException("start can not be greater than end.");
 		}
@@ -141,6 +146,7 @@ public final class RangeDie extends AbstractDie {
 			throw new IllegalArgumentException("steps must be positive.");
 		}
 		this.step = step;
+		modified();
 	}
 
 	/**
@@ -183,6 +189,30 @@ public final class RangeDie extends AbstractDie {
 		return (int) Math.ceil((end - start) / (double) step);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	int countValues(IntPredicate predicate) {
+		int ret = 0;
+		for (int value = start; value < end; value += step) {
+			if (predicate.test(value)) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return An exact estimate with the values from the start to the last value
+	 *         reached by the steps.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		int distinct = getDistinctValues();
+		return CostEstimate.ofDie(distinct, start, start + step * (distinct - 1));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,85 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Holds the last result of a node together with the modification stamp it was
+ * computed for. A cached result is only handed out for the very same stamp, so
+ * any modification of the node or one of its transitive sources invalidates it.
+ * Results are stored as unmodifiable views and shared between all callers.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see IDie#getModificationStamp()
+ */
+public final class ResultCache {
+	/**
+	 * A result and the stamp it belongs to, replaced as a whole so both are
+	 * always consistent.
+	 */
+	private static record Snapshot(long stamp, Map<Map<Integer, Integer>, BigInteger> result) {
+	}
+
+	/**
+	 * The current snapshot, <code>null</code> if nothing is cached.
+	 */
+	private volatile Snapshot snapshot = null;
+
+	/**
+	 * Creates a new, empty cache.
+	 */
+	public ResultCache() {
+		super();
+	}
+
+	/**
+	 * 
+	 * @param stamp The current modification stamp of the node.
+	 * @return The cached result, or <code>null</code> if nothing has been cached
+	 *         for the given stamp.
+	 */
+	public Map<Map<Integer, Integer>, BigInteger> get(long stamp) {
+		Snapshot current = snapshot;
+		if (current == null || current.stamp() != stamp) {
+			return null;
+		}
+		return current.result();
+	}
+
+	/**
+	 * Caches a result for the given stamp, replacing any previous one.
+	 * 
+	 * @param stamp  The modification stamp of the node at the start of the
+	 *               computation.
+	 * @param result The computed result, which must not be modified afterwards.
+	 * @return An unmodifiable view of the result, which should be returned to the
+	 *         caller.
+	 */
+	public Map<Map<Integer, Integer>, BigInteger> put(long stamp, Map<Map<Integer, Integer>, BigInteger> result) {
+		Map<Map<Integer, Integer>, BigInteger> view = Collections.unmodifiableMap(result);
+		snapshot = new Snapshot(stamp, view);
+		return view;
+	}
+
+	/**
+	 * Removes the cached result.
+	 */
+	public void clear() {
+		snapshot = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		Snapshot current = snapshot;
+		StringBuilder builder = new StringBuilder();
+		builder.append("ResultCache [stamp=");
+		builder.append(current == null ? null : current.stamp());
+		builder.append(", entries=");
+		builder.append(current == null ? 0 : current.result().size());
+		builder.append("]");
+		return builder.toString();
+	}
+}
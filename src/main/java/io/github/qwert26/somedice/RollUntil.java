@@ -0,0 +1,481 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * <p>
+ * Rolls a single-valued distribution again and again, until a condition is
+ * met, such as "keep rolling and adding until the total is at least 10" or
+ * "roll until two 6s in a row". The process is an absorbing Markov chain: It
+ * starts in the {@link #initialState}, every roll moves it to the state given
+ * by the {@link #transition} and it stops in every {@link #absorbing} state.
+ * After {@link #maxSteps} rolls, it is cut off regardless.
+ * </p>
+ * <p>
+ * The transitions of every reached state are built once and merged by their
+ * target, so the transition matrix is sparse. The distribution over the
+ * transient states is multiplied with it once per step, which never enumerates
+ * the tree of individual rolls. All stopped processes are filled up to the
+ * common denominator {@code T^maxSteps}, where {@code T} is the total weight of
+ * the source, just like {@code maxSteps} independent rolls.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see DiceExploder
+ */
+public class RollUntil implements IDie, IRequiresSource {
+	/**
+	 * What a stopped process reports as its result.
+	 * 
+	 * @author <b>Qwert26</b>, main author
+	 */
+	public static enum Outcome {
+		/**
+		 * The state, in which the process stopped.
+		 */
+		STATE,
+		/**
+		 * The amount of rolls, after which the process stopped in an absorbing state.
+		 * Processes cut off after the maximum amount of rolls report one more, so
+		 * they do not mix with processes absorbed by the last roll.
+		 */
+		STEPS;
+	}
+
+	/**
+	 * The single-valued distribution, that gets rolled, can never be
+	 * <code>null</code>.
+	 */
+	private IDie source;
+	/**
+	 * The state before the first roll.
+	 */
+	private int initialState;
+	/**
+	 * Computes the next state from the current state and a roll, never
+	 * <code>null</code>.
+	 */
+	private IntBinaryOperator transition;
+	/**
+	 * Decides, in which states the process stops, never <code>null</code>.
+	 */
+	private IntPredicate absorbing;
+	/**
+	 * The maximum amount of rolls. It is never negative.
+	 */
+	private int maxSteps;
+	/**
+	 * What a stopped process reports, never <code>null</code>.
+	 */
+	private Outcome outcome = Outcome.STATE;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new process, which reports the state it stopped in.
+	 * 
+	 * @param source       A single-valued distribution.
+	 * @param initialState The state before the first roll.
+	 * @param transition   Computes the next state from the current state and a
+	 *                     roll.
+	 * @param absorbing    Decides, in which states the process stops.
+	 * @param maxSteps     The maximum amount of rolls.
+	 * @throws NullPointerException     If the source, the transition or the
+	 *                                  condition is <code>null</code>.
+	 * @throws IllegalArgumentException If the maximum amount of rolls is
+	 *                                  negative.
+	 */
+	public RollUntil(IDie source, int initialState, IntBinaryOperator transition, IntPredicate absorbing,
+			int maxSteps) {
+		super();
+		setSource(source);
+		setInitialState(initialState);
+		setTransition(transition);
+		setAbsorbing(absorbing);
+		setMaxSteps(maxSteps);
+	}
+
+	/**
+	 * 
+	 * @param source    A single-valued distribution.
+	 * @param threshold The total to reach.
+	 * @param maxSteps  The maximum amount of rolls.
+	 * @return A new process, which adds up its rolls until the total is at least
+	 *         the threshold, and reports the total.
+	 * @throws NullPointerException     If the source is <code>null</code>.
+	 * @throws IllegalArgumentException If the maximum amount of rolls is
+	 *                                  negative.
+	 */
+	public static RollUntil sumAtLeast(IDie source, int threshold, int maxSteps) {
+		return new RollUntil(source, 0, Math::addExact, total -> total >= threshold, maxSteps);
+	}
+
+	/**
+	 * 
+	 * @param source   A single-valued distribution.
+	 * @param matching Decides, which rolls continue the streak.
+	 * @param length   The length of the streak to reach.
+	 * @param maxSteps The maximum amount of rolls.
+	 * @return A new process, which rolls until the given amount of matching rolls
+	 *         came in a row, and reports the amount of rolls. Processes without
+	 *         such a streak report {@code maxSteps + 1}.
+	 * @throws NullPointerException     If the source or the condition is
+	 *                                  <code>null</code>.
+	 * @throws IllegalArgumentException If the maximum amount of rolls is
+	 *                                  negative.
+	 */
+	public static RollUntil streak(IDie source, IntPredicate matching, int length, int maxSteps) {
+		Objects.requireNonNull(matching, "Given integer-predicate was null.");
+		RollUntil ret = new RollUntil(source, 0, (streak, roll) -> matching.test(roll) ? streak + 1 : 0,
+				streak -> streak >= length, maxSteps);
+		ret.setOutcome(Outcome.STEPS);
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return The source, that is being rolled.
+	 */
+	@Override
+	public final IDie getSource() {
+		return source;
+	}
+
+	/**
+	 * 
+	 * @param source A single-valued distribution.
+	 * @throws NullPointerException if the given source is <code>null</code>.
+	 * @see Utils#checkForCycle(IRequiresSource)
+	 */
+	@Override
+	public final void setSource(IDie source) {
+		if (source instanceof IRequiresSource future) {
+			IDie oldSource = this.source;
+			this.source = source;
+			if (Utils.checkForCycle(future)) {
+				this.source = oldSource;
+			}
+		}
+		this.source = Objects.requireNonNull(source, "A source must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The state before the first roll.
+	 */
+	public final int getInitialState() {
+		return initialState;
+	}
+
+	/**
+	 * 
+	 * @param initialState
+	 */
+	public final void setInitialState(int initialState) {
+		this.initialState = initialState;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current transition, never <code>null</code>.
+	 */
+	public final IntBinaryOperator getTransition() {
+		return transition;
+	}
+
+	/**
+	 * 
+	 * @param transition Computes the next state from the current state and a roll.
+	 * @throws NullPointerException If the transition is <code>null</code>.
+	 */
+	public final void setTransition(IntBinaryOperator transition) {
+		this.transition = Objects.requireNonNull(transition, "Given integer-operator was null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current condition for stopping, never <code>null</code>.
+	 */
+	public final IntPredicate getAbsorbing() {
+		return absorbing;
+	}
+
+	/**
+	 * 
+	 * @param absorbing Decides, in which states the process stops.
+	 * @throws NullPointerException If the condition is <code>null</code>.
+	 */
+	public final void setAbsorbing(IntPredicate absorbing) {
+		this.absorbing = Objects.requireNonNull(absorbing, "Given integer-predicate was null.");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The maximum amount of rolls, never negative.
+	 */
+	public final int getMaxSteps() {
+		return maxSteps;
+	}
+
+	/**
+	 * 
+	 * @param maxSteps
+	 * @throws IllegalArgumentException If the maximum is negative.
+	 */
+	public final void setMaxSteps(int maxSteps) {
+		if (maxSteps < 0) {
+			throw new IllegalArgumentException("Max-Steps must be non-negative.");
+		}
+		this.maxSteps = maxSteps;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return What a stopped process reports, never <code>null</code>.
+	 */
+	public final Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * 
+	 * @param outcome What a stopped process reports.
+	 * @throws NullPointerException If the outcome is <code>null</code>.
+	 */
+	public final void setOutcome(Outcome outcome) {
+		this.outcome = Objects.requireNonNull(outcome, "An outcome must be given!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * Nothing is known about the states, only the amount of rolls is bounded.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if it reports states.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		if (outcome == Outcome.STATE) {
+			return CostEstimate.UNKNOWN;
+		}
+		// Up to maxSteps rolls and the cut off processes.
+		BigInteger entries = BigInteger.valueOf(maxSteps + 2L);
+		int maxValue = (int) Math.min(Integer.MAX_VALUE, maxSteps + 1L);
+		return new CostEstimate(entries, false, 0, maxValue, 1, 1, Collections.emptyMap());
+	}
+
+	/**
+	 * Runs the process to its end.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Runs the process to its end, while checking the time limit and the amount
+	 * of transient states after every step and the other limits for every
+	 * produced entry.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, run(budget, source.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the source and raises its scale to the
+	 * maximum amount of rolls.
+	 * 
+	 * @throws IllegalArgumentException If the source is not single-valued.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(maxSteps), run(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Multiplies the distribution over the transient states with the sparse
+	 * transitions once per step.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the source.
+	 * @return A new mapping of the outcomes to their absolute frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> run(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		FaceTable rolls = FaceTable.ofFrequencies(base);
+		// The weight of stopping after k steps gets filled up with T^(maxSteps - k).
+		BigInteger[] fillers = new BigInteger[maxSteps + 1];
+		fillers[maxSteps] = BigInteger.ONE;
+		for (int step = maxSteps - 1; step >= 0; step--) {
+			fillers[step] = fillers[step + 1].multiply(rolls.total());
+		}
+		budget.countMultiplications(this, maxSteps);
+		Map<Integer, FaceTable> transitions = new HashMap<Integer, FaceTable>();
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		Map<Integer, BigInteger> pending = new HashMap<Integer, BigInteger>();
+		if (absorbing.test(initialState)) {
+			stop(budget, ret, initialState, 0, fillers[0]);
+			return ret;
+		}
+		pending.put(initialState, BigInteger.ONE);
+		for (int step = 1; step <= maxSteps && !pending.isEmpty(); step++) {
+			Map<Integer, BigInteger> next = new HashMap<Integer, BigInteger>(pending.size() * 2);
+			long multiplications = 0;
+			for (Map.Entry<Integer, BigInteger> current : pending.entrySet()) {
+				FaceTable targets = transitions.computeIfAbsent(current.getKey(), state -> targets(rolls, state));
+				for (int i = 0; i < targets.size(); i++) {
+					next.merge(targets.face(i), current.getValue().multiply(targets.weight(i)), BigInteger::add);
+				}
+				multiplications += targets.size();
+			}
+			budget.countMultiplications(this, multiplications);
+			pending = new HashMap<Integer, BigInteger>(next.size());
+			for (Map.Entry<Integer, BigInteger> reached : next.entrySet()) {
+				if (absorbing.test(reached.getKey())) {
+					stop(budget, ret, reached.getKey(), step, reached.getValue().multiply(fillers[step]));
+				} else {
+					pending.put(reached.getKey(), reached.getValue());
+				}
+			}
+			budget.checkSize(this, pending.size());
+			budget.checkTime(this);
+		}
+		// Processes, that have not been absorbed, are cut off after the maximum amount
+		// of rolls.
+		for (Map.Entry<Integer, BigInteger> remaining : pending.entrySet()) {
+			stop(budget, ret, remaining.getKey(), maxSteps + 1, remaining.getValue());
+		}
+		return ret;
+	}
+
+	/**
+	 * Builds the sparse transitions of a single state.
+	 * 
+	 * @param rolls The values of the source.
+	 * @param state The current state.
+	 * @return The table of the next states and their weights, with every target
+	 *         appearing once.
+	 */
+	private FaceTable targets(FaceTable rolls, int state) {
+		int[] targets = new int[rolls.size()];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = transition.applyAsInt(state, rolls.face(i));
+		}
+		return FaceTable.of(targets, rolls.weights());
+	}
+
+	/**
+	 * Records a stopped process.
+	 * 
+	 * @param budget    The budget of the current evaluation.
+	 * @param ret       The outcomes so far.
+	 * @param state     The state, in which the process stopped.
+	 * @param steps     The amount of rolls, after which the process stopped, one
+	 *                  more if it has been cut off.
+	 * @param frequency The filled up frequency.
+	 */
+	private void stop(EvaluationBudget budget, Map<Map<Integer, Integer>, BigInteger> ret, int state, int steps,
+			BigInteger frequency) {
+		Map<Integer, Integer> key = Collections.singletonMap(outcome == Outcome.STATE ? state : steps, 1);
+		BigInteger merged = ret.merge(key, frequency, BigInteger::add);
+		budget.checkEntry(this, ret.size(), key, merged);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + absorbing.hashCode();
+		result = prime * result + initialState;
+		result = prime * result + maxSteps;
+		result = prime * result + outcome.hashCode();
+		result = prime * result + source.hashCode();
+		result = prime * result + transition.hashCode();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RollUntil)) {
+			return false;
+		}
+		RollUntil other = (RollUntil) obj;
+		return absorbing.equals(other.absorbing) && initialState == other.initialState
+				&& maxSteps == other.maxSteps && outcome == other.outcome && source.equals(other.source)
+				&& transition.equals(other.transition);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("RollUntil [source=");
+		builder.append(source);
+		builder.append(", initialState=");
+		builder.append(initialState);
+		builder.append(", transition=");
+		builder.append(transition);
+		builder.append(", absorbing=");
+		builder.append(absorbing);
+		builder.append(", maxSteps=");
+		builder.append(maxSteps);
+		builder.append(", outcome=");
+		builder.append(outcome);
+		builder.append("]");
+		return builder.toString();
+	}
+}
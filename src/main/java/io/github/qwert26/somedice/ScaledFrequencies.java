@@ -0,0 +1,176 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * Absolute frequencies in a normalized form: A common scale factor and a
+ * reduced table, whose frequencies have no common divisor greater than one. The
+ * true absolute frequency of every key is its reduced frequency multiplied by
+ * the scale.
+ * </p>
+ * <p>
+ * Operators evaluated via {@link IDie#getScaledFrequencies(EvaluationBudget)}
+ * work on the reduced tables of their sources and only combine the scales, so
+ * their multiplications and additions involve much smaller numbers.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see IDie#getScaledFrequencies()
+ */
+public final class ScaledFrequencies {
+	/**
+	 * The common factor of all frequencies.
+	 */
+	private final BigInteger scale;
+	/**
+	 * The frequencies divided by the scale.
+	 */
+	private final Map<Map<Integer, Integer>, BigInteger> reduced;
+
+	/**
+	 * Creates a new normalized form. The greatest common divisor of the given
+	 * frequencies is moved into the scale.
+	 * 
+	 * @param scale       The factor, all frequencies have to be multiplied with.
+	 * @param frequencies The frequencies, which might still have a common divisor.
+	 *                    If it does not, the map is taken over without copying.
+	 * @throws IllegalArgumentException If the scale is <code>null</code> or not
+	 *                                  positive, or the frequencies are
+	 *                                  <code>null</code>.
+	 */
+	public ScaledFrequencies(BigInteger scale, Map<Map<Integer, Integer>, BigInteger> frequencies) {
+		super();
+		if (scale == null || scale.signum() <= 0) {
+			throw new IllegalArgumentException("The scale must be positive!");
+		}
+		if (frequencies == null) {
+			throw new IllegalArgumentException("The frequencies can not be null!");
+		}
+		BigInteger divisor = gcd(frequencies.values());
+		if (divisor.compareTo(BigInteger.ONE) > 0) {
+			Map<Map<Integer, Integer>, BigInteger> divided = new HashMap<Map<Integer, Integer>, BigInteger>(
+					frequencies.size(), 1.0f);
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : frequencies.entrySet()) {
+				divided.put(entry.getKey(), entry.getValue().divide(divisor));
+			}
+			this.scale = scale.multiply(divisor);
+			this.reduced = Collections.unmodifiableMap(divided);
+		} else {
+			this.scale = scale;
+			this.reduced = Collections.unmodifiableMap(frequencies);
+		}
+	}
+
+	/**
+	 * Normalizes absolute frequencies.
+	 * 
+	 * @param frequencies
+	 * @return The normalized form of the given absolute frequencies.
+	 * @throws IllegalArgumentException If the frequencies are <code>null</code>.
+	 */
+	public static final ScaledFrequencies of(Map<Map<Integer, Integer>, BigInteger> frequencies) {
+		return new ScaledFrequencies(BigInteger.ONE, frequencies);
+	}
+
+	/**
+	 * 
+	 * @param values
+	 * @return The greatest common divisor of all values, zero if there are none.
+	 */
+	static BigInteger gcd(Collection<BigInteger> values) {
+		BigInteger ret = BigInteger.ZERO;
+		for (BigInteger value : values) {
+			ret = ret.gcd(value);
+			if (ret.equals(BigInteger.ONE)) {
+				// Can not get any smaller.
+				break;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return The factor, all reduced frequencies have to be multiplied with.
+	 */
+	public final BigInteger getScale() {
+		return scale;
+	}
+
+	/**
+	 * 
+	 * @return An unmodifiable view of the reduced frequencies, which do not have a
+	 *         common divisor greater than one.
+	 */
+	public final Map<Map<Integer, Integer>, BigInteger> getReduced() {
+		return reduced;
+	}
+
+	/**
+	 * Reconstructs the true absolute frequencies.
+	 * 
+	 * @return A new mapping of the keys to their true absolute frequencies.
+	 */
+	public final Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(reduced.size(),
+				1.0f);
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : reduced.entrySet()) {
+			ret.put(entry.getKey(), entry.getValue().multiply(scale));
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return The true absolute frequency of the given key, zero if it is absent.
+	 */
+	public final BigInteger getAbsoluteFrequency(Map<Integer, Integer> key) {
+		BigInteger frequency = reduced.get(key);
+		return frequency == null ? BigInteger.ZERO : frequency.multiply(scale);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + reduced.hashCode();
+		result = prime * result + scale.hashCode();
+		return result;
+	}
+
+	/**
+	 * As the reduced frequencies have no common divisor, two normalized forms are
+	 * equal exactly if their true absolute frequencies are equal.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ScaledFrequencies)) {
+			return false;
+		}
+		ScaledFrequencies other = (ScaledFrequencies) obj;
+		return scale.equals(other.scale) && reduced.equals(other.reduced);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ScaledFrequencies [scale=");
+		builder.append(scale);
+		builder.append(", reduced=");
+		builder.append(reduced);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -2,6 +2,7 @@ package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 /**
  * Represents a single fair die, with numbers starting either at zero or one.
@@ -81,6 +82,7 @@ public final class SingleDie extends AbstractDie {
 	 */
 	public final void setStartAt0(boolean startAt0) {
 		this.startAt0 = startAt0;
+		modified();
 	}
 
 	/**
@@ -103,6 +105,7 @@ public final class SingleDie extends AbstractDie {
 			throw new IllegalArgumentException("The maximum must be at least 2");
 		}
 		this.maximum = maximum;
+		modified();
 	}
 
 	/**
@@ -190,4 +193,26 @@ public final class SingleDie extends AbstractDie {
 	public int getDistinctValues() {
 		return maximum;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	int countValues(IntPredicate predicate) {
+		int ret = 0;
+		for (int i = 1; i < maximum; i++) {
+			if (predicate.test(i)) {
+				ret++;
+			}
+		}
+		return predicate.test(startAt0 ? 0 : maximum) ? ret + 1 : ret;
+	}
+
+	/**
+	 * @return An exact estimate with the values from the allowed range.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		return startAt0 ? CostEstimate.ofDie(maximum, 0, maximum - 1) : CostEstimate.ofDie(maximum, 1, maximum);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,416 @@
+package io.github.qwert26.somedice;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ * Aggregates absolute frequencies in memory, until their approximated heap
+ * usage crosses a threshold. From then on, the aggregated entries get
+ * hash-partitioned into runs on the disk, written through {@link FileChannel}s.
+ * As all occurrences of the same key end up in the same partition, the result
+ * can be merged back one partition at a time, so only a single partition must
+ * fit into the heap.
+ * </p>
+ * <p>
+ * An aggregator holds temporary files once it has spilled, so it must be
+ * closed after use.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see MixedDiceGroup#setSpillThreshold(long)
+ * @see IndeterministicDiceGroup#setSpillThreshold(long)
+ */
+public final class SpillingAggregator implements AutoCloseable {
+	/**
+	 * The default amount of partitions.
+	 */
+	public static final int DEFAULT_PARTITIONS = 64;
+	/**
+	 * The size of the buffers used for reading and writing runs.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/**
+	 * Approximated heap usage at which the in-memory entries get spilled.
+	 */
+	private final long threshold;
+	/**
+	 * The directory for the temporary files, <code>null</code> for the default
+	 * temporary directory.
+	 */
+	private final Path directory;
+	/**
+	 * The temporary files for each partition, created on the first spill.
+	 */
+	private final Path[] files;
+	/**
+	 * The in-memory part of the aggregation.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> memory = new HashMap<Map<Integer, Integer>, BigInteger>();
+	/**
+	 * The approximated heap usage of the in-memory entries.
+	 */
+	private long memoryBytes = 0;
+	/**
+	 * The amount of records written to the disk.
+	 */
+	private long spilledRecords = 0;
+
+	/**
+	 * Creates a new aggregator with the default amount of partitions, that spills
+	 * into the default temporary directory.
+	 * 
+	 * @param threshold Approximated heap usage in bytes, at which the in-memory
+	 *                  entries get spilled.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 */
+	public SpillingAggregator(long threshold) {
+		this(threshold, DEFAULT_PARTITIONS, null);
+	}
+
+	/**
+	 * Creates a new aggregator.
+	 * 
+	 * @param threshold  Approximated heap usage in bytes, at which the in-memory
+	 *                   entries get spilled.
+	 * @param partitions The amount of partitions on the disk.
+	 * @param directory  The directory for the temporary files, <code>null</code>
+	 *                   for the default temporary directory.
+	 * @throws IllegalArgumentException If the threshold or the amount of
+	 *                                  partitions is not positive.
+	 */
+	public SpillingAggregator(long threshold, int partitions, Path directory) {
+		super();
+		if (threshold < 1) {
+			throw new IllegalArgumentException("The threshold must be positive!");
+		}
+		if (partitions < 1) {
+			throw new IllegalArgumentException("At least one partition is required!");
+		}
+		this.threshold = threshold;
+		this.directory = directory;
+		files = new Path[partitions];
+	}
+
+	/**
+	 * Adds the given absolute frequency to the one of the given key.
+	 * 
+	 * @param key   The key, which must not be modified afterwards.
+	 * @param value The absolute frequency to add.
+	 * @return The accumulated frequency of the key, as far as it is known in
+	 *         memory.
+	 * @throws UncheckedIOException If spilling to the disk failed.
+	 */
+	public BigInteger merge(Map<Integer, Integer> key, BigInteger value) {
+		BigInteger previous = memory.putIfAbsent(key, value);
+		if (previous != null) {
+			BigInteger merged = previous.add(value);
+			memory.put(key, merged);
+			return merged;
+		}
+		// Only new keys take up more memory, regardless of their value.
+		memoryBytes += EvaluationBudget.approximateEntryBytes(key, value);
+		if (memoryBytes > threshold) {
+			spill();
+		}
+		return value;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code>, if at least one entry has been written to the
+	 *         disk.
+	 */
+	public boolean hasSpilled() {
+		return spilledRecords > 0;
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries in memory. Before a spill, it is the size of
+	 *         the result, afterwards only a lower bound, as the entries on the disk
+	 *         have not been merged yet.
+	 */
+	public int size() {
+		return memory.size();
+	}
+
+	/**
+	 * Hands each aggregated entry exactly once to the given consumer. After a
+	 * spill, the entries are merged back one partition at a time.
+	 * 
+	 * @param consumer The consumer of the aggregated entries.
+	 * @throws UncheckedIOException If reading from or writing to the disk failed.
+	 */
+	public void forEach(BiConsumer<Map<Integer, Integer>, BigInteger> consumer) {
+		if (!hasSpilled()) {
+			memory.forEach(consumer);
+			return;
+		}
+		spill();
+		for (Path file : files) {
+			if (file != null) {
+				readPartition(file).forEach(consumer);
+			}
+		}
+	}
+
+	/**
+	 * Hands each aggregated entry exactly once to the given consumer, like
+	 * {@link #forEach(BiConsumer)}. After a spill, the size and the absolute
+	 * frequencies seen while merging were only partial, so each entry merged back
+	 * from the disk gets checked against the budget before it is handed on.
+	 * 
+	 * @param budget   The budget of the current evaluation.
+	 * @param node     The node, that produced the entries.
+	 * @param consumer The consumer of the aggregated entries.
+	 * @throws UncheckedIOException    If reading from or writing to the disk
+	 *                                 failed.
+	 * @throws BudgetExceededException If the merged result exceeds the budget.
+	 * @see EvaluationBudget#checkMerged(IDie, int, BigInteger)
+	 */
+	public void forEach(EvaluationBudget budget, IDie node, BiConsumer<Map<Integer, Integer>, BigInteger> consumer) {
+		if (!hasSpilled()) {
+			memory.forEach(consumer);
+			return;
+		}
+		spill();
+		int merged = 0;
+		for (Path file : files) {
+			if (file != null) {
+				for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : readPartition(file).entrySet()) {
+					budget.checkMerged(node, ++merged, entry.getValue());
+					consumer.accept(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drains all aggregated entries into a single map and closes this aggregator.
+	 * After a spill, this defeats the purpose of spilling, so it should only be
+	 * used for results known to fit into the heap.
+	 * 
+	 * @return A map of all aggregated entries, which is no longer used by this
+	 *         aggregator.
+	 * @throws UncheckedIOException If reading from or writing to the disk failed.
+	 */
+	public Map<Map<Integer, Integer>, BigInteger> toMap() {
+		Map<Map<Integer, Integer>, BigInteger> ret;
+		if (hasSpilled()) {
+			ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+			forEach(ret::put);
+		} else {
+			ret = memory;
+			memory = new HashMap<Map<Integer, Integer>, BigInteger>();
+		}
+		close();
+		return ret;
+	}
+
+	/**
+	 * Deletes all temporary files.
+	 * 
+	 * @throws UncheckedIOException If a file could not be deleted.
+	 */
+	@Override
+	public void close() {
+		memory.clear();
+		memoryBytes = 0;
+		try {
+			for (int i = 0; i < files.length; i++) {
+				if (files[i] != null) {
+					Files.deleteIfExists(files[i]);
+					files[i] = null;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes all in-memory entries into their partitions and clears the memory.
+	 * 
+	 * @throws UncheckedIOException If writing to the disk failed.
+	 */
+	private void spill() {
+		if (memory.isEmpty()) {
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		List<Map.Entry<Map<Integer, Integer>, BigInteger>>[] partitioned = new List[files.length];
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : memory.entrySet()) {
+			int partition = partitionOf(entry.getKey());
+			if (partitioned[partition] == null) {
+				partitioned[partition] = new ArrayList<Map.Entry<Map<Integer, Integer>, BigInteger>>();
+			}
+			partitioned[partition].add(entry);
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			for (int partition = 0; partition < files.length; partition++) {
+				if (partitioned[partition] == null) {
+					continue;
+				}
+				if (files[partition] == null) {
+					files[partition] = directory == null ? Files.createTempFile("somedice-", ".run")
+							: Files.createTempFile(directory, "somedice-", ".run");
+				}
+				try (FileChannel channel = FileChannel.open(files[partition], StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND)) {
+					for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : partitioned[partition]) {
+						byte[] value = entry.getValue().toByteArray();
+						int recordSize = Integer.BYTES * (2 + 2 * entry.getKey().size()) + value.length;
+						if (recordSize > buffer.remaining()) {
+							drain(channel, buffer);
+							if (recordSize > buffer.capacity()) {
+								buffer = ByteBuffer.allocateDirect(recordSize);
+							}
+						}
+						buffer.putInt(entry.getKey().size());
+						for (Map.Entry<Integer, Integer> valueCount : entry.getKey().entrySet()) {
+							buffer.putInt(valueCount.getKey());
+							buffer.putInt(valueCount.getValue());
+						}
+						buffer.putInt(value.length);
+						buffer.put(value);
+						spilledRecords++;
+					}
+					drain(channel, buffer);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		memory.clear();
+		memoryBytes = 0;
+	}
+
+	/**
+	 * Reads a single partition and merges its records.
+	 * 
+	 * @param file The file of the partition.
+	 * @return The merged entries of the partition.
+	 * @throws UncheckedIOException If reading from the disk failed.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> readPartition(Path file) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.flip();
+			while ((buffer = fill(channel, buffer, Integer.BYTES)) != null) {
+				int keySize = buffer.getInt();
+				buffer = require(fill(channel, buffer, 2 * Integer.BYTES * keySize + Integer.BYTES));
+				Map<Integer, Integer> key = new TreeMap<Integer, Integer>();
+				for (int i = 0; i < keySize; i++) {
+					key.put(buffer.getInt(), buffer.getInt());
+				}
+				int length = buffer.getInt();
+				buffer = require(fill(channel, buffer, length));
+				byte[] value = new byte[length];
+				buffer.get(value);
+				ret.merge(key, new BigInteger(value), BigInteger::add);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Makes sure, that the given buffer has at least the given amount of bytes
+	 * ready for reading.
+	 * 
+	 * @param channel The channel to read from.
+	 * @param buffer  The buffer in reading mode.
+	 * @param needed  The amount of bytes needed.
+	 * @return The buffer in reading mode, which might be a new, larger one.
+	 *         <code>null</code>, if the channel has ended before any bytes could
+	 *         be read.
+	 * @throws IOException If reading failed.
+	 */
+	private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if (buffer.remaining() >= needed) {
+			return buffer;
+		}
+		if (needed > buffer.capacity()) {
+			buffer = ByteBuffer.allocateDirect(needed).put(buffer);
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < needed) {
+			if (channel.read(buffer) < 0) {
+				if (buffer.position() == 0) {
+					return null;
+				}
+				throw new EOFException("A run ended within a record!");
+			}
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * 
+	 * @param buffer The result of {@link #fill(FileChannel, ByteBuffer, int)}.
+	 * @return The same buffer.
+	 * @throws EOFException If the buffer is <code>null</code>.
+	 */
+	private static ByteBuffer require(ByteBuffer buffer) throws EOFException {
+		if (buffer == null) {
+			throw new EOFException("A run ended within a record!");
+		}
+		return buffer;
+	}
+
+	/**
+	 * Writes the content of the buffer completely into the channel and clears it
+	 * afterwards.
+	 * 
+	 * @param channel The channel to write to.
+	 * @param buffer  The buffer in writing mode.
+	 * @throws IOException If writing failed.
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Computes the partition of a key. Equal keys always have the same partition,
+	 * regardless of the type of map.
+	 * 
+	 * @param key
+	 * @return A partition index.
+	 */
+	private int partitionOf(Map<Integer, Integer> key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return Math.floorMod(hash ^ (hash >>> 16), files.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SpillingAggregator [threshold=");
+		builder.append(threshold);
+		builder.append(", partitions=");
+		builder.append(files.length);
+		builder.append(", memoryBytes=");
+		builder.append(memoryBytes);
+		builder.append(", spilledRecords=");
+		builder.append(spilledRecords);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,483 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * <p>
+ * A dice pool, that counts its successes: Every die showing at least the
+ * {@link #successThreshold} is a success. Optionally, every die showing at
+ * most the {@link #botchThreshold} is a botch and subtracts a success. The
+ * result has the same distribution as a {@link Compressor} counting the
+ * successes of a {@link HomogeneousDiceGroup}, but the multi-sets are never
+ * enumerated.
+ * </p>
+ * <p>
+ * Instead, the faces of the base die are split into successes, botches and
+ * failures. Without botches, the amount of successes follows a binomial
+ * distribution, which takes {@code count + 1} entries. With botches, the
+ * amounts of successes and botches follow a multi-nomial distribution, which
+ * gets summed up by their difference.
+ * </p>
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see #getAllThresholds(EvaluationBudget)
+ */
+public class SuccessPool implements IDie {
+	/**
+	 * Botches are disabled, if the {@link #botchThreshold} is set to this value.
+	 */
+	public static final int NO_BOTCHES = Integer.MIN_VALUE;
+	/**
+	 * The die, which is rolled {@link #count} times.
+	 * 
+	 * @apiNote Never <code>null</code>.
+	 */
+	private AbstractDie baseDie;
+	/**
+	 * Amount of dice in the pool. It is always positive.
+	 */
+	private int count;
+	/**
+	 * Dice showing at least this value are successes.
+	 */
+	private int successThreshold;
+	/**
+	 * Dice showing at most this value are botches, always smaller than the
+	 * {@link #successThreshold}.
+	 */
+	private int botchThreshold = NO_BOTCHES;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+
+	/**
+	 * Creates a new pool without botches.
+	 * 
+	 * @param baseDie
+	 * @param count
+	 * @param successThreshold
+	 * @throws NullPointerException     If the base die is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive.
+	 */
+	public SuccessPool(AbstractDie baseDie, int count, int successThreshold) {
+		this(baseDie, count, successThreshold, NO_BOTCHES);
+	}
+
+	/**
+	 * Creates a new pool with botches.
+	 * 
+	 * @param baseDie
+	 * @param count
+	 * @param successThreshold
+	 * @param botchThreshold   {@link #NO_BOTCHES} disables them.
+	 * @throws NullPointerException     If the base die is <code>null</code>.
+	 * @throws IllegalArgumentException If the amount is not positive or the botch
+	 *                                  threshold is not smaller than the success
+	 *                                  threshold.
+	 */
+	public SuccessPool(AbstractDie baseDie, int count, int successThreshold, int botchThreshold) {
+		super();
+		setBaseDie(baseDie);
+		setCount(count);
+		setThresholds(successThreshold, botchThreshold);
+	}
+
+	/**
+	 * 
+	 * @return The current base die.
+	 */
+	public final AbstractDie getBaseDie() {
+		return baseDie;
+	}
+
+	/**
+	 * 
+	 * @param baseDie
+	 * @throws NullPointerException If the new base die is <code>null</code>.
+	 */
+	public final void setBaseDie(AbstractDie baseDie) {
+		this.baseDie = Objects.requireNonNull(baseDie, "A base die is required!");
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The current amount of dice.
+	 */
+	public final int getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param count The new amount of dice.
+	 * @throws IllegalArgumentException If count is not positive.
+	 */
+	public final void setCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("A dice pool has at least one die in it!");
+		}
+		this.count = count;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The smallest value counting as a success.
+	 */
+	public final int getSuccessThreshold() {
+		return successThreshold;
+	}
+
+	/**
+	 * 
+	 * @param successThreshold
+	 * @throws IllegalArgumentException If the current botch threshold is not
+	 *                                  smaller.
+	 */
+	public final void setSuccessThreshold(int successThreshold) {
+		setThresholds(successThreshold, botchThreshold);
+	}
+
+	/**
+	 * 
+	 * @return The greatest value counting as a botch, {@link #NO_BOTCHES} if they
+	 *         are disabled.
+	 */
+	public final int getBotchThreshold() {
+		return botchThreshold;
+	}
+
+	/**
+	 * 
+	 * @param botchThreshold {@link #NO_BOTCHES} disables them.
+	 * @throws IllegalArgumentException If the botch threshold is not smaller than
+	 *                                  the current success threshold.
+	 */
+	public final void setBotchThreshold(int botchThreshold) {
+		setThresholds(successThreshold, botchThreshold);
+	}
+
+	/**
+	 * Sets both thresholds at once, which avoids an invalid state in between.
+	 * 
+	 * @param successThreshold
+	 * @param botchThreshold   {@link #NO_BOTCHES} disables them.
+	 * @throws IllegalArgumentException If the botch threshold is not smaller than
+	 *                                  the success threshold.
+	 */
+	public final void setThresholds(int successThreshold, int botchThreshold) {
+		if (botchThreshold != NO_BOTCHES && botchThreshold >= successThreshold) {
+			throw new IllegalArgumentException("Botches must be below the successes!");
+		}
+		this.successThreshold = successThreshold;
+		this.botchThreshold = botchThreshold;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return {@code true}, if botches subtract successes.
+	 */
+	public final boolean hasBotches() {
+		return botchThreshold != NO_BOTCHES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, baseDie);
+	}
+
+	/**
+	 * The amount of successes ranges from zero to {@link #count}, with botches
+	 * from its negation to it. The amount of entries is an upper bound, as faces
+	 * of the base die might be successes or botches only.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = baseDie.estimate();
+		BigInteger entries = BigInteger.valueOf(count + 1L);
+		BigInteger terms = entries;
+		if (hasBotches()) {
+			entries = BigInteger.valueOf(2L * count + 1);
+			terms = terms.multiply(BigInteger.valueOf(count + 2L)).shiftRight(1);
+		}
+		return new CostEstimate(entries, false, hasBotches() ? -count : 0, count, 1, 1,
+				CostEstimate.costTerms(terms, terms.shiftLeft(2), terms, base));
+	}
+
+	/**
+	 * Counts the successes of every roll of the pool.
+	 * 
+	 * @implNote Uses singleton-maps as its keys, as those are unmodifiable.
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Counts the successes, while checking the given budget for every produced
+	 * entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			return cache.put(stamp, count(budget, baseDie.getAbsoluteFrequencies(budget)));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Works on the reduced frequencies of the base die and raises its scale to the
+	 * amount of dice.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies base = baseDie.getScaledFrequencies(budget);
+			return new ScaledFrequencies(base.getScale().pow(count), count(budget, base.getReduced()));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Requests the distributions of the successes for every distinct face of the
+	 * base die above the botch threshold as the success threshold.
+	 * 
+	 * @return A mapping from every success threshold to the distribution of the
+	 *         successes.
+	 * @see #getAllThresholds(EvaluationBudget)
+	 */
+	public NavigableMap<Integer, Map<Map<Integer, Integer>, BigInteger>> getAllThresholds() {
+		return getAllThresholds(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Requests the distributions of the successes for every distinct face of the
+	 * base die above the botch threshold as the success threshold, while checking
+	 * the given budget for every produced entry. The binomial coefficients are
+	 * computed only once, so without botches this costs {@code count × faces}
+	 * multiplications. The current {@link #successThreshold} is ignored and the
+	 * results are not cached.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A mapping from every success threshold to the distribution of the
+	 *         successes.
+	 */
+	public NavigableMap<Integer, Map<Map<Integer, Integer>, BigInteger>> getAllThresholds(
+			EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			TreeMap<Integer, BigInteger> faces = new TreeMap<Integer, BigInteger>();
+			for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : baseDie.getAbsoluteFrequencies(budget)
+					.entrySet()) {
+				faces.merge(baseEntry.getKey().keySet().iterator().next(), baseEntry.getValue(), BigInteger::add);
+			}
+			BigInteger total = BigInteger.ZERO, botches = BigInteger.ZERO;
+			for (Map.Entry<Integer, BigInteger> face : faces.entrySet()) {
+				total = total.add(face.getValue());
+				if (hasBotches() && face.getKey() <= botchThreshold) {
+					botches = botches.add(face.getValue());
+				}
+			}
+			BigInteger[][] binomials = binomials(hasBotches() ? count : 0);
+			NavigableMap<Integer, Map<Map<Integer, Integer>, BigInteger>> ret = new TreeMap<Integer, Map<Map<Integer, Integer>, BigInteger>>();
+			int produced = 0;
+			BigInteger successes = BigInteger.ZERO;
+			// Descending, so the successes of each threshold are a running sum.
+			for (Map.Entry<Integer, BigInteger> face : faces.descendingMap().entrySet()) {
+				if (hasBotches() && face.getKey() <= botchThreshold) {
+					break;
+				}
+				successes = successes.add(face.getValue());
+				BigInteger failures = total.subtract(successes).subtract(botches);
+				Map<Map<Integer, Integer>, BigInteger> distribution = distribute(budget, binomials, successes, botches,
+						failures);
+				ret.put(face.getKey(), distribution);
+				produced += distribution.size();
+				budget.checkSize(this, produced);
+			}
+			return ret;
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Splits the given frequencies of the base die and distributes the successes.
+	 * 
+	 * @param budget The budget of the current evaluation.
+	 * @param base   The frequencies of the base die.
+	 * @return A new mapping of the amounts of successes to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> count(EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> base) {
+		BigInteger successes = BigInteger.ZERO, botches = BigInteger.ZERO, failures = BigInteger.ZERO;
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> baseEntry : base.entrySet()) {
+			int face = baseEntry.getKey().keySet().iterator().next();
+			if (face >= successThreshold) {
+				successes = successes.add(baseEntry.getValue());
+			} else if (hasBotches() && face <= botchThreshold) {
+				botches = botches.add(baseEntry.getValue());
+			} else {
+				failures = failures.add(baseEntry.getValue());
+			}
+		}
+		return distribute(budget, binomials(hasBotches() ? count : 0), successes, botches, failures);
+	}
+
+	/**
+	 * Creates the rows of Pascal's triangle needed for the distribution.
+	 * 
+	 * @param botchRows The amount of additional rows needed for the botches, zero
+	 *                  if there are none.
+	 * @return The binomial coefficients of {@link #count} in the first row,
+	 *         followed by the ones of zero up to the given amount of rows.
+	 */
+	private BigInteger[][] binomials(int botchRows) {
+		BigInteger[][] ret = new BigInteger[botchRows + 2][];
+		ret[0] = Utils.binomials(count);
+		for (int row = 0; row <= botchRows; row++) {
+			ret[row + 1] = Utils.binomials(row);
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @param base
+	 * @return All powers of the base from zero up to {@link #count}.
+	 */
+	private BigInteger[] powers(BigInteger base) {
+		BigInteger[] ret = new BigInteger[count + 1];
+		ret[0] = BigInteger.ONE;
+		for (int exponent = 1; exponent <= count; exponent++) {
+			ret[exponent] = ret[exponent - 1].multiply(base);
+		}
+		return ret;
+	}
+
+	/**
+	 * Distributes the successes in closed form: Binomial without botches,
+	 * tri-nomial with them.
+	 * 
+	 * @param budget    The budget of the current evaluation.
+	 * @param binomials The binomial coefficients created by
+	 *                  {@link #binomials(int)}.
+	 * @param successes The total weight of all successful faces.
+	 * @param botches   The total weight of all botching faces.
+	 * @param failures  The total weight of all other faces.
+	 * @return A new mapping of the amounts of successes to their absolute
+	 *         frequencies.
+	 */
+	private Map<Map<Integer, Integer>, BigInteger> distribute(EvaluationBudget budget, BigInteger[][] binomials,
+			BigInteger successes, BigInteger botches, BigInteger failures) {
+		BigInteger[] successPowers = powers(successes), failurePowers = powers(failures);
+		budget.countMultiplications(this, 2L * count);
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+				estimate().getInitialCapacity(budget), 1.0f);
+		if (botches.signum() == 0) {
+			for (int hits = 0; hits <= count; hits++) {
+				BigInteger value = binomials[0][hits].multiply(successPowers[hits])
+						.multiply(failurePowers[count - hits]);
+				budget.countMultiplications(this, 2);
+				if (value.signum() != 0) {
+					Map<Integer, Integer> key = Collections.singletonMap(hits, 1);
+					ret.put(key, value);
+					budget.checkEntry(this, ret.size(), key, value);
+				}
+			}
+			return ret;
+		}
+		BigInteger[] botchPowers = powers(botches);
+		budget.countMultiplications(this, count);
+		for (int hits = 0; hits <= count; hits++) {
+			if (successPowers[hits].signum() == 0) {
+				break;
+			}
+			BigInteger[] remaining = binomials[count - hits + 1];
+			for (int misses = 0; misses <= count - hits; misses++) {
+				BigInteger value = binomials[0][hits].multiply(remaining[misses]).multiply(successPowers[hits])
+						.multiply(botchPowers[misses]).multiply(failurePowers[count - hits - misses]);
+				budget.countMultiplications(this, 4);
+				if (value.signum() != 0) {
+					Map<Integer, Integer> key = Collections.singletonMap(hits - misses, 1);
+					ret.merge(key, value, BigInteger::add);
+					budget.checkEntry(this, ret.size(), key, value);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + baseDie.hashCode();
+		result = prime * result + botchThreshold;
+		result = prime * result + count;
+		result = prime * result + successThreshold;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SuccessPool)) {
+			return false;
+		}
+		SuccessPool other = (SuccessPool) obj;
+		return baseDie.equals(other.baseDie) && count == other.count && successThreshold == other.successThreshold
+				&& botchThreshold == other.botchThreshold;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SuccessPool [baseDie=");
+		builder.append(baseDie);
+		builder.append(", count=");
+		builder.append(count);
+		builder.append(", successThreshold=");
+		builder.append(successThreshold);
+		builder.append(", botchThreshold=");
+		builder.append(botchThreshold);
+		builder.append("]");
+		return builder.toString();
+	}
+}
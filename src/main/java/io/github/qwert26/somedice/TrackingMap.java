@@ -0,0 +1,161 @@
+package io.github.qwert26.somedice;
+
+import java.util.*;
+
+/**
+ * A view of another map, which reports every modification made through it. This
+ * allows nodes to hand out their internal maps, while still being able to keep
+ * their modification stamps up to date.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @see AbstractDie#modified()
+ */
+final class TrackingMap<K, V> extends AbstractMap<K, V> {
+	/**
+	 * The actual map.
+	 */
+	private final Map<K, V> delegate;
+	/**
+	 * Gets called after every modification.
+	 */
+	private final Runnable onModification;
+	/**
+	 * The lazily created view of the entries.
+	 */
+	private Set<Map.Entry<K, V>> entries = null;
+
+	/**
+	 * Creates a new tracking view.
+	 * 
+	 * @param delegate       The actual map.
+	 * @param onModification Gets called after every modification.
+	 */
+	TrackingMap(Map<K, V> delegate, Runnable onModification) {
+		super();
+		this.delegate = Objects.requireNonNull(delegate);
+		this.onModification = Objects.requireNonNull(onModification);
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return delegate.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return delegate.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return delegate.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key) {
+		return delegate.get(key);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V ret = delegate.put(key, value);
+		onModification.run();
+		return ret;
+	}
+
+	@Override
+	public V remove(Object key) {
+		V ret = delegate.remove(key);
+		onModification.run();
+		return ret;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		delegate.putAll(m);
+		onModification.run();
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		onModification.run();
+	}
+
+	/**
+	 * The returned set reports removals through its iterator and changes through
+	 * {@link Map.Entry#setValue(Object)}.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entries == null) {
+			entries = new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public int size() {
+					return delegate.size();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return delegate.entrySet().contains(o);
+				}
+
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					Iterator<Map.Entry<K, V>> iterator = delegate.entrySet().iterator();
+					return new Iterator<Map.Entry<K, V>>() {
+						@Override
+						public boolean hasNext() {
+							return iterator.hasNext();
+						}
+
+						@Override
+						public Map.Entry<K, V> next() {
+							Map.Entry<K, V> entry = iterator.next();
+							return new AbstractMap.SimpleEntry<K, V>(entry) {
+								private static final long serialVersionUID = 1L;
+
+								@Override
+								public V setValue(V value) {
+									super.setValue(value);
+									V ret = entry.setValue(value);
+									onModification.run();
+									return ret;
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							iterator.remove();
+							onModification.run();
+						}
+					};
+				}
+			};
+		}
+		return entries;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || delegate.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+}
@@ -2,20 +2,40 @@ package io.github.qwert26.somedice;
 
 import java.math.BigInteger;
 import java.util.*;
-import java.util.function.Supplier;
+import java.util.function.*;
 
 /**
+ * <p>
  * A Die designed intentionally to be unfair. This can be user designed or the
  * result of a chain of manipulating actions. It can also mimic any other die.
+ * </p>
+ * <p>
+ * Internally, the faces and weights are also kept as sorted arrays together
+ * with their smallest and greatest face, their total weight and the greatest
+ * common divisor of the weights. These get rebuilt lazily after a modification.
+ * Dice created from arrays are backed by these arrays alone, until their data
+ * is requested as a map.
+ * </p>
  * 
  * @author <b>Qwert26</b>, main author
  * @see Compressor#toUnfairDie()
  */
 public final class UnfairDie extends AbstractDie {
 	/**
-	 * The internal mapping from values to frequencies.
+	 * The internal mapping from values to frequencies, <code>null</code> until
+	 * requested, if the die has been created from arrays.
 	 */
 	private Map<Integer, BigInteger> data = null;
+	/**
+	 * The view of the data handed out by {@link #getData()}, which reports every
+	 * modification.
+	 */
+	private Map<Integer, BigInteger> trackedData = null;
+	/**
+	 * The sorted arrays of the data, <code>null</code> if they need to be
+	 * rebuilt.
+	 */
+	private volatile FaceTable table = null;
 
 	/**
 	 * Creates a new empty die, ready to be filled with data.
@@ -28,8 +48,13 @@ public final class UnfairDie extends AbstractDie {
 
 	/**
 	 * Creates a new die with the data-field filled by the returned value of the
-	 * given supplier.
+	 * given supplier. Its entries are copied into a map owned by the die, so that
+	 * every later modification has to go through {@link #getData()} and can be
+	 * tracked: Writes to the supplied map itself are no longer seen by the die.
 	 * 
+	 * @implNote A supplied {@link SortedMap} is copied into a {@link TreeMap} with
+	 *           the same comparator, any other map into a {@link LinkedHashMap}
+	 *           keeping its iteration order.
 	 * @param dataCreator
 	 * @throws IllegalArgumentException If the given {@link Supplier} was
 	 *                                  <code>null</code>.
@@ -45,7 +70,77 @@ public final class UnfairDie extends AbstractDie {
 		if (temp == null) {
 			throw new NullPointerException("Supplier returned null via its get()-method.");
 		}
-		data = temp;
+		if (temp instanceof SortedMap<Integer, BigInteger> sorted) {
+			data = new TreeMap<Integer, BigInteger>(sorted);
+		} else {
+			data = new LinkedHashMap<Integer, BigInteger>(temp);
+		}
+		trackedData = new TrackingMap<Integer, BigInteger>(data, this::dataModified);
+	}
+
+	/**
+	 * Creates a new die backed by sorted arrays. The arrays do not need to be
+	 * sorted, weights of duplicated faces are added together.
+	 * 
+	 * @param faces   The faces of the die.
+	 * @param weights The absolute frequencies of the faces.
+	 * @throws IllegalArgumentException If either array was <code>null</code> or
+	 *                                  their lengths differ.
+	 * @throws NullPointerException     If a weight is <code>null</code>.
+	 */
+	public UnfairDie(int[] faces, BigInteger[] weights) {
+		this(toTable(faces, weights));
+	}
+
+	/**
+	 * Creates a new die backed by sorted arrays. The arrays do not need to be
+	 * sorted, weights of duplicated faces are added together.
+	 * 
+	 * @param faces   The faces of the die.
+	 * @param weights The absolute frequencies of the faces.
+	 * @throws IllegalArgumentException If either array was <code>null</code> or
+	 *                                  their lengths differ.
+	 */
+	public UnfairDie(int[] faces, long[] weights) {
+		this(toTable(faces, weights));
+	}
+
+	/**
+	 * Creates a new die backed by an already built table.
+	 * 
+	 * @param table
+	 */
+	UnfairDie(FaceTable table) {
+		super();
+		this.table = Objects.requireNonNull(table);
+	}
+
+	/**
+	 * 
+	 * @param faces
+	 * @param weights
+	 * @return The table of the arrays.
+	 * @throws IllegalArgumentException If either array was <code>null</code>.
+	 */
+	private static FaceTable toTable(int[] faces, BigInteger[] weights) {
+		if (faces == null || weights == null) {
+			throw new IllegalArgumentException("Faces and weights can not be null!");
+		}
+		return FaceTable.of(faces, weights);
+	}
+
+	/**
+	 * 
+	 * @param faces
+	 * @param weights
+	 * @return The table of the arrays.
+	 * @throws IllegalArgumentException If either array was <code>null</code>.
+	 */
+	private static FaceTable toTable(int[] faces, long[] weights) {
+		if (faces == null || weights == null) {
+			throw new IllegalArgumentException("Faces and weights can not be null!");
+		}
+		return FaceTable.of(faces, weights);
 	}
 
 	/**
@@ -64,7 +159,10 @@ public final class UnfairDie extends AbstractDie {
 		if (source != null) {
 			switch (source) {
 			case UnfairDie ud -> {
-				data.putAll(ud.data);
+				FaceTable other = ud.table();
+				for (int i = 0; i < other.size(); i++) {
+					data.put(other.face(i), other.weight(i));
+				}
 			}
 			case SingleDie sd -> {
 				for (int i = 1; i < sd.getMaximum(); i++) {
@@ -91,14 +189,109 @@ public final class UnfairDie extends AbstractDie {
 	}
 
 	/**
-	 * @implSpec Returns the actual object, as {@code UnfairDie}s are expected to
-	 *           operate via side-effects.
+	 * @implSpec Returns a view of the actual object, as {@code UnfairDie}s are
+	 *           expected to operate via side-effects. Every modification through
+	 *           the view updates the modification stamp and the sorted arrays.
+	 *           A map given by a {@link Supplier} at construction has been
+	 *           copied, so this view is the only way to modify the die.
 	 * @return The internal mapping of distinct values to absolute frequencies.
 	 */
 	public final Map<Integer, BigInteger> getData() {
+		data();
+		return trackedData;
+	}
+
+	/**
+	 * Creates the map from the table, if the die has been created from arrays.
+	 * 
+	 * @return The internal mapping.
+	 */
+	private synchronized Map<Integer, BigInteger> data() {
+		if (data == null) {
+			data = table.toMap();
+			trackedData = new TrackingMap<Integer, BigInteger>(data, this::dataModified);
+		}
 		return data;
 	}
 
+	/**
+	 * Gets called after every modification of the data.
+	 */
+	private void dataModified() {
+		table = null;
+		modified();
+	}
+
+	/**
+	 * Rebuilding takes the same lock as {@link #data()}, which writes the
+	 * data-field.
+	 * 
+	 * @return The sorted arrays of the data, rebuilt if needed.
+	 */
+	final FaceTable table() {
+		FaceTable ret = table;
+		if (ret == null) {
+			synchronized (this) {
+				ret = table;
+				if (ret == null) {
+					ret = FaceTable.of(data);
+					table = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * 
+	 * @return The sorted, distinct faces.
+	 */
+	public final int[] getFaces() {
+		return table().faces();
+	}
+
+	/**
+	 * 
+	 * @return The weights in the order of {@link #getFaces()}.
+	 */
+	public final BigInteger[] getWeights() {
+		return table().weights();
+	}
+
+	/**
+	 * 
+	 * @return The smallest face.
+	 * @throws NoSuchElementException If the die is empty.
+	 */
+	public final int getMinimum() {
+		return table().min();
+	}
+
+	/**
+	 * 
+	 * @return The greatest face.
+	 * @throws NoSuchElementException If the die is empty.
+	 */
+	public final int getMaximum() {
+		return table().max();
+	}
+
+	/**
+	 * 
+	 * @return The sum of all weights, zero for an empty die.
+	 */
+	public final BigInteger getTotalWeight() {
+		return table().total();
+	}
+
+	/**
+	 * 
+	 * @return The greatest common divisor of all weights, zero for an empty die.
+	 */
+	public final BigInteger getWeightGcd() {
+		return table().gcd();
+	}
+
 	/**
 	 * Implements the default rule for exploding. An empty UnfairDie however is
 	 * unable to explode.
@@ -109,12 +302,8 @@ public final class UnfairDie extends AbstractDie {
 	 * @see DiceExploder
 	 */
 	public final boolean explodesOn(int value) {
-		OptionalInt result = data.keySet().stream().mapToInt(Integer::intValue).max();
-		if (result.isEmpty()) {
-			return false;
-		} else {
-			return value == result.getAsInt();
-		}
+		FaceTable current = table();
+		return current.size() > 0 && value == current.max();
 	}
 
 	/**
@@ -122,21 +311,72 @@ public final class UnfairDie extends AbstractDie {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(data.size(), 1.0f);
-		for (Map.Entry<Integer, BigInteger> entry : data.entrySet()) {
-			ret.put(Collections.singletonMap(entry.getKey(), 1), entry.getValue());
+		FaceTable current = table();
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(current.size(),
+				1.0f);
+		for (int i = 0; i < current.size(); i++) {
+			ret.put(Collections.singletonMap(current.face(i), 1), current.weight(i));
 		}
 		return ret;
 	}
 
 	/**
-	 * Delegates to the <code>size()</code>-method of the underlying map.
-	 * 
-	 * @see Map#size()
+	 * Divides the weights by their cached greatest common divisor.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		FaceTable current = table();
+		BigInteger divisor = current.gcd();
+		if (divisor.compareTo(BigInteger.ONE) <= 0) {
+			return ScaledFrequencies.of(getAbsoluteFrequencies(budget));
+		}
+		budget.enter(this);
+		try {
+			Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(
+					current.size(), 1.0f);
+			for (int i = 0; i < current.size(); i++) {
+				ret.put(Collections.singletonMap(current.face(i), 1), current.weight(i).divide(divisor));
+			}
+			return new ScaledFrequencies(divisor, budget.checkResult(this, ret));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Delegates to the sorted arrays.
 	 */
 	@Override
 	public int getDistinctValues() {
-		return data.size();
+		return table().size();
+	}
+
+	/**
+	 * Tests the faces of the sorted arrays.
+	 */
+	@Override
+	int countValues(IntPredicate predicate) {
+		FaceTable current = table();
+		int ret = 0;
+		for (int index = 0; index < current.size(); index++) {
+			if (predicate.test(current.face(index))) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return An exact estimate with the values from the smallest to the greatest
+	 *         key of the backing map. An empty die has the range {@code [0; 0]}.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		FaceTable current = table();
+		if (current.size() == 0) {
+			return CostEstimate.ofDie(0, 0, 0);
+		}
+		return CostEstimate.ofDie(current.size(), current.min(), current.max());
 	}
 
 	/**
@@ -146,7 +386,7 @@ public final class UnfairDie extends AbstractDie {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + data.hashCode();
+		result = prime * result + table().hashCode();
 		return result;
 	}
 
@@ -162,7 +402,7 @@ public final class UnfairDie extends AbstractDie {
 			return false;
 		}
 		UnfairDie other = (UnfairDie) obj;
-		if (!data.equals(other.data)) {
+		if (!table().equals(other.table())) {
 			return false;
 		}
 		return true;
@@ -175,7 +415,7 @@ public final class UnfairDie extends AbstractDie {
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
 		builder.append("UnfairDie [data=");
-		builder.append(data);
+		builder.append(data());
 		builder.append("]");
 		return builder.toString();
 	}
@@ -2,7 +2,9 @@ package io.github.qwert26.somedice;
 
 import java.math.*;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.*;
 
 /**
  * Contains various utility methods, mostly math-related.
@@ -10,6 +12,19 @@ import java.util.stream.IntStream;
  * @author <b>Qwert26</b>, main author
  */
 public final class Utils {
+	/**
+	 * The source of all modification stamps, shared by all nodes so stamps of
+	 * different nodes can be compared with each other.
+	 */
+	private static final AtomicLong MODIFICATION_STAMPS = new AtomicLong();
+	/**
+	 * The default amount of entries of a source, from which on the unary operators
+	 * map and reduce them in parallel.
+	 * 
+	 * @see #mapKeys(IDie, EvaluationBudget, Map, UnaryOperator, int)
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
 	/**
 	 * No instances are allowed.
 	 * 
@@ -155,6 +170,182 @@ public final class Utils {
 		return ret;
 	}
 
+	/**
+	 * Computes a whole row of Pascal's triangle, each coefficient from the
+	 * preceding one.
+	 * 
+	 * @param total
+	 * @throws IllegalArgumentException If {@code total} is negative.
+	 * @return The binomial coefficients {@code total}C{@code 0} up to
+	 *         {@code total}C{@code total}.
+	 * @see #binomial(int, int)
+	 */
+	public static final BigInteger[] binomials(int total) {
+		if (total < 0) {
+			throw new IllegalArgumentException("Binomial coefficients of negative totals are not defined!");
+		}
+		BigInteger[] ret = new BigInteger[total + 1];
+		ret[0] = BigInteger.ONE;
+		for (int group = 0; group < total; group++) {
+			ret[group + 1] = ret[group].multiply(BigInteger.valueOf(total - group))
+					.divide(BigInteger.valueOf(group + 1));
+		}
+		return ret;
+	}
+
+	/**
+	 * Computes the amount of multi-sets of size {@code size}, whose elements are
+	 * taken from {@code distinct} different values. This is the amount of distinct
+	 * results of a {@link HomogeneousDiceGroup}.
+	 * 
+	 * @param distinct The amount of different values.
+	 * @param size     The size of each multi-set.
+	 * @throws IllegalArgumentException If either parameter is negative.
+	 * @return {@code (distinct+size-1)C(size)}, {@code 1} for an empty multi-set.
+	 */
+	public static final BigInteger multichoose(int distinct, int size) {
+		if (distinct < 0 || size < 0) {
+			throw new IllegalArgumentException("Multi-sets of negative sizes are not defined!");
+		}
+		if (size == 0) {
+			return BigInteger.ONE;
+		}
+		if (distinct == 0) {
+			return BigInteger.ZERO;
+		}
+		return binomial(Math.addExact(distinct, size - 1), size);
+	}
+
+	/**
+	 * Adds two integers, but instead of overflowing, the result sticks to the
+	 * bounds of {@code int}.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return {@code a+b}, clamped to the interval
+	 *         {@code [Integer.MIN_VALUE; Integer.MAX_VALUE]}.
+	 */
+	public static final int saturatedAdd(int a, int b) {
+		return Math.clamp((long) a + b, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the natural logarithm of numbers, which might be too large for a
+	 * {@code double}.
+	 * 
+	 * @param value A positive number.
+	 * @return The natural logarithm of the given number.
+	 * @throws IllegalArgumentException If the number is not positive.
+	 */
+	public static final double log(BigInteger value) {
+		if (value.signum() <= 0) {
+			throw new IllegalArgumentException("Only positive numbers have a logarithm!");
+		}
+		int shift = value.bitLength() - Double.MAX_EXPONENT;
+		if (shift <= 0) {
+			return Math.log(value.doubleValue());
+		}
+		return Math.log(value.shiftRight(shift).doubleValue()) + shift * Math.log(2);
+	}
+
+	/**
+	 * Maps every key of a result to a new key and adds up the frequencies of
+	 * colliding new keys. Results with at least the given amount of entries are
+	 * split by the {@link Spliterator} of their entries into partial maps per
+	 * thread, which are merged at the end. As the addition of {@link BigInteger}s
+	 * is exact, the merged result is identical to the sequential one. A
+	 * {@link EvaluationBudget#isLimited() limited} budget keeps the mapping
+	 * sequential, so its limits are checked for every entry on the way.
+	 * 
+	 * @param node              The node doing the mapping.
+	 * @param budget            The budget of the current evaluation. In parallel,
+	 *                          it only records the merged result, as it has no
+	 *                          limits to check.
+	 * @param source            The result to map.
+	 * @param mapping           The mapping of the keys, it has to be thread-safe.
+	 *                          The new keys must not be modified afterwards.
+	 * @param parallelThreshold The amount of entries, from which on the mapping is
+	 *                          done in parallel.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return A new mapping of the new keys to their absolute frequencies.
+	 */
+	public static final Map<Map<Integer, Integer>, BigInteger> mapKeys(IDie node, EvaluationBudget budget,
+			Map<Map<Integer, Integer>, BigInteger> source, UnaryOperator<Map<Integer, Integer>> mapping,
+			int parallelThreshold) {
+		if (source.size() >= parallelThreshold && !budget.isLimited()) {
+			EvaluationProfiler.Workers workers = budget.workers(node);
+			Map<Map<Integer, Integer>, BigInteger> ret = source.entrySet().parallelStream().collect(
+					Collectors.toMap(entry -> {
+						workers.join();
+						return mapping.apply(entry.getKey());
+					}, Map.Entry::getValue, BigInteger::add, HashMap::new));
+			workers.finish();
+			return budget.checkResult(node, ret);
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(source.size());
+		source.forEach((key, frequency) -> {
+			Map<Integer, Integer> nextKey = mapping.apply(key);
+			BigInteger merged = ret.merge(nextKey, frequency, BigInteger::add);
+			budget.checkEntry(node, ret.size(), nextKey, merged);
+		});
+		return ret;
+	}
+
+	/**
+	 * Maps every key of approximated probabilities to a new key and adds up the
+	 * probabilities of colliding new keys with a compensated summation. This is
+	 * always done sequentially: The order of the additions changes the rounding,
+	 * so a parallel reduction would not reproduce the sequential result.
+	 * 
+	 * @param node    The node doing the mapping.
+	 * @param budget  The budget of the current evaluation.
+	 * @param source  The probabilities to map.
+	 * @param mapping The mapping of the keys. The new keys must not be modified
+	 *                afterwards.
+	 * @throws BudgetExceededException If any limit of the budget has been exceeded.
+	 * @return The probabilities of the new keys.
+	 * @see #mapKeys(IDie, EvaluationBudget, Map, UnaryOperator, int)
+	 */
+	public static final Probabilities mapKeys(IDie node, EvaluationBudget budget, Probabilities source,
+			UnaryOperator<Map<Integer, Integer>> mapping) {
+		ProbabilityAccumulator accumulator = new ProbabilityAccumulator(source.isLogSpace());
+		source.getValues().forEach((key, probability) -> {
+			Map<Integer, Integer> nextKey = mapping.apply(key);
+			accumulator.add(nextKey, probability, source.getRelativeErrorBound());
+			budget.checkEntry(node, accumulator.size(), nextKey);
+		});
+		return accumulator.toProbabilities();
+	}
+
+	/**
+	 * Creates a new modification stamp, which is greater than all previously
+	 * created ones.
+	 * 
+	 * @return A new modification stamp.
+	 * @see IDie#getModificationStamp()
+	 */
+	public static final long nextModificationStamp() {
+		return MODIFICATION_STAMPS.incrementAndGet();
+	}
+
+	/**
+	 * Combines the modification stamp of a node with the ones of its sources. As
+	 * every modification creates a greater stamp, the maximum changes whenever the
+	 * node or any of its transitive sources has been modified.
+	 * 
+	 * @param own     The modification stamp of the node itself.
+	 * @param sources The sources of the node.
+	 * @return The greatest of all the stamps.
+	 * @see IDie#getModificationStamp()
+	 */
+	public static final long modificationStamp(long own, IDie... sources) {
+		long ret = own;
+		for (IDie source : sources) {
+			ret = Math.max(ret, source.getModificationStamp());
+		}
+		return ret;
+	}
+
 	/**
 	 * Creates a new random {@code BigInteger} having a value from the interval
 	 * {@code [rangeStart; rangeEnd]}. It uses the given random-instance to make its
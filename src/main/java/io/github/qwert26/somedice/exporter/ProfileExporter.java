@@ -0,0 +1,149 @@
+package io.github.qwert26.somedice.exporter;
+
+import java.util.Locale;
+
+import io.github.qwert26.somedice.*;
+
+/**
+ * Renders an {@link EvaluationProfile} as an indented text tree or as JSON.
+ * Nodes are named by their class and, if possible, by the notation of the
+ * {@link StringExporter}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ * @see EvaluationBudget#profiling()
+ */
+public final class ProfileExporter {
+	/**
+	 * @throws UnsupportedOperationException Any instances are not allowed.
+	 */
+	private ProfileExporter() {
+		super();
+		throw new UnsupportedOperationException("Instances of ProfileExporters are not allowed.");
+	}
+
+	/**
+	 * Renders the profile as an indented tree, one node per line. Times are given
+	 * in milliseconds, unsupported measurements as {@code n/a}.
+	 * 
+	 * @param profile
+	 * @return The rendered tree, empty if the profile is <code>null</code>.
+	 */
+	public static final String toText(EvaluationProfile profile) {
+		StringBuilder builder = new StringBuilder();
+		if (profile != null) {
+			appendText(builder, profile, 0);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Renders the profile as a single JSON-object. Times are given in nanoseconds,
+	 * unsupported measurements as {@code -1}.
+	 * 
+	 * @param profile
+	 * @return The rendered object, the literal {@code null} if the profile is
+	 *         <code>null</code>.
+	 */
+	public static final String toJson(EvaluationProfile profile) {
+		StringBuilder builder = new StringBuilder();
+		if (profile == null) {
+			builder.append("null");
+		} else {
+			appendJson(builder, profile);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Names a node by its notation.
+	 * 
+	 * @param node
+	 * @return The notation of the node, empty if the {@link StringExporter} does
+	 *         not know the node.
+	 */
+	private static String notation(IDie node) {
+		try {
+			return StringExporter.export(node);
+		} catch (IllegalArgumentException e) {
+			return "";
+		}
+	}
+
+	private static void appendText(StringBuilder builder, EvaluationProfile profile, int depth) {
+		builder.append("  ".repeat(depth));
+		builder.append(profile.getNode().getClass().getSimpleName());
+		String notation = notation(profile.getNode());
+		if (!notation.isEmpty()) {
+			builder.append(' ').append(notation);
+		}
+		builder.append(" calls=").append(profile.getInvocations());
+		builder.append(" wall=").append(millis(profile.getWallNanos()));
+		builder.append(" self=").append(millis(profile.getSelfWallNanos()));
+		builder.append(" cpu=").append(millis(profile.getCpuNanos()));
+		builder.append(" allocated=");
+		if (profile.getAllocatedBytes() < 0) {
+			builder.append("n/a");
+		} else {
+			builder.append(profile.getAllocatedBytes()).append('B');
+		}
+		builder.append(" produced=").append(profile.getProducedEntries());
+		builder.append(" consumed=").append(profile.getConsumedEntries());
+		builder.append(" multiplications=").append(profile.getMultiplications());
+		builder.append(System.lineSeparator());
+		for (EvaluationProfile child : profile.getChildren()) {
+			appendText(builder, child, depth + 1);
+		}
+	}
+
+	private static void appendJson(StringBuilder builder, EvaluationProfile profile) {
+		builder.append("{\"type\":");
+		appendJsonString(builder, profile.getNode().getClass().getSimpleName());
+		builder.append(",\"notation\":");
+		appendJsonString(builder, notation(profile.getNode()));
+		builder.append(",\"invocations\":").append(profile.getInvocations());
+		builder.append(",\"wallNanos\":").append(profile.getWallNanos());
+		builder.append(",\"selfWallNanos\":").append(profile.getSelfWallNanos());
+		builder.append(",\"cpuNanos\":").append(profile.getCpuNanos());
+		builder.append(",\"allocatedBytes\":").append(profile.getAllocatedBytes());
+		builder.append(",\"producedEntries\":").append(profile.getProducedEntries());
+		builder.append(",\"consumedEntries\":").append(profile.getConsumedEntries());
+		builder.append(",\"multiplications\":").append(profile.getMultiplications());
+		builder.append(",\"children\":[");
+		boolean first = true;
+		for (EvaluationProfile child : profile.getChildren()) {
+			if (!first) {
+				builder.append(',');
+			}
+			appendJson(builder, child);
+			first = false;
+		}
+		builder.append("]}");
+	}
+
+	private static void appendJsonString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '"', '\\' -> builder.append('\\').append(c);
+			case '\n' -> builder.append("\\n");
+			case '\r' -> builder.append("\\r");
+			case '\t' -> builder.append("\\t");
+			default -> {
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+			}
+		}
+		builder.append('"');
+	}
+
+	private static String millis(long nanos) {
+		if (nanos < 0) {
+			return "n/a";
+		}
+		return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0);
+	}
+}
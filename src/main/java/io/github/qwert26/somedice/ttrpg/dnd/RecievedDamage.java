@@ -32,6 +32,19 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 * differentiate here, it is just a {@code boolean}.
 	 */
 	private boolean vulnerability = false;
+	/**
+	 * The stamp of the last modification of this node itself.
+	 */
+	private volatile long modificationStamp = Utils.nextModificationStamp();
+	/**
+	 * The result of the last evaluation.
+	 */
+	private final transient ResultCache cache = new ResultCache();
+	/**
+	 * The amount of entries of the source, from which on they are mapped and
+	 * reduced in parallel.
+	 */
+	private int parallelThreshold = Utils.DEFAULT_PARALLEL_THRESHOLD;
 
 	/**
 	 * Uses a {@link Compressor} as its source, as it produces value counts of 1.
@@ -72,6 +85,7 @@ public class RecievedDamage implements IDie, IRequiresSource {
 			throw new IllegalArgumentException("Reduction can not be negative.");
 		}
 		this.reduction = reduction;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -90,6 +104,7 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 */
 	public final void setResistance(boolean resistance) {
 		this.resistance = resistance;
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -108,6 +123,34 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 */
 	public final void setVulnerability(boolean vulnerability) {
 		this.vulnerability = vulnerability;
+		modificationStamp = Utils.nextModificationStamp();
+	}
+
+	/**
+	 * 
+	 * @return The amount of entries of the source, from which on they are mapped
+	 *         and reduced in parallel.
+	 */
+	public final int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Results are identical for every threshold, so the cached one stays valid.
+	 * Evaluations under a {@link EvaluationBudget#isLimited() limited} budget
+	 * ignore the threshold and stay sequential.
+	 * 
+	 * @param parallelThreshold The amount of entries of the source, from which on
+	 *                          they are mapped and reduced in parallel.
+	 *                          {@link Integer#MAX_VALUE} effectively disables it.
+	 * @throws IllegalArgumentException If the threshold is not positive.
+	 * @see Utils#mapKeys(IDie, EvaluationBudget, Map, java.util.function.UnaryOperator, int)
+	 */
+	public final void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("The parallel threshold must be positive!");
+		}
+		this.parallelThreshold = parallelThreshold;
 	}
 
 	/**
@@ -169,6 +212,7 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 */
 	public final void setSource(Compressor source) {
 		this.source = Objects.requireNonNull(source, "Compressor-Source can not be null!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -178,6 +222,7 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 */
 	public final void setSource(UnfairDie source) {
 		this.source = Objects.requireNonNull(source, "UnfairDie-Source can not be null!");
+		modificationStamp = Utils.nextModificationStamp();
 	}
 
 	/**
@@ -191,6 +236,47 @@ public class RecievedDamage implements IDie, IRequiresSource {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getModificationStamp() {
+		return Utils.modificationStamp(modificationStamp, source);
+	}
+
+	/**
+	 * All modifiers keep the order of damage values, so the range of the result
+	 * is the modified range of the source. The amount of entries is bounded by the
+	 * amount of entries of the source and by that range.
+	 * 
+	 * @return The estimate, or {@link CostEstimate#UNKNOWN} if the source is
+	 *         unknown.
+	 */
+	@Override
+	public CostEstimate estimate() {
+		CostEstimate base = source.estimate();
+		if (!base.isKnown()) {
+			return CostEstimate.UNKNOWN;
+		}
+		int minValue = modify(base.getMinValue()), maxValue = modify(base.getMaxValue());
+		BigInteger entries = base.getEntries().min(BigInteger.valueOf((long) maxValue - minValue + 1));
+		return new CostEstimate(entries, false, minValue, maxValue, 1, 1,
+				CostEstimate.costTerms(base.getEntries(), BigInteger.ZERO, base.getEntries(), base));
+	}
+
+	/**
+	 * Applies all modifiers to a single damage value.
+	 * 
+	 * @param value The unmodified damage.
+	 * @return The modified damage.
+	 */
+	private int modify(int value) {
+		value = Math.max(0, value - reduction);
+		value = resistance ? Math.ceilDiv(value, 2) : value;
+		value *= vulnerability ? 2 : 1;
+		return value;
+	}
+
 	/**
 	 * Calculates the damage distribution. The order of modifiers are:
 	 * <ol>
@@ -204,22 +290,72 @@ public class RecievedDamage implements IDie, IRequiresSource {
 	 */
 	@Override
 	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies() {
-		Map<Map<Integer, Integer>, BigInteger> result = source.getAbsoluteFrequencies();
-		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>(result.size(),
-				1.0f);
-		for (Map.Entry<Map<Integer, Integer>, BigInteger> resultEntry : result.entrySet()) {
-			Map.Entry<Integer, Integer> valueCount = resultEntry.getKey().entrySet().iterator().next();
-			// Compressor and UnfairDie both produce valueCounts, where the count is always
-			// equal to 1.
-			int value = valueCount.getKey();
-			value = Math.max(0, value - reduction);
-			value = resistance ? Math.ceilDiv(value, 2) : value;
-			value *= vulnerability ? 2 : 1;
-			Map<Integer, Integer> newKey = Collections.singletonMap(value, 1);
-			ret.compute(newKey,
-					(_, frequency) -> resultEntry.getValue().add(frequency == null ? BigInteger.ZERO : frequency));
+		return getAbsoluteFrequencies(EvaluationBudget.UNLIMITED);
+	}
+
+	/**
+	 * Calculates the damage distribution, while checking the given budget for
+	 * every entry.
+	 * 
+	 * @see #getAbsoluteFrequencies()
+	 */
+	@Override
+	public Map<Map<Integer, Integer>, BigInteger> getAbsoluteFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			long stamp = getModificationStamp();
+			Map<Map<Integer, Integer>, BigInteger> cached = cache.get(stamp);
+			if (cached != null) {
+				return cached;
+			}
+			Map<Map<Integer, Integer>, BigInteger> result = source.getAbsoluteFrequencies(budget);
+			return cache.put(stamp, Utils.mapKeys(this, budget, result, this::modifyKey, parallelThreshold));
+		} finally {
+			budget.exit(this);
 		}
-		return ret;
+	}
+
+	/**
+	 * Calculates the damage distribution on the reduced frequencies of the source
+	 * and keeps its scale.
+	 */
+	@Override
+	public ScaledFrequencies getScaledFrequencies(EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			ScaledFrequencies scaled = source.getScaledFrequencies(budget);
+			return new ScaledFrequencies(scaled.getScale(),
+					Utils.mapKeys(this, budget, scaled.getReduced(), this::modifyKey, parallelThreshold));
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Calculates the damage distribution on the approximated probabilities of the
+	 * source. Probabilities of damage values, which become the same, are added up
+	 * with a compensated summation.
+	 */
+	@Override
+	public Probabilities getProbabilities(boolean logSpace, EvaluationBudget budget) {
+		budget.enter(this);
+		try {
+			return Utils.mapKeys(this, budget, source.getProbabilities(logSpace, budget), this::modifyKey);
+		} finally {
+			budget.exit(this);
+		}
+	}
+
+	/**
+	 * Modifies the single value of a key of the source.
+	 * 
+	 * @param key A key of the source.
+	 * @return An unmodifiable mapping of the received damage to one.
+	 */
+	private Map<Integer, Integer> modifyKey(Map<Integer, Integer> key) {
+		// Compressor and UnfairDie both produce valueCounts, where the count is always
+		// equal to 1.
+		return Collections.singletonMap(modify(key.keySet().iterator().next()), 1);
 	}
 
 	/**
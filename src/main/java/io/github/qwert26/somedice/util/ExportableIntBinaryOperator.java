@@ -0,0 +1,52 @@
+package io.github.qwert26.somedice.util;
+
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * The primitive version of {@link ExportableToIntBiFunction}: Boxed arguments
+ * get unboxed and handed to {@link #applyAsInt(int, int)}, so it can be used
+ * wherever either of them is expected.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public interface ExportableIntBinaryOperator extends IntBinaryOperator, ExportableToIntBiFunction<Integer, Integer> {
+	/**
+	 * Unboxes both arguments.
+	 */
+	@Override
+	default int applyAsInt(Integer left, Integer right) {
+		return applyAsInt(left.intValue(), right.intValue());
+	}
+
+	/**
+	 * Gives a primitive operator an exportable description.
+	 * 
+	 * @param operator
+	 * @param export   The description of the operator.
+	 * @return A new operator, which uses its description as its string
+	 *         representation as well.
+	 * @throws NullPointerException If any of the parameters are
+	 *                              <code>null</code>.
+	 */
+	static ExportableIntBinaryOperator of(IntBinaryOperator operator, String export) {
+		Objects.requireNonNull(operator, "An operator must be given!");
+		Objects.requireNonNull(export, "A description must be given!");
+		return new ExportableIntBinaryOperator() {
+			@Override
+			public int applyAsInt(int left, int right) {
+				return operator.applyAsInt(left, right);
+			}
+
+			@Override
+			public String export() {
+				return export;
+			}
+
+			@Override
+			public String toString() {
+				return export;
+			}
+		};
+	}
+}
@@ -0,0 +1,115 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link BagGroup} against drawing every combination of single
+ * tokens by hand.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestBagGroup {
+	/**
+	 * Draws every combination of distinguishable tokens.
+	 * 
+	 * @param tokens The values of all tokens.
+	 * @param next   The first token, that can still be drawn.
+	 * @param left   The amount of tokens to draw.
+	 * @param drawn  The tokens drawn so far.
+	 * @param ret    The drawn multi-sets.
+	 */
+	private static void draw(int[] tokens, int next, int left, Map<Integer, Integer> drawn,
+			Map<Map<Integer, Integer>, BigInteger> ret) {
+		if (left == 0) {
+			ret.merge(new TreeMap<Integer, Integer>(drawn), BigInteger.ONE, BigInteger::add);
+			return;
+		}
+		for (int token = next; token <= tokens.length - left; token++) {
+			drawn.merge(tokens[token], 1, Integer::sum);
+			draw(tokens, token + 1, left - 1, drawn, ret);
+			drawn.computeIfPresent(tokens[token], (_, amount) -> amount == 1 ? null : amount - 1);
+		}
+	}
+
+	/**
+	 * 
+	 * @param group
+	 * @return The multi-sets of all combinations of tokens.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> drawn(BagGroup group) {
+		List<Integer> tokens = new ArrayList<Integer>();
+		group.getBag().getData()
+				.forEach((value, amount) -> tokens.addAll(Collections.nCopies(amount.intValue(), value)));
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		draw(tokens.stream().mapToInt(Integer::intValue).toArray(), 0, group.getCount(),
+				new TreeMap<Integer, Integer>(), ret);
+		return ret;
+	}
+
+	@Test
+	void testAgainstCombinations() {
+		UnfairDie bag = new UnfairDie(new int[] { 1, 2, 5, 7 }, new long[] { 3, 2, 4, 1 });
+		BagGroup group = new BagGroup(bag, 1);
+		for (int count = 1; count <= 10; count++) {
+			group.setCount(count);
+			Map<Map<Integer, Integer>, BigInteger> result = group.getAbsoluteFrequencies();
+			assertEquals(drawn(group), result);
+			assertEquals(Utils.binomial(10, count), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		}
+	}
+
+	/**
+	 * A single draw is the bag itself.
+	 */
+	@Test
+	void testSingleDraw() {
+		UnfairDie bag = new UnfairDie(new int[] { -1, 0, 1 }, new long[] { 4, 2, 6 });
+		assertEquals(bag.getAbsoluteFrequencies(), new BagGroup(bag, 1).getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Drawing two cards of a deck of 52 cards, of which 16 are worth ten.
+	 */
+	@Test
+	void testDeck() {
+		Map<Integer, BigInteger> deck = new HashMap<Integer, BigInteger>();
+		for (int value = 2; value <= 9; value++) {
+			deck.put(value, BigInteger.valueOf(4));
+		}
+		deck.put(10, BigInteger.valueOf(16));
+		deck.put(11, BigInteger.valueOf(4));
+		BagGroup group = new BagGroup(new UnfairDie(() -> deck), 2);
+		Map<Map<Integer, Integer>, BigInteger> result = group.getAbsoluteFrequencies();
+		// A natural 21: An ace and a card worth ten.
+		assertEquals(BigInteger.valueOf(64), result.get(Map.of(10, 1, 11, 1)));
+		assertEquals(BigInteger.valueOf(6), result.get(Map.of(11, 2)));
+		assertEquals(BigInteger.valueOf(1326), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		assertSame(result, group.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testArguments() {
+		UnfairDie bag = new UnfairDie(new int[] { 1, 2 }, new long[] { 1, 2 });
+		assertThrows(NullPointerException.class, () -> new BagGroup(null, 1));
+		assertThrows(IllegalArgumentException.class, () -> new BagGroup(bag, 0));
+		assertThrows(IllegalStateException.class, () -> new BagGroup(bag, 4).getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Changes to the bag are picked up.
+	 */
+	@Test
+	void testModifiedBag() {
+		UnfairDie bag = new UnfairDie(new int[] { 1, 2 }, new long[] { 1, 2 });
+		BagGroup group = new BagGroup(bag, 2);
+		assertEquals(2, group.getAbsoluteFrequencies().size());
+		bag.getData().put(1, BigInteger.TWO);
+		assertEquals(drawn(group), group.getAbsoluteFrequencies());
+		assertEquals(3, group.getAbsoluteFrequencies().size());
+	}
+}
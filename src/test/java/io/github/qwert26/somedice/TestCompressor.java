@@ -1,7 +1,11 @@
 package io.github.qwert26.somedice;
 
+import java.math.BigInteger;
+import java.util.Map;
 import java.util.function.*;
 
+import io.github.qwert26.somedice.util.ExportableToIntBiFunction;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -228,4 +232,89 @@ public class TestCompressor {
 		Compressor second = new Compressor(DiceCollection.DICE_10_TO_100_IN_10);
 		assertFalse(first.equals(second));
 	}
+
+	/**
+	 * The parallel path checks the finished map once per compressed value, while
+	 * the streaming path checks every combination of the source on its way in. The
+	 * produced entries of the profile tell both paths apart, their results must
+	 * not.
+	 */
+	@Test
+	void checkParallel() {
+		IDie source = new MixedDiceGroup(new HomogeneousDiceGroup(new SingleDie(6), 6), new SingleDie(20));
+		int combinations = source.getAbsoluteFrequencies().size();
+		Compressor sequential = new Compressor(source, (v, c) -> v * v * c, Math::addExact);
+		sequential.setParallelThreshold(Integer.MAX_VALUE);
+		Compressor parallel = new Compressor(source, sequential.getValueCountFunction(), sequential.getAccumulator());
+		parallel.setParallelThreshold(1);
+		EvaluationBudget sequentialBudget = EvaluationBudget.profiling();
+		Map<Map<Integer, Integer>, BigInteger> expected = sequential.getAbsoluteFrequencies(sequentialBudget);
+		assertEquals(combinations, sequentialBudget.getProfile().getProducedEntries());
+		EvaluationBudget parallelBudget = EvaluationBudget.profiling();
+		assertEquals(expected, parallel.getAbsoluteFrequencies(parallelBudget));
+		assertTrue(expected.size() < combinations);
+		assertEquals(expected.size(), parallelBudget.getProfile().getProducedEntries());
+		assertEquals(sequential.getScaledFrequencies(), parallel.getScaledFrequencies());
+		assertThrows(IllegalArgumentException.class, () -> parallel.setParallelThreshold(0));
+	}
+
+	/**
+	 * A spilling group has a large, known estimate. It must still be streamed
+	 * partition by partition, as collecting it for the parallel path is not
+	 * possible anymore.
+	 */
+	@Test
+	void checkParallelSpilling() {
+		MixedDiceGroup source = new MixedDiceGroup(new SingleDie(12), new SingleDie(10), FudgeDie.INSTANCE);
+		Compressor expected = new Compressor(new MixedDiceGroup(source.getSources()));
+		source.setSpillThreshold(1);
+		Compressor spilled = new Compressor(source);
+		spilled.setParallelThreshold(1);
+		assertEquals(expected.getAbsoluteFrequencies(), spilled.getAbsoluteFrequencies());
+		assertEquals(expected.getAbsoluteFrequencies(), spilled.toUnfairDie().getAbsoluteFrequencies());
+	}
+
+	/**
+	 * The specialized kernels of the built-in compressions must produce the same
+	 * results as generic lambdas.
+	 */
+	@Test
+	void checkBuiltIns() {
+		for (IDie source : new IDie[] { new HomogeneousDiceGroup(new SingleDie(6), 5),
+				new MixedDiceGroup(new SingleDie(4), new SingleDie(8), FudgeDie.INSTANCE),
+				new UnfairDie(new int[] { -3, 2, 7 }, new long[] { 1, 2, 3 }) }) {
+			assertEquals(new Compressor(source, (v, c) -> v * c, (a, b) -> a + b).getAbsoluteFrequencies(),
+					Compressor.sum(source).getAbsoluteFrequencies());
+			assertEquals(new Compressor(source, (v, c) -> v == 2 ? c : 0, (a, b) -> a + b).getAbsoluteFrequencies(),
+					Compressor.countMatching(source, 2).getAbsoluteFrequencies());
+			assertEquals(new Compressor(source, (v, _) -> v, Math::max, Integer.MIN_VALUE).getAbsoluteFrequencies(),
+					Compressor.maximum(source).getAbsoluteFrequencies());
+			assertEquals(new Compressor(source, (v, _) -> v, Math::min, Integer.MAX_VALUE).getAbsoluteFrequencies(),
+					Compressor.minimum(source).getAbsoluteFrequencies());
+			assertEquals(new Compressor(source, (_, _) -> 1, (a, b) -> a + b).getAbsoluteFrequencies(),
+					Compressor.countDistinct(source).getAbsoluteFrequencies());
+		}
+		assertEquals(Compressor.matching(3), Compressor.countMatching(new SingleDie(6), 3).getValueCountFunction());
+		assertEquals("c[v=3]", ((ExportableToIntBiFunction<Integer, Integer>) Compressor.matching(3)).export());
+		assertEquals("v*c", Compressor.PRODUCT.export());
+	}
+
+	/**
+	 * Primitive functions must be usable without boxing and visible through both
+	 * kinds of getters.
+	 */
+	@Test
+	void checkPrimitive() {
+		IDie source = new HomogeneousDiceGroup(new SingleDie(6), 3);
+		IntBinaryOperator squares = (v, c) -> v * v * c;
+		Compressor primitive = Compressor.of(source, squares, Integer::sum, 1);
+		assertSame(squares, primitive.getValueCountOperator());
+		assertEquals(16, primitive.getValueCountFunction().applyAsInt(2, 4));
+		assertEquals(new Compressor(source, (v, c) -> v * v * c, (a, b) -> a + b, 1).getAbsoluteFrequencies(),
+				primitive.getAbsoluteFrequencies());
+		primitive.setAccumulatorOperator(Compressor.MAXIMUM);
+		assertSame(Compressor.MAXIMUM, primitive.getAccumulator());
+		assertThrows(NullPointerException.class, () -> primitive.setValueCountOperator(null));
+		assertThrows(NullPointerException.class, () -> Compressor.of(source, squares, null, 0));
+	}
 }
\ No newline at end of file
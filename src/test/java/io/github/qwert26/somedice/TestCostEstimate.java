@@ -0,0 +1,138 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link CostEstimate}s of the different implementations of
+ * {@link IDie}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestCostEstimate {
+	/**
+	 * Checks the estimate against the actual result.
+	 * 
+	 * @param die The die to estimate and evaluate.
+	 * @return The estimate.
+	 */
+	private static CostEstimate check(IDie die) {
+		CostEstimate estimate = die.estimate();
+		assertTrue(estimate.isKnown());
+		Map<Map<Integer, Integer>, BigInteger> result = die.getAbsoluteFrequencies();
+		BigInteger actual = BigInteger.valueOf(result.size());
+		if (estimate.isExact()) {
+			assertEquals(estimate.getEntries(), actual);
+		} else {
+			assertTrue(estimate.getEntries().compareTo(actual) >= 0);
+		}
+		for (Map<Integer, Integer> key : result.keySet()) {
+			int dice = 0;
+			for (Map.Entry<Integer, Integer> valueCount : key.entrySet()) {
+				assertTrue(valueCount.getKey() >= estimate.getMinValue());
+				assertTrue(valueCount.getKey() <= estimate.getMaxValue());
+				dice += valueCount.getValue();
+			}
+			assertTrue(dice >= estimate.getMinDice());
+			assertTrue(dice <= estimate.getMaxDice());
+		}
+		return estimate;
+	}
+
+	@Test
+	void testSingleDice() {
+		check(new SingleDie(6));
+		check(new SingleDie(10, true));
+		check(new RangeDie(-3, 20, 4));
+		check(FudgeDie.INSTANCE);
+		check(DiceCollection.WRATH_AND_GLORY_DIE);
+		assertEquals(BigInteger.ZERO, new UnfairDie().estimate().getEntries());
+	}
+
+	@Test
+	void testHomogeneousDiceGroup() {
+		CostEstimate estimate = check(new HomogeneousDiceGroup(new SingleDie(6), 4));
+		assertEquals(BigInteger.valueOf(126), estimate.getEntries());
+		assertTrue(estimate.isExact());
+	}
+
+	@Test
+	void testMixedDiceGroup() {
+		CostEstimate estimate = check(new MixedDiceGroup(new SingleDie(6), new SingleDie(8), FudgeDie.INSTANCE));
+		assertEquals(BigInteger.valueOf(6 * 8 * 3), estimate.getEntries());
+		assertEquals(BigInteger.valueOf(6 * 8 * 3), estimate.getCostTerms().get(CostEstimate.ADDITIONS));
+	}
+
+	@Test
+	void testIndeterministicDiceGroup() {
+		check(new IndeterministicDiceGroup(new SingleDie(4), new UnfairDie(new SingleDie(5))));
+		check(new IndeterministicDiceGroup(DiceCollection.WRATH_AND_GLORY_DIE, DiceCollection.WRATH_AND_GLORY_DIE,
+				true));
+		check(new IndeterministicDiceGroup(new SingleDie(6), new UnfairDie(FudgeDie.INSTANCE)));
+	}
+
+	@Test
+	void testDiceExploder() {
+		SingleDie d6 = new SingleDie(6);
+		check(new DiceExploder(d6, d6::explodesOn, (byte) 4));
+		check(new DiceExploder(d6, value -> value > 3, (byte) 3));
+		check(new DiceExploder(d6, _ -> true, (byte) 3));
+		assertEquals(BigInteger.ZERO, new DiceExploder(d6, d6::explodesOn).estimate().getEntries());
+		// The exploding values are counted on every kind of die, without evaluating it.
+		SingleDie d10 = new SingleDie(10, true);
+		check(new DiceExploder(d10, value -> value == 0 || value == 9, (byte) 3));
+		RangeDie range = new RangeDie(-3, 20, 4);
+		check(new DiceExploder(range, range::explodesOn, (byte) 3));
+		check(new DiceExploder(FudgeDie.INSTANCE, FudgeDie.INSTANCE::explodesOn, (byte) 4));
+		check(new DiceExploder(DiceCollection.WRATH_AND_GLORY_DIE, value -> value > 0, (byte) 3));
+	}
+
+	@Test
+	void testCompressor() {
+		CostEstimate estimate = check(new Compressor(new HomogeneousDiceGroup(new SingleDie(6), 10), 5));
+		assertEquals(BigInteger.valueOf(51), estimate.getEntries());
+		assertEquals(15, estimate.getMinValue());
+		assertEquals(65, estimate.getMaxValue());
+		estimate = check(new Compressor(new SingleDie(20), (v, c) -> v % 3, Math::addExact));
+		assertEquals(BigInteger.valueOf(20), estimate.getEntries());
+	}
+
+	@Test
+	void testKeeperAndDropper() {
+		IDie source = new HomogeneousDiceGroup(new SingleDie(4), 5);
+		CostEstimate estimate = check(new DiceKeeper(source, 1, 1));
+		assertEquals(BigInteger.TEN, estimate.getEntries());
+		estimate = check(new DiceDropper(source, 1, 1));
+		assertEquals(3, estimate.getMinDice());
+		assertEquals(BigInteger.valueOf(20), estimate.getEntries());
+	}
+
+	@Test
+	void testUnknown() {
+		IDie custom = () -> new SingleDie(20).getAbsoluteFrequencies();
+		assertFalse(custom.estimate().isKnown());
+		assertFalse(new Compressor(custom).estimate().isKnown());
+		assertFalse(new MixedDiceGroup(custom, new SingleDie(4)).estimate().isKnown());
+	}
+
+	/**
+	 * Twenty ten-sided dice have about ten million multi-sets. Presizing a map for
+	 * all of them would allocate its table before the budget could stop the
+	 * evaluation.
+	 */
+	@Test
+	void testInitialCapacity() {
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(new SingleDie(10), 20);
+		CostEstimate estimate = group.estimate();
+		assertEquals(Utils.multichoose(10, 20), estimate.getEntries());
+		assertEquals(1 << 20, estimate.getInitialCapacity());
+		EvaluationBudget budget = new EvaluationBudget(100, 1000, 60000, Long.MAX_VALUE);
+		assertEquals(101, estimate.getInitialCapacity(budget));
+		assertEquals(6, new SingleDie(6).estimate().getInitialCapacity(budget));
+		assertThrows(BudgetExceededException.class, () -> group.getAbsoluteFrequencies(budget));
+	}
+}
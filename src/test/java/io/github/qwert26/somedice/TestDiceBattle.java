@@ -0,0 +1,123 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link DiceBattle} against comparing every pair of multi-sets by
+ * hand.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestDiceBattle {
+	/**
+	 * 
+	 * @param key
+	 * @return The dice of the multi-set, from the highest to the lowest.
+	 */
+	private static int[] sorted(Map<Integer, Integer> key) {
+		return key.entrySet().stream()
+				.flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+				.sorted(Comparator.reverseOrder()).mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * 
+	 * @param battle
+	 * @return The lost pairs of the attacker for every pair of multi-sets.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> fought(DiceBattle battle) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		battle.getAttacker().getAbsoluteFrequencies().forEach((left, leftFrequency) -> {
+			int[] attacking = sorted(left);
+			battle.getDefender().getAbsoluteFrequencies().forEach((right, rightFrequency) -> {
+				int[] defending = sorted(right);
+				int losses = 0;
+				for (int pair = 0; pair < battle.getPairs(); pair++) {
+					if (attacking[pair] < defending[pair]
+							|| (attacking[pair] == defending[pair] && battle.isTiesToDefender())) {
+						losses++;
+					}
+				}
+				ret.merge(Collections.singletonMap(losses, 1), leftFrequency.multiply(rightFrequency),
+						BigInteger::add);
+			});
+		});
+		return ret;
+	}
+
+	/**
+	 * The classic battle of three attacking against two defending dice.
+	 */
+	@Test
+	void testRisk() {
+		DiceBattle battle = new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 3),
+				new HomogeneousDiceGroup(new SingleDie(6), 2));
+		Map<Map<Integer, Integer>, BigInteger> result = battle.getAbsoluteFrequencies();
+		assertEquals(BigInteger.valueOf(2890), result.get(Collections.singletonMap(0, 1)));
+		assertEquals(BigInteger.valueOf(2611), result.get(Collections.singletonMap(1, 1)));
+		assertEquals(BigInteger.valueOf(2275), result.get(Collections.singletonMap(2, 1)));
+		assertEquals(fought(battle), result);
+		assertSame(result, battle.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testAgainstMultiSets() {
+		UnfairDie weighted = new UnfairDie(new int[] { 1, 3, 4, 6 }, new long[] { 3, 1, 5, 2 });
+		List<AbstractDie> dice = List.of(new SingleDie(6), weighted, new RangeDie(2, 9));
+		for (AbstractDie left : dice) {
+			for (AbstractDie right : dice) {
+				for (int attackers = 1; attackers <= 4; attackers++) {
+					for (int defenders = 1; defenders <= 4; defenders++) {
+						DiceBattle battle = new DiceBattle(new HomogeneousDiceGroup(left, attackers),
+								new HomogeneousDiceGroup(right, defenders));
+						assertEquals(fought(battle), battle.getAbsoluteFrequencies());
+						battle.setTiesToDefender(false);
+						assertEquals(fought(battle), battle.getAbsoluteFrequencies());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testScaled() {
+		DiceBattle battle = new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 5),
+				new HomogeneousDiceGroup(new UnfairDie(new int[] { 2, 4, 6 }, new long[] { 2, 4, 6 }), 3));
+		assertEquals(ScaledFrequencies.of(fought(battle)), battle.getScaledFrequencies());
+	}
+
+	/**
+	 * Armies far too large for any enumeration.
+	 */
+	@Test
+	void testLarge() {
+		DiceBattle battle = new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 200),
+				new HomogeneousDiceGroup(new SingleDie(6), 10));
+		Map<Map<Integer, Integer>, BigInteger> result = battle.getAbsoluteFrequencies();
+		assertEquals(BigInteger.valueOf(6).pow(210),
+				result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		assertEquals(11, result.size());
+		// Settling the remaining dice still grows with the size of the army.
+		EvaluationBudget large = EvaluationBudget.profiling();
+		new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 200), new HomogeneousDiceGroup(new SingleDie(6), 10))
+				.getAbsoluteFrequencies(large);
+		EvaluationBudget small = EvaluationBudget.profiling();
+		new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 20), new HomogeneousDiceGroup(new SingleDie(6), 10))
+				.getAbsoluteFrequencies(small);
+		assertTrue(large.getProfile().getMultiplications() >= 6 * 2 * 200);
+		assertTrue(large.getProfile().getMultiplications() > small.getProfile().getMultiplications());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class,
+				() -> new DiceBattle(null, new HomogeneousDiceGroup(new SingleDie(6), 2)));
+		assertThrows(NullPointerException.class,
+				() -> new DiceBattle(new HomogeneousDiceGroup(new SingleDie(6), 2), null));
+	}
+}
@@ -251,4 +251,43 @@ public class TestDiceDropper {
 		DiceDropper second = new DiceDropper(source, 1, 1);
 		assertTrue(first.equals(second));
 	}
+
+	/**
+	 * Dropping is checked in parallel once per remaining pair of dice, but
+	 * sequentially once per roll of all seven dice. Overfiltering must throw on
+	 * both paths.
+	 */
+	@Test
+	void checkParallel() {
+		IDie source = new HomogeneousDiceGroup(new SingleDie(10), 7);
+		DiceDropper sequential = new DiceDropper(source, 2, 3);
+		sequential.setParallelThreshold(Integer.MAX_VALUE);
+		DiceDropper parallel = new DiceDropper(source, 2, 3);
+		parallel.setParallelThreshold(1);
+		EvaluationBudget sequentialBudget = EvaluationBudget.profiling();
+		Map<Map<Integer, Integer>, BigInteger> remaining = sequential.getAbsoluteFrequencies(sequentialBudget);
+		EvaluationBudget parallelBudget = EvaluationBudget.profiling();
+		assertEquals(remaining, parallel.getAbsoluteFrequencies(parallelBudget));
+		assertEquals(source.getAbsoluteFrequencies().size(), sequentialBudget.getProfile().getProducedEntries());
+		assertEquals(remaining.size(), parallelBudget.getProfile().getProducedEntries());
+		assertEquals(sequential.getScaledFrequencies(), parallel.getScaledFrequencies());
+		DiceDropper overfiltered = new DiceDropper(source, 4, 3);
+		overfiltered.setParallelThreshold(1);
+		assertThrows(IllegalStateException.class, () -> overfiltered.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * The estimate of a spilling group reaches any parallel threshold, the dropper
+	 * has to stream it nonetheless.
+	 */
+	@Test
+	void checkParallelSpilling() {
+		MixedDiceGroup source = new MixedDiceGroup(new SingleDie(20), new SingleDie(12), new SingleDie(6));
+		DiceDropper expected = new DiceDropper(new MixedDiceGroup(source.getSources()), 1, 1);
+		source.setSpillThreshold(1);
+		DiceDropper spilled = new DiceDropper(source, 1, 1);
+		spilled.setParallelThreshold(1);
+		assertEquals(expected.getAbsoluteFrequencies(), spilled.getAbsoluteFrequencies());
+		assertEquals(expected.getScaledFrequencies(), spilled.getScaledFrequencies());
+	}
 }
\ No newline at end of file
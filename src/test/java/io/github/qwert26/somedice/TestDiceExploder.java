@@ -1,5 +1,7 @@
 package io.github.qwert26.somedice;
 
+import java.math.BigInteger;
+import java.util.*;
 import java.util.function.*;
 
 import org.junit.jupiter.api.*;
@@ -230,4 +232,134 @@ public class TestDiceExploder {
 	@Disabled
 	void checkResult() {
 	}
+
+	/**
+	 * Rolls recursively and fills up every finished sequence to the common
+	 * denominator.
+	 * 
+	 * @param table  The faces of the source and their weights.
+	 * @param rolls  The amount of rolls so far.
+	 * @param sum    The sum so far.
+	 * @param weight The weight so far.
+	 * @param ret    The summed up values.
+	 */
+	private static void roll(DiceExploder exploder, Map<Integer, BigInteger> table, int rolls, int sum,
+			BigInteger weight, Map<Map<Integer, Integer>, BigInteger> ret) {
+		BigInteger total = table.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+		int penalty = exploder.getMode() == DiceExploder.Mode.PENETRATING && rolls > 0 ? 1 : 0;
+		table.forEach((face, frequency) -> {
+			int value = sum + face - penalty;
+			BigInteger next = weight.multiply(frequency);
+			if (rolls + 1 < exploder.getExplosionDepth() && exploder.getExplodeOn().test(face)) {
+				roll(exploder, table, rolls + 1, value, next, ret);
+			} else {
+				ret.merge(Collections.singletonMap(value, 1),
+						next.multiply(total.pow(exploder.getExplosionDepth() - rolls - 1)), BigInteger::add);
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param exploder
+	 * @param table
+	 * @return The distribution of the summed up values of every sequence of rolls.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> rolled(DiceExploder exploder,
+			Map<Integer, BigInteger> table) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		roll(exploder, table, 0, 0, BigInteger.ONE, ret);
+		return ret;
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	void checkCompounding() {
+		DiceExploder underTest = new DiceExploder(new SingleDie(6), face -> face == 6, (byte) 3);
+		underTest.setMode(DiceExploder.Mode.COMPOUNDING);
+		Map<Map<Integer, Integer>, BigInteger> result = underTest.getAbsoluteFrequencies();
+		for (int value = 1; value <= 18; value++) {
+			BigInteger expected = value % 6 == 0 && value < 18 ? null
+					: BigInteger.valueOf(value < 6 ? 36 : value < 12 ? 6 : 1);
+			assertEquals(expected, result.get(Collections.singletonMap(value, 1)), "Value " + value);
+		}
+		assertEquals(16, result.size());
+		assertSame(result, underTest.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	void checkPenetrating() {
+		DiceExploder underTest = new DiceExploder(new SingleDie(6), face -> face == 6, (byte) 3);
+		underTest.setMode(DiceExploder.Mode.PENETRATING);
+		Map<Map<Integer, Integer>, BigInteger> result = underTest.getAbsoluteFrequencies();
+		Map<Map<Integer, Integer>, BigInteger> expected = new HashMap<Map<Integer, Integer>, BigInteger>();
+		for (int value = 1; value <= 5; value++) {
+			expected.put(Collections.singletonMap(value, 1), BigInteger.valueOf(36));
+			expected.put(Collections.singletonMap(value + 5, 1), BigInteger.valueOf(6));
+		}
+		for (int value = 11; value <= 16; value++) {
+			expected.merge(Collections.singletonMap(value, 1), BigInteger.ONE, BigInteger::add);
+		}
+		assertEquals(expected, result);
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	void checkSummedAgainstRolling() {
+		UnfairDie weighted = new UnfairDie(new int[] { -1, 2, 3, 5 }, new long[] { 2, 1, 4, 3 });
+		Map<Integer, BigInteger> table = new TreeMap<Integer, BigInteger>(
+				Map.of(-1, BigInteger.TWO, 2, BigInteger.ONE, 3, BigInteger.valueOf(4), 5, BigInteger.valueOf(3)));
+		for (DiceExploder.Mode mode : new DiceExploder.Mode[] { DiceExploder.Mode.COMPOUNDING,
+				DiceExploder.Mode.PENETRATING }) {
+			for (byte depth = 1; depth <= 5; depth++) {
+				DiceExploder underTest = new DiceExploder(weighted, face -> face >= 3, depth);
+				underTest.setMode(mode);
+				Map<Map<Integer, Integer>, BigInteger> expected = rolled(underTest, table);
+				assertEquals(expected, underTest.getAbsoluteFrequencies(), mode + " " + depth);
+				assertEquals(ScaledFrequencies.of(expected), underTest.getScaledFrequencies(EvaluationBudget.UNLIMITED),
+						mode + " " + depth);
+				assertEquals(expected, underTest.toUnfairDie().getAbsoluteFrequencies(), mode + " " + depth);
+			}
+		}
+	}
+
+	/**
+	 * Pools of compounding dice use the exploded die as their base.
+	 */
+	@Test
+	void checkCompoundingPool() {
+		DiceExploder underTest = new DiceExploder(new SingleDie(6), face -> face == 6, (byte) 4);
+		underTest.setMode(DiceExploder.Mode.COMPOUNDING);
+		UnfairDie exploded = underTest.toUnfairDie();
+		Map<Map<Integer, Integer>, BigInteger> single = underTest.getAbsoluteFrequencies();
+		Map<Map<Integer, Integer>, BigInteger> expected = new HashMap<Map<Integer, Integer>, BigInteger>();
+		single.forEach((first, firstFrequency) -> single.forEach((second, secondFrequency) -> {
+			Map<Integer, Integer> key = new TreeMap<Integer, Integer>(first);
+			second.forEach((value, count) -> key.merge(value, count, Integer::sum));
+			expected.merge(key, firstFrequency.multiply(secondFrequency), BigInteger::add);
+		}));
+		assertEquals(expected, new HomogeneousDiceGroup(exploded, 2).getAbsoluteFrequencies());
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	void checkModes() {
+		DiceExploder underTest = new DiceExploder(new SingleDie(6), face -> face == 6, (byte) 3);
+		assertEquals(DiceExploder.Mode.SEPARATE, underTest.getMode());
+		assertThrows(IllegalStateException.class, () -> underTest.toUnfairDie());
+		assertThrows(NullPointerException.class, () -> underTest.setMode(null));
+		DiceExploder other = new DiceExploder(new SingleDie(6), underTest.getExplodeOn(), (byte) 3);
+		assertEquals(underTest, other);
+		other.setMode(DiceExploder.Mode.COMPOUNDING);
+		assertNotEquals(underTest, other);
+	}
 }
\ No newline at end of file
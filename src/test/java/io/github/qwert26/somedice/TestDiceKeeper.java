@@ -214,4 +214,41 @@ public class TestDiceKeeper {
 		DiceKeeper second = new DiceKeeper(new SingleDie(20), 0, 0);
 		assertTrue(first.equals(second));
 	}
+
+	/**
+	 * Keeping three of seven dice merges many rolls into the same kept ones. Only
+	 * the parallel path reports the merged rolls to the budget, the sequential one
+	 * reports every roll of the source.
+	 */
+	@Test
+	void checkParallel() {
+		IDie source = new HomogeneousDiceGroup(new SingleDie(10), 7);
+		DiceKeeper sequential = new DiceKeeper(source, 1, 2);
+		sequential.setParallelThreshold(Integer.MAX_VALUE);
+		DiceKeeper parallel = new DiceKeeper(source, 1, 2);
+		parallel.setParallelThreshold(1);
+		assertEquals(1, parallel.getParallelThreshold());
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		Map<Map<Integer, Integer>, BigInteger> kept = parallel.getAbsoluteFrequencies(budget);
+		assertEquals(kept.size(), budget.getProfile().getProducedEntries());
+		budget = EvaluationBudget.profiling();
+		assertEquals(kept, sequential.getAbsoluteFrequencies(budget));
+		assertEquals(source.getAbsoluteFrequencies().size(), budget.getProfile().getProducedEntries());
+		assertEquals(sequential.getScaledFrequencies(), parallel.getScaledFrequencies());
+	}
+
+	/**
+	 * Even with the lowest parallel threshold, a keeper must not request a
+	 * spilling group as a single map.
+	 */
+	@Test
+	void checkParallelSpilling() {
+		MixedDiceGroup source = new MixedDiceGroup(new SingleDie(8), new SingleDie(8), new SingleDie(6),
+				new SingleDie(4));
+		DiceKeeper expected = new DiceKeeper(new MixedDiceGroup(source.getSources()), 1, 1);
+		source.setSpillThreshold(1);
+		DiceKeeper spilled = new DiceKeeper(source, 1, 1);
+		spilled.setParallelThreshold(1);
+		assertEquals(expected.getAbsoluteFrequencies(), spilled.getAbsoluteFrequencies());
+	}
 }
\ No newline at end of file
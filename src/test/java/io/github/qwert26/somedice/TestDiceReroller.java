@@ -0,0 +1,124 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link DiceReroller} against rerolling by hand.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestDiceReroller {
+	/**
+	 * Rerolls recursively and fills up every stopped roll to the common
+	 * denominator.
+	 * 
+	 * @param reroller
+	 * @param kept      The currently kept value.
+	 * @param remaining The remaining rerolls.
+	 * @param weight    The weight so far.
+	 * @param ret       The kept values.
+	 */
+	private static void reroll(DiceReroller reroller, int kept, int remaining, BigInteger weight,
+			Map<Map<Integer, Integer>, BigInteger> ret) {
+		Map<Map<Integer, Integer>, BigInteger> base = reroller.getSource().getAbsoluteFrequencies();
+		BigInteger total = base.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+		if (remaining == 0 || !reroller.getRerollOn().test(kept)) {
+			ret.merge(Collections.singletonMap(kept, 1), weight.multiply(total.pow(remaining)), BigInteger::add);
+			return;
+		}
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : base.entrySet()) {
+			int roll = entry.getKey().keySet().iterator().next();
+			int next = reroller.getPolicy() == DiceReroller.Policy.KEEP_NEW ? roll : Math.max(kept, roll);
+			reroll(reroller, next, remaining - 1, weight.multiply(entry.getValue()), ret);
+		}
+	}
+
+	/**
+	 * 
+	 * @param reroller
+	 * @return The distribution rerolled by hand.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> rerolled(DiceReroller reroller) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : reroller.getSource().getAbsoluteFrequencies()
+				.entrySet()) {
+			reroll(reroller, entry.getKey().keySet().iterator().next(), reroller.getRerollLimit(), entry.getValue(),
+					ret);
+		}
+		return ret;
+	}
+
+	@Test
+	void testPolicies() {
+		UnfairDie weighted = new UnfairDie(new int[] { 1, 2, 4, 7 }, new long[] { 3, 1, 5, 2 });
+		for (AbstractDie base : List.of(new SingleDie(6), weighted, FudgeDie.INSTANCE)) {
+			for (int limit = 0; limit <= 4; limit++) {
+				testPolicy(base, limit, DiceReroller.Policy.KEEP_NEW);
+				testPolicy(base, limit, DiceReroller.Policy.KEEP_BETTER);
+			}
+		}
+	}
+
+	/**
+	 * Compares some, all and no faces being rerolled.
+	 * 
+	 * @param base
+	 * @param limit
+	 * @param policy
+	 */
+	private static void testPolicy(AbstractDie base, int limit, DiceReroller.Policy policy) {
+		DiceReroller reroller = new DiceReroller(base, value -> value <= 2, limit, policy);
+		assertEquals(rerolled(reroller), reroller.getAbsoluteFrequencies());
+		reroller.setRerollOn(value -> true);
+		assertEquals(rerolled(reroller), reroller.getAbsoluteFrequencies());
+		reroller.setRerollOn(value -> value == 100);
+		assertEquals(rerolled(reroller), reroller.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Great Weapon Fighting: Rerolling 1s and 2s once.
+	 */
+	@Test
+	void testGreatWeaponFighting() {
+		DiceReroller reroller = new DiceReroller(new SingleDie(6), value -> value <= 2, 1);
+		Map<Map<Integer, Integer>, BigInteger> result = reroller.getAbsoluteFrequencies();
+		assertEquals(BigInteger.TWO, result.get(Collections.singletonMap(1, 1)));
+		assertEquals(BigInteger.valueOf(8), result.get(Collections.singletonMap(6, 1)));
+		UnfairDie die = reroller.toUnfairDie();
+		assertEquals(result, die.getAbsoluteFrequencies());
+		HomogeneousDiceGroup pool = new HomogeneousDiceGroup(die, 2);
+		assertEquals(ScaledFrequencies.of(pool.getAbsoluteFrequencies()), pool.getScaledFrequencies());
+		assertEquals(ScaledFrequencies.of(result), reroller.getScaledFrequencies());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> new DiceReroller(null, value -> true, 1));
+		assertThrows(NullPointerException.class, () -> new DiceReroller(new SingleDie(6), null, 1));
+		assertThrows(NullPointerException.class, () -> new DiceReroller(new SingleDie(6), value -> true, 1, null));
+		assertThrows(IllegalArgumentException.class, () -> new DiceReroller(new SingleDie(6), value -> true, -1));
+		DiceReroller reroller = new DiceReroller(new SingleDie(6), value -> true, 1);
+		assertThrows(IllegalArgumentException.class,
+				() -> reroller.setSource(new HomogeneousDiceGroup(new SingleDie(6), 2)));
+	}
+
+	/**
+	 * Rerolling until not a one, practically.
+	 */
+	@Test
+	void testLarge() {
+		DiceReroller reroller = new DiceReroller(new SingleDie(20), value -> value == 1, 1000);
+		Map<Map<Integer, Integer>, BigInteger> result = reroller.getAbsoluteFrequencies();
+		assertEquals(20, result.size());
+		assertEquals(BigInteger.valueOf(20).pow(1001),
+				result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		reroller.setPolicy(DiceReroller.Policy.KEEP_BETTER);
+		assertEquals(BigInteger.valueOf(20).pow(1001),
+				reroller.getAbsoluteFrequencies().values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+	}
+}
@@ -0,0 +1,135 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.qwert26.somedice.BudgetExceededException.Limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link EvaluationBudget}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestEvaluationBudget {
+	/**
+	 * Limits must be positive.
+	 */
+	@Test
+	void testConstructorRejectsNonPositiveLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationBudget(0, 1, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationBudget(1, 0, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationBudget(1, 1, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationBudget(1, 1, 1, 0));
+	}
+
+	/**
+	 * A generous budget must not change the result.
+	 */
+	@Test
+	void testGenerousBudgetKeepsResult() {
+		IDie test = new DiceKeeper(new HomogeneousDiceGroup(new SingleDie(6), 4), 0, 3);
+		EvaluationBudget budget = new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE,
+				Long.MAX_VALUE);
+		Map<Map<Integer, Integer>, BigInteger> result = test.getAbsoluteFrequencies(budget);
+		assertEquals(test.getAbsoluteFrequencies(), result);
+		assertTrue(budget.getProducedEntries() > 0);
+		assertTrue(budget.getApproximateHeapBytes() > 0);
+	}
+
+	/**
+	 * Too many entries in a homogeneous dice group abort the evaluation.
+	 */
+	@Test
+	void testEntryLimit() {
+		IDie test = new HomogeneousDiceGroup(new SingleDie(6), 3);
+		EvaluationBudget budget = new EvaluationBudget(10, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> test.getAbsoluteFrequencies(budget));
+		assertEquals(Limit.ENTRIES, e.getLimit());
+		assertSame(test, e.getNode());
+		// The six entries of the base die are counted as well.
+		assertEquals(6 + 11, e.getProducedEntries());
+	}
+
+	/**
+	 * Too large frequencies abort the evaluation, even inside nested operators.
+	 */
+	@Test
+	void testBitLengthLimit() {
+		IDie test = new Compressor(new MixedDiceGroup(new SingleDie(6), new SingleDie(6), new SingleDie(6)));
+		EvaluationBudget budget = new EvaluationBudget(Integer.MAX_VALUE, 2, Long.MAX_VALUE, Long.MAX_VALUE);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> test.getAbsoluteFrequencies(budget));
+		assertEquals(Limit.BIT_LENGTH, e.getLimit());
+		assertTrue(e.getNode() instanceof MixedDiceGroup);
+	}
+
+	/**
+	 * The approximated heap usage is limited over the whole evaluation.
+	 */
+	@Test
+	void testHeapLimit() {
+		IDie test = new IndeterministicDiceGroup(new SingleDie(6), new UnfairDie(new SingleDie(6)));
+		EvaluationBudget budget = new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, 1024);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> test.getAbsoluteFrequencies(budget));
+		assertEquals(Limit.HEAP, e.getLimit());
+		assertTrue(e.getApproximateHeapBytes() > 1024);
+	}
+
+	/**
+	 * Nodes without their own support for budgets get checked after their
+	 * computation.
+	 */
+	@Test
+	void testCustomDie() {
+		IDie custom = () -> new SingleDie(20).getAbsoluteFrequencies();
+		EvaluationBudget budget = new EvaluationBudget(5, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> new Compressor(custom).getAbsoluteFrequencies(budget));
+		assertEquals(Limit.ENTRIES, e.getLimit());
+		assertSame(custom, e.getNode());
+	}
+
+	/**
+	 * An aborted evaluation of a mixed dice group must not be cached.
+	 */
+	@Test
+	void testAbortedMixedDiceGroupIsNotCached() {
+		MixedDiceGroup test = new MixedDiceGroup(new SingleDie(6), new SingleDie(8));
+		EvaluationBudget budget = new EvaluationBudget(10, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+		assertThrows(BudgetExceededException.class, () -> test.getAbsoluteFrequencies(budget));
+		assertEquals(new MixedDiceGroup(new SingleDie(6), new SingleDie(8)).getAbsoluteFrequencies(),
+				test.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * A budget with any limit keeps operators sequential regardless of their
+	 * parallel threshold, so each entry of the source gets checked on its way.
+	 */
+	@Test
+	void testLimitedBudgetStaysSequential() {
+		assertFalse(EvaluationBudget.UNLIMITED.isLimited());
+		assertFalse(EvaluationBudget.profiling().isLimited());
+		assertTrue(new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, 60000, Long.MAX_VALUE).isLimited());
+		HomogeneousDiceGroup source = new HomogeneousDiceGroup(new SingleDie(10), 5);
+		DiceKeeper keeper = new DiceKeeper(source, 2, 0);
+		keeper.setParallelThreshold(1);
+		EvaluationBudget budget = new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE,
+				Long.MAX_VALUE - 1, true);
+		assertTrue(budget.isLimited());
+		keeper.getAbsoluteFrequencies(budget);
+		assertEquals(source.getAbsoluteFrequencies().size(), budget.getProfile().getProducedEntries());
+		DiceKeeper limited = new DiceKeeper(source, 2, 0);
+		limited.setParallelThreshold(1);
+		EvaluationBudget entries = new EvaluationBudget(20, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> limited.getAbsoluteFrequencies(entries));
+		assertEquals(Limit.ENTRIES, e.getLimit());
+		assertSame(limited, e.getNode());
+	}
+}
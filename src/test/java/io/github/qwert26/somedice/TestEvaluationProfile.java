@@ -0,0 +1,167 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.qwert26.somedice.exporter.ProfileExporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link EvaluationProfile}s recorded by a profiling
+ * {@link EvaluationBudget}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestEvaluationProfile {
+	/**
+	 * Budgets are not profiling by default.
+	 */
+	@Test
+	void testNotProfiling() {
+		EvaluationBudget budget = new EvaluationBudget(100, 100, 1000, 1000000);
+		new SingleDie(6).getAbsoluteFrequencies(budget);
+		assertFalse(budget.isProfiling());
+		assertNull(budget.getProfile());
+		assertNull(EvaluationBudget.UNLIMITED.getProfile());
+	}
+
+	/**
+	 * The profile mirrors the evaluated tree and does not change the result.
+	 */
+	@Test
+	void testNestedTree() {
+		SingleDie d6 = new SingleDie(6);
+		SingleDie d8 = new SingleDie(8);
+		MixedDiceGroup mixed = new MixedDiceGroup(new HomogeneousDiceGroup(d6, 2), d8);
+		Compressor sum = new Compressor(new DiceKeeper(mixed, 0, 2));
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		Map<Map<Integer, Integer>, BigInteger> result = sum.getAbsoluteFrequencies(budget);
+		assertEquals(new Compressor(new DiceKeeper(new MixedDiceGroup(mixed.getSources()), 0, 2))
+				.getAbsoluteFrequencies(), result);
+
+		EvaluationProfile profile = budget.getProfile();
+		assertSame(sum, profile.getNode());
+		assertEquals(1, profile.getInvocations());
+		assertEquals(1, profile.getChildren().size());
+		EvaluationProfile keeper = profile.getChildren().get(0);
+		EvaluationProfile mixedProfile = keeper.getChildren().get(0);
+		assertSame(mixed, mixedProfile.getNode());
+		assertEquals(2, mixedProfile.getChildren().size());
+		EvaluationProfile homogeneous = mixedProfile.getChildren().get(0);
+		assertEquals(21, homogeneous.getProducedEntries());
+		// Each entry multiplies the frequencies of both dice and the multinomial.
+		assertEquals(21 * 3, homogeneous.getMultiplications());
+		assertEquals(6, homogeneous.getConsumedEntries());
+		assertEquals(21 * 8 * 2, mixedProfile.getMultiplications());
+		assertEquals(21 + 8, mixedProfile.getConsumedEntries());
+		assertEquals(keeper.getProducedEntries(), profile.getConsumedEntries());
+		assertTrue(profile.getWallNanos() >= mixedProfile.getWallNanos());
+		assertTrue(profile.getSelfWallNanos() <= profile.getWallNanos());
+	}
+
+	/**
+	 * Temporary groups get their own profiles, repeated evaluations are
+	 * accumulated.
+	 */
+	@Test
+	void testRepeatedEvaluations() {
+		SingleDie d4 = new SingleDie(4);
+		IndeterministicDiceGroup group = new IndeterministicDiceGroup(d4, new UnfairDie(new SingleDie(3)));
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		group.getAbsoluteFrequencies(budget);
+		EvaluationProfile profile = budget.getProfile();
+		assertEquals(3, profile.getChildren().size());
+		for (EvaluationProfile child : profile.getChildren()) {
+			assertTrue(child.getNode() instanceof HomogeneousDiceGroup);
+			assertEquals(1, child.getChildren().size());
+			assertSame(d4, child.getChildren().get(0).getNode());
+		}
+
+		MixedDiceGroup twice = new MixedDiceGroup(d4, d4);
+		budget = EvaluationBudget.profiling();
+		twice.getAbsoluteFrequencies(budget);
+		assertEquals(1, budget.getProfile().getChildren().size());
+		assertEquals(2, budget.getProfile().getChildren().get(0).getInvocations());
+	}
+
+	/**
+	 * The work of a worker thread is added to the node and the nodes above it. Like
+	 * the threads of a pool, the worker is still alive, when the path finishes.
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	void testWorkers() throws InterruptedException {
+		SingleDie outer = new SingleDie(6);
+		SingleDie inner = new SingleDie(8);
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		budget.enter(outer);
+		budget.enter(inner);
+		EvaluationProfiler.Workers workers = budget.workers(inner);
+		long[][] allocated = new long[3][];
+		CountDownLatch done = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+		Thread worker = new Thread(() -> {
+			workers.join();
+			for (int i = 0; i < allocated.length; i++) {
+				allocated[i] = new long[1 << 18];
+			}
+			workers.join();
+			done.countDown();
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		worker.start();
+		done.await();
+		workers.finish();
+		finished.countDown();
+		worker.join();
+		budget.exit(inner);
+		budget.exit(outer);
+		EvaluationProfile profile = budget.getProfile();
+		EvaluationProfile child = profile.getChildren().get(0);
+		if (child.getAllocatedBytes() >= 0) {
+			assertTrue(child.getAllocatedBytes() >= 3L * 8 * (1 << 18));
+			assertTrue(profile.getAllocatedBytes() >= child.getAllocatedBytes());
+		}
+		// Nothing is added twice.
+		long before = child.getAllocatedBytes();
+		workers.finish();
+		assertEquals(before, child.getAllocatedBytes());
+
+		Compressor sum = new Compressor(new HomogeneousDiceGroup(new SingleDie(6), 4));
+		sum.setParallelThreshold(1);
+		budget = EvaluationBudget.profiling();
+		assertEquals(new Compressor(sum.getSource()).getAbsoluteFrequencies(), sum.getAbsoluteFrequencies(budget));
+		assertTrue(budget.getProfile().getCpuNanos() >= budget.getProfile().getChildren().get(0).getCpuNanos());
+	}
+
+	/**
+	 * Both renderings contain the notation of every node.
+	 */
+	@Test
+	void testRendering() {
+		IDie test = new DiceKeeper(new HomogeneousDiceGroup(new SingleDie(6), 3), 0, 1);
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		test.getAbsoluteFrequencies(budget);
+		String text = ProfileExporter.toText(budget.getProfile());
+		String[] lines = text.split(System.lineSeparator());
+		assertEquals(3, lines.length);
+		assertTrue(lines[0].startsWith("DiceKeeper (3d6)kh1 calls=1"));
+		assertTrue(lines[1].startsWith("  HomogeneousDiceGroup 3d6 calls=1"));
+		assertTrue(lines[2].startsWith("    SingleDie d6 calls=1"));
+		String json = ProfileExporter.toJson(budget.getProfile());
+		assertTrue(json.startsWith("{\"type\":\"DiceKeeper\",\"notation\":\"(3d6)kh1\",\"invocations\":1,"));
+		assertTrue(json.contains("\"children\":[{\"type\":\"HomogeneousDiceGroup\",\"notation\":\"3d6\""));
+		assertTrue(json.endsWith("\"children\":[]}]}]}"));
+		assertEquals("", ProfileExporter.toText(null));
+		assertEquals("null", ProfileExporter.toJson(null));
+	}
+}
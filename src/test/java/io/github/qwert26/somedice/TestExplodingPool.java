@@ -0,0 +1,131 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link ExplodingPool} against rolling every die on its own.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestExplodingPool {
+	/**
+	 * Rolls the remaining dice of a pool recursively and fills up every sequence
+	 * of a die ending early to the common denominator.
+	 * 
+	 * @param pool
+	 * @param die    The index of the current die.
+	 * @param again  How often the current die can still be rolled again.
+	 * @param rolls  The rolls so far.
+	 * @param weight The weight so far.
+	 * @param ret    The multi-sets of all rolls.
+	 */
+	private static void roll(ExplodingPool pool, int die, int again, Map<Integer, Integer> rolls, BigInteger weight,
+			Map<Map<Integer, Integer>, BigInteger> ret) {
+		if (die == pool.getCount()) {
+			ret.merge(rolls, weight, BigInteger::add);
+			return;
+		}
+		Map<Map<Integer, Integer>, BigInteger> base = pool.getBaseDie().getAbsoluteFrequencies();
+		BigInteger total = base.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+		IntPredicate explodeOn = pool.getExplodeOn();
+		base.forEach((key, frequency) -> {
+			int face = key.keySet().iterator().next();
+			Map<Integer, Integer> next = new TreeMap<Integer, Integer>(rolls);
+			next.merge(face, 1, Integer::sum);
+			if (again > 0 && explodeOn.test(face)) {
+				roll(pool, die, again - 1, next, weight.multiply(frequency), ret);
+			} else {
+				roll(pool, die + 1, pool.getRerollLimit(), next,
+						weight.multiply(frequency).multiply(total.pow(again)), ret);
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param pool
+	 * @return The outcomes of rolling every die on its own.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> rolled(ExplodingPool pool) {
+		Map<Map<Integer, Integer>, BigInteger> multisets = new HashMap<Map<Integer, Integer>, BigInteger>();
+		roll(pool, 0, pool.getRerollLimit(), new TreeMap<Integer, Integer>(), BigInteger.ONE, multisets);
+		if (pool.getOutput() == ExplodingPool.Output.MULTISET) {
+			return multisets;
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		multisets.forEach((key, frequency) -> ret.merge(Collections.singletonMap(
+				key.entrySet().stream().mapToInt(entry -> entry.getKey() * entry.getValue()).sum(), 1), frequency,
+				BigInteger::add));
+		return ret;
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 3, 4, 5 })
+	void testAgainstRolling(int count) {
+		UnfairDie weighted = new UnfairDie(new int[] { -1, 2, 3, 5 }, new long[] { 2, 1, 4, 3 });
+		for (int depth = 0; depth <= 2; depth++) {
+			ExplodingPool pool = new ExplodingPool(weighted, count, face -> face >= 3, depth);
+			Map<Map<Integer, Integer>, BigInteger> expected = rolled(pool);
+			assertEquals(expected, pool.getAbsoluteFrequencies(), "Multi-sets " + depth);
+			assertEquals(ScaledFrequencies.of(expected), pool.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+			pool.setOutput(ExplodingPool.Output.SUM);
+			expected = rolled(pool);
+			assertEquals(expected, pool.getAbsoluteFrequencies(), "Sums " + depth);
+			assertEquals(ScaledFrequencies.of(expected), pool.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+		}
+	}
+
+	/**
+	 * The sums equal a group of compounding dice, whose explosion depth counts the
+	 * first roll as well.
+	 */
+	@Test
+	void testCompounding() {
+		SingleDie d6 = new SingleDie(6);
+		ExplodingPool pool = new ExplodingPool(d6, 6, d6::explodesOn, 3);
+		pool.setOutput(ExplodingPool.Output.SUM);
+		DiceExploder exploder = new DiceExploder(d6, d6::explodesOn, (byte) 4);
+		exploder.setMode(DiceExploder.Mode.COMPOUNDING);
+		Map<Map<Integer, Integer>, BigInteger> result = pool.getAbsoluteFrequencies();
+		assertEquals(new Compressor(new HomogeneousDiceGroup(exploder.toUnfairDie(), 6)).getAbsoluteFrequencies(),
+				result);
+		assertEquals(BigInteger.valueOf(6).pow(24), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		assertSame(result, pool.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Many dice only take a few combinations.
+	 */
+	@Test
+	void testLarge() {
+		ExplodingPool pool = new ExplodingPool(new SingleDie(4), 13, face -> face == 4, 2);
+		Map<Map<Integer, Integer>, BigInteger> result = pool.getAbsoluteFrequencies();
+		assertEquals(BigInteger.valueOf(4).pow(39), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		assertTrue(result.keySet().stream()
+				.allMatch(key -> key.values().stream().mapToInt(Integer::intValue).sum() >= 13));
+		assertTrue(pool.estimate().getEntries().compareTo(BigInteger.valueOf(result.size())) >= 0);
+		pool.setOutput(ExplodingPool.Output.SUM);
+		BigInteger sums = BigInteger.valueOf(pool.getAbsoluteFrequencies().size());
+		assertTrue(pool.estimate().getEntries().compareTo(sums) >= 0);
+	}
+
+	@Test
+	void testArguments() {
+		SingleDie d6 = new SingleDie(6);
+		assertThrows(NullPointerException.class, () -> new ExplodingPool(null, 2, d6::explodesOn, 1));
+		assertThrows(NullPointerException.class, () -> new ExplodingPool(d6, 2, null, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ExplodingPool(d6, 0, d6::explodesOn, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ExplodingPool(d6, 2, d6::explodesOn, -1));
+		ExplodingPool pool = new ExplodingPool(d6, 2, d6::explodesOn, 1);
+		assertThrows(NullPointerException.class, () -> pool.setOutput(null));
+		assertEquals(ExplodingPool.Output.MULTISET, pool.getOutput());
+	}
+}
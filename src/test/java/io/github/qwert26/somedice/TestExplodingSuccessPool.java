@@ -0,0 +1,136 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link ExplodingSuccessPool} against rolling every die again by
+ * hand.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestExplodingSuccessPool {
+	/**
+	 * Rolls a single die again recursively and fills up every stopped roll to the
+	 * common denominator.
+	 * 
+	 * @param pool
+	 * @param depth     The remaining explosions.
+	 * @param successes The successes so far.
+	 * @param weight    The weight so far.
+	 * @param ret       The successes of a single die.
+	 */
+	private static void roll(ExplodingSuccessPool pool, int depth, int successes, BigInteger weight,
+			Map<Integer, BigInteger> ret) {
+		Map<Map<Integer, Integer>, BigInteger> base = pool.getBaseDie().getAbsoluteFrequencies();
+		BigInteger total = base.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : base.entrySet()) {
+			int face = entry.getKey().keySet().iterator().next();
+			int next = successes + (face >= pool.getSuccessThreshold() ? 1 : 0);
+			if (depth > 0 && face >= pool.getAgainThreshold()) {
+				roll(pool, depth - 1, next, weight.multiply(entry.getValue()), ret);
+			} else {
+				ret.merge(next, weight.multiply(entry.getValue()).multiply(total.pow(depth)), BigInteger::add);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param pool
+	 * @return The successes of the pool, convolved die by die.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> rolled(ExplodingSuccessPool pool) {
+		Map<Integer, BigInteger> single = new HashMap<Integer, BigInteger>();
+		roll(pool, pool.getRerollLimit(), 0, BigInteger.ONE, single);
+		Map<Integer, BigInteger> sums = Map.of(0, BigInteger.ONE);
+		for (int die = 0; die < pool.getCount(); die++) {
+			Map<Integer, BigInteger> next = new HashMap<Integer, BigInteger>();
+			for (var left : sums.entrySet()) {
+				for (var right : single.entrySet()) {
+					next.merge(left.getKey() + right.getKey(), left.getValue().multiply(right.getValue()),
+							BigInteger::add);
+				}
+			}
+			sums = next;
+		}
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		sums.forEach((successes, frequency) -> ret.put(Collections.singletonMap(successes, 1), frequency));
+		return ret;
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 2, 4 })
+	void testTenAgain(int depth) {
+		for (int count : new int[] { 1, 2, 3, 7 }) {
+			ExplodingSuccessPool pool = new ExplodingSuccessPool(new SingleDie(10), count, 8, 10, depth);
+			assertEquals(rolled(pool), pool.getAbsoluteFrequencies());
+			pool.setAgainThreshold(8);
+			assertEquals(rolled(pool), pool.getAbsoluteFrequencies());
+		}
+	}
+
+	@Test
+	void testWithoutExplosions() {
+		ExplodingSuccessPool pool = new ExplodingSuccessPool(new SingleDie(10), 6, 8, 10, 0);
+		assertEquals(new SuccessPool(new SingleDie(10), 6, 8).getAbsoluteFrequencies(),
+				pool.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testUnfair() {
+		UnfairDie weighted = new UnfairDie(new int[] { 1, 2, 3, 4 }, new long[] { 6, 4, 2, 8 });
+		ExplodingSuccessPool pool = new ExplodingSuccessPool(weighted, 4, 3, 4, 3);
+		assertEquals(rolled(pool), pool.getAbsoluteFrequencies());
+		assertEquals(ScaledFrequencies.of(rolled(pool)), pool.getScaledFrequencies());
+		// Every face is rolled again.
+		pool.setAgainThreshold(1);
+		assertEquals(rolled(pool), pool.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> new ExplodingSuccessPool(null, 1, 8, 10, 1));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ExplodingSuccessPool(new SingleDie(10), 0, 8, 10, 1));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ExplodingSuccessPool(new SingleDie(10), 1, 8, 10, -1));
+	}
+
+	/**
+	 * The recurrence of the power agrees with repeated multiplication, including
+	 * leading, trailing and inner zeros.
+	 */
+	@Test
+	void testPower() {
+		BigInteger[] base = { BigInteger.ZERO, BigInteger.valueOf(3), BigInteger.ZERO, BigInteger.valueOf(5),
+				BigInteger.TWO.pow(70), BigInteger.ZERO };
+		BigInteger[] expected = { BigInteger.ONE };
+		for (int exponent = 0; exponent < 12; exponent++) {
+			BigInteger[] power = Polynomials.power(null, EvaluationBudget.UNLIMITED, base, exponent);
+			assertArrayEquals(expected, power);
+			expected = Polynomials.multiply(null, EvaluationBudget.UNLIMITED, expected, base);
+		}
+		BigInteger[] zero = { BigInteger.ZERO, BigInteger.ZERO };
+		assertArrayEquals(new BigInteger[] { BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO },
+				Polynomials.power(null, EvaluationBudget.UNLIMITED, zero, 2));
+	}
+
+	/**
+	 * A pool far too large for any enumeration.
+	 */
+	@Test
+	void testLarge() {
+		ExplodingSuccessPool pool = new ExplodingSuccessPool(new SingleDie(10), 300, 8, 10, 5);
+		Map<Map<Integer, Integer>, BigInteger> result = pool.getAbsoluteFrequencies();
+		assertEquals(1801, result.size());
+		assertEquals(BigInteger.TEN.pow(1800), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		assertSame(result, pool.getAbsoluteFrequencies());
+	}
+}
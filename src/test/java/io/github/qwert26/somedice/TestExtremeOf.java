@@ -0,0 +1,78 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link ExtremeOf} against keeping dice of
+ * {@link HomogeneousDiceGroup}s.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestExtremeOf {
+	/**
+	 * 
+	 * @param base
+	 * @param count
+	 * @param highest
+	 * @return The kept die of every multi-set.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> kept(AbstractDie base, int count, boolean highest) {
+		return new DiceKeeper(new HomogeneousDiceGroup(base, count), highest ? 0 : 1, highest ? 1 : 0)
+				.getAbsoluteFrequencies();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 3, 6 })
+	void testKeeper(int count) {
+		UnfairDie weighted = new UnfairDie(new int[] { -3, 0, 2, 5, 8 }, new long[] { 4, 1, 7, 2, 3 });
+		for (AbstractDie base : List.of(new SingleDie(20), FudgeDie.INSTANCE, weighted)) {
+			assertEquals(kept(base, count, true), ExtremeOf.highest(base, count).getAbsoluteFrequencies());
+			assertEquals(kept(base, count, false), ExtremeOf.lowest(base, count).getAbsoluteFrequencies());
+		}
+	}
+
+	@Test
+	void testCompressed() {
+		Compressor sum = Compressor.sum(new HomogeneousDiceGroup(new SingleDie(6), 2));
+		ExtremeOf best = ExtremeOf.highest(sum, 3);
+		assertEquals(kept(sum.toUnfairDie(), 3, true), best.getAbsoluteFrequencies());
+		assertEquals(ScaledFrequencies.of(best.getAbsoluteFrequencies()), best.getScaledFrequencies());
+		assertEquals(BigInteger.valueOf(11), best.estimate().getEntries());
+	}
+
+	@Test
+	void testNotSingleValued() {
+		ExtremeOf extreme = ExtremeOf.highest(new HomogeneousDiceGroup(new SingleDie(6), 2), 2);
+		assertThrows(IllegalArgumentException.class, () -> extreme.getAbsoluteFrequencies());
+		assertThrows(IllegalArgumentException.class, () -> ExtremeOf.lowest(new SingleDie(6), 0));
+		assertThrows(NullPointerException.class, () -> ExtremeOf.lowest(null, 1));
+	}
+
+	@Test
+	void testCache() {
+		ExtremeOf extreme = ExtremeOf.highest(new SingleDie(20), 2);
+		Map<Map<Integer, Integer>, BigInteger> first = extreme.getAbsoluteFrequencies();
+		assertSame(first, extreme.getAbsoluteFrequencies());
+		extreme.setHighest(false);
+		assertEquals(kept(new SingleDie(20), 2, false), extreme.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Far too many rolls for any enumeration.
+	 */
+	@Test
+	void testLarge() {
+		Map<Map<Integer, Integer>, BigInteger> result = ExtremeOf.highest(new SingleDie(100), 10_000)
+				.getAbsoluteFrequencies();
+		assertEquals(100, result.size());
+		assertEquals(BigInteger.valueOf(100).pow(10_000),
+				result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+	}
+}
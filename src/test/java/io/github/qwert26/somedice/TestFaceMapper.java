@@ -0,0 +1,90 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link FaceMapper} against mapping every die of every multi-set.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestFaceMapper {
+	/**
+	 * 
+	 * @param group
+	 * @param mapping
+	 * @return The multi-sets of the group with every die mapped.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> mapped(IDie group, IntUnaryOperator mapping) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		group.getAbsoluteFrequencies().forEach((key, frequency) -> {
+			Map<Integer, Integer> nextKey = new TreeMap<Integer, Integer>();
+			key.forEach((value, amount) -> nextKey.merge(mapping.applyAsInt(value), amount, Integer::sum));
+			ret.merge(nextKey, frequency, BigInteger::add);
+		});
+		return ret;
+	}
+
+	/**
+	 * Any roll below 10 counts as 10.
+	 */
+	@Test
+	void testAtLeast() {
+		FaceMapper mapper = FaceMapper.atLeast(new SingleDie(20), 10);
+		Map<Map<Integer, Integer>, BigInteger> result = mapper.getAbsoluteFrequencies();
+		assertEquals(11, result.size());
+		assertEquals(BigInteger.TEN, result.get(Collections.singletonMap(10, 1)));
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(mapper.toUnfairDie(), 4);
+		Map<Map<Integer, Integer>, BigInteger> pool = group.getAbsoluteFrequencies();
+		assertEquals(mapped(new HomogeneousDiceGroup(new SingleDie(20), 4), face -> Math.max(face, 10)), pool);
+		// 11 instead of 20 distinct values.
+		assertEquals(Utils.multichoose(11, 4).intValue(), pool.size());
+	}
+
+	@Test
+	void testMixed() {
+		UnfairDie weighted = new UnfairDie(new int[] { -3, 1, 2, 7 }, new long[] { 3, 1, 5, 2 });
+		IntUnaryOperator halved = face -> Math.floorDiv(face, 2);
+		IDie expected = new MixedDiceGroup(new SingleDie(6), weighted, FudgeDie.INSTANCE);
+		IDie actual = new MixedDiceGroup(FaceMapper.divided(new SingleDie(6), 2).toUnfairDie(),
+				FaceMapper.divided(weighted, 2).toUnfairDie(), FaceMapper.divided(FudgeDie.INSTANCE, 2).toUnfairDie());
+		assertEquals(mapped(expected, halved), actual.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testScaled() {
+		UnfairDie weighted = new UnfairDie(new int[] { 1, 2, 3, 4 }, new long[] { 6, 4, 2, 8 });
+		FaceMapper mapper = FaceMapper.atMost(weighted, 2);
+		assertEquals(ScaledFrequencies.of(mapper.getAbsoluteFrequencies()), mapper.getScaledFrequencies());
+		assertEquals(mapper.getAbsoluteFrequencies(), mapper.toUnfairDie().getAbsoluteFrequencies());
+	}
+
+	/**
+	 * Changes to the source and the mapping are picked up.
+	 */
+	@Test
+	void testModified() {
+		SingleDie die = new SingleDie(6);
+		FaceMapper mapper = new FaceMapper(die, face -> 0);
+		assertEquals(Map.of(Collections.singletonMap(0, 1), BigInteger.valueOf(6)), mapper.getAbsoluteFrequencies());
+		die.setMaximum(8);
+		assertEquals(Map.of(Collections.singletonMap(0, 1), BigInteger.valueOf(8)), mapper.getAbsoluteFrequencies());
+		mapper.setMapping(face -> face % 2);
+		assertEquals(2, mapper.getAbsoluteFrequencies().size());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> new FaceMapper(null, face -> face));
+		assertThrows(NullPointerException.class, () -> new FaceMapper(new SingleDie(6), null));
+		assertThrows(IllegalArgumentException.class, () -> FaceMapper.divided(new SingleDie(6), 0));
+		FaceMapper mapper = FaceMapper.atLeast(new SingleDie(6), 2);
+		assertThrows(IllegalArgumentException.class,
+				() -> mapper.setSource(new HomogeneousDiceGroup(new SingleDie(6), 2)));
+	}
+}
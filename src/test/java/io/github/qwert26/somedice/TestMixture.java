@@ -0,0 +1,140 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link Mixture} against the probabilities of its branches.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestMixture {
+	/**
+	 * 
+	 * @param frequencies
+	 * @return The sum of all frequencies.
+	 */
+	private static BigInteger total(Map<Map<Integer, Integer>, BigInteger> frequencies) {
+		return frequencies.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+	}
+
+	/**
+	 * Checks, that every key has the weighted sum of the probabilities of the
+	 * branches, by multiplying all denominators.
+	 * 
+	 * @param mixture
+	 */
+	private static void assertMixed(Mixture mixture) {
+		IDie[] branches = mixture.getSources();
+		BigInteger[] weights = mixture.getWeights();
+		BigInteger weightSum = Arrays.stream(weights).reduce(BigInteger.ZERO, BigInteger::add);
+		Map<Map<Integer, Integer>, BigInteger> result = mixture.getAbsoluteFrequencies();
+		BigInteger resultTotal = total(result);
+		BigInteger product = Arrays.stream(branches).map(branch -> total(branch.getAbsoluteFrequencies()))
+				.reduce(BigInteger.ONE, BigInteger::multiply);
+		Map<Map<Integer, Integer>, BigInteger> expected = new HashMap<Map<Integer, Integer>, BigInteger>();
+		for (int index = 0; index < branches.length; index++) {
+			BigInteger factor = weights[index].multiply(product)
+					.divide(total(branches[index].getAbsoluteFrequencies()));
+			branches[index].getAbsoluteFrequencies()
+					.forEach((key, frequency) -> expected.merge(key, frequency.multiply(factor), BigInteger::add));
+		}
+		assertEquals(expected.keySet(), result.keySet());
+		expected.forEach((key, frequency) -> assertEquals(frequency.multiply(resultTotal),
+				result.get(key).multiply(product).multiply(weightSum), key.toString()));
+	}
+
+	/**
+	 * A critical hit on a 20, a hit on 11 or more and a miss otherwise.
+	 */
+	@Test
+	void testAttack() {
+		IDie crit = new Compressor(new HomogeneousDiceGroup(new SingleDie(6), 4));
+		IDie hit = new Compressor(new HomogeneousDiceGroup(new SingleDie(6), 2));
+		IDie miss = new UnfairDie(new int[] { 0 }, new long[] { 1 });
+		Mixture mixture = new Mixture(new IDie[] { crit, hit, miss }, new long[] { 1, 9, 10 });
+		Map<Map<Integer, Integer>, BigInteger> result = mixture.getAbsoluteFrequencies();
+		// The multiple of 1296, 36 and 1 is 1296.
+		assertEquals(BigInteger.valueOf(1296 * 20), total(result));
+		assertEquals(BigInteger.valueOf(1296 * 10), result.get(Collections.singletonMap(0, 1)));
+		assertMixed(mixture);
+		assertSame(result, mixture.getAbsoluteFrequencies());
+	}
+
+	/**
+	 * The totals of the branches are rescaled to their least common multiple.
+	 */
+	@Test
+	void testLeastCommonMultiple() {
+		Mixture mixture = new Mixture(new IDie[] { new SingleDie(6), new SingleDie(4), new SingleDie(10) },
+				new long[] { 2, 4, 6 });
+		assertArrayEquals(new BigInteger[] { BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(3) },
+				mixture.getWeights());
+		assertEquals(BigInteger.valueOf(60 * 6), total(mixture.getAbsoluteFrequencies()));
+		assertMixed(mixture);
+	}
+
+	/**
+	 * A nested mixture only contributes its reduced total.
+	 */
+	@Test
+	void testNested() {
+		Mixture inner = new Mixture(new IDie[] { new SingleDie(6), new SingleDie(8) }, new long[] { 1, 1 });
+		Mixture outer = new Mixture(new IDie[] { inner, new SingleDie(12), inner }, new long[] { 1, 2, 3 });
+		assertMixed(outer);
+		Mixture deep = outer;
+		for (int level = 0; level < 20; level++) {
+			deep = new Mixture(new IDie[] { deep, new SingleDie(6) }, new long[] { 5, 1 });
+		}
+		assertMixed(deep);
+		// Only the weights multiply up, the totals of the dice stay at their common
+		// multiple.
+		assertTrue(total(deep.getAbsoluteFrequencies()).bitLength() < 100);
+	}
+
+	@Test
+	void testParallel() {
+		IDie[] branches = { new HomogeneousDiceGroup(new SingleDie(6), 3),
+				new HomogeneousDiceGroup(new SingleDie(4), 4), new SingleDie(20) };
+		Mixture sequential = new Mixture(branches, new long[] { 3, 5, 7 });
+		Mixture parallel = new Mixture(branches, new long[] { 3, 5, 7 });
+		parallel.setParallelThreshold(1);
+		assertEquals(sequential.getAbsoluteFrequencies(), parallel.getAbsoluteFrequencies());
+		assertMixed(parallel);
+	}
+
+	@Test
+	void testSpillingBranch() {
+		// The spilling branch gets streamed, and the compressor above streams as well.
+		MixedDiceGroup spilling = new MixedDiceGroup(new SingleDie(6), new SingleDie(8), new SingleDie(10));
+		Mixture expected = new Mixture(new IDie[] { new MixedDiceGroup(spilling.getSources()), new SingleDie(20) },
+				new long[] { 1, 3 });
+		spilling.setSpillThreshold(1);
+		Mixture mixture = new Mixture(new IDie[] { spilling, new SingleDie(20) }, new long[] { 1, 3 });
+		assertTrue(mixture.maySpill());
+		assertFalse(expected.maySpill());
+		assertEquals(expected.getAbsoluteFrequencies(), mixture.getAbsoluteFrequencies());
+		Compressor sum = new Compressor(mixture);
+		sum.setParallelThreshold(1);
+		assertEquals(new Compressor(expected).getScaledFrequencies(EvaluationBudget.UNLIMITED),
+				sum.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+	}
+
+	@Test
+	void testArguments() {
+		IDie[] branches = { new SingleDie(6), new SingleDie(8) };
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(null, new long[] { 1 }));
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(branches, (long[]) null));
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(new IDie[0], new long[0]));
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(branches, new long[] { 1 }));
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(branches, new long[] { 1, 0 }));
+		assertThrows(IllegalArgumentException.class,
+				() -> new Mixture(new IDie[] { null, new SingleDie(6) }, new long[] { 1, 1 }));
+		assertThrows(IllegalArgumentException.class, () -> new Mixture(branches, new long[] { 1, 1 })
+				.setParallelThreshold(0));
+	}
+}
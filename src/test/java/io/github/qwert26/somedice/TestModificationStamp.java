@@ -0,0 +1,85 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the modification stamps and the caching of results based on them.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestModificationStamp {
+	/**
+	 * Setters must advance the stamp, getters must not.
+	 */
+	@Test
+	void testSetters() {
+		SingleDie die = new SingleDie(6);
+		long stamp = die.getModificationStamp();
+		die.getMaximum();
+		assertEquals(stamp, die.getModificationStamp());
+		die.setMaximum(8);
+		assertTrue(die.getModificationStamp() > stamp);
+		DiceKeeper keeper = new DiceKeeper(new HomogeneousDiceGroup(die, 3), 0, 1);
+		stamp = keeper.getModificationStamp();
+		keeper.setKeepHighest(2);
+		assertTrue(keeper.getModificationStamp() > stamp);
+	}
+
+	/**
+	 * A modification deep inside a tree must invalidate every cached result
+	 * above it.
+	 */
+	@Test
+	void testPropagation() {
+		SingleDie die = new SingleDie(6);
+		Compressor sum = new Compressor(new DiceKeeper(new HomogeneousDiceGroup(die, 3), 0, 2));
+		Map<Map<Integer, Integer>, BigInteger> first = sum.getAbsoluteFrequencies();
+		assertSame(first, sum.getAbsoluteFrequencies());
+		long stamp = sum.getModificationStamp();
+		die.setMaximum(4);
+		assertTrue(sum.getModificationStamp() > stamp);
+		Map<Map<Integer, Integer>, BigInteger> second = sum.getAbsoluteFrequencies();
+		assertNotEquals(first, second);
+		assertEquals(new Compressor(new DiceKeeper(new HomogeneousDiceGroup(new SingleDie(4), 3), 0, 2))
+				.getAbsoluteFrequencies(), second);
+	}
+
+	/**
+	 * Changing the data of an {@link UnfairDie} through its view must be
+	 * noticed.
+	 */
+	@Test
+	void testUnfairDieData() {
+		UnfairDie die = new UnfairDie(new SingleDie(2));
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(die, 2);
+		Map<Map<Integer, Integer>, BigInteger> first = group.getAbsoluteFrequencies();
+		long stamp = die.getModificationStamp();
+		die.getData().put(3, BigInteger.ONE);
+		assertTrue(die.getModificationStamp() > stamp);
+		assertNotEquals(first, group.getAbsoluteFrequencies());
+		stamp = die.getModificationStamp();
+		Iterator<Map.Entry<Integer, BigInteger>> iterator = die.getData().entrySet().iterator();
+		iterator.next().setValue(BigInteger.TWO);
+		assertTrue(die.getModificationStamp() > stamp);
+	}
+
+	/**
+	 * Untracked sources always report a fresh stamp, so nothing above them is
+	 * cached.
+	 */
+	@Test
+	void testUntrackedSource() {
+		IDie untracked = () -> Collections.singletonMap(Collections.singletonMap(1, 1), BigInteger.ONE);
+		assertNotEquals(untracked.getModificationStamp(), untracked.getModificationStamp());
+		Compressor sum = new Compressor(untracked);
+		Map<Map<Integer, Integer>, BigInteger> first = sum.getAbsoluteFrequencies();
+		Map<Map<Integer, Integer>, BigInteger> second = sum.getAbsoluteFrequencies();
+		assertNotSame(first, second);
+		assertEquals(first, second);
+	}
+}
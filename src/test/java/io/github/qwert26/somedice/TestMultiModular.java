@@ -0,0 +1,139 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the exact counting on residues against the counting on
+ * {@link BigInteger}s.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestMultiModular {
+	/**
+	 * 
+	 * @return An unfair die, whose weights need more than a single prime.
+	 */
+	private static UnfairDie heavy() {
+		return new UnfairDie(new int[] { -1, 0, 2, 5 },
+				new BigInteger[] { BigInteger.ONE.shiftLeft(90).add(BigInteger.ONE), BigInteger.valueOf(3),
+						BigInteger.TEN.pow(20), BigInteger.ONE.shiftLeft(70).subtract(BigInteger.ONE) });
+	}
+
+	@Test
+	void testModulus() {
+		MultiModular.Modulus modulus = MultiModular.moduli(0)[0];
+		BigInteger prime = BigInteger.valueOf(modulus.prime());
+		assertTrue(prime.isProbablePrime(100));
+		assertTrue(prime.bitLength() == 62);
+		Random random = new Random(26);
+		for (int i = 0; i < 1000; i++) {
+			BigInteger a = new BigInteger(100, random), b = new BigInteger(100, random);
+			long product = modulus.restore(modulus.multiply(modulus.reduce(a), modulus.reduce(b)));
+			assertEquals(a.multiply(b).mod(prime).longValue(), product);
+			long inverse = modulus.restore(modulus.invert(modulus.reduce(a.add(BigInteger.ONE))));
+			assertEquals(a.add(BigInteger.ONE).modInverse(prime).longValue(), inverse);
+		}
+		assertEquals(2, MultiModular.moduli(61).length);
+		assertEquals(MultiModular.moduli(200)[1].prime(), MultiModular.moduli(100)[1].prime());
+	}
+
+	@Test
+	void testHomogeneousDiceGroup() {
+		for (HomogeneousDiceGroup group : List.of(new HomogeneousDiceGroup(new SingleDie(6), 10),
+				new HomogeneousDiceGroup(heavy(), 7), new HomogeneousDiceGroup(FudgeDie.INSTANCE, 1))) {
+			Map<Map<Integer, Integer>, BigInteger> exact = new HomogeneousDiceGroup(group.getBaseDie(), group.getCount())
+					.getAbsoluteFrequencies();
+			group.setMultiModular(true);
+			assertEquals(exact, group.getAbsoluteFrequencies());
+			assertEquals(ScaledFrequencies.of(exact), group.getScaledFrequencies());
+		}
+	}
+
+	@Test
+	void testMixedDiceGroup() {
+		MixedDiceGroup group = new MixedDiceGroup(heavy(), new SingleDie(6), new HomogeneousDiceGroup(heavy(), 3),
+				new SingleDie(6));
+		Map<Map<Integer, Integer>, BigInteger> exact = group.copyAbsoluteFrequencies();
+		MixedDiceGroup modular = new MixedDiceGroup(group.getSources());
+		modular.setMultiModular(true);
+		assertTrue(modular.isMultiModular());
+		assertEquals(exact, modular.getAbsoluteFrequencies());
+		assertEquals(group.getScaledFrequencies(), modular.getScaledFrequencies());
+		Map<Map<Integer, Integer>, BigInteger> streamed = new HashMap<Map<Integer, Integer>, BigInteger>();
+		MixedDiceGroup streaming = new MixedDiceGroup(modular.getSources());
+		streaming.setMultiModular(true);
+		streaming.forEachAbsoluteFrequency(EvaluationBudget.UNLIMITED, streamed::put);
+		assertEquals(exact, streamed);
+	}
+
+	@Test
+	void testIndeterministicDiceGroup() {
+		UnfairDie counts = new UnfairDie(new int[] { -2, 0, 1, 2, 4 }, new long[] { 5, 1, 2, 3, 7 });
+		for (AbstractDie base : List.of(heavy(), new SingleDie(4), new RangeDie(0, 3))) {
+			IndeterministicDiceGroup group = new IndeterministicDiceGroup(base, counts);
+			Map<Map<Integer, Integer>, BigInteger> exact = group.copyAbsoluteFrequencies();
+			IndeterministicDiceGroup modular = new IndeterministicDiceGroup(base, counts);
+			modular.setMultiModular(true);
+			assertEquals(exact, modular.getAbsoluteFrequencies());
+		}
+	}
+
+	/**
+	 * Switching the mode does not change the result, so the cached one stays
+	 * valid.
+	 */
+	@Test
+	void testCache() {
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(new SingleDie(8), 4);
+		long stamp = group.getModificationStamp();
+		Map<Map<Integer, Integer>, BigInteger> first = group.getAbsoluteFrequencies();
+		group.setMultiModular(true);
+		assertEquals(stamp, group.getModificationStamp());
+		assertSame(first, group.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testBudget() {
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(new SingleDie(6), 5);
+		group.setMultiModular(true);
+		assertThrows(BudgetExceededException.class, () -> group.getAbsoluteFrequencies(
+				new EvaluationBudget(100, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE)));
+		assertThrows(BudgetExceededException.class, () -> group.getAbsoluteFrequencies(
+				new EvaluationBudget(Integer.MAX_VALUE, 6, Long.MAX_VALUE, Long.MAX_VALUE)));
+		assertEquals(252, group.getAbsoluteFrequencies(EvaluationBudget.UNLIMITED).size());
+	}
+
+	/**
+	 * The slots of all multi-sets or combinations are checked against the budget,
+	 * before a single key has been produced: Only the faces of the sources count as
+	 * produced entries.
+	 */
+	@Test
+	void testBudgetBeforeAllocation() {
+		HomogeneousDiceGroup homogeneous = new HomogeneousDiceGroup(new SingleDie(100), 6);
+		homogeneous.setMultiModular(true);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class, () -> homogeneous
+				.getAbsoluteFrequencies(new EvaluationBudget(1000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE)));
+		assertEquals(BudgetExceededException.Limit.ENTRIES, e.getLimit());
+		assertSame(homogeneous, e.getNode());
+		EvaluationBudget heap = new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, 1L << 20);
+		e = assertThrows(BudgetExceededException.class, () -> homogeneous.getAbsoluteFrequencies(heap));
+		assertEquals(BudgetExceededException.Limit.HEAP, e.getLimit());
+		assertEquals(100, e.getProducedEntries());
+
+		MixedDiceGroup mixed = new MixedDiceGroup(new SingleDie(100), new SingleDie(100), new SingleDie(100),
+				new SingleDie(100));
+		mixed.setMultiModular(true);
+		EvaluationBudget mixedHeap = new EvaluationBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE,
+				1L << 20);
+		e = assertThrows(BudgetExceededException.class, () -> mixed.getAbsoluteFrequencies(mixedHeap));
+		assertEquals(BudgetExceededException.Limit.HEAP, e.getLimit());
+		assertSame(mixed, e.getNode());
+		assertEquals(400, e.getProducedEntries());
+	}
+}
@@ -0,0 +1,79 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link OpposedRoll} against comparing every pair of values by hand.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestOpposedRoll {
+	/**
+	 * 
+	 * @param roll
+	 * @param outcomes If {@code true}, only the sign of the margin is kept.
+	 * @return The margins or outcomes of every pair of values.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> compared(OpposedRoll roll, boolean outcomes) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		roll.getAttacker().getAbsoluteFrequencies().forEach((left, leftFrequency) -> {
+			roll.getDefender().getAbsoluteFrequencies().forEach((right, rightFrequency) -> {
+				int margin = left.keySet().iterator().next() - right.keySet().iterator().next();
+				ret.merge(Collections.singletonMap(outcomes ? Integer.signum(margin) : margin, 1),
+						leftFrequency.multiply(rightFrequency), BigInteger::add);
+			});
+		});
+		return ret;
+	}
+
+	@Test
+	void testAgainstPairs() {
+		UnfairDie weighted = new UnfairDie(new int[] { -3, 2, 4, 9 }, new long[] { 3, 1, 5, 2 });
+		Compressor sum = new Compressor(new HomogeneousDiceGroup(new SingleDie(6), 3));
+		List<IDie> sides = List.of(new SingleDie(20), weighted, FudgeDie.INSTANCE, sum);
+		for (IDie attacker : sides) {
+			for (IDie defender : sides) {
+				OpposedRoll roll = new OpposedRoll(attacker, defender);
+				assertEquals(compared(roll, true), roll.getOutcomes());
+				assertEquals(compared(roll, false), roll.getAbsoluteFrequencies());
+				assertEquals(ScaledFrequencies.of(compared(roll, false)), roll.getScaledFrequencies());
+			}
+		}
+	}
+
+	/**
+	 * Equal dice win as often as they lose.
+	 */
+	@Test
+	void testSymmetric() {
+		OpposedRoll roll = new OpposedRoll(new SingleDie(20), new SingleDie(20));
+		Map<Map<Integer, Integer>, BigInteger> outcomes = roll.getOutcomes();
+		assertEquals(BigInteger.valueOf(190), outcomes.get(OpposedRoll.WIN));
+		assertEquals(BigInteger.valueOf(20), outcomes.get(OpposedRoll.TIE));
+		assertEquals(BigInteger.valueOf(190), outcomes.get(OpposedRoll.LOSS));
+		assertSame(outcomes, roll.getOutcomes());
+		assertEquals(39, roll.getAbsoluteFrequencies().size());
+	}
+
+	/**
+	 * Impossible outcomes are left out.
+	 */
+	@Test
+	void testDisjoint() {
+		OpposedRoll roll = new OpposedRoll(new RangeDie(11, 21), new SingleDie(10));
+		assertEquals(Map.of(OpposedRoll.WIN, BigInteger.valueOf(100)), roll.getOutcomes());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> new OpposedRoll(null, new SingleDie(6)));
+		assertThrows(NullPointerException.class, () -> new OpposedRoll(new SingleDie(6), null));
+		OpposedRoll roll = new OpposedRoll(new HomogeneousDiceGroup(new SingleDie(6), 2), new SingleDie(6));
+		assertThrows(IllegalArgumentException.class, () -> roll.getOutcomes());
+	}
+}
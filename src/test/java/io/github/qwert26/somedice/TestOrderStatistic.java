@@ -0,0 +1,76 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link OrderStatistic} against keeping dice of
+ * {@link HomogeneousDiceGroup}s.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestOrderStatistic {
+	/**
+	 * 
+	 * @param base
+	 * @param count
+	 * @param rank
+	 * @return The highest of the lowest dice up to the rank of every multi-set.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> kept(AbstractDie base, int count, int rank) {
+		return new DiceKeeper(new DiceKeeper(new HomogeneousDiceGroup(base, count), rank, 0), 0, 1)
+				.getAbsoluteFrequencies();
+	}
+
+	@Test
+	void testKeeper() {
+		UnfairDie weighted = new UnfairDie(new int[] { -3, 0, 2, 5, 8 }, new long[] { 4, 1, 7, 2, 3 });
+		for (AbstractDie base : List.of(new SingleDie(10), FudgeDie.INSTANCE, weighted)) {
+			for (int count = 1; count <= 6; count++) {
+				for (int rank = 1; rank <= count; rank++) {
+					assertEquals(kept(base, count, rank),
+							new OrderStatistic(base, count, rank).getAbsoluteFrequencies());
+				}
+			}
+		}
+	}
+
+	@Test
+	void testFactories() {
+		SingleDie d20 = new SingleDie(20);
+		assertEquals(ExtremeOf.highest(d20, 4).getAbsoluteFrequencies(),
+				OrderStatistic.kthHighest(d20, 4, 1).getAbsoluteFrequencies());
+		assertEquals(ExtremeOf.lowest(d20, 4).getAbsoluteFrequencies(),
+				OrderStatistic.kthLowest(d20, 4, 1).getAbsoluteFrequencies());
+		assertEquals(3, OrderStatistic.median(d20, 5).getRank());
+		assertEquals(5, OrderStatistic.kthHighest(new SingleDie(10), 6, 2).getRank());
+		assertThrows(IllegalArgumentException.class, () -> OrderStatistic.median(d20, 4));
+		assertThrows(IllegalArgumentException.class, () -> OrderStatistic.kthHighest(d20, 4, 0));
+		assertThrows(IllegalArgumentException.class, () -> OrderStatistic.kthLowest(d20, 4, 5));
+	}
+
+	@Test
+	void testScaled() {
+		UnfairDie even = new UnfairDie(new int[] { 1, 2, 3 }, new long[] { 2, 4, 6 });
+		OrderStatistic median = OrderStatistic.median(even, 7);
+		assertEquals(ScaledFrequencies.of(median.getAbsoluteFrequencies()), median.getScaledFrequencies());
+	}
+
+	/**
+	 * Far too many rolls for any enumeration.
+	 */
+	@Test
+	void testLarge() {
+		Map<Map<Integer, Integer>, BigInteger> result = OrderStatistic.median(new SingleDie(20), 201)
+				.getAbsoluteFrequencies();
+		assertEquals(20, result.size());
+		assertEquals(BigInteger.valueOf(20).pow(201),
+				result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		// Symmetric around the middle of the die.
+		assertEquals(result.get(Collections.singletonMap(1, 1)), result.get(Collections.singletonMap(20, 1)));
+	}
+}
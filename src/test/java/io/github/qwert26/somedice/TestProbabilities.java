@@ -0,0 +1,116 @@
+package io.github.qwert26.somedice;
+
+import java.math.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import io.github.qwert26.somedice.ttrpg.dnd.RecievedDamage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link Probabilities} and the approximated evaluation of the operators.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestProbabilities {
+	/**
+	 * 
+	 * @return Trees of every operator.
+	 */
+	static Stream<IDie> trees() {
+		UnfairDie unfair = new UnfairDie(new int[] { 1, 2, 3 }, new long[] { 1, 5, 7 });
+		RecievedDamage damage = new RecievedDamage(new Compressor(new HomogeneousDiceGroup(new SingleDie(8), 5)));
+		damage.setReduction(4);
+		damage.setResistance(true);
+		return Stream.of(unfair, new HomogeneousDiceGroup(unfair, 5), new HomogeneousDiceGroup(new SingleDie(20), 3),
+				new MixedDiceGroup(unfair, new SingleDie(6), FudgeDie.INSTANCE),
+				new IndeterministicDiceGroup(new SingleDie(4),
+						new UnfairDie(new int[] { 0, 1, 3 }, new long[] { 1, 2, 3 })),
+				new DiceExploder(new SingleDie(6), new SingleDie(6)::explodesOn, (byte) 3),
+				new Compressor(new DiceKeeper(new HomogeneousDiceGroup(new SingleDie(6), 4), 0, 3)),
+				new DiceDropper(new MixedDiceGroup(unfair, new SingleDie(4), new SingleDie(8)), 1, 0), damage);
+	}
+
+	/**
+	 * Checks approximated probabilities against the exact ones.
+	 * 
+	 * @param exact         The exact absolute frequencies.
+	 * @param probabilities The approximated probabilities.
+	 */
+	private static void assertWithinBound(Map<Map<Integer, Integer>, BigInteger> exact, Probabilities probabilities) {
+		assertEquals(exact.keySet(), probabilities.getValues().keySet());
+		BigDecimal total = new BigDecimal(exact.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		double bound = probabilities.getRelativeErrorBound();
+		assertTrue(bound > 0);
+		assertTrue(bound < 1e-12, "Bound too loose: " + bound);
+		for (Map.Entry<Map<Integer, Integer>, BigInteger> entry : exact.entrySet()) {
+			double truth = new BigDecimal(entry.getValue()).divide(total, MathContext.DECIMAL128).doubleValue();
+			double approximated = probabilities.getProbability(entry.getKey());
+			assertEquals(truth, approximated, truth * bound + Double.MIN_VALUE, entry.getKey().toString());
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("trees")
+	void testLinear(IDie tree) {
+		Probabilities probabilities = tree.getProbabilities();
+		assertFalse(probabilities.isLogSpace());
+		assertWithinBound(tree.getAbsoluteFrequencies(), probabilities);
+		double sum = probabilities.getValues().values().stream().mapToDouble(Double::doubleValue).sum();
+		assertEquals(1.0, sum, 1e-12);
+	}
+
+	@ParameterizedTest
+	@MethodSource("trees")
+	void testLogarithmic(IDie tree) {
+		Probabilities probabilities = tree.getProbabilities(true, EvaluationBudget.UNLIMITED);
+		assertTrue(probabilities.isLogSpace());
+		assertWithinBound(tree.getAbsoluteFrequencies(), probabilities);
+	}
+
+	/**
+	 * Tails, that underflow in the linear space, must still be available in the
+	 * logarithmic space.
+	 */
+	@Test
+	void testExtremeTail() {
+		HomogeneousDiceGroup coins = new HomogeneousDiceGroup(new SingleDie(2), 1100);
+		Map<Integer, Integer> allOnes = Collections.singletonMap(1, 1100);
+		assertEquals(0.0, coins.getProbabilities().getProbability(allOnes));
+		Probabilities logarithmic = coins.getProbabilities(true, EvaluationBudget.UNLIMITED);
+		double expected = -1100 * Math.log(2);
+		assertEquals(expected, logarithmic.getLogProbability(allOnes),
+				Math.abs(expected) * 1e-14 + logarithmic.getRelativeErrorBound());
+		assertEquals(Double.NEGATIVE_INFINITY, logarithmic.getLogProbability(Collections.singletonMap(3, 1)));
+	}
+
+	@Test
+	void testConversion() {
+		Map<Map<Integer, Integer>, BigInteger> frequencies = Map.of(Map.of(1, 1), BigInteger.ONE, Map.of(2, 1),
+				BigInteger.valueOf(3));
+		Probabilities linear = Probabilities.of(frequencies, false);
+		assertEquals(0.25, linear.getProbability(Map.of(1, 1)));
+		assertEquals(0.75, linear.getProbability(Map.of(2, 1)));
+		assertEquals(0.0, linear.getProbability(Map.of(3, 1)));
+		Probabilities logarithmic = Probabilities.of(frequencies, true);
+		assertEquals(Math.log(0.25), logarithmic.getLogProbability(Map.of(1, 1)), 1e-15);
+		assertEquals(linear.getProbabilities().keySet(), logarithmic.getProbabilities().keySet());
+		assertThrows(IllegalArgumentException.class, () -> Probabilities.of((ScaledFrequencies) null, false));
+	}
+
+	@Test
+	void testBudget() {
+		EvaluationBudget budget = new EvaluationBudget(10, 1, Long.MAX_VALUE, Long.MAX_VALUE);
+		assertThrows(BudgetExceededException.class,
+				() -> new HomogeneousDiceGroup(new SingleDie(6), 3).getProbabilities(false, budget));
+		EvaluationBudget bits = new EvaluationBudget(Integer.MAX_VALUE, 4, Long.MAX_VALUE, Long.MAX_VALUE);
+		assertDoesNotThrow(
+				() -> new MixedDiceGroup(new SingleDie(6), new SingleDie(6), new SingleDie(6)).getProbabilities(false,
+						bits));
+	}
+}
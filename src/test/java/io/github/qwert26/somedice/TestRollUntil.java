@@ -0,0 +1,122 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link RollUntil} against enumerating the tree of all rolls.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestRollUntil {
+	/**
+	 * Rolls recursively and fills up every stopped process to the common
+	 * denominator.
+	 * 
+	 * @param process
+	 * @param state   The current state.
+	 * @param steps   The rolls so far.
+	 * @param weight  The weight so far.
+	 * @param ret     The outcomes.
+	 */
+	private static void roll(RollUntil process, int state, int steps, BigInteger weight,
+			Map<Map<Integer, Integer>, BigInteger> ret) {
+		Map<Map<Integer, Integer>, BigInteger> base = process.getSource().getAbsoluteFrequencies();
+		BigInteger total = base.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+		if (steps == process.getMaxSteps() || process.getAbsorbing().test(state)) {
+			int outcome = process.getOutcome() == RollUntil.Outcome.STATE ? state
+					: process.getAbsorbing().test(state) ? steps : steps + 1;
+			ret.merge(Collections.singletonMap(outcome, 1), weight.multiply(total.pow(process.getMaxSteps() - steps)),
+					BigInteger::add);
+			return;
+		}
+		base.forEach((key, frequency) -> roll(process,
+				process.getTransition().applyAsInt(state, key.keySet().iterator().next()), steps + 1,
+				weight.multiply(frequency), ret));
+	}
+
+	/**
+	 * 
+	 * @param process
+	 * @return The outcomes of the tree of all rolls.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> rolled(RollUntil process) {
+		Map<Map<Integer, Integer>, BigInteger> ret = new HashMap<Map<Integer, Integer>, BigInteger>();
+		roll(process, process.getInitialState(), 0, BigInteger.ONE, ret);
+		return ret;
+	}
+
+	@Test
+	void testSumAtLeast() {
+		RollUntil process = RollUntil.sumAtLeast(new SingleDie(6), 10, 10);
+		Map<Map<Integer, Integer>, BigInteger> result = process.getAbsoluteFrequencies();
+		assertEquals(rolled(process), result);
+		assertEquals(Set.of(10, 11, 12, 13, 14, 15),
+				result.keySet().stream().map(key -> key.keySet().iterator().next()).collect(Collectors.toSet()));
+		process.setOutcome(RollUntil.Outcome.STEPS);
+		assertEquals(rolled(process), process.getAbsoluteFrequencies());
+		// Truncated before reaching the total.
+		process.setMaxSteps(2);
+		assertEquals(rolled(process), process.getAbsoluteFrequencies());
+		process.setOutcome(RollUntil.Outcome.STATE);
+		assertEquals(rolled(process), process.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testStreak() {
+		RollUntil process = RollUntil.streak(new SingleDie(6), roll -> roll == 6, 2, 8);
+		Map<Map<Integer, Integer>, BigInteger> result = process.getAbsoluteFrequencies();
+		assertEquals(rolled(process), result);
+		// Two sixes with the first two rolls.
+		assertEquals(BigInteger.valueOf(6).pow(6), result.get(Collections.singletonMap(2, 1)));
+		assertNull(result.get(Collections.singletonMap(1, 1)));
+		// Cut off without two sixes in a row, kept apart from a streak with the last
+		// roll.
+		assertNotNull(result.get(Collections.singletonMap(9, 1)));
+		assertNotEquals(result.get(Collections.singletonMap(8, 1)), result.get(Collections.singletonMap(9, 1)));
+	}
+
+	@Test
+	void testUnfair() {
+		UnfairDie weighted = new UnfairDie(new int[] { -2, 1, 3 }, new long[] { 3, 1, 5 });
+		RollUntil process = new RollUntil(weighted, 0, (state, roll) -> Math.max(-3, state + roll),
+				state -> Math.abs(state) >= 4, 7);
+		assertEquals(rolled(process), process.getAbsoluteFrequencies());
+		assertEquals(ScaledFrequencies.of(rolled(process)), process.getScaledFrequencies());
+	}
+
+	/**
+	 * Many steps over few states, where the tree would be far too large.
+	 */
+	@Test
+	void testLarge() {
+		RollUntil process = RollUntil.streak(new SingleDie(6), roll -> roll == 6, 3, 500);
+		Map<Map<Integer, Integer>, BigInteger> result = process.getAbsoluteFrequencies();
+		assertEquals(BigInteger.valueOf(6).pow(500), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+		// Absorbed after 3 to 500 rolls or cut off.
+		assertEquals(499, result.size());
+		assertSame(result, process.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testInitialAbsorbing() {
+		RollUntil process = RollUntil.sumAtLeast(new SingleDie(6), 0, 3);
+		assertEquals(Map.of(Collections.singletonMap(0, 1), BigInteger.valueOf(216)),
+				process.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> RollUntil.sumAtLeast(null, 10, 3));
+		assertThrows(IllegalArgumentException.class, () -> RollUntil.sumAtLeast(new SingleDie(6), 10, -1));
+		assertThrows(NullPointerException.class, () -> RollUntil.streak(new SingleDie(6), null, 2, 3));
+		assertThrows(NullPointerException.class, () -> new RollUntil(new SingleDie(6), 0, null, state -> true, 3));
+		RollUntil process = RollUntil.sumAtLeast(new HomogeneousDiceGroup(new SingleDie(6), 2), 10, 3);
+		assertThrows(IllegalArgumentException.class, () -> process.getAbsoluteFrequencies());
+	}
+}
@@ -0,0 +1,108 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link ScaledFrequencies} and the normalized evaluation of the
+ * operators.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestScaledFrequencies {
+	/**
+	 * 
+	 * @return An unfair die, whose weights share the factor 2.
+	 */
+	private static UnfairDie evenWeights() {
+		return new UnfairDie(new int[] { 1, 2, 3 }, new long[] { 2, 4, 6 });
+	}
+
+	/**
+	 * 
+	 * @return Trees of every operator, containing dice with common factors.
+	 */
+	static Stream<IDie> trees() {
+		return Stream.of(evenWeights(), new HomogeneousDiceGroup(evenWeights(), 3),
+				new MixedDiceGroup(evenWeights(), new SingleDie(6), evenWeights()),
+				new IndeterministicDiceGroup(evenWeights(), new UnfairDie(new int[] { 0, 1, 2 }, new long[] { 3, 6, 9 }),
+						true),
+				new DiceExploder(evenWeights(), evenWeights()::explodesOn, (byte) 3),
+				new DiceExploder(evenWeights(), _ -> true, (byte) 2),
+				new Compressor(new DiceKeeper(new HomogeneousDiceGroup(evenWeights(), 4), 0, 2)),
+				new DiceDropper(new MixedDiceGroup(evenWeights(), new SingleDie(4), new UnfairDie(new SingleDie(3))), 1,
+						0),
+				() -> Collections.singletonMap(Collections.singletonMap(1, 1), BigInteger.TEN));
+	}
+
+	@Test
+	void testNormalization() {
+		Map<Map<Integer, Integer>, BigInteger> frequencies = Map.of(Map.of(1, 1), BigInteger.valueOf(4), Map.of(2, 1),
+				BigInteger.valueOf(6));
+		ScaledFrequencies scaled = ScaledFrequencies.of(frequencies);
+		assertEquals(BigInteger.TWO, scaled.getScale());
+		assertEquals(Map.of(Map.of(1, 1), BigInteger.TWO, Map.of(2, 1), BigInteger.valueOf(3)), scaled.getReduced());
+		assertEquals(frequencies, scaled.getAbsoluteFrequencies());
+		assertEquals(BigInteger.valueOf(6), scaled.getAbsoluteFrequency(Map.of(2, 1)));
+		assertEquals(BigInteger.ZERO, scaled.getAbsoluteFrequency(Map.of(3, 1)));
+		assertEquals(scaled, new ScaledFrequencies(BigInteger.TWO, Map.of(Map.of(1, 1), BigInteger.TWO, Map.of(2, 1),
+				BigInteger.valueOf(3))));
+		assertThrows(UnsupportedOperationException.class, () -> scaled.getReduced().clear());
+	}
+
+	@Test
+	void testEmpty() {
+		ScaledFrequencies scaled = ScaledFrequencies.of(Collections.emptyMap());
+		assertEquals(BigInteger.ONE, scaled.getScale());
+		assertTrue(scaled.getAbsoluteFrequencies().isEmpty());
+	}
+
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> ScaledFrequencies.of(null));
+		assertThrows(IllegalArgumentException.class, () -> new ScaledFrequencies(null, Collections.emptyMap()));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ScaledFrequencies(BigInteger.ZERO, Collections.emptyMap()));
+	}
+
+	/**
+	 * The normalized form must reconstruct the exact absolute frequencies.
+	 * 
+	 * @param tree
+	 */
+	@ParameterizedTest
+	@MethodSource("trees")
+	void testReconstruction(IDie tree) {
+		ScaledFrequencies scaled = tree.getScaledFrequencies();
+		assertEquals(tree.getAbsoluteFrequencies(), scaled.getAbsoluteFrequencies());
+		assertEquals(BigInteger.ONE, ScaledFrequencies.gcd(scaled.getReduced().values()));
+	}
+
+	/**
+	 * The common factors must be kept out of the reduced frequencies, so a budget
+	 * on the bit length only sees the reduced ones.
+	 */
+	@Test
+	void testSmallerNumbers() {
+		UnfairDie heavy = new UnfairDie(new int[] { 1, 2 }, new BigInteger[] { BigInteger.ONE.shiftLeft(40),
+				BigInteger.ONE.shiftLeft(41) });
+		HomogeneousDiceGroup group = new HomogeneousDiceGroup(heavy, 4);
+		ScaledFrequencies scaled = group.getScaledFrequencies();
+		assertEquals(BigInteger.ONE.shiftLeft(160), scaled.getScale());
+		for (BigInteger reduced : scaled.getReduced().values()) {
+			assertTrue(reduced.bitLength() < 8);
+		}
+		EvaluationBudget budget = new EvaluationBudget(Integer.MAX_VALUE, 16, Long.MAX_VALUE, Long.MAX_VALUE);
+		assertThrows(BudgetExceededException.class,
+				() -> new HomogeneousDiceGroup(heavy, 4).getAbsoluteFrequencies(budget));
+		ScaledFrequencies summed = new Compressor(new HomogeneousDiceGroup(heavy, 4)).getScaledFrequencies(budget);
+		assertEquals(new Compressor(group).getAbsoluteFrequencies(), summed.getAbsoluteFrequencies());
+	}
+}
@@ -0,0 +1,194 @@
+package io.github.qwert26.somedice;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link SpillingAggregator} and the operators using it.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestSpillingAggregator {
+	/**
+	 * Counts the files inside a directory.
+	 * 
+	 * @param directory
+	 * @return The amount of files.
+	 * @throws IOException
+	 */
+	private static long countFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	/**
+	 * Streams all absolute frequencies of a node into a new map.
+	 * 
+	 * @param node
+	 * @return The streamed frequencies.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> stream(IDie node) {
+		Map<Map<Integer, Integer>, BigInteger> streamed = new HashMap<>();
+		node.forEachAbsoluteFrequency(EvaluationBudget.UNLIMITED,
+				(key, frequency) -> assertNull(streamed.put(key, frequency)));
+		return streamed;
+	}
+
+	/**
+	 * Without spilling, the aggregator behaves like a plain map.
+	 */
+	@Test
+	void testInMemory() {
+		try (SpillingAggregator aggregator = new SpillingAggregator(Long.MAX_VALUE)) {
+			aggregator.merge(Collections.singletonMap(1, 1), BigInteger.ONE);
+			aggregator.merge(Collections.singletonMap(2, 1), BigInteger.ONE);
+			assertEquals(BigInteger.TWO, aggregator.merge(new TreeMap<>(Map.of(1, 1)), BigInteger.ONE));
+			assertFalse(aggregator.hasSpilled());
+			assertEquals(Map.of(Map.of(1, 1), BigInteger.TWO, Map.of(2, 1), BigInteger.ONE), aggregator.toMap());
+		}
+	}
+
+	/**
+	 * A key first merged with zero takes up memory just like any other key, so
+	 * merging it again must not count its bytes twice.
+	 */
+	@Test
+	void testZeroValue() {
+		Map<Integer, Integer> key = Collections.singletonMap(1, 1);
+		long threshold = EvaluationBudget.approximateEntryBytes(key, BigInteger.ONE) + 1;
+		try (SpillingAggregator aggregator = new SpillingAggregator(threshold)) {
+			assertEquals(BigInteger.ZERO, aggregator.merge(key, BigInteger.ZERO));
+			assertEquals(BigInteger.ONE, aggregator.merge(key, BigInteger.ONE));
+			assertFalse(aggregator.hasSpilled());
+			assertEquals(Map.of(key, BigInteger.ONE), aggregator.toMap());
+		}
+	}
+
+	/**
+	 * Spilled entries of the same key must be merged back together, and all
+	 * temporary files must be gone afterwards.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void testSpilling() throws IOException {
+		Path directory = Files.createTempDirectory("somedice-test");
+		try {
+			Map<Map<Integer, Integer>, BigInteger> expected = new HashMap<>();
+			try (SpillingAggregator aggregator = new SpillingAggregator(1000, 4, directory)) {
+				for (int round = 0; round < 5; round++) {
+					for (int value = 1; value <= 100; value++) {
+						Map<Integer, Integer> key = Map.of(value, round % 2 + 1, -value, 1);
+						BigInteger frequency = BigInteger.ONE.shiftLeft(value);
+						aggregator.merge(key, frequency);
+						expected.merge(key, frequency, BigInteger::add);
+					}
+				}
+				assertTrue(aggregator.hasSpilled());
+				assertTrue(countFiles(directory) > 0);
+				Map<Map<Integer, Integer>, BigInteger> streamed = new HashMap<>();
+				aggregator.forEach((key, frequency) -> assertNull(streamed.put(key, frequency)));
+				assertEquals(expected, streamed);
+				assertEquals(expected, aggregator.toMap());
+				assertEquals(0, countFiles(directory));
+			}
+		} finally {
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	/**
+	 * Spilling must not change the results of the operators.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void testOperators() throws IOException {
+		Path directory = Files.createTempDirectory("somedice-test");
+		try {
+			MixedDiceGroup mixed = new MixedDiceGroup(new SingleDie(6), new SingleDie(8), new SingleDie(10),
+					FudgeDie.INSTANCE);
+			Map<Map<Integer, Integer>, BigInteger> expected = new MixedDiceGroup(mixed.getSources())
+					.getAbsoluteFrequencies();
+			mixed.setSpillThreshold(1);
+			mixed.setSpillDirectory(directory);
+			assertTrue(mixed.maySpill());
+			assertEquals(expected, stream(mixed));
+			assertThrows(IllegalStateException.class, mixed::getAbsoluteFrequencies);
+			assertThrows(IllegalStateException.class, () -> mixed.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+			assertEquals(0, countFiles(directory));
+
+			Compressor sum = new Compressor(mixed);
+			Compressor unspilled = new Compressor(new MixedDiceGroup(mixed.getSources()));
+			assertEquals(unspilled.toUnfairDie(), sum.toUnfairDie());
+			assertEquals(unspilled.getScaledFrequencies(EvaluationBudget.UNLIMITED),
+					sum.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+			assertEquals(Probabilities.of(unspilled.getScaledFrequencies(EvaluationBudget.UNLIMITED), false),
+					sum.getProbabilities(false, EvaluationBudget.UNLIMITED));
+			assertEquals(0, countFiles(directory));
+
+			IndeterministicDiceGroup indeterministic = new IndeterministicDiceGroup(new SingleDie(6),
+					new UnfairDie(new SingleDie(4)));
+			expected = new IndeterministicDiceGroup(indeterministic.getBaseDie(),
+					indeterministic.getCountDistribution()).getAbsoluteFrequencies();
+			indeterministic.setSpillThreshold(1);
+			indeterministic.setSpillDirectory(directory);
+			assertTrue(indeterministic.maySpill());
+			assertEquals(expected, stream(indeterministic));
+			assertThrows(IllegalStateException.class, indeterministic::getAbsoluteFrequencies);
+			expected = new DiceKeeper(new IndeterministicDiceGroup(new SingleDie(6), new UnfairDie(new SingleDie(4))),
+					1, 0).getAbsoluteFrequencies();
+			DiceKeeper highest = new DiceKeeper(indeterministic, 1, 0);
+			assertEquals(expected, highest.getAbsoluteFrequencies());
+			assertEquals(ScaledFrequencies.of(expected), highest.getScaledFrequencies(EvaluationBudget.UNLIMITED));
+			expected = new DiceDropper(new MixedDiceGroup(mixed.getSources()), 1, 0).getAbsoluteFrequencies();
+			DiceDropper dropper = new DiceDropper(mixed, 1, 0);
+			assertEquals(Probabilities.of(expected, false), dropper.getProbabilities(false, EvaluationBudget.UNLIMITED));
+			assertEquals(0, countFiles(directory));
+		} finally {
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	/**
+	 * After a spill, the same key is on the disk multiple times and only with
+	 * partial frequencies, so the budget must check the merged entries instead.
+	 */
+	@Test
+	void testSpilledBudget() {
+		MixedDiceGroup mixed = new MixedDiceGroup(new SingleDie(6), new SingleDie(6));
+		int size = new MixedDiceGroup(mixed.getSources()).getAbsoluteFrequencies().size();
+		mixed.setSpillThreshold(1);
+		EvaluationBudget exact = new EvaluationBudget(size, 2, Long.MAX_VALUE, Long.MAX_VALUE);
+		Map<Map<Integer, Integer>, BigInteger> streamed = new HashMap<>();
+		mixed.forEachAbsoluteFrequency(exact, (key, frequency) -> assertNull(streamed.put(key, frequency)));
+		assertEquals(size, streamed.size());
+		EvaluationBudget small = new EvaluationBudget(size - 1, 2, Long.MAX_VALUE, Long.MAX_VALUE);
+		BudgetExceededException e = assertThrows(BudgetExceededException.class,
+				() -> mixed.forEachAbsoluteFrequency(small, (key, frequency) -> {}));
+		assertEquals(BudgetExceededException.Limit.ENTRIES, e.getLimit());
+		// Every partial frequency is one, only the merged ones are two.
+		EvaluationBudget narrow = new EvaluationBudget(size, 1, Long.MAX_VALUE, Long.MAX_VALUE);
+		e = assertThrows(BudgetExceededException.class,
+				() -> mixed.forEachAbsoluteFrequency(narrow, (key, frequency) -> {}));
+		assertEquals(BudgetExceededException.Limit.BIT_LENGTH, e.getLimit());
+	}
+
+	/**
+	 * Thresholds must be positive.
+	 */
+	@Test
+	void testInvalidThreshold() {
+		assertThrows(IllegalArgumentException.class, () -> new SpillingAggregator(0));
+		assertThrows(IllegalArgumentException.class, () -> new SpillingAggregator(1, 0, null));
+		assertThrows(IllegalArgumentException.class, () -> new MixedDiceGroup(new SingleDie(4)).setSpillThreshold(0));
+	}
+}
@@ -0,0 +1,112 @@
+package io.github.qwert26.somedice;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link SuccessPool} against compressed
+ * {@link HomogeneousDiceGroup}s.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestSuccessPool {
+	/**
+	 * 
+	 * @param pool
+	 * @return The successes counted on every multi-set of the pool.
+	 */
+	private static Map<Map<Integer, Integer>, BigInteger> enumerated(SuccessPool pool) {
+		final int success = pool.getSuccessThreshold(), botch = pool.getBotchThreshold();
+		return Compressor.of(new HomogeneousDiceGroup(pool.getBaseDie(), pool.getCount()),
+				(value, amount) -> value >= success ? amount : value <= botch ? -amount : 0, Math::addExact, 0)
+				.getAbsoluteFrequencies();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 5, 9 })
+	void testBinomial(int count) {
+		SuccessPool pool = new SuccessPool(new SingleDie(10), count, 8);
+		assertFalse(pool.hasBotches());
+		assertEquals(enumerated(pool), pool.getAbsoluteFrequencies());
+		assertEquals(count + 1, pool.getAbsoluteFrequencies().size());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 2, 5, 9 })
+	void testBotches(int count) {
+		SuccessPool pool = new SuccessPool(new SingleDie(10), count, 7, 1);
+		assertEquals(enumerated(pool), pool.getAbsoluteFrequencies());
+		pool.setBotchThreshold(3);
+		assertEquals(enumerated(pool), pool.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testUnfair() {
+		UnfairDie weighted = new UnfairDie(new int[] { -2, 0, 3, 4, 7 }, new long[] { 5, 1, 4, 2, 3 });
+		SuccessPool pool = new SuccessPool(weighted, 6, 4, 0);
+		assertEquals(enumerated(pool), pool.getAbsoluteFrequencies());
+		assertEquals(ScaledFrequencies.of(enumerated(pool)), pool.getScaledFrequencies());
+		pool.setThresholds(100, SuccessPool.NO_BOTCHES);
+		assertEquals(Map.of(Collections.singletonMap(0, 1), BigInteger.valueOf(15).pow(6)),
+				pool.getAbsoluteFrequencies());
+	}
+
+	@Test
+	void testAllThresholds() {
+		SuccessPool pool = new SuccessPool(new RangeDie(1, 7), 7, 5);
+		NavigableMap<Integer, Map<Map<Integer, Integer>, BigInteger>> all = pool.getAllThresholds();
+		assertEquals(Set.of(1, 2, 3, 4, 5, 6), all.keySet());
+		for (Map.Entry<Integer, Map<Map<Integer, Integer>, BigInteger>> entry : all.entrySet()) {
+			SuccessPool single = new SuccessPool(pool.getBaseDie(), pool.getCount(), entry.getKey());
+			assertEquals(single.getAbsoluteFrequencies(), entry.getValue());
+		}
+		pool.setBotchThreshold(2);
+		all = pool.getAllThresholds();
+		assertEquals(Set.of(3, 4, 5, 6), all.keySet());
+		for (Map.Entry<Integer, Map<Map<Integer, Integer>, BigInteger>> entry : all.entrySet()) {
+			assertEquals(enumerated(new SuccessPool(pool.getBaseDie(), pool.getCount(), entry.getKey(), 2)),
+					entry.getValue());
+		}
+	}
+
+	@Test
+	void testArguments() {
+		assertThrows(NullPointerException.class, () -> new SuccessPool(null, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new SuccessPool(new SingleDie(6), 0, 5));
+		assertThrows(IllegalArgumentException.class, () -> new SuccessPool(new SingleDie(6), 3, 5, 5));
+		SuccessPool pool = new SuccessPool(new SingleDie(6), 3, 5, 1);
+		assertThrows(IllegalArgumentException.class, () -> pool.setSuccessThreshold(1));
+		assertEquals(5, pool.getSuccessThreshold());
+	}
+
+	@Test
+	void testCache() {
+		SuccessPool pool = new SuccessPool(new SingleDie(6), 4, 5);
+		Map<Map<Integer, Integer>, BigInteger> first = pool.getAbsoluteFrequencies();
+		assertSame(first, pool.getAbsoluteFrequencies());
+		pool.setCount(5);
+		assertNotSame(first, pool.getAbsoluteFrequencies());
+		assertEquals(6, pool.getAbsoluteFrequencies().size());
+		CostEstimate estimate = pool.estimate();
+		assertEquals(BigInteger.valueOf(6), estimate.getEntries());
+		assertEquals(0, estimate.getMinValue());
+		assertEquals(5, estimate.getMaxValue());
+	}
+
+	/**
+	 * A pool far too large for any enumeration.
+	 */
+	@Test
+	void testLarge() {
+		SuccessPool pool = new SuccessPool(new SingleDie(10), 500, 8, 1);
+		Map<Map<Integer, Integer>, BigInteger> result = pool.getAbsoluteFrequencies();
+		assertEquals(1001, result.size());
+		assertEquals(BigInteger.TEN.pow(500), result.values().stream().reduce(BigInteger.ZERO, BigInteger::add));
+	}
+}
@@ -91,6 +91,90 @@ public class TestUnfairDie {
 		assertEquals(truth, test);
 	}
 
+	@Test
+	void checkStatistics() {
+		UnfairDie underTest = DiceCollection.WRATH_AND_GLORY_DIE;
+		assertEquals(0, underTest.getMinimum());
+		assertEquals(2, underTest.getMaximum());
+		assertEquals(BigInteger.valueOf(6), underTest.getTotalWeight());
+		assertEquals(BigInteger.ONE, underTest.getWeightGcd());
+		assertArrayEquals(new int[] { 0, 1, 2 }, underTest.getFaces());
+		assertTrue(underTest.explodesOn(2));
+		assertFalse(underTest.explodesOn(1));
+	}
+
+	@Test
+	void checkStatisticsOfEmpty() {
+		UnfairDie underTest = new UnfairDie();
+		assertThrows(NoSuchElementException.class, () -> underTest.getMaximum());
+		assertThrows(NoSuchElementException.class, () -> underTest.getMinimum());
+		assertEquals(BigInteger.ZERO, underTest.getTotalWeight());
+		assertEquals(BigInteger.ZERO, underTest.getWeightGcd());
+		assertFalse(underTest.explodesOn(0));
+	}
+
+	@Test
+	void checkStatisticsFollowModifications() {
+		UnfairDie underTest = new UnfairDie(FudgeDie.INSTANCE);
+		assertEquals(1, underTest.getMaximum());
+		underTest.getData().put(5, BigInteger.valueOf(4));
+		assertEquals(5, underTest.getMaximum());
+		assertTrue(underTest.explodesOn(5));
+		assertEquals(BigInteger.valueOf(7), underTest.getTotalWeight());
+		underTest.getData().keySet().removeIf(value -> value > 0);
+		assertEquals(0, underTest.getMaximum());
+		assertEquals(-1, underTest.getMinimum());
+	}
+
+	@Test
+	void checkArrayConstructor() {
+		UnfairDie underTest = new UnfairDie(new int[] { 2, 0, 1, 0 }, new long[] { 1, 2, 2, 1 });
+		assertEquals(DiceCollection.WRATH_AND_GLORY_DIE, underTest);
+		assertEquals(DiceCollection.WRATH_AND_GLORY_DIE.hashCode(), underTest.hashCode());
+		assertEquals(DiceCollection.WRATH_AND_GLORY_DIE.getAbsoluteFrequencies(), underTest.getAbsoluteFrequencies());
+		assertEquals(DiceCollection.WRATH_AND_GLORY_DIE.getData(), underTest.getData());
+		long stamp = underTest.getModificationStamp();
+		underTest.getData().put(3, BigInteger.ONE);
+		assertTrue(underTest.getModificationStamp() > stamp);
+		assertEquals(3, underTest.getMaximum());
+	}
+
+	@Test
+	void checkSuppliedMapIsCopied() {
+		TreeMap<Integer, BigInteger> supplied = new TreeMap<Integer, BigInteger>(Comparator.reverseOrder());
+		supplied.put(1, BigInteger.ONE);
+		supplied.put(2, BigInteger.TWO);
+		UnfairDie underTest = new UnfairDie(() -> supplied);
+		assertEquals(List.of(2, 1), new ArrayList<Integer>(underTest.getData().keySet()));
+		Map<Map<Integer, Integer>, BigInteger> frequencies = underTest.getAbsoluteFrequencies();
+		long stamp = underTest.getModificationStamp();
+		supplied.put(3, BigInteger.ONE);
+		assertEquals(stamp, underTest.getModificationStamp());
+		assertEquals(2, underTest.getMaximum());
+		assertEquals(frequencies, underTest.getAbsoluteFrequencies());
+		underTest.getData().put(3, BigInteger.ONE);
+		assertTrue(underTest.getModificationStamp() > stamp);
+		assertEquals(3, underTest.getMaximum());
+		assertEquals(BigInteger.valueOf(4), underTest.getTotalWeight());
+	}
+
+	@Test
+	void checkArrayConstructorErrors() {
+		assertThrows(IllegalArgumentException.class, () -> new UnfairDie(null, new long[0]));
+		assertThrows(IllegalArgumentException.class, () -> new UnfairDie(new int[0], (BigInteger[]) null));
+		assertThrows(IllegalArgumentException.class, () -> new UnfairDie(new int[1], new long[2]));
+	}
+
+	@Test
+	void checkLargeWeights() {
+		BigInteger large = BigInteger.ONE.shiftLeft(70);
+		UnfairDie underTest = new UnfairDie(new int[] { 1, 2 }, new BigInteger[] { large, large.shiftLeft(1) });
+		assertEquals(large.multiply(BigInteger.valueOf(3)), underTest.getTotalWeight());
+		assertEquals(large, underTest.getWeightGcd());
+		underTest = new UnfairDie(new int[] { 1, 2 }, new long[] { Long.MAX_VALUE, Long.MAX_VALUE });
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1), underTest.getTotalWeight());
+	}
+
 	@Nested
 	@Tag("comparison")
 	public class ReplicatesFudgeDie {
@@ -42,6 +42,22 @@ public class TestUtils {
 		assertThrows(IllegalArgumentException.class, () -> binomial(1, 2));
 	}
 
+	/**
+	 * A whole row of Pascal's triangle matches the single coefficients.
+	 * 
+	 * @param total
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 2, 7, 30, 101 })
+	void testBinomialRow(int total) {
+		BigInteger[] row = binomials(total);
+		assertEquals(total + 1, row.length);
+		for (int group = 0; group <= total; group++) {
+			assertEquals(binomial(total, group), row[group]);
+		}
+		assertThrows(IllegalArgumentException.class, () -> binomials(-1));
+	}
+
 	/**
 	 * Choosing zero out of the given total should always result in a value of one.
 	 * 
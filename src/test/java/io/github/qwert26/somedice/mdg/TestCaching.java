@@ -0,0 +1,43 @@
+package io.github.qwert26.somedice.mdg;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.qwert26.somedice.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the cached results of {@link MixedDiceGroup}.
+ * 
+ * @author <b>Qwert26</b>, main author
+ */
+public class TestCaching extends TestMixedDiceGroup {
+	@Test
+	void cacheHitsShareTheResult() {
+		MixedDiceGroup underTest = new MixedDiceGroup(new SingleDie(6), new SingleDie(8));
+		Map<Map<Integer, Integer>, BigInteger> first = underTest.getAbsoluteFrequencies();
+		assertSame(first, underTest.getAbsoluteFrequencies());
+		assertSame(first, underTest.getAbsoluteFrequencies(EvaluationBudget.UNLIMITED));
+	}
+
+	@Test
+	void cachedResultIsUnmodifiable() {
+		MixedDiceGroup underTest = new MixedDiceGroup(new SingleDie(6), new SingleDie(8));
+		Map<Map<Integer, Integer>, BigInteger> result = underTest.getAbsoluteFrequencies();
+		assertThrows(UnsupportedOperationException.class, () -> result.clear());
+		assertThrows(UnsupportedOperationException.class,
+				() -> result.put(Collections.singletonMap(1, 2), BigInteger.ONE));
+	}
+
+	@Test
+	void copyIsModifiable() {
+		MixedDiceGroup underTest = new MixedDiceGroup(new SingleDie(6), new SingleDie(8));
+		Map<Map<Integer, Integer>, BigInteger> copy = underTest.copyAbsoluteFrequencies();
+		assertEquals(underTest.getAbsoluteFrequencies(), copy);
+		assertNotSame(underTest.getAbsoluteFrequencies(), copy);
+		assertDoesNotThrow(() -> copy.clear());
+		assertFalse(underTest.getAbsoluteFrequencies().isEmpty());
+	}
+}
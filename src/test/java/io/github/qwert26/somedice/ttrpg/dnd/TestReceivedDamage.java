@@ -204,4 +204,37 @@ public class TestReceivedDamage {
 		assertTrue(first.equals(second));
 		assertEquals(first.hashCode(), second.hashCode());
 	}
+
+	@Test
+	void checkScaledFrequencies() {
+		UnfairDie source = new UnfairDie(new int[] { 1, 5, 9, 12 }, new long[] { 4, 8, 12, 4 });
+		RecievedDamage underTest = new RecievedDamage(source);
+		underTest.setReduction(5);
+		underTest.setVulnerability(true);
+		ScaledFrequencies scaled = underTest.getScaledFrequencies(EvaluationBudget.UNLIMITED);
+		assertEquals(BigInteger.valueOf(4), scaled.getScale());
+		assertEquals(Map.of(Map.of(0, 1), BigInteger.valueOf(3), Map.of(8, 1), BigInteger.valueOf(3), Map.of(14, 1),
+				BigInteger.ONE), scaled.getReduced());
+		assertEquals(ScaledFrequencies.of(underTest.getAbsoluteFrequencies()), scaled);
+	}
+
+	@Test
+	void checkParallel() {
+		UnfairDie source = new Compressor(new HomogeneousDiceGroup(new SingleDie(12), 6)).toUnfairDie();
+		RecievedDamage sequential = new RecievedDamage(source);
+		sequential.setReduction(7);
+		sequential.setResistance(true);
+		sequential.setParallelThreshold(Integer.MAX_VALUE);
+		RecievedDamage parallel = new RecievedDamage(source);
+		parallel.setReduction(7);
+		parallel.setResistance(true);
+		parallel.setParallelThreshold(1);
+		// Only the parallel path checks the merged damage values instead of every rolled one.
+		EvaluationBudget budget = EvaluationBudget.profiling();
+		Map<Map<Integer, Integer>, BigInteger> expected = sequential.getAbsoluteFrequencies(budget);
+		assertEquals(source.getAbsoluteFrequencies().size(), budget.getProfile().getProducedEntries());
+		budget = EvaluationBudget.profiling();
+		assertEquals(expected, parallel.getAbsoluteFrequencies(budget));
+		assertEquals(expected.size(), budget.getProfile().getProducedEntries());
+	}
 }
\ No newline at end of file